@@ -269,13 +269,31 @@ public final class IndexTerm implements Comparable<IndexTerm> {
         final int subTermNum = subTerms.size();
 
         if (subTerms != null && subTermNum > 0) {
-            Collections.sort(subTerms);
+            sort(subTerms);
             for (final IndexTerm subTerm : subTerms) {
                 subTerm.sortSubTerms();
             }
         }
     }
 
+    /**
+     * Sort terms by term key. Collation keys are computed once per term instead of once per comparison.
+     * The result is the same as sorting with {@link #compareTo(IndexTerm)}.
+     * 
+     * @param terms terms to sort
+     */
+    static void sort(final List<IndexTerm> terms) {
+        if (terms.size() < 2) {
+            return;
+        }
+        DITAOTCollator.getInstance(termLocale).sort(terms, new DITAOTCollator.SortString<IndexTerm>() {
+            @Override
+            public String getSortString(final IndexTerm term) {
+                return term.getTermKey();
+            }
+        });
+    }
+
     /**
      * Compare the given indexterm with current term.
      * 
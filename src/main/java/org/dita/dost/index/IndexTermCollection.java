@@ -12,9 +12,10 @@ import static org.dita.dost.util.Constants.*;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import org.dita.dost.exception.DITAOTException;
 import org.dita.dost.log.DITAOTJavaLogger;
@@ -29,6 +30,9 @@ import org.dita.dost.writer.JavaHelpIndexWriter;
 /**
  * This class is a collection of index term.
  * 
+ * <p>Terms are indexed by full name and sort key. Instances are not thread-safe; partial
+ * collections can be built on separate threads and combined with {@link #addAll(IndexTermCollection)}.</p>
+ * 
  * @version 1.0 2005-05-18
  * 
  * @author Wu, Zhi Qiang
@@ -38,6 +42,8 @@ public final class IndexTermCollection {
     private static IndexTermCollection collection = null;
     /** The list of all index term. */
     private final List<IndexTerm> termList = new ArrayList<IndexTerm>(16);
+    /** Index of terms in {@link #termList} by full name and sort key. */
+    private final Map<TermKey, IndexTerm> termIndex = new HashMap<TermKey, IndexTerm>(16);
 
     /** The type of index term. */
     private String indexType = null;
@@ -55,16 +61,18 @@ public final class IndexTermCollection {
     private PipelineHashIO pipelineHashIO = null;
 
     /**
-     * Private constructor used to forbid instance.
+     * Create empty index term collection.
      */
-    private IndexTermCollection() {
+    public IndexTermCollection() {
         javaLogger = new DITAOTJavaLogger();
     }
 
     /**
      * The only interface to access IndexTermCollection instance.
      * @return Singleton IndexTermCollection instance
+     * @deprecated create a new instance for each extraction instead
      */
+    @Deprecated
     public static synchronized IndexTermCollection getInstantce(){
         if(collection == null){
             collection = new IndexTermCollection();
@@ -77,6 +85,7 @@ public final class IndexTermCollection {
      */
     public void clear(){
         termList.clear();
+        termIndex.clear();
     }
 
     /**
@@ -118,26 +127,28 @@ public final class IndexTermCollection {
      * @param term index term
      */
     public void addTerm(final IndexTerm term) {
-        int i = 0;
-        final int termNum = termList.size();
-
-        for (; i < termNum; i++) {
-            final IndexTerm indexTerm = termList.get(i);
-            if (indexTerm.equals(term)) {
-                return;
-            }
-
+        final TermKey key = new TermKey(term);
+        final IndexTerm indexTerm = termIndex.get(key);
+        if (indexTerm == null) {
+            termList.add(term);
+            termIndex.put(key, term);
+        } else if (!indexTerm.equals(term)) {
             // Add targets when same term name and same term key
-            if (indexTerm.getTermFullName().equals(term.getTermFullName())
-                    && indexTerm.getTermKey().equals(term.getTermKey())) {
-                indexTerm.addTargets(term.getTargetList());
-                indexTerm.addSubTerms(term.getSubTerms());
-                break;
-            }
+            indexTerm.addTargets(term.getTargetList());
+            indexTerm.addSubTerms(term.getSubTerms());
         }
+    }
 
-        if (i == termNum) {
-            termList.add(term);
+    /**
+     * Add all terms from another collection into this collection. Terms are added in the order of
+     * the other collection's term list.
+     * 
+     * @param other index term collection to merge
+     * @since 2.1
+     */
+    public void addAll(final IndexTermCollection other) {
+        for (final IndexTerm term: other.termList) {
+            addTerm(term);
         }
     }
 
@@ -168,7 +179,7 @@ public final class IndexTermCollection {
             term.sortSubTerms();
         }
 
-        Collections.sort(termList);
+        IndexTerm.sort(termList);
     }
 
     /**
@@ -276,6 +287,37 @@ public final class IndexTermCollection {
         pipelineHashIO = hashIO;
     }
 
+    /**
+     * Index key of a term, full name and sort key.
+     */
+    private static final class TermKey {
+
+        private final String fullName;
+        private final String key;
 
+        TermKey(final IndexTerm term) {
+            fullName = term.getTermFullName();
+            key = term.getTermKey();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof TermKey)) {
+                return false;
+            }
+            final TermKey other = (TermKey) o;
+            return (fullName == null ? other.fullName == null : fullName.equals(other.fullName))
+                    && (key == null ? other.key == null : key.equals(other.key));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = 17;
+            result = 37 * result + (fullName != null ? fullName.hashCode() : 0);
+            result = 37 * result + (key != null ? key.hashCode() : 0);
+            return result;
+        }
+
+    }
 
 }
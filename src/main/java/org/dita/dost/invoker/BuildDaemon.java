@@ -0,0 +1,541 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.invoker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.dita.dost.util.ParallelUtils;
+
+/**
+ * Resident build server. {@link Main} hands builds to the daemon over a loopback socket so that the JVM,
+ * compiled stylesheets, the DTD grammar pool and the catalog resolver stay warm between builds.
+ *
+ * <p>Each build runs in its own {@link Main} instance and Ant project with a unique temporary directory.
+ * Builds run one at a time, because the toolkit keeps JVM-wide state, e.g. the catalog resolver, the grammar
+ * pool and the transformer factory system property, that is not safe to share between concurrent builds.
+ * Requests are read and authenticated by separate handshake threads with a read timeout, and only
+ * authenticated builds wait in the build queue, so that a client that doesn't send its request can't block
+ * other builds. Standard output and error written by a build are routed to the client that submitted it.</p>
+ *
+ * <p>The protocol is a request with an access token, the client's working directory and command line
+ * arguments, followed by frames of standard output and error from the daemon, terminated by the exit code
+ * of the build.</p>
+ *
+ * <p>The daemon only accepts connections from the local host. On start the daemon writes a random access
+ * token into a file readable only by its owner and rejects requests without the token, so that other users
+ * of the host can't run builds as the daemon owner. The daemon has to be restarted after plug-ins have been
+ * installed or uninstalled.</p>
+ *
+ * @since 2.1
+ */
+public final class BuildDaemon {
+
+    /** Default daemon port. */
+    public static final int DEFAULT_PORT = 7890;
+
+    private static final int MAGIC = 0x44495441;
+    private static final int VERSION = 2;
+    private static final int TOKEN_LENGTH = 32;
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final int FRAME_EXIT = 0;
+    private static final int FRAME_OUT = 1;
+    private static final int FRAME_ERR = 2;
+    /** Number of threads reading and authenticating requests. */
+    private static final int HANDSHAKE_THREADS = 4;
+    /** Read timeout for a request in milliseconds. */
+    private static final int HANDSHAKE_TIMEOUT = 10000;
+
+    private final int port;
+    private final File tokenDir;
+    private File tokenFile;
+    private byte[] token;
+    private ServerSocket server;
+    private ExecutorService handshakeExecutor;
+    private ExecutorService executor;
+    private Thread acceptor;
+    private PrintStream savedOut;
+    private PrintStream savedErr;
+    /** Build output streams of the current thread and threads started by it. */
+    private final InheritableThreadLocal<PrintStream> out = new InheritableThreadLocal<PrintStream>();
+    private final InheritableThreadLocal<PrintStream> err = new InheritableThreadLocal<PrintStream>();
+
+    /**
+     * Create new daemon.
+     *
+     * @param port port to listen, {@code 0} to use any free port
+     * @param tokenDir directory to write access token file into
+     */
+    public BuildDaemon(final int port, final File tokenDir) {
+        this.port = port;
+        this.tokenDir = tokenDir;
+    }
+
+    /**
+     * Get default directory for access token files.
+     *
+     * @return token file directory in user home directory
+     */
+    public static File getDefaultTokenDir() {
+        return new File(System.getProperty("user.home"), ".dita-ot");
+    }
+
+    private static File getTokenFile(final File tokenDir, final int port) {
+        return new File(tokenDir, "daemon-" + port + ".token");
+    }
+
+    /**
+     * Start listening for builds.
+     *
+     * @throws IOException if binding the server socket or writing the access token file failed
+     */
+    public synchronized void start() throws IOException {
+        server = new ServerSocket();
+        server.bind(new InetSocketAddress(InetAddress.getByName(null), port));
+        try {
+            token = generateToken();
+            tokenFile = getTokenFile(tokenDir, server.getLocalPort());
+            writeToken(tokenFile, token);
+        } catch (final IOException e) {
+            server.close();
+            throw e;
+        }
+        System.setProperty("javax.xml.transform.TransformerFactory", CachingTransformerFactory.class.getName());
+        savedOut = System.out;
+        savedErr = System.err;
+        System.setOut(new PrintStream(new RoutingOutputStream(savedOut, out), true));
+        System.setErr(new PrintStream(new RoutingOutputStream(savedErr, err), true));
+        handshakeExecutor = ParallelUtils.newFixedThreadPool(HANDSHAKE_THREADS, "build-daemon-handshake");
+        executor = ParallelUtils.newFixedThreadPool(1, "build-daemon");
+        acceptor = new Thread("build-daemon-acceptor") {
+            @Override
+            public void run() {
+                accept();
+            }
+        };
+        acceptor.start();
+    }
+
+    /**
+     * Get port the daemon is listening.
+     *
+     * @return port number
+     */
+    public synchronized int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Wait until the daemon has been stopped.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void await() throws InterruptedException {
+        acceptor.join();
+    }
+
+    /**
+     * Stop accepting builds. Running builds are interrupted.
+     */
+    public synchronized void stop() {
+        try {
+            server.close();
+        } catch (final IOException e) {
+            // ignore
+        }
+        try {
+            // the listening socket is released only after the acceptor has returned from accept
+            acceptor.join();
+            handshakeExecutor.shutdownNow();
+            handshakeExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.setOut(savedOut);
+        System.setErr(savedErr);
+        System.clearProperty("javax.xml.transform.TransformerFactory");
+        if (!tokenFile.delete() && tokenFile.exists()) {
+            savedErr.println("Failed to delete access token file " + tokenFile.getAbsolutePath());
+        }
+    }
+
+    private static byte[] generateToken() {
+        final byte[] bytes = new byte[TOKEN_LENGTH / 2];
+        new SecureRandom().nextBytes(bytes);
+        final StringBuilder buf = new StringBuilder(TOKEN_LENGTH);
+        for (final byte b: bytes) {
+            buf.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return buf.toString().getBytes(ASCII);
+    }
+
+    /**
+     * Write access token into a new file that only the owner can read and write.
+     */
+    private static void writeToken(final File file, final byte[] token) throws IOException {
+        final Path dir = file.getParentFile().toPath();
+        final Path path = file.toPath();
+        final boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        if (!Files.exists(dir)) {
+            if (posix) {
+                Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(EnumSet.of(
+                        PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE)));
+            } else {
+                Files.createDirectories(dir);
+            }
+        }
+        Files.deleteIfExists(path);
+        if (posix) {
+            final Set<PosixFilePermission> perms = EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE);
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(perms));
+        } else {
+            Files.createFile(path);
+            final File f = path.toFile();
+            if (!(f.setReadable(false, false) && f.setReadable(true, true)
+                    && f.setWritable(false, false) && f.setWritable(true, true))) {
+                Files.delete(path);
+                throw new IOException("Failed to restrict access to token file " + file.getAbsolutePath());
+            }
+        }
+        Files.write(path, token);
+    }
+
+    /**
+     * Read access token of a daemon.
+     *
+     * @return access token, {@code null} if token file doesn't exist
+     */
+    private static byte[] readToken(final File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        return Files.readAllBytes(file.toPath());
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            final Socket socket;
+            try {
+                socket = server.accept();
+            } catch (final SocketException e) {
+                break;
+            } catch (final IOException e) {
+                savedErr.println("Failed to accept build: " + e.getMessage());
+                continue;
+            }
+            try {
+                handshakeExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        handshake(socket);
+                    }
+                });
+            } catch (final RejectedExecutionException e) {
+                close(socket);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Read and authenticate request, and queue the build if the request is valid.
+     */
+    private void handshake(final Socket socket) {
+        final Request request;
+        try {
+            socket.setSoTimeout(HANDSHAKE_TIMEOUT);
+            request = readRequest(socket);
+            socket.setSoTimeout(0);
+        } catch (final SocketTimeoutException e) {
+            savedErr.println("Build request timed out");
+            close(socket);
+            return;
+        } catch (final EOFException e) {
+            // client closed connection before sending request
+            close(socket);
+            return;
+        } catch (final IOException e) {
+            savedErr.println("Failed to read build request: " + e.getMessage());
+            close(socket);
+            return;
+        }
+        if (request == null) {
+            close(socket);
+            return;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        serve(request);
+                    } catch (final IOException e) {
+                        savedErr.println("Failed to run build: " + e.getMessage());
+                    } finally {
+                        close(socket);
+                    }
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            close(socket);
+        }
+    }
+
+    private static void close(final Socket socket) {
+        try {
+            socket.close();
+        } catch (final IOException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * Read build request.
+     *
+     * @return build request, {@code null} if the request is not a build request or has an invalid access token
+     */
+    private Request readRequest(final Socket socket) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            return null;
+        }
+        final byte[] requestToken = new byte[in.readUnsignedShort()];
+        in.readFully(requestToken);
+        if (!MessageDigest.isEqual(token, requestToken)) {
+            savedErr.println("Rejected build request with invalid access token");
+            return null;
+        }
+        final File baseDir = new File(in.readUTF());
+        final String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = in.readUTF();
+        }
+        return new Request(socket, baseDir, args);
+    }
+
+    private void serve(final Request request) throws IOException {
+        final DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(request.socket.getOutputStream()));
+        final PrintStream buildOut = new PrintStream(new FrameOutputStream(dout, FRAME_OUT), true);
+        final PrintStream buildErr = new PrintStream(new FrameOutputStream(dout, FRAME_ERR), true);
+        out.set(buildOut);
+        err.set(buildErr);
+        int exitCode = 1;
+        try {
+            exitCode = new Main(request.baseDir, buildOut, buildErr).runBuild(request.args);
+        } catch (final Throwable e) {
+            e.printStackTrace(buildErr);
+        } finally {
+            out.remove();
+            err.remove();
+            buildOut.flush();
+            buildErr.flush();
+        }
+        synchronized (dout) {
+            dout.writeByte(FRAME_EXIT);
+            dout.writeInt(exitCode);
+            dout.flush();
+        }
+    }
+
+    /**
+     * Submit build to a running daemon.
+     *
+     * @param tokenDir directory of access token files
+     * @param port daemon port
+     * @param baseDir directory to resolve relative file arguments against
+     * @param args command line arguments
+     * @param stdout stream for build standard output
+     * @param stderr stream for build standard error
+     * @return build exit code, {@code null} if no daemon is running or the daemon rejected the build
+     * @throws IOException if communication with the daemon failed
+     */
+    public static Integer submit(final File tokenDir, final int port, final File baseDir, final String[] args,
+            final OutputStream stdout, final OutputStream stderr) throws IOException {
+        final byte[] token = readToken(getTokenFile(tokenDir, port));
+        if (token == null) {
+            return null;
+        }
+        final Socket socket = new Socket();
+        try {
+            try {
+                socket.connect(new InetSocketAddress(InetAddress.getByName(null), port));
+            } catch (final ConnectException e) {
+                return null;
+            }
+            final DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            dout.writeInt(MAGIC);
+            dout.writeInt(VERSION);
+            dout.writeShort(token.length);
+            dout.write(token);
+            dout.writeUTF(baseDir.getAbsolutePath());
+            dout.writeInt(args.length);
+            for (final String arg: args) {
+                dout.writeUTF(arg);
+            }
+            dout.flush();
+
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final byte[] buf = new byte[8192];
+            boolean started = false;
+            while (true) {
+                final int type;
+                try {
+                    type = in.readByte();
+                } catch (final EOFException e) {
+                    if (!started) {
+                        // daemon was stopped before the build was started or rejected the build
+                        return null;
+                    }
+                    throw e;
+                }
+                started = true;
+                if (type == FRAME_EXIT) {
+                    return in.readInt();
+                }
+                final OutputStream o = type == FRAME_ERR ? stderr : stdout;
+                int len = in.readInt();
+                while (len > 0) {
+                    final int n = in.read(buf, 0, Math.min(len, buf.length));
+                    if (n == -1) {
+                        throw new IOException("Unexpected end of daemon response");
+                    }
+                    o.write(buf, 0, n);
+                    len -= n;
+                }
+                o.flush();
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Authenticated build request.
+     */
+    private static final class Request {
+
+        final Socket socket;
+        final File baseDir;
+        final String[] args;
+
+        Request(final Socket socket, final File baseDir, final String[] args) {
+            this.socket = socket;
+            this.baseDir = baseDir;
+            this.args = args;
+        }
+
+    }
+
+    /**
+     * Output stream that writes data frames of a single type to a shared stream.
+     */
+    private static final class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+        private final int type;
+
+        FrameOutputStream(final DataOutputStream out, final int type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            synchronized (out) {
+                out.writeByte(type);
+                out.writeInt(len);
+                out.write(b, off, len);
+                out.flush();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+    }
+
+    /**
+     * Output stream that writes to the build stream of the current thread, or to the default stream
+     * if the current thread doesn't belong to a build.
+     */
+    private static final class RoutingOutputStream extends OutputStream {
+
+        private final OutputStream defaultStream;
+        private final ThreadLocal<PrintStream> current;
+
+        RoutingOutputStream(final OutputStream defaultStream, final ThreadLocal<PrintStream> current) {
+            this.defaultStream = defaultStream;
+            this.current = current;
+        }
+
+        private OutputStream get() {
+            final OutputStream o = current.get();
+            return o != null ? o : defaultStream;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            get().write(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            get().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            get().flush();
+        }
+
+    }
+
+}
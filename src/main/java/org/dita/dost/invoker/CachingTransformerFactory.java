@@ -0,0 +1,51 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.invoker;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.URIResolver;
+
+import org.dita.dost.util.TemplatesCache;
+
+import net.sf.saxon.StandardURIResolver;
+import net.sf.saxon.TransformerFactoryImpl;
+
+/**
+ * Saxon transformer factory that compiles stylesheets through {@link TemplatesCache}. Used by the build
+ * daemon so that stylesheets used by Ant's XSLT task are compiled once and reused across builds.
+ *
+ * @since 2.1
+ */
+public class CachingTransformerFactory extends TransformerFactoryImpl {
+
+    @Override
+    public Templates newTemplates(final Source source) throws TransformerConfigurationException {
+        // Saxon's default resolver is created per factory and doesn't affect stylesheet resolution
+        final URIResolver r = getURIResolver() instanceof StandardURIResolver ? null : getURIResolver();
+        return TemplatesCache.getTemplates(source, r, new TemplatesCache.Compiler() {
+            @Override
+            public Templates compile(final Source style, final URIResolver resolver) throws TransformerConfigurationException {
+                synchronized (CachingTransformerFactory.this) {
+                    final URIResolver orig = getURIResolver();
+                    setURIResolver(resolver);
+                    try {
+                        return CachingTransformerFactory.super.newTemplates(style);
+                    } finally {
+                        setURIResolver(orig);
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public Transformer newTransformer(final Source source) throws TransformerConfigurationException {
+        return newTemplates(source).newTransformer();
+    }
+
+}
@@ -32,6 +32,7 @@ import org.dita.dost.module.XsltModule;
 import org.dita.dost.pipeline.PipelineFacade;
 import org.dita.dost.pipeline.PipelineHashIO;
 import org.dita.dost.util.Job;
+import org.dita.dost.util.ParallelUtils;
 
 /**
  * Ant task for executing pipeline modules.
@@ -162,10 +163,13 @@ public final class ExtensibleAntInvoker extends Task {
                     x.setFilenameParam(xm.filenameparameter);
                     x.setFiledirParam(xm.filedirparameter);
                     x.setReloadstylesheet(xm.reloadstylesheet);
+                    x.setParallel(xm.parallel);
+                    x.setDocumentCacheSize(xm.documentCacheSize);
                     x.setXMLCatalog(xm.xmlcatalog);
                     if (xm.mapper != null) {
                     	x.setMapper(xm.mapper.getImplementation());
                     }
+                    x.setExtension(xm.extension);
                     for (final Param p : m.params) {
                         if (!p.isValid()) {
                             throw new BuildException("Incomplete parameter");
@@ -293,10 +297,13 @@ public final class ExtensibleAntInvoker extends Task {
         private final List<IncludesFile> includes = new ArrayList<IncludesFile>();
         private final List<IncludesFile> excludes = new ArrayList<IncludesFile>();
         private Mapper mapper;
+        private String extension;
         private String filenameparameter;
         private String filedirparameter;
         private XMLCatalog xmlcatalog;
         private boolean reloadstylesheet;
+        private int parallel = 1;
+        private long documentCacheSize;
         
         // Ant setters
         
@@ -320,13 +327,31 @@ public final class ExtensibleAntInvoker extends Task {
         }
         
         public void setExtension(final String extension) {
-        	// Ignore extension attribute
+            this.extension = extension;
         }
         
         public void setReloadstylesheet(final boolean reloadstylesheet) {
         	this.reloadstylesheet = reloadstylesheet;
         }
         
+        /**
+         * Set number of parallel transformation threads.
+         * 
+         * @param parallel positive integer, or {@code true} or {@code yes} to use one thread per processor
+         */
+        public void setParallel(final String parallel) {
+            this.parallel = ParallelUtils.getThreadCount(parallel);
+        }
+        
+        /**
+         * Set maximum total size of parsed {@code document()} sources to cache between transformations.
+         * 
+         * @param documentCacheSize size in megabytes, {@code 0} to disable caching
+         */
+        public void setDocumentcachesize(final int documentCacheSize) {
+            this.documentCacheSize = documentCacheSize * 1024L * 1024L;
+        }
+        
         public void setIn(final File in) {
         	this.in = in;
         }
@@ -29,14 +29,19 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.BuildListener;
@@ -75,7 +80,7 @@ public class Main extends org.apache.tools.ant.Main implements AntMain {
             this.property = property;
         }
 
-        abstract String getValue(final String value);
+        abstract String getValue(final File baseDir, final String value);
     }
 
     private static class StringArgument extends Argument {
@@ -84,7 +89,7 @@ public class Main extends org.apache.tools.ant.Main implements AntMain {
         }
 
         @Override
-        String getValue(final String value) {
+        String getValue(final File baseDir, final String value) {
             return value;
         }
     }
@@ -95,8 +100,8 @@ public class Main extends org.apache.tools.ant.Main implements AntMain {
         }
 
         @Override
-        String getValue(final String value) {
-            return new File(value).getAbsolutePath();
+        String getValue(final File baseDir, final String value) {
+            return resolve(baseDir, value).getAbsolutePath();
         }
     }
 
@@ -201,10 +206,10 @@ public class Main extends org.apache.tools.ant.Main implements AntMain {
     private String uninstallId;
 
     /** Stream to use for logging. */
-    private static PrintStream out = System.out;
+    private PrintStream out = System.out;
 
     /** Stream that we are using for logging error messages. */
-    private static PrintStream err = System.err;
+    private PrintStream err = System.err;
 
     /** The build targets. */
     private final Vector<String> targets = new Vector<String>();
@@ -257,7 +262,7 @@ public class Main extends org.apache.tools.ant.Main implements AntMain {
      * Whether or not a logfile is being used. This is used to check if the
      * output streams must be closed.
      */
-    private static boolean isLogFileUsed = false;
+    private boolean isLogFileUsed = false;
 
     /**
      * optional thread priority
@@ -269,6 +274,18 @@ public class Main extends org.apache.tools.ant.Main implements AntMain {
      */
     private boolean proxy = false;
 
+    /** Directory to resolve relative file arguments against, {@code null} for current directory. */
+    private final File baseDir;
+
+    /** Build is run by {@link BuildDaemon} and must not exit the JVM or replace system streams. */
+    private final boolean daemon;
+
+    /** Exit code of a daemon build. */
+    private int exitCode;
+
+    /** Counter for unique temporary directories of daemon builds. */
+    private static final AtomicInteger daemonBuildCount = new AtomicInteger();
+
     /**
      * Prints the message of the Throwable if it (the message) is not
      * <code>null</code>.
@@ -315,8 +332,20 @@ public class Main extends org.apache.tools.ant.Main implements AntMain {
     @Override
     public void startAnt(final String[] args, final Properties additionalUserProperties, final ClassLoader coreLoader) {
 
+        final String[] buildArgs;
+        try {
+            buildArgs = daemon ? args : handleDaemonArgs(args);
+        } catch (final Throwable exc) {
+            printMessage(exc);
+            exit(1);
+            return;
+        }
+        if (buildArgs == null) {
+            return;
+        }
+
         try {
-            processArgs(args);
+            processArgs(buildArgs);
         } catch (final Throwable exc) {
             handleLogfile();
             printMessage(exc);
@@ -365,7 +394,11 @@ public class Main extends org.apache.tools.ant.Main implements AntMain {
      */
     @Override
     protected void exit(final int exitCode) {
-        System.exit(exitCode);
+        if (daemon) {
+            this.exitCode = exitCode;
+        } else {
+            System.exit(exitCode);
+        }
     }
 
     /**
@@ -373,7 +406,7 @@ public class Main extends org.apache.tools.ant.Main implements AntMain {
      * 
      * @since Ant 1.6
      */
-    private static void handleLogfile() {
+    private void handleLogfile() {
         if (isLogFileUsed) {
             FileUtils.close(out);
             FileUtils.close(err);
@@ -395,6 +428,102 @@ public class Main extends org.apache.tools.ant.Main implements AntMain {
      * Constructor used when creating Main for later arg processing and startup
      */
     public Main() {
+        baseDir = null;
+        daemon = false;
+    }
+
+    /**
+     * Constructor used by {@link BuildDaemon} to run a single build.
+     * 
+     * @param baseDir directory to resolve relative file arguments against
+     * @param out build standard output
+     * @param err build standard error
+     * @since 2.1
+     */
+    Main(final File baseDir, final PrintStream out, final PrintStream err) {
+        this.baseDir = baseDir;
+        this.out = out;
+        this.err = err;
+        daemon = true;
+        allowInput = false;
+    }
+
+    /**
+     * Run a daemon build.
+     * 
+     * @param args command line arguments
+     * @return exit code
+     * @since 2.1
+     */
+    int runBuild(final String[] args) {
+        startAnt(args, null, null);
+        return exitCode;
+    }
+
+    /**
+     * Handle build daemon arguments. Runs the build daemon with {@code -daemon}. With {@code -use-daemon} the
+     * build is submitted to a running daemon and if no daemon is running, the build is run locally.
+     * 
+     * @param args command line arguments
+     * @return arguments for a local build, {@code null} if the arguments have been handled
+     */
+    private String[] handleDaemonArgs(final String[] args) throws IOException, InterruptedException {
+        boolean runDaemon = false;
+        boolean useDaemon = false;
+        boolean local = false;
+        int port = BuildDaemon.DEFAULT_PORT;
+        final List<String> buildArgs = new ArrayList<String>(args.length);
+        for (int i = 0; i < args.length; i++) {
+            final String arg = args[i];
+            if (arg.equals("-daemon")) {
+                runDaemon = true;
+            } else if (arg.equals("-use-daemon")) {
+                useDaemon = true;
+            } else if (arg.equals("-daemon-port")) {
+                try {
+                    port = Integer.parseInt(args[++i]);
+                } catch (final ArrayIndexOutOfBoundsException aioobe) {
+                    throw new BuildException("You must specify a port number when using the -daemon-port argument");
+                } catch (final NumberFormatException e) {
+                    throw new BuildException("Unrecognized port number: " + args[i]);
+                }
+            } else {
+                if (arg.equals("-install") || arg.equals("-uninstall")) {
+                    // plug-in installation changes configuration the daemon has already loaded
+                    local = true;
+                }
+                buildArgs.add(arg);
+            }
+        }
+        if (runDaemon) {
+            final BuildDaemon buildDaemon = new BuildDaemon(port, BuildDaemon.getDefaultTokenDir());
+            buildDaemon.start();
+            System.out.println("Build daemon listening on port " + buildDaemon.getPort());
+            buildDaemon.await();
+            return null;
+        }
+        final String[] res = buildArgs.toArray(new String[buildArgs.size()]);
+        if (useDaemon && !local) {
+            final Integer code = BuildDaemon.submit(BuildDaemon.getDefaultTokenDir(), port, new File(".").getAbsoluteFile(),
+                    res, System.out, System.err);
+            if (code != null) {
+                exit(code);
+                return null;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Resolve file argument.
+     * 
+     * @param baseDir base directory, {@code null} for current directory
+     * @param path file path
+     * @return resolved file
+     */
+    private static File resolve(final File baseDir, final String path) {
+        final File f = new File(path);
+        return baseDir == null || f.isAbsolute() ? f : new File(baseDir, path);
     }
 
     /**
@@ -439,7 +568,7 @@ public class Main extends org.apache.tools.ant.Main implements AntMain {
                 allowInput = false;
             } else if (arg.equals("-logfile") || arg.equals("-l")) {
                 try {
-                    final File logFile = new File(args[i + 1]);
+                    final File logFile = resolve(baseDir, args[i + 1]);
                     i++;
                     logTo = new PrintStream(new FileOutputStream(logFile));
                     isLogFileUsed = true;
@@ -546,11 +675,18 @@ public class Main extends org.apache.tools.ant.Main implements AntMain {
             }
             // default values
             if (!definedProps.containsKey("output.dir")) {
-                definedProps.put("output.dir", new File(new File("."), "out").getAbsolutePath());
+                definedProps.put("output.dir", resolve(baseDir, "out").getAbsolutePath());
             }
             if (!definedProps.containsKey("base.temp.dir") && !definedProps.containsKey("dita.temp.dir")) {
                 definedProps.put("base.temp.dir", new File(System.getProperty("java.io.tmpdir")).getAbsolutePath());
             }
+            if (daemon && !definedProps.containsKey("dita.temp.dir")) {
+                // daemon builds must not reuse the temporary directory of a previous build
+                final File baseTempDir = resolve(baseDir, definedProps.get("base.temp.dir").toString());
+                final String name = "temp" + new SimpleDateFormat("yyyyMMddHHmmssSSS").format(new Date())
+                        + "_" + daemonBuildCount.incrementAndGet();
+                definedProps.put("dita.temp.dir", new File(baseTempDir, name).getAbsolutePath());
+            }
         }
 
         // if buildFile was not specified on the command line,
@@ -620,8 +756,10 @@ public class Main extends org.apache.tools.ant.Main implements AntMain {
         if (logTo != null) {
             out = logTo;
             err = logTo;
-            System.setOut(out);
-            System.setErr(err);
+            if (!daemon) {
+                System.setOut(out);
+                System.setErr(err);
+            }
         }
         readyToRun = true;
     }
@@ -719,7 +857,7 @@ public class Main extends org.apache.tools.ant.Main implements AntMain {
         }
         final Argument a = ARGUMENTS.get(name);
         
-        definedProps.put(a.property, a.getValue(value));
+        definedProps.put(a.property, a.getValue(baseDir, value));
         return argPos;
     }
     
@@ -739,7 +877,7 @@ public class Main extends org.apache.tools.ant.Main implements AntMain {
         }
         final Argument a = LEGACY_ARGUMENTS.get(name);
         
-        definedProps.put(a.property, a.getValue(value));
+        definedProps.put(a.property, a.getValue(baseDir, value));
         return argPos;
     }
 
@@ -812,7 +950,7 @@ public class Main extends org.apache.tools.ant.Main implements AntMain {
             final Properties props = new Properties();
             FileInputStream fis = null;
             try {
-                fis = new FileInputStream(filename);
+                fis = new FileInputStream(resolve(baseDir, filename));
                 props.load(fis);
             } catch (final IOException e) {
                 System.out.println("Could not load property file " + filename + ": " + e.getMessage());
@@ -933,9 +1071,12 @@ public class Main extends org.apache.tools.ant.Main implements AntMain {
                 if (allowInput) {
                     project.setDefaultInputStream(System.in);
                 }
-                System.setIn(new DemuxInputStream(project));
-                System.setOut(new PrintStream(new DemuxOutputStream(project, false)));
-                System.setErr(new PrintStream(new DemuxOutputStream(project, true)));
+                // system streams are owned by the daemon and routed to the build's client
+                if (!daemon) {
+                    System.setIn(new DemuxInputStream(project));
+                    System.setOut(new PrintStream(new DemuxOutputStream(project, false)));
+                    System.setErr(new PrintStream(new DemuxOutputStream(project, true)));
+                }
 
                 if (!projectHelp) {
                     project.fireBuildStarted();
@@ -1000,9 +1141,11 @@ public class Main extends org.apache.tools.ant.Main implements AntMain {
                     System.setSecurityManager(oldsm);
                 }
 
-                System.setOut(savedOut);
-                System.setErr(savedErr);
-                System.setIn(savedIn);
+                if (!daemon) {
+                    System.setOut(savedOut);
+                    System.setErr(savedErr);
+                    System.setIn(savedIn);
+                }
             }
         } catch (final RuntimeException exc) {
             error = exc;
@@ -1142,6 +1285,9 @@ public class Main extends org.apache.tools.ant.Main implements AntMain {
         // msg.append("  -lib <path>            specifies a path to search for jars and classes"
         // + lSep);
         msg.append("  -l, logfile <file>     use given file for log" + lSep);
+        msg.append("  -daemon                run as build daemon" + lSep);
+        msg.append("  -use-daemon            run build in build daemon if one is running" + lSep);
+        msg.append("  -daemon-port <port>    build daemon port, default " + BuildDaemon.DEFAULT_PORT + lSep);
         // msg.append("  -logger <classname>    the class which is to perform logging"
         // + lSep);
         // msg.append("  -listener <classname>  add an instance of class as a project listener"
@@ -0,0 +1,91 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Logger that buffers messages until they are flushed into another logger.
+ *
+ * <p>Used by parallel processing to collect messages of a single work item in a
+ * worker thread and to replay them in a deterministic order in the calling thread.</p>
+ *
+ * <p><strong>Not thread-safe</strong>. Each worker should use its own instance.</p>
+ *
+ * @since 2.1
+ */
+public final class DITAOTBufferedLogger implements DITAOTLogger {
+
+    private enum Level { INFO, WARN, ERROR, DEBUG }
+
+    private static final class Message {
+        final Level level;
+        final String msg;
+        final Throwable t;
+        Message(final Level level, final String msg, final Throwable t) {
+            this.level = level;
+            this.msg = msg;
+            this.t = t;
+        }
+    }
+
+    private final List<Message> buf = new ArrayList<Message>();
+
+    @Override
+    public void info(final String msg) {
+        buf.add(new Message(Level.INFO, msg, null));
+    }
+
+    @Override
+    public void warn(final String msg) {
+        buf.add(new Message(Level.WARN, msg, null));
+    }
+
+    @Override
+    public void error(final String msg) {
+        buf.add(new Message(Level.ERROR, msg, null));
+    }
+
+    @Override
+    public void error(final String msg, final Throwable t) {
+        buf.add(new Message(Level.ERROR, msg, t));
+    }
+
+    @Override
+    public void debug(final String msg) {
+        buf.add(new Message(Level.DEBUG, msg, null));
+    }
+
+    /**
+     * Write buffered messages to a logger and clear the buffer.
+     *
+     * @param logger logger to write messages to
+     */
+    public void flush(final DITAOTLogger logger) {
+        for (final Message m: buf) {
+            switch (m.level) {
+            case INFO:
+                logger.info(m.msg);
+                break;
+            case WARN:
+                logger.warn(m.msg);
+                break;
+            case ERROR:
+                if (m.t != null) {
+                    logger.error(m.msg, m.t);
+                } else {
+                    logger.error(m.msg);
+                }
+                break;
+            case DEBUG:
+                logger.debug(m.msg);
+                break;
+            }
+        }
+        buf.clear();
+    }
+
+}
@@ -15,18 +15,29 @@ import static org.dita.dost.util.FileUtils.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.parsers.DocumentBuilder;
 
 import org.dita.dost.exception.DITAOTException;
+import org.dita.dost.log.DITAOTBufferedLogger;
+import org.dita.dost.log.DITAOTLogger;
 import org.dita.dost.pipeline.AbstractPipelineInput;
 import org.dita.dost.pipeline.AbstractPipelineOutput;
 import org.dita.dost.reader.ChunkMapReader;
@@ -52,6 +63,10 @@ final public class ChunkModule extends AbstractPipelineModuleImpl {
      * using to save relative path when do rename action for newly chunked file
      */
     final Map<String, String> relativePath2fix = new HashMap<String, String>();
+    /** Maximum number of files submitted for parallel href rewriting per thread ahead of writing results. */
+    private static final int PENDING_PER_THREAD = 4;
+    /** Number of parallel href rewrite threads. */
+    private int parallel = 1;
 
     /**
      * Constructor.
@@ -70,6 +85,7 @@ final public class ChunkModule extends AbstractPipelineModuleImpl {
     @Override
     public AbstractPipelineOutput execute(final AbstractPipelineInput input) throws DITAOTException {
         final String transtype = input.getAttribute(ANT_INVOKER_EXT_PARAM_TRANSTYPE);
+        parallel = ParallelUtils.getThreadCount(input.getAttribute(ANT_INVOKER_EXT_PARAM_PARALLEL));
         // change to xml property
         final ChunkMapReader mapReader = new ChunkMapReader();
         mapReader.setLogger(logger);
@@ -144,25 +160,105 @@ final public class ChunkModule extends AbstractPipelineModuleImpl {
     /**
      * Update href attributes in ditamap and topic files.
      */
-    private void updateRefOfDita(final Map<String, String> changeTable, final Map<String, String> conflictTable) {
+    private void updateRefOfDita(final Map<String, String> changeTable, final Map<String, String> conflictTable)
+            throws DITAOTException {
+        final List<FileInfo> fis = new ArrayList<FileInfo>();
+        for (final FileInfo f : job.getFileInfo()) {
+            if (ATTR_FORMAT_VALUE_DITA.equals(f.format) || ATTR_FORMAT_VALUE_DITAMAP.equals(f.format)) {
+                fis.add(f);
+            }
+        }
+        if (parallel > 1 && fis.size() > 1) {
+            updateRefOfDitaParallel(fis, changeTable, conflictTable);
+        } else {
+            final TopicRefWriter topicRefWriter = newTopicRefWriter(changeTable, conflictTable);
+            for (final FileInfo f : fis) {
+                updateRef(topicRefWriter, f, logger);
+            }
+        }
+    }
+
+    /**
+     * Update href attributes with a bounded pool of worker threads, each with its own {@link TopicRefWriter}.
+     * Log messages are buffered per file and written in file order. At most {@value #PENDING_PER_THREAD} files
+     * per thread are submitted ahead of the result being written.
+     */
+    private void updateRefOfDitaParallel(final Collection<FileInfo> fis, final Map<String, String> changeTable,
+            final Map<String, String> conflictTable) throws DITAOTException {
+        logger.debug("Using " + parallel + " threads to update references");
+        final ThreadLocal<TopicRefWriter> writers = new ThreadLocal<TopicRefWriter>() {
+            @Override
+            protected TopicRefWriter initialValue() {
+                return newTopicRefWriter(changeTable, conflictTable);
+            }
+        };
+        final ExecutorService executor = ParallelUtils.newFixedThreadPool(parallel, "chunk");
+        final int maxPending = parallel * PENDING_PER_THREAD;
+        // submitted files in file order
+        final Queue<Future<DITAOTBufferedLogger>> results = new LinkedList<Future<DITAOTBufferedLogger>>();
+        try {
+            for (final FileInfo f: fis) {
+                if (results.size() >= maxPending) {
+                    flush(results.remove());
+                }
+                results.add(executor.submit(new Callable<DITAOTBufferedLogger>() {
+                    @Override
+                    public DITAOTBufferedLogger call() throws Exception {
+                        final DITAOTBufferedLogger log = new DITAOTBufferedLogger();
+                        updateRef(writers.get(), f, log);
+                        return log;
+                    }
+                }));
+            }
+            while (!results.isEmpty()) {
+                flush(results.remove());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Wait for a submitted file and write its log messages.
+     */
+    private void flush(final Future<DITAOTBufferedLogger> result) throws DITAOTException {
+        try {
+            result.get().flush(logger);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DITAOTException("Interrupted while updating references", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else if (cause instanceof DITAOTException) {
+                throw (DITAOTException) cause;
+            }
+            throw new DITAOTException(cause.getMessage(), cause);
+        }
+    }
+
+    private TopicRefWriter newTopicRefWriter(final Map<String, String> changeTable, final Map<String, String> conflictTable) {
         final TopicRefWriter topicRefWriter = new TopicRefWriter();
-        topicRefWriter.setLogger(logger);
         topicRefWriter.setJob(job);
         topicRefWriter.setChangeTable(changeTable);
         topicRefWriter.setup(conflictTable);
+        return topicRefWriter;
+    }
+
+    /**
+     * Update href attributes in a single file.
+     */
+    private void updateRef(final TopicRefWriter topicRefWriter, final FileInfo f, final DITAOTLogger log) {
+        topicRefWriter.setLogger(log);
+        topicRefWriter.setFixpath(relativePath2fix.get(f.file.toString()));
         try {
-            for (final FileInfo f : job.getFileInfo()) {
-                if (ATTR_FORMAT_VALUE_DITA.equals(f.format) || ATTR_FORMAT_VALUE_DITAMAP.equals(f.format)) {
-                    topicRefWriter.setFixpath(relativePath2fix.get(f.file.toString()));
-                    topicRefWriter.write(new File(job.tempDir.getAbsoluteFile(), f.file.getPath()).getAbsoluteFile());
-                }
-            }
-        } catch (final RuntimeException e) {
-            throw e;
-        } catch (final DITAOTException ex) {
-            logger.error(ex.getMessage(), ex);
+            topicRefWriter.write(new File(job.tempDir.getAbsoluteFile(), f.file.getPath()).getAbsoluteFile());
+        } catch (final DITAOTException e) {
+            log.error(e.getMessage(), e);
         }
-
     }
 
     /**
@@ -171,31 +267,36 @@ final public class ChunkModule extends AbstractPipelineModuleImpl {
     private void updateList(final Map<String, String> changeTable, final Map<String, String> conflictTable) {
         final File xmlDitalist = new File(job.tempDir, "dummy.xml");
 
-        final Set<String> hrefTopics = new HashSet<String>();
+        // href topics indexed by normalized absolute URI
+        final URI tempDir = job.tempDir.getAbsoluteFile().toURI();
+        final Map<URI, Set<String>> hrefTopics = new HashMap<URI, Set<String>>();
         for (final FileInfo f : job.getFileInfo()) {
             if (f.isNonConrefTarget) {
-                hrefTopics.add(f.file.getPath());
+                final URI key = tempDir.resolve(stripFragment(f.uri)).normalize();
+                Set<String> ents = hrefTopics.get(key);
+                if (ents == null) {
+                    ents = new HashSet<String>();
+                    hrefTopics.put(key, ents);
+                }
+                ents.add(f.file.getPath());
             }
         }
         for (final FileInfo f : job.getFileInfo()) {
             if (f.isSkipChunk) {
                 final String s = f.file.getPath();
+                final URI key = tempDir.resolve(stripFragment(f.uri)).normalize();
                 if (!StringUtils.isEmptyString(s) && getFragment(s) == null) {
                     // This entry does not have an anchor, we assume that this
                     // topic will
                     // be fully chunked. Thus it should not produce any output.
-                    final Iterator<String> hrefit = hrefTopics.iterator();
-                    while (hrefit.hasNext()) {
-                        final String ent = hrefit.next();
-                        if (resolve(job.tempDir.getAbsolutePath(), ent).getPath().equals(
-                                resolve(job.tempDir.getAbsolutePath(), s).getPath())) {
-                            // The entry in hrefTopics points to the same target
-                            // as entry in chunkTopics, it should be removed.
-                            hrefit.remove();
-                        }
+                    // Entries in hrefTopics that point to the same target
+                    // as entry in chunkTopics should be removed.
+                    hrefTopics.remove(key);
+                } else if (!StringUtils.isEmptyString(s)) {
+                    final Set<String> ents = hrefTopics.get(key);
+                    if (ents != null) {
+                        ents.remove(s);
                     }
-                } else if (!StringUtils.isEmptyString(s) && hrefTopics.contains(s)) {
-                    hrefTopics.remove(s);
                 }
             }
         }
@@ -207,10 +308,10 @@ final public class ChunkModule extends AbstractPipelineModuleImpl {
                 oldTopicList.add(f.file.getPath());
             }
         }
-        for (final String hrefTopic : hrefTopics) {
-            final String t = getRelativePath(xmlDitalist.getAbsolutePath(), resolve(job.tempDir.getAbsolutePath(), stripFragment(hrefTopic)).getPath(), File.separator);
-            topicList.add(t);
-            if (oldTopicList.contains(t)) {
+        for (final Set<String> ents : hrefTopics.values()) {
+            for (final String hrefTopic : ents) {
+                final String t = getRelativePath(xmlDitalist.getAbsolutePath(), resolve(job.tempDir.getAbsolutePath(), stripFragment(hrefTopic)).getPath(), File.separator);
+                topicList.add(t);
                 oldTopicList.remove(t);
             }
         }
@@ -8,26 +8,47 @@
  */
 package org.dita.dost.module;
 
+import static org.dita.dost.util.Constants.*;
+
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Hashtable;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.dita.dost.exception.DITAOTException;
+import org.dita.dost.log.DITAOTBufferedLogger;
+import org.dita.dost.log.DITAOTLogger;
 import org.dita.dost.pipeline.AbstractPipelineInput;
 import org.dita.dost.pipeline.AbstractPipelineOutput;
 import org.dita.dost.reader.ConrefPushReader;
 import org.dita.dost.reader.ConrefPushReader.MoveKey;
 import org.dita.dost.util.Job.FileInfo;
 import org.dita.dost.util.Job.FileInfo.Filter;
+import org.dita.dost.util.ParallelUtils;
 import org.dita.dost.writer.ConrefPushParser;
 import org.w3c.dom.DocumentFragment;
 
 /**
  * Conref push module.
+ * 
+ * <p>Push content is first collected from all source files and grouped by target file. Each target file
+ * is then rewritten exactly once with all pushes into it applied in a single pass. If {@code parallel}
+ * is set, target files are processed with multiple threads.</p>
  */
 final class ConrefPushModule extends AbstractPipelineModuleImpl {
 
+    /** Maximum number of targets listed in push statistics. */
+    private static final int STATISTICS_SIZE = 10;
+
     @Override
     public AbstractPipelineOutput execute(final AbstractPipelineInput input)
             throws DITAOTException {
@@ -45,21 +66,143 @@ final class ConrefPushModule extends AbstractPipelineModuleImpl {
                 logger.info("Reading  " + file.getAbsolutePath());
                 //FIXME: this reader calculate parent directory
                 reader.read(file.getAbsoluteFile());
-            }            
-            final Map<File, Hashtable<MoveKey, DocumentFragment>> pushSet = reader.getPushMap();
-            for (final Map.Entry<File, Hashtable<MoveKey, DocumentFragment>> entry: pushSet.entrySet()) {
-                logger.info("Processing " + entry.getKey().getAbsolutePath());
-                final ConrefPushParser parser = new ConrefPushParser();
-                parser.setJob(job);
-                parser.setLogger(logger);
-                parser.setMoveTable(entry.getValue());
-                //pass the tempdir to ConrefPushParser
-                parser.setTempDir(job.tempDir.getAbsoluteFile());
-                //FIXME:This writer creates and renames files, have to
-                parser.write(entry.getKey());
             }
+            final Map<File, Map<MoveKey, DocumentFragment>> pushSet = new TreeMap<File, Map<MoveKey, DocumentFragment>>(reader.getPushMap());
+            final List<Push> pushes = new ArrayList<Push>(pushSet.size());
+            for (final Map.Entry<File, Map<MoveKey, DocumentFragment>> entry: pushSet.entrySet()) {
+                pushes.add(new Push(entry.getKey(), entry.getValue()));
+            }
+            final int parallel = ParallelUtils.getThreadCount(input.getAttribute(ANT_INVOKER_EXT_PARAM_PARALLEL));
+            if (parallel > 1 && pushes.size() > 1) {
+                pushParallel(pushes, parallel);
+            } else {
+                final ConrefPushParser parser = newConrefPushParser();
+                for (final Push push: pushes) {
+                    push.apply(parser, logger);
+                }
+            }
+            try {
+                job.write();
+            } catch (final IOException e) {
+                throw new DITAOTException("Failed to write job configuration: " + e.getMessage(), e);
+            }
+            logStatistics(pushes);
         }
         return null;
     }
 
+    /**
+     * Apply pushes with a bounded pool of worker threads, each with its own parser. Log messages are
+     * buffered per target and written in target order.
+     */
+    private void pushParallel(final List<Push> pushes, final int parallel) throws DITAOTException {
+        logger.debug("Using " + parallel + " threads to push content");
+        final ThreadLocal<ConrefPushParser> parsers = new ThreadLocal<ConrefPushParser>() {
+            @Override
+            protected ConrefPushParser initialValue() {
+                return newConrefPushParser();
+            }
+        };
+        final ExecutorService executor = ParallelUtils.newFixedThreadPool(parallel, "conref-push");
+        final List<Future<DITAOTBufferedLogger>> results = new ArrayList<Future<DITAOTBufferedLogger>>(pushes.size());
+        try {
+            for (final Push push: pushes) {
+                results.add(executor.submit(new Callable<DITAOTBufferedLogger>() {
+                    @Override
+                    public DITAOTBufferedLogger call() throws Exception {
+                        final DITAOTBufferedLogger log = new DITAOTBufferedLogger();
+                        push.apply(parsers.get(), log);
+                        return log;
+                    }
+                }));
+            }
+            for (final Future<DITAOTBufferedLogger> result: results) {
+                try {
+                    result.get().flush(logger);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new DITAOTException("Interrupted while pushing content", e);
+                } catch (final ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    } else if (cause instanceof DITAOTException) {
+                        throw (DITAOTException) cause;
+                    }
+                    throw new DITAOTException(cause.getMessage(), cause);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ConrefPushParser newConrefPushParser() {
+        final ConrefPushParser parser = new ConrefPushParser();
+        parser.setJob(job);
+        //pass the tempdir to ConrefPushParser
+        parser.setTempDir(job.tempDir.getAbsoluteFile());
+        return parser;
+    }
+
+    /**
+     * Log push totals and the targets that received most pushes.
+     */
+    private void logStatistics(final List<Push> pushes) {
+        int total = 0;
+        int applied = 0;
+        for (final Push push: pushes) {
+            total += push.count;
+            applied += push.applied;
+        }
+        logger.info("Applied " + applied + " of " + total + " conref pushes into " + pushes.size() + " files");
+        final List<Push> sorted = new ArrayList<Push>(pushes);
+        Collections.sort(sorted, new Comparator<Push>() {
+            @Override
+            public int compare(final Push o1, final Push o2) {
+                return o2.count < o1.count ? -1 : (o2.count == o1.count ? 0 : 1);
+            }
+        });
+        for (final Push push: sorted.subList(0, Math.min(STATISTICS_SIZE, sorted.size()))) {
+            logger.debug("Conref push target " + push.target.getAbsolutePath() + ": " + push.applied + " of " + push.count + " pushes applied");
+        }
+    }
+
+    /**
+     * Pushes into a single target file.
+     */
+    private static final class Push {
+
+        final File target;
+        private final Map<MoveKey, DocumentFragment> table;
+        /** Number of pushes into target. */
+        final int count;
+        /** Number of applied pushes, set after the pushes have been applied. */
+        volatile int applied;
+
+        Push(final File target, final Map<MoveKey, DocumentFragment> table) {
+            this.target = target;
+            this.table = table;
+            this.count = table.size();
+        }
+
+        /**
+         * Rewrite target file with push content.
+         *
+         * @param parser parser to use
+         * @param logger logger to use
+         */
+        void apply(final ConrefPushParser parser, final DITAOTLogger logger) throws DITAOTException {
+            logger.info("Processing " + target.getAbsolutePath());
+            parser.setLogger(logger);
+            parser.setMoveTable(table);
+            //FIXME:This writer creates and renames files, have to
+            parser.write(target);
+            applied = count - table.size();
+        }
+
+    }
+
 }
@@ -8,6 +8,8 @@
  */
 package org.dita.dost.module;
 
+import static org.apache.commons.io.FileUtils.copyFile;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
 import static org.dita.dost.reader.GenListModuleReader.*;
 import static org.dita.dost.util.Constants.*;
 import static org.dita.dost.util.FileUtils.getRelativePath;
@@ -24,6 +26,13 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.transform.Result;
@@ -38,6 +47,8 @@ import org.apache.xerces.xni.grammars.XMLGrammarPool;
 import org.apache.xml.resolver.tools.CatalogResolver;
 import org.dita.dost.exception.DITAOTException;
 import org.dita.dost.exception.DITAOTXMLErrorHandler;
+import org.dita.dost.log.DITAOTBufferedLogger;
+import org.dita.dost.log.DITAOTLogger;
 import org.dita.dost.log.MessageUtils;
 import org.dita.dost.pipeline.AbstractPipelineInput;
 import org.dita.dost.pipeline.AbstractPipelineOutput;
@@ -79,20 +90,21 @@ public final class DebugAndFilterModule extends AbstractPipelineModuleImpl {
     /** Absolute DITA-OT base path. */
     private File ditaDir;
     private File ditavalFile;
-    private FilterUtils filterUtils;
-    /** Absolute path to current destination file. */
-    private File outputFile;
-    private Map<String, Map<String, Set<String>>> validateMap;
-    private Map<String, Map<String, String>> defaultValueMap;
-    /** XMLReader instance for parsing dita file */
-    private XMLReader reader;
-    /** Absolute path to current source file. */
-    private URI currentFile;
+    /** Maximum number of files submitted for parallel processing per thread ahead of writing results. */
+    private static final int PENDING_PER_THREAD = 4;
+    /** Number of parallel processing threads. */
+    private int parallel = 1;
+    /** Incremental build cache directory, {@code null} if incremental processing is disabled. */
+    private File incrementalDir;
+    /** Dependency graph of the current build, {@code null} if incremental processing is disabled. */
+    private DependencyGraph dependencyGraph;
+    /** Absolute source URIs of files that have to be processed in incremental processing. */
+    private Set<URI> dirty;
     private Map<URI, Set<URI>> dic;
-    private SubjectSchemeReader subjectSchemeReader;
     private FilterUtils baseFilterUtils;
     private ForceUniqueFilter forceUniqueFilter;
-    private DitaWriterFilter ditaWriterFilter;
+    /** Processor used by the calling thread. */
+    private Processor processor;
 
     @Override
     public AbstractPipelineOutput execute(final AbstractPipelineInput input) throws DITAOTException {
@@ -102,119 +114,425 @@ public final class DebugAndFilterModule extends AbstractPipelineModuleImpl {
         try {
             readArguments(input);
             init();
+            if (incrementalDir != null) {
+                initIncremental(input);
+            }
 
+            final List<FileInfo> fs = new ArrayList<FileInfo>();
             for (final FileInfo f: job.getFileInfo()) {
                 if (isFormatDita(f.format) || ATTR_FORMAT_VALUE_DITAMAP.equals(f.format)
                         || f.isConrefTarget || f.isCopyToSource) {
-                    processFile(f);
+                    if (dependencyGraph != null && restoreCached(f)) {
+                        updateFormat(f);
+                    } else {
+                        fs.add(f);
+                    }
+                }
+            }
+            if (parallel > 1) {
+                processParallel(fs);
+            } else {
+                for (final FileInfo f: fs) {
+                    if (processor.processFile(f, logger)) {
+                        updateFormat(f);
+                    }
                 }
             }
 
             performCopytoTask();
 
             job.write();
+
+            if (dependencyGraph != null) {
+                dependencyGraph.write(new File(incrementalDir, DEPENDENCY_GRAPH_FILE));
+            }
         } catch (final Exception e) {
-            e.printStackTrace();
+            logger.error(e.getMessage(), e);
             throw new DITAOTException("Exception doing debug and filter module processing: " + e.getMessage(), e);
         }
 
         return null;
     }
 
-    private void processFile(final FileInfo f) {
-        currentFile = f.src;
-        if (!exists(currentFile)) {
-            // Assuming this is an copy-to target file, ignore it
-            logger.debug("Ignoring a copy-to file " + f.file);
+    /**
+     * Process files with a bounded pool of worker threads. Each worker uses its own filter pipeline.
+     * Maps are processed in the calling thread when unique topic copies are generated, because
+     * topic reference counts are shared between maps. Log messages are written and the job is
+     * updated in file order. At most {@value #PENDING_PER_THREAD} files per thread are submitted
+     * ahead of the result being written.
+     *
+     * @param fs files to process
+     */
+    private void processParallel(final List<FileInfo> fs) throws Exception {
+        logger.debug("Using " + parallel + " threads to debug and filter files");
+        final BlockingQueue<Processor> processors = new ArrayBlockingQueue<Processor>(parallel);
+        for (int i = 0; i < parallel; i++) {
+            processors.add(new Processor(new DITAOTBufferedLogger(), null));
+        }
+        final ExecutorService executor = ParallelUtils.newFixedThreadPool(parallel, "debug-filter");
+        final int maxPending = parallel * PENDING_PER_THREAD;
+        // submitted files in file order
+        final Queue<PendingFile> results = new LinkedList<PendingFile>();
+        try {
+            for (final FileInfo f: fs) {
+                if (results.size() >= maxPending) {
+                    flush(results.remove());
+                }
+                final DITAOTBufferedLogger log = new DITAOTBufferedLogger();
+                if (forceUnique && ATTR_FORMAT_VALUE_DITAMAP.equals(f.format)) {
+                    final FutureTask<Boolean> task = new FutureTask<Boolean>(new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            return processor.processFile(f, log);
+                        }
+                    });
+                    task.run();
+                    results.add(new PendingFile(f, log, task));
+                } else {
+                    results.add(new PendingFile(f, log, executor.submit(new Callable<Boolean>() {
+                        @Override
+                        public Boolean call() throws Exception {
+                            final Processor p = processors.take();
+                            try {
+                                return p.processFile(f, log);
+                            } finally {
+                                processors.add(p);
+                            }
+                        }
+                    })));
+                }
+            }
+            while (!results.isEmpty()) {
+                flush(results.remove());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Wait for a submitted file, write its log messages and update its format in the job.
+     */
+    private void flush(final PendingFile pending) throws Exception {
+        final boolean processed;
+        try {
+            processed = pending.result.get();
+        } catch (final ExecutionException e) {
+            pending.log.flush(logger);
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new DITAOTException(cause.getMessage(), cause);
+        }
+        pending.log.flush(logger);
+        if (processed) {
+            updateFormat(pending.file);
+        }
+    }
+
+    /** File submitted for parallel processing. */
+    private static final class PendingFile {
+        final FileInfo file;
+        final DITAOTBufferedLogger log;
+        final Future<Boolean> result;
+
+        PendingFile(final FileInfo file, final DITAOTBufferedLogger log, final Future<Boolean> result) {
+            this.file = file;
+            this.log = log;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Initialize incremental processing. Files that changed since the previous build, their subject scheme
+     * dependents, and files that directly refer to them are reprocessed.
+     */
+    private void initIncremental(final AbstractPipelineInput input) throws IOException {
+        if (forceUnique) {
+            logger.info("Incremental processing not supported with unique topic copies, processing all files");
             return;
         }
-        outputFile = new File(job.tempDir, f.file.getPath());
-        final File outputDir = outputFile.getParentFile();
-        if (!outputDir.exists() && !outputDir.mkdirs()) {
-            logger.error("Failed to create output directory " + outputDir.getAbsolutePath());
+        final DependencyGraph graph = DependencyGraph.read(new File(job.tempDir, DEPENDENCY_GRAPH_FILE));
+        if (graph == null) {
+            logger.info("Dependency graph not found, processing all files");
             return;
         }
-        logger.info("Processing " + f.src);
+        graph.setConfiguration(getConfiguration(input));
+        final DependencyGraph previous = DependencyGraph.read(new File(incrementalDir, DEPENDENCY_GRAPH_FILE));
+        final Set<URI> changed = graph.getChanged(previous);
+        final Set<URI> res = graph.getDependents(changed, EnumSet.of(DependencyGraph.Type.SUBJECT_SCHEME));
+        res.addAll(graph.getDirectDependents(changed, EnumSet.of(DependencyGraph.Type.HREF,
+                DependencyGraph.Type.CONREF, DependencyGraph.Type.CODEREF, DependencyGraph.Type.COPYTO)));
+        logger.info("Incremental processing: " + changed.size() + " changed files, "
+                + res.size() + " files to process");
+        dependencyGraph = graph;
+        dirty = res;
+    }
 
-        final Set<URI> schemaSet = dic.get(f.uri);
-        if (schemaSet != null && !schemaSet.isEmpty()) {
-            logger.debug("Loading subject schemes");
-            subjectSchemeReader.reset();
-            for (final URI schema : schemaSet) {
-                subjectSchemeReader.loadSubjectScheme(new File(job.tempDir.toURI().resolve(schema.getPath() + SUBJECT_SCHEME_EXTENSION)));
-            }
-            validateMap = subjectSchemeReader.getValidValuesMap();
-            defaultValueMap = subjectSchemeReader.getDefaultValueMap();
-        } else {
-            validateMap = Collections.EMPTY_MAP;
-            defaultValueMap = Collections.EMPTY_MAP;
+    /**
+     * Get stamp of processing configuration. Output of previous builds is only reused if the configuration
+     * stamp is the same.
+     */
+    private String getConfiguration(final AbstractPipelineInput input) throws IOException {
+        final StringBuilder buf = new StringBuilder();
+        for (final String name: new String[] { ANT_INVOKER_EXT_PARAM_DITADIR, ANT_INVOKER_EXT_PARAM_TRANSTYPE,
+                ANT_INVOKER_PARAM_PROFILING_ENABLED, ANT_INVOKER_EXT_PARAM_VALIDATE,
+                ANT_INVOKER_EXT_PARAN_SETSYSTEMID, ANT_INVOKER_EXT_PARAM_GENERATE_DEBUG_ATTR,
+                ANT_INVOKER_EXT_PARAM_PROCESSING_MODE }) {
+            buf.append(name).append('=').append(input.getAttribute(name)).append('\n');
         }
-        if (profilingEnabled) {
-            filterUtils = baseFilterUtils.refine(subjectSchemeReader.getSubjectSchemeMap());
+        if (ditavalFile != null) {
+            buf.append(ANT_INVOKER_PARAM_DITAVAL).append('=').append(DependencyGraph.hash(ditavalFile.toURI())).append('\n');
         }
+        for (final Map.Entry<String, String> e: new TreeMap<String, String>(job.getProperties()).entrySet()) {
+            buf.append(e.getKey()).append('=').append(e.getValue()).append('\n');
+        }
+        return DependencyGraph.hash(buf.toString());
+    }
 
-        OutputStream out = null;
+    private File getCacheFile(final FileInfo f) {
+        return new File(incrementalDir, "debug-filter" + File.separator + f.file.getPath());
+    }
+
+    /**
+     * Copy output of a previous build into temporary directory if the file has not changed.
+     *
+     * @return {@code true} if cached output was used, otherwise {@code false}
+     */
+    private boolean restoreCached(final FileInfo f) throws IOException {
+        if (f.src == null || dirty.contains(f.src) || !dependencyGraph.getFiles().contains(f.src)) {
+            return false;
+        }
+        final File cached = getCacheFile(f);
+        if (!cached.exists()) {
+            return false;
+        }
+        logger.debug("Using cached " + f.src);
+        copyFile(cached, new File(job.tempDir, f.file.getPath()));
+        return true;
+    }
+
+    /**
+     * Store processed output for later builds, or remove stale output if processing failed.
+     */
+    private void updateCached(final FileInfo f, final File outputFile, final boolean success, final DITAOTLogger logger) {
+        final File cached = getCacheFile(f);
         try {
-            out = new FileOutputStream(outputFile);
-
-            reader.setErrorHandler(new DITAOTXMLErrorHandler(currentFile.toString(), logger));
-
-            final TransformerFactory tf = TransformerFactory.newInstance();
-            final Transformer serializer = tf.newTransformer();
-            XMLReader xmlSource = getXmlReader(f.format);
-            for (final XMLFilter filter: getProcessingPipe(currentFile)) {
-                filter.setParent(xmlSource);
-                xmlSource = filter;
-            }
-            // ContentHandler must be reset so e.g. Saxon 9.1 will reassign ContentHandler
-            // when reusing filter with multiple Transformers.
-            xmlSource.setContentHandler(null);
-
-            final Source source = new SAXSource(xmlSource, new InputSource(f.src.toString()));
-            final Result result = new StreamResult(out);
-            serializer.transform(source, result);
-        } catch (final RuntimeException e) {
-            throw e;
-        } catch (final Exception e) {
-            logger.error(e.getMessage(), e) ;
-        } finally {
-            if (out != null) {
-                try {
-                    out.close();
-                }catch (final Exception e) {
-                    logger.error(e.getMessage(), e) ;
-                }
+            if (success) {
+                copyFile(outputFile, cached);
+            } else {
+                deleteQuietly(cached);
             }
+        } catch (final IOException e) {
+            logger.warn("Failed to cache " + outputFile + ": " + e.getMessage());
+            deleteQuietly(cached);
         }
+    }
 
+    private void updateFormat(final FileInfo f) {
         if (isFormatDita(f.format)) {
             f.format = ATTR_FORMAT_VALUE_DITA;
         }
     }
 
-    private XMLReader getXmlReader(final String format) throws SAXException {
-        for (final Map.Entry<String, String> e: parserMap.entrySet()) {
-            if (format != null && format.equals(e.getKey())) {
-                try {
-                    return (XMLReader) this.getClass().forName(e.getValue()).newInstance();
-                } catch (final InstantiationException ex) {
-                    throw new SAXException(ex);
-                } catch (final IllegalAccessException ex) {
-                    throw new SAXException(ex);
-                } catch (final ClassNotFoundException ex) {
-                    throw new SAXException(ex);
+    /**
+     * Filter pipeline for processing files. Instances are reused between files, but are not thread-safe.
+     */
+    private final class Processor {
+
+        /** XMLReader instance for parsing dita file */
+        private final XMLReader reader;
+        private final TransformerFactory tf;
+        private final SubjectSchemeReader subjectSchemeReader;
+        private final DitaWriterFilter ditaWriterFilter;
+        /** Shared force unique filter, {@code null} if not used by this processor. */
+        private final ForceUniqueFilter forceUniqueFilter;
+        private DITAOTLogger logger;
+        private FilterUtils filterUtils;
+        /** Absolute path to current source file. */
+        private URI currentFile;
+        /** Absolute path to current destination file. */
+        private File outputFile;
+        private Map<String, Map<String, Set<String>>> validateMap;
+        private Map<String, Map<String, String>> defaultValueMap;
+
+        /**
+         * Create new processor.
+         *
+         * @param logger logger to use
+         * @param forceUniqueFilter shared force unique filter, may be {@code null}
+         */
+        Processor(final DITAOTLogger logger, final ForceUniqueFilter forceUniqueFilter) throws SAXException {
+            this.logger = logger;
+            this.forceUniqueFilter = forceUniqueFilter;
+            reader = createXmlReader(logger);
+            tf = TransformerFactory.newInstance();
+            subjectSchemeReader = new SubjectSchemeReader();
+            subjectSchemeReader.setLogger(logger);
+            ditaWriterFilter = new DitaWriterFilter();
+            ditaWriterFilter.setLogger(logger);
+            ditaWriterFilter.setJob(job);
+            ditaWriterFilter.setEntityResolver(reader.getEntityResolver());
+        }
+
+        /**
+         * Process a single file. Job is not modified.
+         *
+         * @param f file to process
+         * @param log logger to use for the file
+         * @return {@code true} if file was processed, {@code false} if it was skipped
+         */
+        boolean processFile(final FileInfo f, final DITAOTLogger log) {
+            logger = log;
+            subjectSchemeReader.setLogger(log);
+            ditaWriterFilter.setLogger(log);
+            if (forceUniqueFilter != null) {
+                forceUniqueFilter.setLogger(log);
+            }
+            currentFile = f.src;
+            if (!exists(currentFile)) {
+                // Assuming this is an copy-to target file, ignore it
+                logger.debug("Ignoring a copy-to file " + f.file);
+                return false;
+            }
+            outputFile = new File(job.tempDir, f.file.getPath());
+            final File outputDir = outputFile.getParentFile();
+            if (!outputDir.exists() && !outputDir.mkdirs() && !outputDir.exists()) {
+                logger.error("Failed to create output directory " + outputDir.getAbsolutePath());
+                return false;
+            }
+            logger.info("Processing " + f.src);
+
+            final Set<URI> schemaSet = dic.get(f.uri);
+            subjectSchemeReader.reset();
+            if (schemaSet != null && !schemaSet.isEmpty()) {
+                logger.debug("Loading subject schemes");
+                for (final URI schema : schemaSet) {
+                    subjectSchemeReader.loadSubjectScheme(new File(job.tempDir.toURI().resolve(schema.getPath() + SUBJECT_SCHEME_EXTENSION)));
                 }
+                validateMap = subjectSchemeReader.getValidValuesMap();
+                defaultValueMap = subjectSchemeReader.getDefaultValueMap();
+            } else {
+                validateMap = Collections.EMPTY_MAP;
+                defaultValueMap = Collections.EMPTY_MAP;
             }
+            if (profilingEnabled) {
+                filterUtils = baseFilterUtils.refine(subjectSchemeReader.getSubjectSchemeMap());
+            }
+
+            boolean success = true;
+            OutputStream out = null;
+            try {
+                out = new FileOutputStream(outputFile);
+
+                reader.setErrorHandler(new DITAOTXMLErrorHandler(currentFile.toString(), logger));
+
+                final Transformer serializer = tf.newTransformer();
+                XMLReader xmlSource = getXmlReader(f.format);
+                for (final XMLFilter filter: getProcessingPipe(currentFile)) {
+                    filter.setParent(xmlSource);
+                    xmlSource = filter;
+                }
+                // ContentHandler must be reset so e.g. Saxon 9.1 will reassign ContentHandler
+                // when reusing filter with multiple Transformers.
+                xmlSource.setContentHandler(null);
+
+                final Source source = new SAXSource(xmlSource, new InputSource(f.src.toString()));
+                final Result result = new StreamResult(out);
+                serializer.transform(source, result);
+            } catch (final RuntimeException e) {
+                throw e;
+            } catch (final Exception e) {
+                success = false;
+                logger.error(e.getMessage(), e) ;
+            } finally {
+                if (out != null) {
+                    try {
+                        out.close();
+                    }catch (final Exception e) {
+                        success = false;
+                        logger.error(e.getMessage(), e) ;
+                    }
+                }
+            }
+            if (dependencyGraph != null) {
+                updateCached(f, outputFile, success, logger);
+            }
+            return true;
+        }
+
+        private XMLReader getXmlReader(final String format) throws SAXException {
+            for (final Map.Entry<String, String> e: parserMap.entrySet()) {
+                if (format != null && format.equals(e.getKey())) {
+                    try {
+                        return (XMLReader) Class.forName(e.getValue()).newInstance();
+                    } catch (final InstantiationException ex) {
+                        throw new SAXException(ex);
+                    } catch (final IllegalAccessException ex) {
+                        throw new SAXException(ex);
+                    } catch (final ClassNotFoundException ex) {
+                        throw new SAXException(ex);
+                    }
+                }
+            }
+            return reader;
+        }
+
+        /**
+         * Get pipe line filters
+         *
+         * @param fileToParse absolute URI to current file being processed
+         */
+        private List<XMLFilter> getProcessingPipe(final URI fileToParse) {
+            final List<XMLFilter> pipe = new ArrayList<XMLFilter>();
+
+            if (genDebugInfo) {
+                final DebugFilter debugFilter = new DebugFilter();
+                debugFilter.setLogger(logger);
+                debugFilter.setInputFile(currentFile);
+                pipe.add(debugFilter);
+            }
+
+            if (filterUtils != null) {
+                final ProfilingFilter profilingFilter = new ProfilingFilter();
+                profilingFilter.setLogger(logger);
+                profilingFilter.setFilterUtils(filterUtils);
+                pipe.add(profilingFilter);
+            }
+
+            final ValidationFilter validationFilter = new ValidationFilter();
+            validationFilter.setLogger(logger);
+            validationFilter.setValidateMap(validateMap);
+            validationFilter.setCurrentFile(fileToParse);
+            validationFilter.setJob(job);
+            validationFilter.setProcessingMode(processingMode);
+            pipe.add(validationFilter);
+
+            final NormalizeFilter normalizeFilter = new NormalizeFilter();
+            normalizeFilter.setLogger(logger);
+            pipe.add(normalizeFilter);
+
+            if (forceUniqueFilter != null) {
+                forceUniqueFilter.setCurrentFile(currentFile);
+                pipe.add(forceUniqueFilter);
+            }
+
+            ditaWriterFilter.setDefaultValueMap(defaultValueMap);
+            ditaWriterFilter.setCurrentFile(currentFile);
+            ditaWriterFilter.setOutputFile(outputFile);
+            pipe.add(ditaWriterFilter);
+
+            return pipe;
         }
-        return reader;
-    }
 
+    }
 
     private void init() throws IOException, DITAOTException, SAXException {
         // Output subject schemas
         outputSubjectScheme();
-        subjectSchemeReader = new SubjectSchemeReader();
-        subjectSchemeReader.setLogger(logger);
         dic = SubjectSchemeReader.readMapFromXML(new File(job.tempDir, FILE_NAME_SUBJECT_DICTIONARY));
 
         if (profilingEnabled) {
@@ -232,16 +550,20 @@ public final class DebugAndFilterModule extends AbstractPipelineModuleImpl {
             baseFilterUtils.setLogger(logger);
         }
 
-        initXmlReader();
+        CatalogUtils.setDitaDir(ditaDir);
 
         initFilters();
+
+        processor = new Processor(logger, forceUniqueFilter);
     }
+
     /**
-     * Init xml reader used for pipeline parsing.
+     * Create xml reader used for pipeline parsing.
+     *
+     * @param logger logger to use
      */
-     private void initXmlReader() throws SAXException {
-        CatalogUtils.setDitaDir(ditaDir);
-        reader = XMLUtils.getXMLReader();
+    private XMLReader createXmlReader(final DITAOTLogger logger) throws SAXException {
+        final XMLReader reader = XMLUtils.getXMLReader();
         if (validate) {
             reader.setFeature(FEATURE_VALIDATION, true);
             try {
@@ -266,68 +588,19 @@ public final class DebugAndFilterModule extends AbstractPipelineModuleImpl {
                 logger.warn("Failed to set Xerces grammar pool for parser: " + e.getMessage());
             }
         }
+        return reader;
     }
 
     /**
      * Initialize reusable filters.
      */
     private void initFilters() {
-        forceUniqueFilter = new ForceUniqueFilter();
-        forceUniqueFilter.setLogger(logger);
-        forceUniqueFilter.setJob(job);
-        forceUniqueFilter.setEntityResolver(reader.getEntityResolver());
-
-        ditaWriterFilter = new DitaWriterFilter();
-        ditaWriterFilter.setLogger(logger);
-        ditaWriterFilter.setJob(job);
-        ditaWriterFilter.setEntityResolver(reader.getEntityResolver());
-    }
-
-    /**
-     * Get pipe line filters
-     *
-     * @param fileToParse absolute URI to current file being processed
-     */
-    private List<XMLFilter> getProcessingPipe(final URI fileToParse) {
-        final List<XMLFilter> pipe = new ArrayList<XMLFilter>();
-
-        if (genDebugInfo) {
-            final DebugFilter debugFilter = new DebugFilter();
-            debugFilter.setLogger(logger);
-            debugFilter.setInputFile(currentFile);
-            pipe.add(debugFilter);
-        }
-
-        if (filterUtils != null) {
-            final ProfilingFilter profilingFilter = new ProfilingFilter();
-            profilingFilter.setLogger(logger);
-            profilingFilter.setFilterUtils(filterUtils);
-            pipe.add(profilingFilter);
-        }
-
-        final ValidationFilter validationFilter = new ValidationFilter();
-        validationFilter.setLogger(logger);
-        validationFilter.setValidateMap(validateMap);
-        validationFilter.setCurrentFile(fileToParse);
-        validationFilter.setJob(job);
-        validationFilter.setProcessingMode(processingMode);
-        pipe.add(validationFilter);
-
-        final NormalizeFilter normalizeFilter = new NormalizeFilter();
-        normalizeFilter.setLogger(logger);
-        pipe.add(normalizeFilter);
-
         if (forceUnique) {
-            forceUniqueFilter.setCurrentFile(currentFile);
-            pipe.add(forceUniqueFilter);
+            forceUniqueFilter = new ForceUniqueFilter();
+            forceUniqueFilter.setLogger(logger);
+            forceUniqueFilter.setJob(job);
+            forceUniqueFilter.setEntityResolver(CatalogUtils.getCatalogResolver());
         }
-
-        ditaWriterFilter.setDefaultValueMap(defaultValueMap);
-        ditaWriterFilter.setCurrentFile(currentFile);
-        ditaWriterFilter.setOutputFile(outputFile);
-        pipe.add(ditaWriterFilter);
-
-        return pipe;
     }
 
     private void readArguments(AbstractPipelineInput input) {
@@ -353,6 +626,10 @@ public final class DebugAndFilterModule extends AbstractPipelineModuleImpl {
         genDebugInfo = Boolean.valueOf(input.getAttribute(ANT_INVOKER_EXT_PARAM_GENERATE_DEBUG_ATTR));
         final String mode = input.getAttribute(ANT_INVOKER_EXT_PARAM_PROCESSING_MODE);
         processingMode = mode != null ? Mode.valueOf(mode.toUpperCase()) : Mode.LAX;
+        parallel = ParallelUtils.getThreadCount(input.getAttribute(ANT_INVOKER_EXT_PARAM_PARALLEL));
+        if (input.getAttribute(ANT_INVOKER_EXT_PARAM_INCREMENTAL_DIR) != null) {
+            incrementalDir = new File(input.getAttribute(ANT_INVOKER_EXT_PARAM_INCREMENTAL_DIR)).getAbsoluteFile();
+        }
 
         // Absolute input directory path
         File inputDir = job.getInputDir();
@@ -0,0 +1,168 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.module;
+
+import static org.dita.dost.util.Constants.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.dita.dost.exception.DITAOTException;
+import org.dita.dost.log.DITAOTBufferedLogger;
+import org.dita.dost.log.DITAOTLogger;
+import org.dita.dost.pipeline.AbstractPipelineInput;
+import org.dita.dost.pipeline.AbstractPipelineOutput;
+import org.dita.dost.util.Job.FileInfo;
+import org.dita.dost.util.Job.FileInfo.Filter;
+import org.dita.dost.util.ParallelUtils;
+import org.dita.dost.util.XMLUtils;
+import org.dita.dost.writer.CoderefResolver;
+import org.dita.dost.writer.TopicFragmentFilter;
+import org.xml.sax.XMLFilter;
+
+/**
+ * Resolve same topic fragment identifiers and code references in a single pass. Each topic is
+ * parsed and serialized once with a filter chain of {@link TopicFragmentFilter} and
+ * {@link CoderefResolver} for topics that contain code references.
+ *
+ * <p>Image metadata is not read here, because later preprocessing stages, e.g. metadata push and
+ * chunking, may add image references to topics.</p>
+ *
+ * @since 2.1
+ */
+final class FusedFilterModule extends AbstractPipelineModuleImpl {
+
+    /** Maximum number of files submitted for parallel processing per thread ahead of writing results. */
+    private static final int PENDING_PER_THREAD = 4;
+
+    private int parallel = 1;
+
+    @Override
+    public AbstractPipelineOutput execute(final AbstractPipelineInput input)
+            throws DITAOTException {
+        if (logger == null) {
+            throw new IllegalStateException("Logger not set");
+        }
+        parallel = ParallelUtils.getThreadCount(input.getAttribute(ANT_INVOKER_EXT_PARAM_PARALLEL));
+
+        final List<FileInfo> fis = new ArrayList<FileInfo>(job.getFileInfo(new Filter() {
+            @Override
+            public boolean accept(final FileInfo f) {
+                return ATTR_FORMAT_VALUE_DITA.equals(f.format);
+            }
+        }));
+        if (parallel > 1 && fis.size() > 1) {
+            processParallel(fis);
+        } else {
+            final Processor p = new Processor();
+            for (final FileInfo f: fis) {
+                p.process(f, logger);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Process files with a bounded pool of worker threads. Log messages are buffered per file
+     * and written in file order. At most {@value #PENDING_PER_THREAD} files per thread are
+     * submitted ahead of the result being written.
+     */
+    private void processParallel(final Collection<FileInfo> fis) throws DITAOTException {
+        logger.debug("Using " + parallel + " threads to process files");
+        final ThreadLocal<Processor> processors = new ThreadLocal<Processor>() {
+            @Override
+            protected Processor initialValue() {
+                return new Processor();
+            }
+        };
+        final ExecutorService executor = ParallelUtils.newFixedThreadPool(parallel, "fused-filter");
+        final int maxPending = parallel * PENDING_PER_THREAD;
+        // submitted files in file order
+        final Queue<Future<DITAOTBufferedLogger>> results = new LinkedList<Future<DITAOTBufferedLogger>>();
+        try {
+            for (final FileInfo f: fis) {
+                if (results.size() >= maxPending) {
+                    flush(results.remove());
+                }
+                results.add(executor.submit(new Callable<DITAOTBufferedLogger>() {
+                    @Override
+                    public DITAOTBufferedLogger call() throws Exception {
+                        final DITAOTBufferedLogger log = new DITAOTBufferedLogger();
+                        processors.get().process(f, log);
+                        return log;
+                    }
+                }));
+            }
+            while (!results.isEmpty()) {
+                flush(results.remove());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Wait for a submitted file and write its log messages.
+     */
+    private void flush(final Future<DITAOTBufferedLogger> result) throws DITAOTException {
+        try {
+            result.get().flush(logger);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DITAOTException("Interrupted while processing files", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else if (cause instanceof DITAOTException) {
+                throw (DITAOTException) cause;
+            }
+            throw new DITAOTException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Filter chain for a single thread.
+     */
+    private final class Processor {
+
+        private final CoderefResolver coderefResolver;
+
+        Processor() {
+            coderefResolver = new CoderefResolver();
+            coderefResolver.setJob(job);
+        }
+
+        void process(final FileInfo f, final DITAOTLogger log) throws DITAOTException {
+            final File file = new File(job.tempDir, f.file.getPath()).getAbsoluteFile();
+            if (!file.exists()) {
+                return;
+            }
+            log.info("Processing " + file.getAbsolutePath());
+
+            final List<XMLFilter> filters = new ArrayList<XMLFilter>();
+            filters.add(new TopicFragmentFilter());
+            if (f.hasCoderef) {
+                coderefResolver.setLogger(log);
+                coderefResolver.setCurrentFile(file);
+                filters.add(coderefResolver);
+            }
+
+            XMLUtils.transform(file, filters);
+        }
+
+    }
+
+}
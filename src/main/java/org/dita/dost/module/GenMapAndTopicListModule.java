@@ -29,12 +29,19 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.stream.XMLOutputFactory;
@@ -44,6 +51,8 @@ import javax.xml.stream.XMLStreamWriter;
 import org.apache.xerces.xni.grammars.XMLGrammarPool;
 import org.dita.dost.exception.DITAOTException;
 import org.dita.dost.exception.DITAOTXMLErrorHandler;
+import org.dita.dost.log.DITAOTBufferedLogger;
+import org.dita.dost.log.DITAOTLogger;
 import org.dita.dost.log.MessageUtils;
 import org.dita.dost.pipeline.AbstractPipelineInput;
 import org.dita.dost.pipeline.AbstractPipelineOutput;
@@ -68,6 +77,8 @@ import org.xml.sax.helpers.DefaultHandler;
 public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
 
     public static final String ELEMENT_STUB = "stub";
+    /** Maximum number of files submitted for parallel parsing per thread ahead of merging. */
+    private static final int PENDING_PER_THREAD = 4;
     /** FileInfos keyed by src. */
     private final Map<URI, FileInfo> fileinfos = new HashMap<URI, FileInfo>();
     /** Set of all topic files */
@@ -126,10 +137,12 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
 
     /** List of files waiting for parsing. Values are absolute URI references. */
     private final Queue<Reference> waitList;
+    /** Files in the wait list or being parsed, for fast membership tests. */
+    private final Set<URI> waitSet;
 
-    /** List of parsed files */
-    private final List<URI> doneList;
-    private final List<URI> failureList;
+    /** Set of parsed files */
+    private final Set<URI> doneList;
+    private final Set<URI> failureList;
 
     /** Set of outer dita files */
     private final Set<URI> outDitaFilesSet;
@@ -143,6 +156,15 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
     /** Set of files with "@processing-role=resource-only" */
     private final Set<URI> resourceOnlySet;
 
+    /** Set of files referenced with "@processing-role=resource-only" */
+    private final Set<URI> resourceOnlyReferenceSet;
+
+    /** Set of files referenced with "@processing-role=normal" */
+    private final Set<URI> normalProcessingRoleSet;
+
+    /** Relationship graph between subject schema. */
+    private final Map<URI, Set<URI>> schemeRelationGraph;
+
     /** Map of all key definitions */
     private final Map<String, KeyDef> keysDefMap;
 
@@ -158,13 +180,16 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
     /** Number of directory levels base directory is adjusted. */
     private int uplevels = 0;
 
-    /** XMLReader instance for parsing dita file */
-    private XMLReader reader;
-    private GenListModuleReader listFilter;
-    private KeydefFilter keydefFilter;
+    /** Parsing pipeline used by the calling thread. */
+    private Crawler crawler;
     private ExportAnchorsFilter exportAnchorsFilter;
     private boolean xmlValidate = true;
-    private ContentHandler nullHandler;
+    /** Number of parallel parsing threads. */
+    private int parallel = 1;
+    /** Dependency graph for incremental processing, {@code null} if not collected. */
+    private DependencyGraph dependencyGraph;
+    /** Topic IDs of parsed files by absolute source URI. */
+    private IdIndex idIndex;
     private FilterUtils filterUtils;
     private TempFileNameScheme tempFileNameScheme;
 
@@ -205,11 +230,13 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
         hrefTargetSet = new HashSet<URI>(128);
         subsidiarySet = new HashSet<URI>(16);
         waitList = new LinkedList<Reference>();
-        doneList = new LinkedList<URI>();
-        failureList = new LinkedList<URI>();
+        waitSet = new HashSet<URI>(128);
+        doneList = new HashSet<URI>(128);
+        failureList = new HashSet<URI>(128);
         conrefTargetSet = new HashSet<URI>(128);
         nonConrefCopytoTargetSet = new HashSet<URI>(128);
         copytoMap = new HashMap<URI, URI>();
+        idIndex = new IdIndex();
         copytoSourceSet = new HashSet<URI>(128);
         ignoredCopytoSourceSet = new HashSet<URI>(128);
         outDitaFilesSet = new HashSet<URI>(128);
@@ -223,6 +250,9 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
 
         // @processing-role
         resourceOnlySet = new HashSet<URI>(128);
+        resourceOnlyReferenceSet = new LinkedHashSet<URI>(128);
+        normalProcessingRoleSet = new LinkedHashSet<URI>(128);
+        schemeRelationGraph = new LinkedHashMap<URI, Set<URI>>();
     }
 
     @Override
@@ -236,6 +266,7 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
 
             initFilters();
             initXMLReader(ditaDir, xmlValidate);
+            crawler = new Crawler(logger);
             
             addToWaitList(new Reference(rootFile));
             processWaitList();
@@ -258,25 +289,12 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
      * Initialize reusable filters.
      */
     private void initFilters() {
-        listFilter = new GenListModuleReader();
-        listFilter.setLogger(logger);
-        listFilter.setInputDir(rootFile.resolve("."));
-        listFilter.setPrimaryDitamap(rootFile);
-        listFilter.setJob(job);
-        
         if (profilingEnabled) {
             filterUtils = parseFilterFile();
         }
 
         exportAnchorsFilter = new ExportAnchorsFilter();
         exportAnchorsFilter.setInputFile(rootFile);
-        
-        keydefFilter = new KeydefFilter();
-        keydefFilter.setLogger(logger);
-        keydefFilter.setInputFile(rootFile);
-        keydefFilter.setJob(job);
-        
-        nullHandler = new DefaultHandler();
     }
 
     /**
@@ -287,35 +305,47 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
      * @throws SAXException parsing exception
      */
     private void initXMLReader(final File ditaDir, final boolean validate) throws SAXException {
-        reader = XMLUtils.getXMLReader();
+        if (!validate) {
+            final String msg = MessageUtils.getInstance().getMessage("DOTJ037W").toString();
+            logger.warn(msg);
+        }
+        CatalogUtils.setDitaDir(ditaDir);
+    }
+
+    /**
+     * Create xml reader used for pipeline parsing.
+     *
+     * @param log logger to use
+     * @return new XML reader
+     * @throws SAXException parsing exception
+     */
+    private XMLReader createXMLReader(final DITAOTLogger log) throws SAXException {
+        final XMLReader reader = XMLUtils.getXMLReader();
         // to check whether the current parsing file's href value is out of inputmap.dir
         reader.setFeature(FEATURE_NAMESPACE_PREFIX, true);
-        if (validate) {
+        if (xmlValidate) {
             reader.setFeature(FEATURE_VALIDATION, true);
             try {
                 reader.setFeature(FEATURE_VALIDATION_SCHEMA, true);
             } catch (final SAXNotRecognizedException e) {
                 // Not Xerces, ignore exception
             }
-        } else {
-            final String msg = MessageUtils.getInstance().getMessage("DOTJ037W").toString();
-            logger.warn(msg);
         }
         if (gramcache) {
             final XMLGrammarPool grammarPool = GrammarPoolManager.getGrammarPool();
             try {
                 reader.setProperty("http://apache.org/xml/properties/internal/grammar-pool", grammarPool);
-                logger.info("Using Xerces grammar pool for DTD and schema caching.");
+                log.info("Using Xerces grammar pool for DTD and schema caching.");
             } catch (final NoClassDefFoundError e) {
-                logger.debug("Xerces not available, not using grammar caching");
+                log.debug("Xerces not available, not using grammar caching");
             } catch (final SAXNotRecognizedException e) {
-                logger.warn("Failed to set Xerces grammar pool for parser: " + e.getMessage());
+                log.warn("Failed to set Xerces grammar pool for parser: " + e.getMessage());
             } catch (final SAXNotSupportedException e) {
-                logger.warn("Failed to set Xerces grammar pool for parser: " + e.getMessage());
+                log.warn("Failed to set Xerces grammar pool for parser: " + e.getMessage());
             }
         }
-        CatalogUtils.setDitaDir(ditaDir);
         reader.setEntityResolver(CatalogUtils.getCatalogResolver());
+        return reader;
     }
     
     private void parseInputParameters(final AbstractPipelineInput input) throws IOException {
@@ -330,6 +360,15 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
 
         gramcache = "yes".equalsIgnoreCase(input.getAttribute(ANT_INVOKER_EXT_PARAM_GRAMCACHE));
         setSystemid = "yes".equalsIgnoreCase(input.getAttribute(ANT_INVOKER_EXT_PARAN_SETSYSTEMID));
+        parallel = ParallelUtils.getThreadCount(input.getAttribute(ANT_INVOKER_EXT_PARAM_PARALLEL));
+        if (parallel > 1 && INDEX_TYPE_ECLIPSEHELP.equals(transtype)) {
+            // export anchors are collected across files
+            logger.debug("Parallel processing not supported for " + transtype + ", using a single thread");
+            parallel = 1;
+        }
+        if (input.getAttribute(ANT_INVOKER_EXT_PARAM_INCREMENTAL_DIR) != null) {
+            dependencyGraph = new DependencyGraph();
+        }
 
         // For the output control
         job.setGeneratecopyouter(input.getAttribute(ANT_INVOKER_EXT_PARAM_GENERATECOPYOUTTER));
@@ -395,78 +434,329 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
     }
 
     private void processWaitList() throws DITAOTException {
-        while (!waitList.isEmpty()) {
-            processFile(waitList.remove());
+        if (parallel > 1) {
+            processWaitListParallel();
+        } else {
+            while (!waitList.isEmpty()) {
+                final Reference ref = waitList.remove();
+                final ParseResult result = crawler.parse(ref, null);
+                waitSet.remove(ref.filename);
+                processResult(result);
+            }
         }
     }
-    
+
     /**
-     * Get pipe line filters
-     * 
-     * @param fileToParse absolute path to current file being processed
+     * Process wait list with a bounded pool of worker threads. Each worker uses its own parsing
+     * pipeline and parse results are merged in wait list order, thus the generated job configuration
+     * is identical to the one produced by serial processing. At most {@value #PENDING_PER_THREAD} files
+     * per thread are submitted ahead of the result being merged, which bounds the number of parse results
+     * and buffered log messages held in memory.
+     *
+     * @throws DITAOTException if processing failed
      */
-    private List<XMLFilter> getProcessingPipe(final URI fileToParse) {
-        assert fileToParse.isAbsolute();
-        final List<XMLFilter> pipe = new ArrayList<XMLFilter>();
+    private void processWaitListParallel() throws DITAOTException {
+        logger.debug("Using " + parallel + " threads to generate file list");
+        final BlockingQueue<Crawler> crawlers = new ArrayBlockingQueue<Crawler>(parallel);
+        crawlers.add(crawler);
+        try {
+            for (int i = 1; i < parallel; i++) {
+                crawlers.add(new Crawler(new DITAOTBufferedLogger()));
+            }
+        } catch (final SAXException e) {
+            throw new DITAOTException(e.getMessage(), e);
+        }
+        final ExecutorService executor = ParallelUtils.newFixedThreadPool(parallel, "gen-list");
+        final int maxPending = parallel * PENDING_PER_THREAD;
+        // submitted files in wait list order
+        final Queue<Future<ParseResult>> results = new LinkedList<Future<ParseResult>>();
+        try {
+            while (!waitList.isEmpty() || !results.isEmpty()) {
+                while (results.size() < maxPending && !waitList.isEmpty()) {
+                    final Reference ref = waitList.remove();
+                    results.add(executor.submit(new Callable<ParseResult>() {
+                        @Override
+                        public ParseResult call() throws Exception {
+                            final Crawler c = crawlers.take();
+                            try {
+                                return c.parse(ref, new DITAOTBufferedLogger());
+                            } finally {
+                                crawlers.add(c);
+                            }
+                        }
+                    }));
+                }
+                final ParseResult result = getResult(results.remove());
+                waitSet.remove(result.ref.filename);
+                processResult(result);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-        if (filterUtils != null) {
-            final ProfilingFilter profilingFilter = new ProfilingFilter();
-            profilingFilter.setLogger(logger);
-            profilingFilter.setJob(job);
-            profilingFilter.setFilterUtils(filterUtils);
-            pipe.add(profilingFilter);
+    private ParseResult getResult(final Future<ParseResult> future) throws DITAOTException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DITAOTException("Interrupted while generating file list", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new DITAOTException(cause.getMessage(), cause);
         }
-        
-        if (INDEX_TYPE_ECLIPSEHELP.equals(transtype)) {
-            exportAnchorsFilter.setCurrentFile(fileToParse);
-            exportAnchorsFilter.setErrorHandler(new DITAOTXMLErrorHandler(fileToParse.toString(), logger));
-            pipe.add(exportAnchorsFilter);
+    }
+
+    /**
+     * Parsing pipeline. Instances are reused between files, but are not thread-safe.
+     */
+    private final class Crawler {
+
+        /** XMLReader instance for parsing dita file */
+        private final XMLReader reader;
+        private final GenListModuleReader listFilter;
+        private final KeydefFilter keydefFilter;
+        private final ContentHandler nullHandler;
+
+        /**
+         * Create new parsing pipeline.
+         *
+         * @param log logger to use
+         * @throws SAXException if creating XML reader failed
+         */
+        Crawler(final DITAOTLogger log) throws SAXException {
+            reader = createXMLReader(log);
+            listFilter = new GenListModuleReader();
+            listFilter.setLogger(log);
+            listFilter.setInputDir(rootFile.resolve("."));
+            listFilter.setPrimaryDitamap(rootFile);
+            listFilter.setJob(job);
+            keydefFilter = new KeydefFilter();
+            keydefFilter.setLogger(log);
+            keydefFilter.setInputFile(rootFile);
+            keydefFilter.setJob(job);
+            nullHandler = new DefaultHandler();
         }
 
-        keydefFilter.setCurrentDir(toFile(fileToParse).getParentFile().toURI());
-        keydefFilter.setErrorHandler(new DITAOTXMLErrorHandler(fileToParse.toString(), logger));
-        pipe.add(keydefFilter);
+        /**
+         * Read a file and collect list information. Parsing doesn't modify module state,
+         * except for export anchors which are only collected in serial processing.
+         *
+         * @param ref system path of the file to process
+         * @param log logger to buffer messages into, {@code null} to use the pipeline logger
+         * @return parse result
+         */
+        ParseResult parse(final Reference ref, final DITAOTBufferedLogger log) {
+            final URI currentFile = ref.filename;
+            assert currentFile.isAbsolute();
+            final DITAOTLogger l = log != null ? log : logger;
+            if (log != null) {
+                listFilter.setLogger(log);
+                keydefFilter.setLogger(log);
+            }
+            l.info("Processing " + currentFile);
+            final ParseResult result = new ParseResult(ref, log);
+            try {
+                XMLReader xmlSource = getXmlReader(ref.format);
+                for (final XMLFilter f: getProcessingPipe(currentFile, l)) {
+                    f.setParent(xmlSource);
+                    f.setEntityResolver(CatalogUtils.getCatalogResolver());
+                    xmlSource = f;
+                }
+                xmlSource.setContentHandler(nullHandler);
 
-        listFilter.setCurrentFile(fileToParse);
-        listFilter.setErrorHandler(new DITAOTXMLErrorHandler(fileToParse.toString(), logger));
-        pipe.add(listFilter);
+                xmlSource.parse(currentFile.toString());
+            } catch (final RuntimeException e) {
+                throw e;
+            } catch (final Exception e) {
+                result.exception = e;
+            }
+            if (dependencyGraph != null && result.exception == null) {
+                try {
+                    result.hash = DependencyGraph.hash(currentFile);
+                } catch (final IOException e) {
+                    l.debug("Failed to calculate content hash for " + currentFile + ": " + e.getMessage());
+                }
+            }
+            try {
+                result.collect(listFilter, keydefFilter);
+            } finally {
+                listFilter.reset();
+                keydefFilter.reset();
+            }
+            return result;
+        }
+
+        /**
+         * Get pipe line filters
+         *
+         * @param fileToParse absolute path to current file being processed
+         * @param log logger to use for the current file
+         */
+        private List<XMLFilter> getProcessingPipe(final URI fileToParse, final DITAOTLogger log) {
+            assert fileToParse.isAbsolute();
+            final List<XMLFilter> pipe = new ArrayList<XMLFilter>();
+
+            if (filterUtils != null) {
+                final ProfilingFilter profilingFilter = new ProfilingFilter();
+                profilingFilter.setLogger(log);
+                profilingFilter.setJob(job);
+                profilingFilter.setFilterUtils(filterUtils);
+                pipe.add(profilingFilter);
+            }
+
+            if (INDEX_TYPE_ECLIPSEHELP.equals(transtype)) {
+                exportAnchorsFilter.setCurrentFile(fileToParse);
+                exportAnchorsFilter.setErrorHandler(new DITAOTXMLErrorHandler(fileToParse.toString(), log));
+                pipe.add(exportAnchorsFilter);
+            }
+
+            keydefFilter.setCurrentDir(toFile(fileToParse).getParentFile().toURI());
+            keydefFilter.setErrorHandler(new DITAOTXMLErrorHandler(fileToParse.toString(), log));
+            pipe.add(keydefFilter);
+
+            listFilter.setCurrentFile(fileToParse);
+            listFilter.setErrorHandler(new DITAOTXMLErrorHandler(fileToParse.toString(), log));
+            pipe.add(listFilter);
+
+            return pipe;
+        }
+
+        private XMLReader getXmlReader(final String format) throws SAXException {
+            for (final Map.Entry<String, String> e: parserMap.entrySet()) {
+                if (format != null && format.equals(e.getKey())) {
+                    try {
+                        return (XMLReader) Class.forName(e.getValue()).newInstance();
+                    } catch (final InstantiationException ex) {
+                        throw new SAXException(ex);
+                    } catch (final IllegalAccessException ex) {
+                        throw new SAXException(ex);
+                    } catch (final ClassNotFoundException ex) {
+                        throw new SAXException(ex);
+                    }
+                }
+            }
+            return reader;
+        }
 
-        return pipe;
     }
 
     /**
-     * Read a file and process it for list information.
-     * 
-     * @param ref system path of the file to process
+     * Snapshot of list information collected from a single file.
+     */
+    private static final class ParseResult {
+
+        final Reference ref;
+        /** Buffered messages, {@code null} if messages were logged directly */
+        final DITAOTBufferedLogger log;
+        /** Parse failure, {@code null} if parsing succeeded */
+        Exception exception;
+        /** Content hash, {@code null} if not calculated */
+        String hash;
+        boolean isValidInput;
+        boolean isDitaTopic;
+        boolean isDitaMap;
+        boolean hasHref;
+        boolean hasConaction;
+        boolean hasConRef;
+        boolean hasKeyRef;
+        boolean hasCodeRef;
+        Set<Reference> nonCopytoResult;
+        Map<URI, URI> copytoMap;
+        Map<String, KeyDef> keysDefMap;
+        Set<URI> schemeRefSet;
+        Set<URI> hrefTargets;
+        Set<URI> hrefTopicSet;
+        Set<URI> chunkTopicSet;
+        Set<URI> conrefTargets;
+        Set<URI> nonConrefCopytoTargets;
+        Set<URI> ignoredCopytoSourceSet;
+        Set<URI> subsidiaryTargets;
+        Set<URI> outFilesSet;
+        Set<URI> schemeSet;
+        Set<URI> resourceOnlyReferenceSet;
+        Set<URI> normalProcessingRoleSet;
+        Map<URI, Set<URI>> schemeRelationGraph;
+        String firstTopicId;
+        Set<String> topicIds;
+
+        ParseResult(final Reference ref, final DITAOTBufferedLogger log) {
+            this.ref = ref;
+            this.log = log;
+        }
+
+        /**
+         * Copy list information from filters. Copies retain the iteration order of the originals.
+         */
+        void collect(final GenListModuleReader listFilter, final KeydefFilter keydefFilter) {
+            isValidInput = listFilter.isValidInput();
+            if (isValidInput) {
+                isDitaTopic = listFilter.isDitaTopic();
+                isDitaMap = listFilter.isDitaMap();
+            }
+            hasHref = listFilter.hasHref();
+            hasConaction = listFilter.hasConaction();
+            hasConRef = listFilter.hasConRef();
+            hasKeyRef = listFilter.hasKeyRef();
+            hasCodeRef = listFilter.hasCodeRef();
+            nonCopytoResult = listFilter.getNonCopytoResult();
+            copytoMap = new LinkedHashMap<URI, URI>(listFilter.getCopytoMap());
+            keysDefMap = new LinkedHashMap<String, KeyDef>(keydefFilter.getKeysDMap());
+            schemeRefSet = new LinkedHashSet<URI>(listFilter.getSchemeRefSet());
+            hrefTargets = new LinkedHashSet<URI>(listFilter.getHrefTargets());
+            hrefTopicSet = new LinkedHashSet<URI>(listFilter.getHrefTopicSet());
+            chunkTopicSet = new LinkedHashSet<URI>(listFilter.getChunkTopicSet());
+            conrefTargets = new LinkedHashSet<URI>(listFilter.getConrefTargets());
+            nonConrefCopytoTargets = new LinkedHashSet<URI>(listFilter.getNonConrefCopytoTargets());
+            ignoredCopytoSourceSet = new LinkedHashSet<URI>(listFilter.getIgnoredCopytoSourceSet());
+            subsidiaryTargets = new LinkedHashSet<URI>(listFilter.getSubsidiaryTargets());
+            outFilesSet = new LinkedHashSet<URI>(listFilter.getOutFilesSet());
+            schemeSet = new LinkedHashSet<URI>(listFilter.getSchemeSet());
+            resourceOnlyReferenceSet = new LinkedHashSet<URI>(listFilter.getResourceOnlyReferenceSet());
+            normalProcessingRoleSet = new LinkedHashSet<URI>(listFilter.getNormalProcessingRoleSet());
+            schemeRelationGraph = new LinkedHashMap<URI, Set<URI>>();
+            for (final Map.Entry<URI, Set<URI>> e: listFilter.getRelationshipGrap().entrySet()) {
+                schemeRelationGraph.put(e.getKey(), new LinkedHashSet<URI>(e.getValue()));
+            }
+            firstTopicId = listFilter.getFirstTopicId();
+            topicIds = new HashSet<String>(listFilter.getTopicIds());
+        }
+
+    }
+
+    /**
+     * Merge results from parsing a single file into module state.
+     *
+     * @param result parse result of the file to process
      * @throws DITAOTException if processing failed
      */
-    private void processFile(final Reference ref) throws DITAOTException {
-        currentFile = ref.filename;
-        assert currentFile.isAbsolute();
-        logger.info("Processing " + currentFile);
+    private void processResult(final ParseResult result) throws DITAOTException {
+        currentFile = result.ref.filename;
+        if (result.log != null) {
+            result.log.flush(logger);
+        }
         final String[] params = { currentFile.toString() };
-        
-        try {
-            XMLReader xmlSource = getXmlReader(ref.format);
-            for (final XMLFilter f: getProcessingPipe(currentFile)) {
-                f.setParent(xmlSource);
-                f.setEntityResolver(CatalogUtils.getCatalogResolver());
-                xmlSource = f;
-            }
-            xmlSource.setContentHandler(nullHandler);            
-            
-            xmlSource.parse(currentFile.toString());
 
-            if (listFilter.isValidInput()) {
-                processParseResult(currentFile);
-                categorizeCurrentFile(ref);
+        final Exception e = result.exception;
+        if (e == null) {
+            if (result.isValidInput) {
+                processParseResult(result);
+                categorizeCurrentFile(result);
+                idIndex.add(currentFile, result.firstTopicId, result.topicIds);
+                if (dependencyGraph != null) {
+                    addDependencies(result);
+                }
             } else if (!currentFile.equals(rootFile)) {
                 logger.warn(MessageUtils.getInstance().getMessage("DOTJ021W", params).toString());
                 failureList.add(currentFile);
             }
-        } catch (final RuntimeException e) {
-            throw e;
-        } catch (final SAXParseException sax) {
+        } else if (e instanceof SAXParseException) {
+            final SAXParseException sax = (SAXParseException) e;
             final Exception inner = sax.getException();
             if (inner != null && inner instanceof DITAOTException) {
                 throw (DITAOTException) inner;
@@ -477,14 +767,14 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
                 logger.error(MessageUtils.getInstance().getMessage("DOTJ013E", params).toString() + ": " + sax.getMessage(), sax);
             }
             failureList.add(currentFile);
-        } catch (final FileNotFoundException e) {
+        } else if (e instanceof FileNotFoundException) {
             if (currentFile.equals(rootFile)) {
                 throw new DITAOTException(MessageUtils.getInstance().getMessage("DOTX008E", params).toString(), e);
             } else {
                 logger.error(MessageUtils.getInstance().getMessage("DOTX008E", params).toString());
             }
             failureList.add(currentFile);
-        } catch (final Exception e) {
+        } else {
             if (currentFile.equals(rootFile)) {
                 throw new DITAOTException(MessageUtils.getInstance().getMessage("DOTJ012F", params).toString() + ": " + e.getMessage(),  e);
             } else {
@@ -493,7 +783,7 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
             failureList.add(currentFile);
         }
 
-        if (!listFilter.isValidInput() && currentFile.equals(rootFile)) {
+        if (!result.isValidInput && currentFile.equals(rootFile)) {
             if (xmlValidate) {
                 // stop the build if all content in the input file was filtered out.
                 throw new DITAOTException(MessageUtils.getInstance().getMessage("DOTJ022F", params).toString());
@@ -503,40 +793,66 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
             }
         }
 
+        resourceOnlyReferenceSet.addAll(result.resourceOnlyReferenceSet);
+        normalProcessingRoleSet.addAll(result.normalProcessingRoleSet);
+        for (final Map.Entry<URI, Set<URI>> g: result.schemeRelationGraph.entrySet()) {
+            Set<URI> children = schemeRelationGraph.get(g.getKey());
+            if (children == null) {
+                children = new LinkedHashSet<URI>();
+                schemeRelationGraph.put(g.getKey(), children);
+            }
+            children.addAll(g.getValue());
+        }
+
         doneList.add(currentFile);
-        listFilter.reset();
-        keydefFilter.reset();
+    }
 
+    /**
+     * Add file and its references to dependency graph.
+     *
+     * @param result parse result of the current file
+     */
+    private void addDependencies(final ParseResult result) {
+        final URI currentFile = result.ref.filename;
+        dependencyGraph.addFile(currentFile, result.hash, result.ref.format);
+        for (final URI target: result.hrefTargets) {
+            dependencyGraph.addDependency(currentFile, target, DependencyGraph.Type.HREF);
+        }
+        for (final URI target: result.conrefTargets) {
+            dependencyGraph.addDependency(currentFile, target, DependencyGraph.Type.CONREF);
+        }
+        for (final URI target: result.subsidiaryTargets) {
+            dependencyGraph.addDependency(currentFile, target, DependencyGraph.Type.CODEREF);
+        }
+        for (final URI source: result.copytoMap.values()) {
+            dependencyGraph.addDependency(currentFile, source, DependencyGraph.Type.COPYTO);
+        }
     }
 
-    private XMLReader getXmlReader(final String format) throws SAXException {
-        for (final Map.Entry<String, String> e: parserMap.entrySet()) {
-            if (format != null && format.equals(e.getKey())) {
-                try {
-                    return (XMLReader) this.getClass().forName(e.getValue()).newInstance();
-                } catch (final InstantiationException ex) {
-                    throw new SAXException(ex);
-                } catch (final IllegalAccessException ex) {
-                    throw new SAXException(ex);
-                } catch (final ClassNotFoundException ex) {
-                    throw new SAXException(ex);
-                }
+    /**
+     * Add dependencies that are only known after all files have been parsed. Files depend on the subject
+     * schemes that apply to them.
+     */
+    private void addGlobalDependencies() {
+        for (final Map.Entry<URI, Set<URI>> e: schemeDictionary.entrySet()) {
+            for (final URI scheme: e.getValue()) {
+                dependencyGraph.addDependency(e.getKey(), scheme, DependencyGraph.Type.SUBJECT_SCHEME);
             }
         }
-        return reader;
     }
 
     /**
      * Process results from parsing a single topic
      *
-     * @param currentFile absolute URI processes files
+     * @param result parse result of the current file
      */
-    private void processParseResult(final URI currentFile) {
-        final Map<URI, URI> cpMap = listFilter.getCopytoMap();
-        final Map<String, KeyDef> kdMap = keydefFilter.getKeysDMap();
+    private void processParseResult(final ParseResult result) {
+        final URI currentFile = result.ref.filename;
+        final Map<URI, URI> cpMap = result.copytoMap;
+        final Map<String, KeyDef> kdMap = result.keysDefMap;
 
         // Category non-copyto result and update uplevels accordingly
-        for (final Reference file: listFilter.getNonCopytoResult()) {
+        for (final Reference file: result.nonCopytoResult) {
             categorizeReferenceFile(file);
             updateUplevels(file.filename);
         }
@@ -554,7 +870,7 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
                 copytoMap.put(key, value);
             }
         }
-        schemeSet.addAll(listFilter.getSchemeRefSet());
+        schemeSet.addAll(result.schemeRefSet);
 
         // collect key definitions
         for (final Map.Entry<String, KeyDef> e: kdMap.entrySet()) {
@@ -570,17 +886,17 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
             }
         }
 
-        hrefTargetSet.addAll(listFilter.getHrefTargets());
-        hrefWithIDSet.addAll(listFilter.getHrefTopicSet());
-        chunkTopicSet.addAll(listFilter.getChunkTopicSet());
-        conrefTargetSet.addAll(listFilter.getConrefTargets());
-        nonConrefCopytoTargetSet.addAll(listFilter.getNonConrefCopytoTargets());
-        ignoredCopytoSourceSet.addAll(listFilter.getIgnoredCopytoSourceSet());
-        subsidiarySet.addAll(listFilter.getSubsidiaryTargets());
-        outDitaFilesSet.addAll(listFilter.getOutFilesSet());
+        hrefTargetSet.addAll(result.hrefTargets);
+        hrefWithIDSet.addAll(result.hrefTopicSet);
+        chunkTopicSet.addAll(result.chunkTopicSet);
+        conrefTargetSet.addAll(result.conrefTargets);
+        nonConrefCopytoTargetSet.addAll(result.nonConrefCopytoTargets);
+        ignoredCopytoSourceSet.addAll(result.ignoredCopytoSourceSet);
+        subsidiarySet.addAll(result.subsidiaryTargets);
+        outDitaFilesSet.addAll(result.outFilesSet);
 
         // Generate topic-scheme dictionary
-        final Set<URI> schemeSet = listFilter.getSchemeSet();
+        final Set<URI> schemeSet = result.schemeSet;
         if (schemeSet != null && !schemeSet.isEmpty()) {
             Set<URI> children = schemeDictionary.get(currentFile);
             if (children == null) {
@@ -588,7 +904,7 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
             }
             children.addAll(schemeSet);
             schemeDictionary.put(currentFile, children);
-            final Set<URI> hrfSet = listFilter.getHrefTargets();
+            final Set<URI> hrfSet = result.hrefTargets;
             for (final URI filename: hrfSet) {
                 children = schemeDictionary.get(filename);
                 if (children == null) {
@@ -603,27 +919,28 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
     /**
      * Categorize current file type
      * 
-     * @param ref file path
+     * @param result parse result of the current file
      */
-    private void categorizeCurrentFile(final Reference ref) {
+    private void categorizeCurrentFile(final ParseResult result) {
+        final Reference ref = result.ref;
         final URI currentFile = ref.filename;
-        if (listFilter.hasConaction()) {
+        if (result.hasConaction) {
             conrefpushSet.add(currentFile);
         }
 
-        if (listFilter.hasConRef()) {
+        if (result.hasConRef) {
             conrefSet.add(currentFile);
         }
 
-        if (listFilter.hasKeyRef()) {
+        if (result.hasKeyRef) {
             keyrefSet.add(currentFile);
         }
 
-        if (listFilter.hasCodeRef()) {
+        if (result.hasCodeRef) {
             coderefSet.add(currentFile);
         }
 
-        if (listFilter.isDitaTopic()) {
+        if (result.isDitaTopic) {
             if (ref.format != null) {
                 assert currentFile.getFragment() == null;
                 final URI f = currentFile.normalize();
@@ -638,10 +955,10 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
             }
             fullTopicSet.add(currentFile);
             hrefTargetSet.add(currentFile);
-            if (listFilter.hasHref()) {
+            if (result.hasHref) {
                 hrefTopicSet.add(currentFile);
             }
-        } else if (listFilter.isDitaMap()) {
+        } else if (result.isDitaMap) {
             fullMapSet.add(currentFile);
         }
     }
@@ -698,11 +1015,12 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
     private void addToWaitList(final Reference ref) {
         final URI file = ref.filename;
         assert file.isAbsolute() && file.getFragment() == null;
-        if (doneList.contains(file) || waitList.contains(ref) || file.equals(currentFile)) {
+        if (doneList.contains(file) || waitSet.contains(file) || file.equals(currentFile)) {
             return;
         }
 
         waitList.add(ref);
+        waitSet.add(file);
     }
 
     /**
@@ -818,7 +1136,8 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
     }
 
     private void refactoringResult() {
-        resourceOnlySet.addAll(listFilter.getResourceOnlySet());
+        resourceOnlySet.addAll(resourceOnlyReferenceSet);
+        resourceOnlySet.removeAll(normalProcessingRoleSet);
         handleConref();
         handleCopyto();
     }
@@ -1008,7 +1327,7 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
 
         try {
             // Output relation-graph
-            SubjectSchemeReader.writeMapToXML(addMapFilePrefix(listFilter.getRelationshipGrap()), new File(job.tempDir, FILE_NAME_SUBJECT_RELATION));
+            SubjectSchemeReader.writeMapToXML(addMapFilePrefix(schemeRelationGraph), new File(job.tempDir, FILE_NAME_SUBJECT_RELATION));
             // Output topic-scheme dictionary
             SubjectSchemeReader.writeMapToXML(addMapFilePrefix(schemeDictionary), new File(job.tempDir, FILE_NAME_SUBJECT_DICTIONARY));
         } catch (final IOException e) {
@@ -1018,6 +1337,37 @@ public final class GenMapAndTopicListModule extends AbstractPipelineModuleImpl {
         writeExportAnchors();
 
         KeyDef.writeKeydef(new File(job.tempDir, SUBJECT_SCHEME_KEYDEF_LIST_FILE), addFilePrefix(schemekeydefMap.values()));
+
+        writeIdIndex();
+
+        if (dependencyGraph != null) {
+            addGlobalDependencies();
+            try {
+                dependencyGraph.write(new File(job.tempDir, DEPENDENCY_GRAPH_FILE));
+            } catch (final IOException e) {
+                throw new DITAOTException("Failed to write dependency graph: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Write topic ID index with temporary file URIs. Copy-to targets share the IDs of their sources.
+     */
+    private void writeIdIndex() throws DITAOTException {
+        final IdIndex tempIndex = new IdIndex();
+        for (final URI file: idIndex.getFiles()) {
+            tempIndex.add(tempFileNameScheme.generateTempFileName(file), idIndex.getFirstTopicId(file), idIndex.getTopicIds(file));
+        }
+        for (final Map.Entry<URI, URI> e: copytoMap.entrySet()) {
+            if (idIndex.contains(e.getValue())) {
+                tempIndex.add(tempFileNameScheme.generateTempFileName(e.getKey()), idIndex.getFirstTopicId(e.getValue()), idIndex.getTopicIds(e.getValue()));
+            }
+        }
+        try {
+            tempIndex.write(new File(job.tempDir, ID_INDEX_FILE));
+        } catch (final IOException e) {
+            throw new DITAOTException("Failed to write ID index: " + e.getMessage(), e);
+        }
     }
 
     /**
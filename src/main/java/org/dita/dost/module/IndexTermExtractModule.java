@@ -11,13 +11,20 @@ package org.dita.dost.module;
 import static org.dita.dost.util.Constants.*;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
 import org.dita.dost.exception.DITAOTException;
 import org.dita.dost.index.IndexTerm;
 import org.dita.dost.index.IndexTermCollection;
+import org.dita.dost.log.DITAOTBufferedLogger;
+import org.dita.dost.log.DITAOTLogger;
 import org.dita.dost.log.MessageUtils;
 import org.dita.dost.pipeline.AbstractPipelineInput;
 import org.dita.dost.pipeline.AbstractPipelineOutput;
@@ -26,10 +33,11 @@ import org.dita.dost.reader.DitamapIndexTermReader;
 import org.dita.dost.reader.IndexTermReader;
 import org.dita.dost.util.FileUtils;
 import org.dita.dost.util.Job.FileInfo;
+import org.dita.dost.util.ParallelUtils;
 import org.dita.dost.util.StringUtils;
 import org.dita.dost.util.XMLUtils;
+import org.xml.sax.ContentHandler;
 import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 
 /**
@@ -55,6 +63,12 @@ final class IndexTermExtractModule extends AbstractPipelineModuleImpl {
 
     private IndexTermCollection indexTermCollection;
 
+    /** Maximum number of files submitted for parallel extraction per thread ahead of collecting results. */
+    private static final int PENDING_PER_THREAD = 4;
+
+    /** Number of parallel extraction threads. */
+    private int parallel = 1;
+
     /**
      * Create a default instance.
      */
@@ -67,9 +81,8 @@ final class IndexTermExtractModule extends AbstractPipelineModuleImpl {
         if (logger == null) {
             throw new IllegalStateException("Logger not set");
         }
-        indexTermCollection = IndexTermCollection.getInstantce();
+        indexTermCollection = new IndexTermCollection();
         try {
-            indexTermCollection.clear();
             parseAndValidateInput(input);
             extractIndexTerm();
             indexTermCollection.sort();
@@ -92,6 +105,7 @@ final class IndexTermExtractModule extends AbstractPipelineModuleImpl {
         final String indexclass = input.getAttribute(ANT_INVOKER_EXT_PARAM_INDEXCLASS);
         inputMap = input.getAttribute(ANT_INVOKER_PARAM_INPUTMAP);
         targetExt = input.getAttribute(ANT_INVOKER_EXT_PARAM_TARGETEXT);
+        parallel = ParallelUtils.getThreadCount(input.getAttribute(ANT_INVOKER_EXT_PARAM_PARALLEL));
 
         /*
          * Parse topic list and ditamap list from the input dita.list file
@@ -124,88 +138,186 @@ final class IndexTermExtractModule extends AbstractPipelineModuleImpl {
         }
     }
 
-    private void extractIndexTerm() throws SAXException {
-        final int topicNum = topicList.size();
-        final int ditamapNum = ditamapList.size();
-        FileInputStream inputStream = null;
-        XMLReader xmlReader = null;
-        final IndexTermReader handler = new IndexTermReader(indexTermCollection);
-        handler.setLogger(logger);
-        final DitamapIndexTermReader ditamapIndexTermReader = new DitamapIndexTermReader(indexTermCollection, true);
-        ditamapIndexTermReader.setLogger(logger);
-        
-        xmlReader = XMLUtils.getXMLReader();
+    /**
+     * Extract index terms from topics and maps. Each file is read into its own partial collection and
+     * partial collections are merged into the result collection in file order, topics first.
+     */
+    private void extractIndexTerm() throws DITAOTException {
+        final List<Extractor> extractors = new ArrayList<Extractor>(topicList.size() + ditamapList.size());
+        for (final String topic : topicList) {
+            extractors.add(new TopicExtractor(topic));
+        }
+        for (final String ditamap : ditamapList) {
+            extractors.add(new MapExtractor(ditamap));
+        }
+        if (parallel > 1 && extractors.size() > 1) {
+            extractParallel(extractors);
+        } else {
+            for (final Extractor extractor : extractors) {
+                indexTermCollection.addAll(extractor.extract(logger));
+            }
+        }
+    }
 
+    /**
+     * Extract index terms with a bounded pool of worker threads. Log messages are buffered per file
+     * and written in file order. At most {@value #PENDING_PER_THREAD} files per thread are submitted
+     * ahead of the result being collected.
+     */
+    private void extractParallel(final List<Extractor> extractors) throws DITAOTException {
+        logger.debug("Using " + parallel + " threads to extract index terms");
+        final ExecutorService executor = ParallelUtils.newFixedThreadPool(parallel, "indexterm-extract");
+        final int maxPending = parallel * PENDING_PER_THREAD;
+        // submitted files in file order
+        final Queue<PendingExtract> results = new LinkedList<PendingExtract>();
         try {
-            xmlReader.setContentHandler(handler);
-
-            for (String aTopicList : topicList) {
-                String target;
-                String targetPathFromMap;
-                String targetPathFromMapWithoutExt;
-                handler.reset();
-                target = aTopicList;
-                targetPathFromMap = FileUtils.getRelativeUnixPath(
-                        inputMap, target);
-                targetPathFromMapWithoutExt = targetPathFromMap
-                        .substring(0, targetPathFromMap.lastIndexOf("."));
-                handler.setTargetFile(targetPathFromMapWithoutExt + targetExt);
-
-                try {
-                    /*if(!new File(job.tempDir, target).exists()){
-                        logger.logWarn("Cannot find file "+ target);
-						continue;
-					}*/
-                    inputStream = new FileInputStream(
-                            new File(job.tempDir, target));
-                    xmlReader.parse(new InputSource(inputStream));
-                    inputStream.close();
-                } catch (final Exception e) {
-                    final StringBuilder buff = new StringBuilder();
-                    String msg = null;
-                    msg = MessageUtils.getInstance().getMessage("DOTJ013E", target).toString();
-                    logger.error(buff.append(msg).append(e.getMessage()).toString());
+            for (final Extractor extractor : extractors) {
+                if (results.size() >= maxPending) {
+                    collect(results.remove());
                 }
+                final DITAOTBufferedLogger log = new DITAOTBufferedLogger();
+                results.add(new PendingExtract(log, executor.submit(new Callable<IndexTermCollection>() {
+                    @Override
+                    public IndexTermCollection call() throws Exception {
+                        return extractor.extract(log);
+                    }
+                })));
+            }
+            while (!results.isEmpty()) {
+                collect(results.remove());
             }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-            xmlReader.setContentHandler(ditamapIndexTermReader);
+    /**
+     * Wait for a submitted file, write its log messages and add its index terms to the collection.
+     */
+    private void collect(final PendingExtract pending) throws DITAOTException {
+        final IndexTermCollection result;
+        try {
+            result = pending.result.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DITAOTException("Interrupted while extracting index terms", e);
+        } catch (final ExecutionException e) {
+            pending.log.flush(logger);
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new DITAOTException(cause.getMessage(), cause);
+        }
+        pending.log.flush(logger);
+        indexTermCollection.addAll(result);
+    }
 
-            for (final String ditamap : ditamapList) {
-                final String currentMapPathName = FileUtils.getRelativeUnixPath(
-                        inputMap, ditamap);
-                String mapPathFromInputMap = "";
+    /** File submitted for parallel extraction. */
+    private static final class PendingExtract {
+        final DITAOTBufferedLogger log;
+        final Future<IndexTermCollection> result;
 
-                if (currentMapPathName.lastIndexOf(SLASH) != -1) {
-                    mapPathFromInputMap = currentMapPathName.substring(0,
-                            currentMapPathName.lastIndexOf(SLASH));
-                }
+        PendingExtract(final DITAOTBufferedLogger log, final Future<IndexTermCollection> result) {
+            this.log = log;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Index term extractor for a single file.
+     */
+    private abstract class Extractor {
+
+        /** Temporary file path relative to temporary directory */
+        final String file;
+
+        Extractor(final String file) {
+            this.file = file;
+        }
 
-                ditamapIndexTermReader.setMapPath(mapPathFromInputMap);
-                try {
-                    /*if(!new File(job.tempDir, ditamap).exists()){
-                        logger.logWarn("Cannot find file "+ ditamap);
-						continue;
-					}*/
-                    inputStream = new FileInputStream(new File(job.tempDir,
-                            ditamap));
-                    xmlReader.parse(new InputSource(inputStream));
-                    inputStream.close();
-                } catch (final Exception e) {
-                    String msg = null;
-                    msg = MessageUtils.getInstance().getMessage("DOTJ013E", ditamap).toString();
-                    logger.error(msg, e);
+        /**
+         * Extract index terms from file.
+         * 
+         * @param log logger for the file
+         * @return index terms of the file
+         */
+        IndexTermCollection extract(final DITAOTLogger log) {
+            final IndexTermCollection result = new IndexTermCollection();
+            XMLReader xmlReader = null;
+            try {
+                xmlReader = XMLUtils.borrowXMLReader();
+                xmlReader.setContentHandler(getContentHandler(result, log));
+                xmlReader.parse(new InputSource(new File(job.tempDir, file).toURI().toString()));
+            } catch (final Exception e) {
+                error(log, e);
+            } finally {
+                if (xmlReader != null) {
+                    XMLUtils.releaseXMLReader(xmlReader);
                 }
             }
-        } finally {
-            if (inputStream != null) {
-                try {
-                    inputStream.close();
-                } catch (final IOException e) {
-                    logger.error(e.getMessage(), e) ;
-                }
+            return result;
+        }
+
+        abstract ContentHandler getContentHandler(final IndexTermCollection result, final DITAOTLogger log);
 
+        abstract void error(final DITAOTLogger log, final Exception e);
+
+    }
+
+    private final class TopicExtractor extends Extractor {
+
+        TopicExtractor(final String topic) {
+            super(topic);
+        }
+
+        @Override
+        ContentHandler getContentHandler(final IndexTermCollection result, final DITAOTLogger log) {
+            final IndexTermReader handler = new IndexTermReader(result);
+            handler.setLogger(log);
+            final String targetPathFromMap = FileUtils.getRelativeUnixPath(inputMap, file);
+            final String targetPathFromMapWithoutExt = targetPathFromMap
+                    .substring(0, targetPathFromMap.lastIndexOf("."));
+            handler.setTargetFile(targetPathFromMapWithoutExt + targetExt);
+            return handler;
+        }
+
+        @Override
+        void error(final DITAOTLogger log, final Exception e) {
+            final String msg = MessageUtils.getInstance().getMessage("DOTJ013E", file).toString();
+            log.error(msg + e.getMessage());
+        }
+
+    }
+
+    private final class MapExtractor extends Extractor {
+
+        MapExtractor(final String ditamap) {
+            super(ditamap);
+        }
+
+        @Override
+        ContentHandler getContentHandler(final IndexTermCollection result, final DITAOTLogger log) {
+            final DitamapIndexTermReader handler = new DitamapIndexTermReader(result, true);
+            handler.setLogger(log);
+            final String currentMapPathName = FileUtils.getRelativeUnixPath(inputMap, file);
+            String mapPathFromInputMap = "";
+            if (currentMapPathName.lastIndexOf(SLASH) != -1) {
+                mapPathFromInputMap = currentMapPathName.substring(0,
+                        currentMapPathName.lastIndexOf(SLASH));
             }
+            handler.setMapPath(mapPathFromInputMap);
+            return handler;
         }
+
+        @Override
+        void error(final DITAOTLogger log, final Exception e) {
+            final String msg = MessageUtils.getInstance().getMessage("DOTJ013E", file).toString();
+            log.error(msg, e);
+        }
+
     }
 
 }
@@ -24,7 +24,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.dita.dost.util.DelayConrefUtils;
-import org.w3c.dom.Element;
+import org.dita.dost.util.IdIndex;
 import org.xml.sax.XMLFilter;
 import org.dita.dost.exception.DITAOTException;
 import org.dita.dost.pipeline.AbstractPipelineInput;
@@ -33,6 +33,7 @@ import org.dita.dost.reader.KeyrefReader;
 import org.dita.dost.util.Job.FileInfo;
 import org.dita.dost.util.Job.FileInfo.Filter;
 import org.dita.dost.util.KeyDef;
+import org.dita.dost.util.KeySpace;
 import org.dita.dost.util.XMLUtils;
 import org.dita.dost.writer.ConkeyrefFilter;
 import org.dita.dost.writer.KeyrefPaser;
@@ -40,6 +41,8 @@ import org.dita.dost.writer.KeyrefPaser;
 /**
  * Keyref Module.
  *
+ * <p>Key definitions are compiled into a {@link KeySpace} once before files are processed. Map documents
+ * are not retained while key references are resolved.</p>
  */
 final class KeyrefModule extends AbstractPipelineModuleImpl {
 
@@ -87,16 +90,19 @@ final class KeyrefModule extends AbstractPipelineModuleImpl {
                 }
             }
             
-            final KeyrefReader reader = new KeyrefReader();
-            reader.setLogger(logger);
-            for(final URI mapFile: maps.keySet()){
-                logger.info("Reading " + job.tempDir.toURI().resolve(mapFile).toString());
-                reader.setKeys(maps.get(mapFile));
-                reader.read(job.tempDir.toURI().resolve(mapFile));
-            }
-            final Map<String, Element> keyDefinition = reader.getKeyDefinition();
+            final KeySpace keySpace = readKeySpace(maps, keymap);
             transtype = input.getAttribute(ANT_INVOKER_EXT_PARAM_TRANSTYPE);
+            IdIndex idIndex = null;
+            try {
+                idIndex = IdIndex.read(new File(job.tempDir, ID_INDEX_FILE));
+            } catch (final IOException e) {
+                logger.warn("Failed to read ID index: " + e.getMessage());
+            }
             delayConrefUtils = transtype.equals(INDEX_TYPE_ECLIPSEHELP) ? new DelayConrefUtils() : null;
+            if (delayConrefUtils != null) {
+                delayConrefUtils.setLogger(logger);
+                delayConrefUtils.setIdIndex(idIndex, job.tempDir);
+            }
             
             final Set<URI> normalProcessingRole = new HashSet<URI>();
             for (final FileInfo f: fis) {
@@ -116,9 +122,9 @@ final class KeyrefModule extends AbstractPipelineModuleImpl {
                 final KeyrefPaser parser = new KeyrefPaser();
                 parser.setLogger(logger);
                 parser.setJob(job);
-                parser.setKeyDefinition(keyDefinition);
+                parser.setKeySpace(keySpace);
                 parser.setCurrentFile(file);
-                parser.setKeyMap(keymap);
+                parser.setIdIndex(idIndex);
                 filters.add(parser);
                 
                 XMLUtils.transform(new File(job.tempDir, file.getPath()), filters);
@@ -143,4 +149,24 @@ final class KeyrefModule extends AbstractPipelineModuleImpl {
         return null;
     }
 
+    /**
+     * Read and compile key definitions.
+     * 
+     * @param maps key names by map file that defines them
+     * @param keymap key targets by key name
+     * @return compiled key space
+     */
+    private KeySpace readKeySpace(final Map<URI, Set<String>> maps, final Map<String, URI> keymap) {
+        final KeyrefReader reader = new KeyrefReader();
+        reader.setLogger(logger);
+        for(final URI mapFile: maps.keySet()){
+            logger.info("Reading " + job.tempDir.toURI().resolve(mapFile).toString());
+            reader.setKeys(maps.get(mapFile));
+            reader.read(job.tempDir.toURI().resolve(mapFile));
+        }
+        final KeySpace keySpace = new KeySpace(reader.getKeyDefinition(), keymap);
+        logger.debug("Compiled " + keySpace.size() + " keys");
+        return keySpace;
+    }
+
 }
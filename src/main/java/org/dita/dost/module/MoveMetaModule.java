@@ -11,20 +11,41 @@ package org.dita.dost.module;
 import static org.dita.dost.util.Constants.*;
 import static org.dita.dost.util.URLUtils.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Hashtable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import javax.xml.transform.Transformer;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
 import org.dita.dost.exception.DITAOTException;
+import org.dita.dost.log.DITAOTBufferedLogger;
+import org.dita.dost.log.DITAOTLogger;
 import org.dita.dost.pipeline.AbstractPipelineInput;
 import org.dita.dost.pipeline.AbstractPipelineOutput;
 import org.dita.dost.reader.MapMetaReader;
 import org.dita.dost.util.Job.FileInfo;
+import org.dita.dost.util.ParallelUtils;
+import org.dita.dost.util.XMLUtils;
 import org.dita.dost.writer.DitaMapMetaWriter;
 import org.dita.dost.writer.DitaMetaWriter;
 
@@ -33,10 +54,20 @@ import org.dita.dost.writer.DitaMetaWriter;
  * in maps and collects metadata for topics. The collected metadata is then inserted
  * into maps and topics.
  *
+ * <p>If {@code parallel} is set, metadata collected for topics is serialized into compact per-topic
+ * records and the metadata DOM is released before topics are processed with multiple threads. Each
+ * record is parsed back into DOM only while its topic is being processed.</p>
+ *
  * @author Zhang, Yuan Peng
  */
 final class MoveMetaModule extends AbstractPipelineModuleImpl {
 
+    private static final String ELEMENT_RECORD = "record";
+    private static final String ELEMENT_ENTRY = "entry";
+    private static final String ATTRIBUTE_KEY = "key";
+    /** Maximum number of topics submitted for parallel processing per thread ahead of writing results. */
+    private static final int PENDING_PER_THREAD = 4;
+
     /**
      * Default constructor of MoveMetaModule class.
      */
@@ -61,7 +92,7 @@ final class MoveMetaModule extends AbstractPipelineModuleImpl {
         //}
         fis.add(job.getFileInfo(toURI(job.getInputMap())));
         if (!fis.isEmpty()) {
-            final MapMetaReader metaReader = new MapMetaReader();
+            MapMetaReader metaReader = new MapMetaReader();
             metaReader.setLogger(logger);
             for (final FileInfo f: fis) {
                 final File mapFile = new File(job.tempDir, f.file.getPath());
@@ -69,7 +100,7 @@ final class MoveMetaModule extends AbstractPipelineModuleImpl {
                 //FIXME: this reader gets the parent path of input file
                 metaReader.read(mapFile);
             }
-            final Map<URI, Map<String, Element>> mapSet = metaReader.getMapping();
+            Map<URI, Map<String, Element>> mapSet = metaReader.getMapping();
             
             if (!mapSet.isEmpty()) {
                 //process map first
@@ -90,25 +121,188 @@ final class MoveMetaModule extends AbstractPipelineModuleImpl {
                     }
                 }
         
-                //process topic
-                final DitaMetaWriter topicInserter = new DitaMetaWriter();
-                topicInserter.setLogger(logger);
-                topicInserter.setJob(job);
-                for (final Map.Entry<URI, Map<String, Element>> entry: mapSet.entrySet()) {
-                    final URI targetFileName = entry.getKey();
-                    if (targetFileName.getPath().endsWith(FILE_EXTENSION_DITA) || targetFileName.getPath().endsWith(FILE_EXTENSION_XML)) {
-                        topicInserter.setMetaTable(entry.getValue());
-                        if (toFile(targetFileName).exists()) {
-                            logger.info("Processing " + targetFileName);
-                            topicInserter.read(toFile(targetFileName));
-                        } else {
-                            logger.error("File " + targetFileName + " does not exist");
+                final int parallel = ParallelUtils.getThreadCount(input.getAttribute(ANT_INVOKER_EXT_PARAM_PARALLEL));
+                if (parallel > 1) {
+                    final Map<URI, byte[]> records = new LinkedHashMap<URI, byte[]>();
+                    for (final Map.Entry<URI, Map<String, Element>> entry: mapSet.entrySet()) {
+                        if (isTopic(entry.getKey())) {
+                            records.put(entry.getKey(), encode(entry.getValue()));
+                        }
+                    }
+                    // release metadata DOM
+                    mapSet = null;
+                    metaReader = null;
+                    insertTopicMetaParallel(records, parallel);
+                } else {
+                    //process topic
+                    final DitaMetaWriter topicInserter = new DitaMetaWriter();
+                    topicInserter.setLogger(logger);
+                    topicInserter.setJob(job);
+                    for (final Map.Entry<URI, Map<String, Element>> entry: mapSet.entrySet()) {
+                        final URI targetFileName = entry.getKey();
+                        if (isTopic(targetFileName)) {
+                            topicInserter.setMetaTable(entry.getValue());
+                            if (toFile(targetFileName).exists()) {
+                                logger.info("Processing " + targetFileName);
+                                topicInserter.read(toFile(targetFileName));
+                            } else {
+                                logger.error("File " + targetFileName + " does not exist");
+                            }
+            
                         }
-        
                     }
                 }
             }
         }
         return null;
     }
+
+    private static boolean isTopic(final URI file) {
+        return file.getPath().endsWith(FILE_EXTENSION_DITA) || file.getPath().endsWith(FILE_EXTENSION_XML);
+    }
+
+    /**
+     * Insert topic metadata with a bounded pool of worker threads, each with its own writer. Log
+     * messages are buffered per topic and written in topic order. At most {@value #PENDING_PER_THREAD}
+     * topics per thread are submitted ahead of the result being written, which bounds the number of
+     * records held by queued tasks; the remaining records are released from the record map as they
+     * are submitted.
+     *
+     * @param records serialized metadata records by topic file
+     * @param parallel number of threads
+     */
+    private void insertTopicMetaParallel(final Map<URI, byte[]> records, final int parallel) throws DITAOTException {
+        logger.debug("Using " + parallel + " threads to insert topic metadata");
+        final ThreadLocal<DitaMetaWriter> inserters = new ThreadLocal<DitaMetaWriter>() {
+            @Override
+            protected DitaMetaWriter initialValue() {
+                final DitaMetaWriter topicInserter = new DitaMetaWriter();
+                topicInserter.setJob(job);
+                return topicInserter;
+            }
+        };
+        final ExecutorService executor = ParallelUtils.newFixedThreadPool(parallel, "move-meta");
+        final int maxPending = parallel * PENDING_PER_THREAD;
+        // submitted topics in topic order
+        final Queue<Future<DITAOTBufferedLogger>> results = new LinkedList<Future<DITAOTBufferedLogger>>();
+        try {
+            for (final Iterator<Map.Entry<URI, byte[]>> it = records.entrySet().iterator(); it.hasNext();) {
+                final Map.Entry<URI, byte[]> entry = it.next();
+                final URI targetFileName = entry.getKey();
+                final byte[] record = entry.getValue();
+                it.remove();
+                if (results.size() >= maxPending) {
+                    flush(results.remove());
+                }
+                results.add(executor.submit(new Callable<DITAOTBufferedLogger>() {
+                    @Override
+                    public DITAOTBufferedLogger call() throws Exception {
+                        final DITAOTBufferedLogger log = new DITAOTBufferedLogger();
+                        insertTopicMeta(inserters.get(), targetFileName, record, log);
+                        return log;
+                    }
+                }));
+            }
+            while (!results.isEmpty()) {
+                flush(results.remove());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Wait for topic to be processed and write its log messages.
+     *
+     * @param result result of topic processing
+     */
+    private void flush(final Future<DITAOTBufferedLogger> result) throws DITAOTException {
+        try {
+            result.get().flush(logger);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DITAOTException("Interrupted while inserting topic metadata", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else if (cause instanceof DITAOTException) {
+                throw (DITAOTException) cause;
+            }
+            throw new DITAOTException(cause.getMessage(), cause);
+        }
+    }
+
+    private void insertTopicMeta(final DitaMetaWriter topicInserter, final URI targetFileName, final byte[] record,
+            final DITAOTLogger logger) throws DITAOTException {
+        topicInserter.setLogger(logger);
+        if (toFile(targetFileName).exists()) {
+            logger.info("Processing " + targetFileName);
+            topicInserter.setMetaTable(decode(record));
+            topicInserter.read(toFile(targetFileName));
+        } else {
+            logger.error("File " + targetFileName + " does not exist");
+        }
+    }
+
+    /**
+     * Serialize topic metadata into a record.
+     *
+     * @param metaTable metadata stubs by class matcher
+     * @return serialized record
+     */
+    private static byte[] encode(final Map<String, Element> metaTable) throws DITAOTException {
+        final Document doc = XMLUtils.getDocumentBuilder().newDocument();
+        final Element root = doc.createElement(ELEMENT_RECORD);
+        doc.appendChild(root);
+        for (final Map.Entry<String, Element> e: metaTable.entrySet()) {
+            final Element entry = doc.createElement(ELEMENT_ENTRY);
+            entry.setAttribute(ATTRIBUTE_KEY, e.getKey());
+            final NodeList children = e.getValue().getChildNodes();
+            for (int i = 0; i < children.getLength(); i++) {
+                entry.appendChild(doc.importNode(children.item(i), true));
+            }
+            root.appendChild(entry);
+        }
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try {
+            final Transformer t = XMLUtils.borrowTransformer();
+            try {
+                t.transform(new DOMSource(doc), new StreamResult(buf));
+            } finally {
+                XMLUtils.releaseTransformer(t);
+            }
+        } catch (final Exception e) {
+            throw new DITAOTException("Failed to serialize metadata: " + e.getMessage(), e);
+        }
+        return buf.toByteArray();
+    }
+
+    /**
+     * Parse topic metadata record.
+     *
+     * @param record serialized record
+     * @return metadata stubs by class matcher
+     */
+    private static Map<String, Element> decode(final byte[] record) throws DITAOTException {
+        final Document doc;
+        try {
+            doc = XMLUtils.getDocumentBuilder().parse(new ByteArrayInputStream(record));
+        } catch (final Exception e) {
+            throw new DITAOTException("Failed to parse metadata: " + e.getMessage(), e);
+        }
+        final Map<String, Element> metaTable = new HashMap<String, Element>(16);
+        final NodeList entries = doc.getDocumentElement().getChildNodes();
+        for (int i = 0; i < entries.getLength(); i++) {
+            final Node node = entries.item(i);
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                final Element entry = (Element) node;
+                metaTable.put(entry.getAttribute(ATTRIBUTE_KEY), entry);
+            }
+        }
+        return metaTable;
+    }
+
 }
@@ -8,11 +8,10 @@
  */
 package org.dita.dost.module;
 
+import static org.apache.commons.io.FileUtils.deleteQuietly;
 import static org.dita.dost.util.Constants.*;
 
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -32,7 +31,8 @@ import org.dita.dost.reader.MergeMapParser;
 import org.dita.dost.util.CatalogUtils;
 
 /**
- * The module handles topic merge in issues as PDF.
+ * The module handles topic merge in issues as PDF. The merged document is streamed into a file
+ * instead of being held in memory.
  */
 final class TopicMergeModule extends AbstractPipelineModuleImpl {
 
@@ -70,58 +70,65 @@ final class TopicMergeModule extends AbstractPipelineModuleImpl {
             return null;
         }
 
-        ByteArrayOutputStream midBuffer = null;
-        try {
-            midBuffer = new ByteArrayOutputStream();
-            midBuffer.write(XML_HEAD.getBytes(UTF8));
-            midBuffer.write("<dita-merge xmlns:ditaarch=\"http://dita.oasis-open.org/architecture/2005/\">".getBytes(UTF8));
-            mapParser.setOutputStream(midBuffer);
-            mapParser.read(ditaInput, job.tempDir);
-            midBuffer.write("</dita-merge>".getBytes(UTF8));
-        } catch (final UnsupportedEncodingException e) {
-            throw new RuntimeException(e);
-        } catch (final IOException e) {
-            throw new DITAOTException("Failed to merge topics: " + e.getMessage(), e);
-        } finally {
-            if (midBuffer != null) {
-                try {
-                    midBuffer.close();
-                } catch (final IOException e) {
-                    logger.error("Failed to close output buffer: " + e.getMessage(), e);
-                }
-            }
+        final File outputDir = out.getAbsoluteFile().getParentFile();
+        if (!outputDir.exists()) {
+            outputDir.mkdirs();
         }
-
-        OutputStream output = null;
+        // Without a stylesheet the merged document is written directly to output, otherwise
+        // into a temporary file that is transformed to output.
+        File merged = null;
         try {
-            final File outputDir = out.getParentFile();
-            if (!outputDir.exists()) {
-                outputDir.mkdirs();
-            }
-            output = new BufferedOutputStream(new FileOutputStream(out));
+            merged = style != null ? File.createTempFile("merged", ".xml", job.tempDir) : out;
+            merge(mapParser, ditaInput, merged);
             if (style != null) {
                 final TransformerFactory factory = TransformerFactory.newInstance();
                 factory.setURIResolver(CatalogUtils.getCatalogResolver());
                 final Transformer transformer = factory.newTransformer(new StreamSource(style.toURI().toString()));
-                transformer.transform(new StreamSource(new ByteArrayInputStream(midBuffer.toByteArray())),
-                                      new StreamResult(output));
-            } else {
-                output.write(midBuffer.toByteArray());
-                output.flush();
+                transformer.transform(new StreamSource(merged.toURI().toString()),
+                                      new StreamResult(out.toURI().toString()));
             }
+        } catch (final DITAOTException e) {
+            throw e;
         } catch (final Exception e) {
             throw new DITAOTException("Failed to process merged topics: " + e.getMessage(), e);
         } finally {
-            try {
-                if (output != null) {
-                    output.close();
-                }
-            } catch (final Exception e) {
-                logger.error("Failed to close output buffer: " + e.getMessage(), e);
+            if (style != null && merged != null) {
+                deleteQuietly(merged);
             }
         }
 
         return null;
     }
 
+    /**
+     * Merge map and topics into a file.
+     * 
+     * @param mapParser map parser
+     * @param ditaInput input map
+     * @param dst destination file
+     */
+    private void merge(final MergeMapParser mapParser, final File ditaInput, final File dst) throws DITAOTException {
+        OutputStream output = null;
+        try {
+            output = new BufferedOutputStream(new FileOutputStream(dst));
+            output.write(XML_HEAD.getBytes(UTF8));
+            output.write("<dita-merge xmlns:ditaarch=\"http://dita.oasis-open.org/architecture/2005/\">".getBytes(UTF8));
+            mapParser.setOutputStream(output);
+            mapParser.read(ditaInput, job.tempDir);
+            output.write("</dita-merge>".getBytes(UTF8));
+        } catch (final UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        } catch (final IOException e) {
+            throw new DITAOTException("Failed to merge topics: " + e.getMessage(), e);
+        } finally {
+            if (output != null) {
+                try {
+                    output.close();
+                } catch (final IOException e) {
+                    logger.error("Failed to close output buffer: " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
 }
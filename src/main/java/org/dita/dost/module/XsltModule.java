@@ -2,9 +2,17 @@ package org.dita.dost.module;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.xml.transform.*;
 import javax.xml.transform.sax.SAXSource;
@@ -15,14 +23,21 @@ import org.apache.tools.ant.types.XMLCatalog;
 import org.apache.tools.ant.util.FileNameMapper;
 import org.apache.tools.ant.util.FileUtils;
 import org.dita.dost.exception.DITAOTException;
+import org.dita.dost.log.DITAOTBufferedLogger;
+import org.dita.dost.log.DITAOTLogger;
 import org.dita.dost.pipeline.AbstractPipelineInput;
 import org.dita.dost.pipeline.AbstractPipelineOutput;
 import org.dita.dost.util.Configuration;
+import org.dita.dost.util.DocumentCache;
+import org.dita.dost.util.ParallelUtils;
+import org.dita.dost.util.TemplatesCache;
 import org.dita.dost.util.XMLUtils;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 
+import net.sf.saxon.Controller;
+
 /**
  * XSLT processing module.
  * 
@@ -31,6 +46,11 @@ import org.xml.sax.XMLReader;
  *   <li>If source and destination directories are same, transformation results are saved to a temporary file
  *   and the original source file is replaced after a successful transformation.</li>
  *   <li>If no {@code extension} attribute is set, the target file extension is the same as the source file extension.</li>
+ *   <li>Compiled stylesheets are cached and reused until the stylesheet or one of its modules is modified.</li>
+ *   <li>If {@code parallel} is set, files are transformed with multiple threads, each with its own transformer.</li>
+ *   <li>If {@code documentcachesize} is set, documents read with {@code document()} are parsed once and shared
+ *   between transformations until modified.</li>
+ *   <li>Progress is logged as the number of transformed files, counted in the order transformations complete.</li>
  * </ul>
  *  
  */
@@ -49,48 +69,198 @@ public final class XsltModule extends AbstractPipelineModuleImpl {
     private boolean reloadstylesheet;
     private XMLCatalog xmlcatalog;
 	private FileNameMapper mapper;
+    private String extension;
+    /** Number of parallel transformation threads. */
+    private int parallel = 1;
+    /** Maximum total size of cached {@code document()} sources in bytes, {@code 0} to disable caching. */
+    private long documentCacheSize;
+    private DocumentCache documentCache;
+
+    /** Number of progress messages logged for a transformation. */
+    private static final int PROGRESS_STEPS = 10;
     
     public AbstractPipelineOutput execute(AbstractPipelineInput input) throws DITAOTException {
     	logger.info("Transforming into " + destDir.getAbsolutePath());
-        final TransformerFactory tf = TransformerFactory.newInstance();
-        tf.setURIResolver(xmlcatalog);
+        templates = getTemplates(style, xmlcatalog);
+        documentCache = documentCacheSize > 0 ? new DocumentCache(documentCacheSize) : null;
+
+        if (parallel > 1 && includes.size() > 1) {
+            executeParallel();
+        } else {
+            final Processor p = new Processor();
+            int done = 0;
+            for (final File include: includes) {
+                p.transform(include, logger);
+                logProgress(++done);
+            }
+        }
+        if (documentCache != null) {
+            logger.debug("Document cache hits " + documentCache.getHits() + ", misses " + documentCache.getMisses());
+            documentCache = null;
+        }
+        return null;
+    }
+
+    /**
+     * Transform includes with a bounded pool of worker threads, each with its own {@link Transformer}.
+     * Log messages are buffered per file and written in include order, progress is logged as transformations complete.
+     */
+    private void executeParallel() throws DITAOTException {
+        logger.debug("Using " + parallel + " threads to transform files");
+        final ThreadLocal<Processor> processors = new ThreadLocal<Processor>() {
+            @Override
+            protected Processor initialValue() {
+                return new Processor();
+            }
+        };
+        final ExecutorService executor = ParallelUtils.newFixedThreadPool(parallel, "xslt");
+        final CompletionService<DITAOTBufferedLogger> completion = new ExecutorCompletionService<DITAOTBufferedLogger>(executor);
+        final List<Future<DITAOTBufferedLogger>> results = new ArrayList<Future<DITAOTBufferedLogger>>(includes.size());
+        try {
+            for (final File include: includes) {
+                results.add(completion.submit(new Callable<DITAOTBufferedLogger>() {
+                    @Override
+                    public DITAOTBufferedLogger call() throws Exception {
+                        final DITAOTBufferedLogger log = new DITAOTBufferedLogger();
+                        processors.get().transform(include, log);
+                        return log;
+                    }
+                }));
+            }
+            int flushed = 0;
+            for (int done = 1; done <= results.size(); done++) {
+                try {
+                    completion.take();
+                    logProgress(done);
+                    while (flushed < results.size() && results.get(flushed).isDone()) {
+                        results.get(flushed).get().flush(logger);
+                        flushed++;
+                    }
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new DITAOTException("Interrupted while transforming files", e);
+                } catch (final ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    } else if (cause instanceof DITAOTException) {
+                        throw (DITAOTException) cause;
+                    }
+                    throw new DITAOTException(cause.getMessage(), cause);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Log number of transformed files at even steps.
+     *
+     * @param done number of transformed files
+     */
+    private void logProgress(final int done) {
+        final int total = includes.size();
+        final int step = Math.max(1, total / PROGRESS_STEPS);
+        if (total > 1 && (done % step == 0 || done == total)) {
+            logger.info("Transformed " + done + " of " + total + " files");
+        }
+    }
+
+    /**
+     * Get compiled stylesheet from process-wide cache. Cached stylesheet is recompiled if the stylesheet
+     * or any of its imported or included modules has been modified after compilation.
+     *
+     * @param style stylesheet file
+     * @param xmlcatalog URI resolver, may be {@code null}
+     * @return compiled stylesheet
+     */
+    private Templates getTemplates(final File style, final URIResolver xmlcatalog) {
         try {
-            templates = tf.newTemplates(new StreamSource(style));
+            return TemplatesCache.getTemplates(new StreamSource(style), xmlcatalog, new TemplatesCache.Compiler() {
+                @Override
+                public Templates compile(final Source source, final URIResolver resolver) throws TransformerConfigurationException {
+                    logger.debug("Compiling stylesheet " + style.getAbsolutePath());
+                    final TransformerFactory tf = TransformerFactory.newInstance();
+                    tf.setURIResolver(resolver);
+                    return tf.newTemplates(source);
+                }
+            });
         } catch (TransformerConfigurationException e) {
             throw new RuntimeException("Failed to compile stylesheet '" + style.getAbsolutePath() + "': " + e.getMessage(), e);
         }
-        XMLReader parser;
-		try {
-			parser = XMLUtils.getXMLReader();
-		} catch (final SAXException e) {
-			throw new RuntimeException("Failed to create XML reader: " + e.getMessage(), e);
-		}
-        parser.setEntityResolver(xmlcatalog);
-        
-    	Transformer t = null;
-        for (final File include: includes) {
-        	if (reloadstylesheet || t == null) {
+    }
+
+    /**
+     * Transformation state for a single thread.
+     */
+    private final class Processor {
+
+        private final XMLReader parser;
+        /** Catalog resolver of this thread, Ant catalog resolvers are not thread-safe. */
+        private final XMLCatalog catalog;
+        private Transformer t;
+
+        Processor() {
+            try {
+                parser = XMLUtils.getXMLReader();
+            } catch (final SAXException e) {
+                throw new RuntimeException("Failed to create XML reader: " + e.getMessage(), e);
+            }
+            if (xmlcatalog != null) {
+                catalog = new XMLCatalog();
+                catalog.setProject(xmlcatalog.getProject());
+                catalog.addConfiguredXMLCatalog(xmlcatalog);
+            } else {
+                catalog = null;
+            }
+            parser.setEntityResolver(catalog);
+        }
+
+        /**
+         * Transform a single file.
+         *
+         * @param include relative path to source file
+         * @param logger logger to use
+         */
+        void transform(final File include, final DITAOTLogger logger) throws DITAOTException {
+            if (reloadstylesheet || t == null) {
                 logger.info("Loading stylesheet " + style.getAbsolutePath());
-	            try {
-	                t = templates.newTransformer();
+                try {
+                    t = templates.newTransformer();
+                    URIResolver resolver = null;
                     if (Configuration.DEBUG) {
-                        t.setURIResolver(new XMLUtils.DebugURIResolver(xmlcatalog));
+                        resolver = new XMLUtils.DebugURIResolver(catalog);
+                    } else if (catalog != null) {
+                        resolver = catalog;
+                    }
+                    if (documentCache != null && t instanceof Controller) {
+                        resolver = documentCache.newURIResolver(resolver, ((Controller) t).getConfiguration());
+                    }
+                    if (resolver != null) {
+                        t.setURIResolver(resolver);
                     }
-	            } catch (final TransformerConfigurationException e) {
-	                throw new DITAOTException("Failed to create Transformer: " + e.getMessage(), e);
-	            }
-        	}
+                } catch (final TransformerConfigurationException e) {
+                    throw new DITAOTException("Failed to create Transformer: " + e.getMessage(), e);
+                }
+            }
             final File in = new File(baseDir, include.getPath());
             File out = new File(destDir, include.getPath());
             if (mapper != null) {
-            	final String[] outs = mapper.mapFileName(out.getAbsolutePath());
+            	final String[] outs = mapper.mapFileName(include.getPath());
             	if (outs == null) {
-            		continue;
+            		return;
             	}
             	if (outs.length > 1) {
             		throw new RuntimeException("XSLT module only support one to one output mapping");
             	}
-            	out = new File(outs[0]);
+            	out = new File(destDir, outs[0]);
+            } else if (extension != null) {
+                final String path = include.getPath();
+                final int i = path.lastIndexOf('.');
+                out = new File(destDir, (i > 0 ? path.substring(0, i) : path) + extension);
             }
             final boolean same = in.getAbsolutePath().equals(out.getAbsolutePath());
             final File tmp = same ? new File(out.getAbsolutePath() + ".tmp" + Long.toString(System.currentTimeMillis())) : out; 
@@ -103,7 +273,7 @@ public final class XsltModule extends AbstractPipelineModuleImpl {
                 t.setParameter(filenameparameter, include.getName());
             }
             if (filedirparameter != null) {
-            	final String v = include.getParent() != null ? include.getParent() : ".";
+            	final String v = include.getParent() != null ? include.getParent().replace(File.separatorChar, '/') : ".";
                 logger.debug("Set parameter " + filedirparameter + " to '" + v + "'");
                 t.setParameter(filedirparameter, v);
             }
@@ -115,7 +285,7 @@ public final class XsltModule extends AbstractPipelineModuleImpl {
             }
             final Source source = new SAXSource(parser, new InputSource(in.toURI().toString()));
             try {
-            	if (!tmp.getParentFile().exists() && !tmp.getParentFile().mkdirs()) {
+            	if (!tmp.getParentFile().exists() && !tmp.getParentFile().mkdirs() && !tmp.getParentFile().exists()) {
                 	throw new IOException("Failed to create directory " + tmp.getParent());
                 }
                 t.transform(source, new StreamResult(tmp));
@@ -128,13 +298,16 @@ public final class XsltModule extends AbstractPipelineModuleImpl {
                         throw new IOException("Failed to to replace input file " + out.getAbsolutePath());
                     }
                 }
+                if (documentCache != null) {
+                    documentCache.invalidate(out);
+                }
             } catch (final Exception e) {
                 logger.error("Failed to transform document: " + e.getMessage(), e);
                 logger.debug("Remove " + tmp.getAbsolutePath());
                 FileUtils.delete(tmp);
             } 
         }
-        return null;
+
     }
     
     public void setStyle(final File style) {
@@ -184,5 +357,27 @@ public final class XsltModule extends AbstractPipelineModuleImpl {
 	public void setMapper(final FileNameMapper mapper) {
 		this.mapper = mapper;
 	}
+
+    /**
+     * Set target file extension. Ignored if a mapper is set.
+     *
+     * @param extension file extension including the leading dot, {@code null} to keep source file extension
+     */
+    public void setExtension(final String extension) {
+        this.extension = extension;
+    }
+
+    public void setParallel(final int parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Set maximum total size of source documents read with {@code document()} to keep parsed between transformations.
+     *
+     * @param documentCacheSize size in bytes, {@code 0} to disable caching
+     */
+    public void setDocumentCacheSize(final long documentCacheSize) {
+        this.documentCacheSize = documentCacheSize;
+    }
     
 }
@@ -0,0 +1,42 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.platform;
+
+import static org.dita.dost.invoker.ExtensibleAntInvoker.getJob;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Task;
+import org.dita.dost.util.Job;
+
+/**
+ * Export job configuration into legacy XML job file.
+ * 
+ * @since 2.1
+ */
+public final class JobExportTask extends Task {
+
+    private File dir;
+
+    @Override
+    public void execute() throws BuildException {
+        final Job job = getJob(dir, getProject());
+        try {
+            job.exportXml();
+        } catch (final IOException e) {
+            throw new BuildException("Failed to export job configuration: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Set directory where to read job configuration
+     */
+    public void setDir(final File dir) {
+        this.dir = dir;
+    }
+
+}
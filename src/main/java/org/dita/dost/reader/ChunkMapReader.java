@@ -24,7 +24,6 @@ import java.util.*;
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
@@ -76,6 +75,8 @@ public final class ChunkMapReader extends AbstractDomFilter {
 
     private final ChunkFilenameGenerator chunkFilenameGenerator = ChunkFilenameGeneratorFactory.newInstance();
     private Job job;
+    /** ID index of source files, may be {@code null}. */
+    private IdIndex idIndex;
 
     /**
      * Constructor.
@@ -103,6 +104,13 @@ public final class ChunkMapReader extends AbstractDomFilter {
     public void read(final File inputFile) {
         this.inputFile = inputFile;
         fileDir = inputFile.getParentFile();
+        if (idIndex == null && job != null) {
+            try {
+                idIndex = IdIndex.read(new File(job.tempDir, Job.ID_INDEX_FILE));
+            } catch (final IOException e) {
+                logger.warn("Failed to read ID index: " + e.getMessage());
+            }
+        }
 
         super.read(inputFile);
     }
@@ -253,8 +261,12 @@ public final class ChunkMapReader extends AbstractDomFilter {
         OutputStream output = null;
         try {
             output = new FileOutputStream(file);
-            final Transformer t = TransformerFactory.newInstance().newTransformer();
-            t.transform(new DOMSource(doc), new StreamResult(output));
+            final Transformer t = XMLUtils.borrowTransformer();
+            try {
+                t.transform(new DOMSource(doc), new StreamResult(output));
+            } finally {
+                XMLUtils.releaseTransformer(t);
+            }
         } catch (final RuntimeException e) {
             throw e;
         } catch (final Exception e) {
@@ -525,12 +537,14 @@ public final class ChunkMapReader extends AbstractDomFilter {
                 final SeparateChunkTopicParser chunkParser = new SeparateChunkTopicParser();
                 chunkParser.setLogger(logger);
                 chunkParser.setJob(job);
+                chunkParser.setIdIndex(idIndex);
                 chunkParser.setup(changeTable, conflictTable, topicref, chunkFilenameGenerator);
                 chunkParser.write(fileDir);
             } else {
                 final ChunkTopicParser chunkParser = new ChunkTopicParser();
                 chunkParser.setLogger(logger);
                 chunkParser.setJob(job);
+                chunkParser.setIdIndex(idIndex);
                 chunkParser.setup(changeTable, conflictTable, topicref, chunkFilenameGenerator);
                 chunkParser.write(fileDir);
             }
@@ -14,7 +14,7 @@ import static org.dita.dost.util.URLUtils.*;
 import java.io.File;
 import java.net.URI;
 import java.util.Collections;
-import java.util.Hashtable;
+import java.util.HashMap;
 import java.util.Map;
 
 import javax.xml.parsers.DocumentBuilder;
@@ -44,9 +44,12 @@ import org.xml.sax.XMLReader;
 public final class ConrefPushReader extends AbstractXMLReader {
 
     /** push table.*/
-    private final Hashtable<File, Hashtable<MoveKey, DocumentFragment>> pushtable;
-    /** Document used to construct push table DocumentFragments. */
+    private final Map<File, Map<MoveKey, DocumentFragment>> pushtable;
+    /** Documents used to construct push table DocumentFragments, one per target file. */
+    private final Map<File, Document> pushDocuments;
+    /** Document used to collect push content. */
     private final Document pushDocument;
+    private final DocumentBuilder documentBuilder;
     /** push table.*/
     private final XMLReader reader;
 
@@ -82,11 +85,12 @@ public final class ConrefPushReader extends AbstractXMLReader {
     private String pushType = null;
         
     /**
-     * Get push table
+     * Get push table. Push content for each target file is owned by a separate DOM document, so
+     * tables of different targets can be processed concurrently.
      * 
      * @return unmodifiable push table
      */
-    public Map<File, Hashtable<MoveKey, DocumentFragment>> getPushMap() {
+    public Map<File, Map<MoveKey, DocumentFragment>> getPushMap() {
     	return Collections.unmodifiableMap(pushtable);
     }
     
@@ -123,7 +127,8 @@ public final class ConrefPushReader extends AbstractXMLReader {
      * Constructor.
      */
     public ConrefPushReader() {
-        pushtable = new Hashtable<File, Hashtable<MoveKey,DocumentFragment>>();
+        pushtable = new HashMap<File, Map<MoveKey, DocumentFragment>>();
+        pushDocuments = new HashMap<File, Document>();
         try{
             reader = XMLUtils.getXMLReader();
             reader.setFeature(FEATURE_NAMESPACE_PREFIX, false);
@@ -133,7 +138,7 @@ public final class ConrefPushReader extends AbstractXMLReader {
             throw new RuntimeException("Failed to initialize XML parser: " + e.getMessage(), e);
         }
 
-        final DocumentBuilder documentBuilder = XMLUtils.getDocumentBuilder();
+        documentBuilder = XMLUtils.getDocumentBuilder();
         pushDocument = documentBuilder.newDocument();
     }
 
@@ -335,14 +340,18 @@ public final class ConrefPushReader extends AbstractXMLReader {
             target = toURI(parsefilename.getPath() + target);
         }
         final File key = toFile(FileUtils.resolve(fileDir, target));
-        Hashtable<MoveKey, DocumentFragment> table = null;
+        Map<MoveKey, DocumentFragment> table = null;
+        Document doc = null;
         if (pushtable.containsKey(key)) {
             //if there is something else push to the same file
             table = pushtable.get(key);
+            doc = pushDocuments.get(key);
         } else {
             //if there is nothing else push to the same file
-            table = new Hashtable<MoveKey, DocumentFragment>();
+            table = new HashMap<MoveKey, DocumentFragment>();
             pushtable.put(key, table);
+            doc = documentBuilder.newDocument();
+            pushDocuments.put(key, doc);
         }
 
         final MoveKey moveKey = new MoveKey(SHARP + target.getFragment(), type);
@@ -354,23 +363,23 @@ public final class ConrefPushReader extends AbstractXMLReader {
             if (ATTR_CONACTION_VALUE_PUSHREPLACE.equals(type)) {
                 logger.error(MessageUtils.getInstance().getMessage("DOTJ042E", target.toString()).toString());
             } else {
-                table.put(moveKey, appendPushContent(pushcontent, table.get(moveKey)));
+                table.put(moveKey, appendPushContent(doc, pushcontent, table.get(moveKey)));
             }
 
         } else {
             //if there is nothing else push to the same target
-            table.put(moveKey, appendPushContent(pushcontent, null));
+            table.put(moveKey, appendPushContent(doc, pushcontent, null));
         }
     }
     
-    private DocumentFragment appendPushContent(final DocumentFragment pushcontent, final DocumentFragment target) {
+    private DocumentFragment appendPushContent(final Document doc, final DocumentFragment pushcontent, final DocumentFragment target) {
         DocumentFragment df = target;
         if (df == null) {
-            df = pushDocument.createDocumentFragment();
+            df = doc.createDocumentFragment();
         }
         final NodeList children = pushcontent.getChildNodes();
         for (int i = 0; i < children.getLength(); i++) {
-            df.appendChild(pushDocument.importNode(children.item(i), true));
+            df.appendChild(doc.importNode(children.item(i), true));
         }
         return df;
     }
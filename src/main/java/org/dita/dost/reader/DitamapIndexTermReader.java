@@ -58,14 +58,23 @@ public final class DitamapIndexTermReader extends AbstractXMLReader {
     // assumes index terms have been moved by preprocess
     private boolean indexMoved = true;
 
+    /**
+     * Constructor.
+     *
+     * @param result index term collection to add index terms to
+     * @param indexMoved index terms have been moved to maps by preprocessing
+     */
     public DitamapIndexTermReader(final IndexTermCollection result, final boolean indexMoved) {
         super();
+        if (result == null) {
+            throw new NullPointerException("Index term collection may not be null");
+        }
 		elementStack = new Stack<Object>();
 		indexTermSpecList = new ArrayList<String>(16);
 		topicrefSpecList = new ArrayList<String>(16);
 		indexSeeSpecList = new ArrayList<String>(16);
 		indexSeeAlsoSpecList = new ArrayList<String>(16);
-		this.result = result != null ? result : IndexTermCollection.getInstantce();
+		this.result = result;
         this.indexMoved = indexMoved;
     }
 
@@ -97,9 +97,9 @@ public final class GenListModuleReader extends AbstractXMLFilter {
     /** Stack for @processing-role value */
     private final Stack<String> processRoleStack = new Stack<String>();
     /** Topics with processing role of "resource-only" */
-    private final Set<URI> resourceOnlySet = new HashSet<URI>(32);
+    private final Set<URI> resourceOnlySet = new LinkedHashSet<URI>(32);
     /** Topics with processing role of "normal" */
-    private final Set<URI> normalProcessingRoleSet = new HashSet<URI>(32);
+    private final Set<URI> normalProcessingRoleSet = new LinkedHashSet<URI>(32);
     /** Subject scheme relative file paths. */
     private final Set<URI> schemeRefSet = new HashSet<URI>(32);
     /** Relationship graph between subject schema. Keys are subject scheme map paths and values
@@ -109,6 +109,10 @@ public final class GenListModuleReader extends AbstractXMLFilter {
     private URI primaryDitamap;
     private boolean isRootElement = true;
     private DitaClass rootClass = null;
+    /** Topic IDs */
+    private final Set<String> topicIds = new LinkedHashSet<String>(16);
+    /** ID of the first topic */
+    private String firstTopicId = null;
 
     /**
      * Set output utilities.
@@ -161,7 +165,7 @@ public final class GenListModuleReader extends AbstractXMLFilter {
     }
 
     /**
-     * List of files with "@processing-role=resource-only".
+     * List of files referenced with "@processing-role=resource-only" in the current file.
      * 
      * @return the resource-only set
      */
@@ -171,6 +175,25 @@ public final class GenListModuleReader extends AbstractXMLFilter {
         return res;
     }
 
+    /**
+     * List of files referenced with "@processing-role=resource-only" in the current file,
+     * including files that are also referenced with "@processing-role=normal".
+     * 
+     * @return the resource-only reference set
+     */
+    public Set<URI> getResourceOnlyReferenceSet() {
+        return resourceOnlySet;
+    }
+
+    /**
+     * List of files referenced with "@processing-role=normal" in the current file.
+     * 
+     * @return the normal processing role set
+     */
+    public Set<URI> getNormalProcessingRoleSet() {
+        return normalProcessingRoleSet;
+    }
+
     /**
      * Is the processed file a DITA topic.
      *
@@ -196,7 +219,7 @@ public final class GenListModuleReader extends AbstractXMLFilter {
     }
 
     /**
-     * Get relationship graph between subject schema. Keys are subject scheme map paths and values
+     * Get relationship graph between subject schema for the current file. Keys are subject scheme map paths and values
      * are subject scheme map paths, both relative to base directory. A key {@link #ROOT_URI} contains all subject scheme maps.
      *
      * @return relationship graph
@@ -380,6 +403,26 @@ public final class GenListModuleReader extends AbstractXMLFilter {
         return hasconaction;
     }
 
+    /**
+     * Get topic IDs.
+     * 
+     * @return IDs of all topics
+     * @since 2.1
+     */
+    public Set<String> getTopicIds() {
+        return topicIds;
+    }
+
+    /**
+     * Get ID of the first topic.
+     * 
+     * @return first topic ID, {@code null} if file contains no topics
+     * @since 2.1
+     */
+    public String getFirstTopicId() {
+        return firstTopicId;
+    }
+
     /**
      * 
      * Reset the internal variables.
@@ -411,7 +454,11 @@ public final class GenListModuleReader extends AbstractXMLFilter {
         processRoleStack.clear();
         isRootElement = true;
         rootClass = null;
-        // Don't clean resourceOnlySet or normalProcessingRoleSet
+        resourceOnlySet.clear();
+        normalProcessingRoleSet.clear();
+        schemeRelationGraph.clear();
+        topicIds.clear();
+        firstTopicId = null;
     }
 
     @Override
@@ -429,6 +476,7 @@ public final class GenListModuleReader extends AbstractXMLFilter {
     public void startElement(final String uri, final String localName, final String qName, final Attributes atts)
             throws SAXException {
         handleRootElement(atts);
+        handleId(atts);
 
         String processingRole = atts.getValue(ATTRIBUTE_NAME_PROCESSING_ROLE);
         if (processingRole == null) {
@@ -525,6 +573,19 @@ public final class GenListModuleReader extends AbstractXMLFilter {
         getContentHandler().startElement(uri, localName, qName, atts);
     }
 
+    /**
+     * Record topic IDs.
+     */
+    private void handleId(final Attributes atts) {
+        final String id = atts.getValue(ATTRIBUTE_NAME_ID);
+        if (id != null && TOPIC_TOPIC.matches(atts.getValue(ATTRIBUTE_NAME_CLASS))) {
+            if (firstTopicId == null) {
+                firstTopicId = id;
+            }
+            topicIds.add(id);
+        }
+    }
+
     private void handleRootElement(final Attributes atts) {
         if (isRootElement) {
             isRootElement = false;
@@ -8,35 +8,46 @@
  */
 package org.dita.dost.reader;
 
+import java.io.File;
+
 import org.apache.xerces.xni.grammars.XMLGrammarPool;
+import org.dita.dost.util.CatalogUtils;
 import org.dita.dost.util.XMLGrammarPoolImplUtils;
 
 /**
  * Manages creation and access to a master Xerces grammar pool.
- * The grammar pool is managed as a ThreadLocal variable so it can
- * be used across Ant task invocations.
+ * The grammar pool is shared by all threads so it can be used across
+ * Ant task invocations and parallel workers. A new pool is created when
+ * the catalog file changes, because cached grammars depend on catalog
+ * resolution.
  */
 public final class GrammarPoolManager {
 
-    private static final ThreadLocal<XMLGrammarPool> grammarPool = new ThreadLocal<XMLGrammarPool>();
+    private static XMLGrammarPool grammarPool;
+    /** Catalog the current grammar pool was created for. */
+    private static String catalogKey;
 
     /**
      * Get grammar pool
      * 
      * @return grammar pool instance
      */
-    public static XMLGrammarPool getGrammarPool() {
-        XMLGrammarPool pool = grammarPool.get();
-        if (pool == null) {
+    public static synchronized XMLGrammarPool getGrammarPool() {
+        final String key = getCatalogKey();
+        if (grammarPool == null || !key.equals(catalogKey)) {
             try {
-                pool = new XMLGrammarPoolImplUtils();
-                grammarPool.set(pool);
+                grammarPool = new XMLGrammarPoolImplUtils();
+                catalogKey = key;
             } catch (final Exception e) {
                 System.out.println("Failed to create Xerces grammar pool for caching DTDs and schemas");
             }
         }
-        return pool;
+        return grammarPool;
     }
 
-}
+    private static String getCatalogKey() {
+        final File catalog = CatalogUtils.getCatalogFile();
+        return catalog.getAbsolutePath() + File.pathSeparator + catalog.lastModified();
+    }
 
+}
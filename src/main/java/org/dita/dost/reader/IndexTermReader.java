@@ -87,7 +87,15 @@ public final class IndexTermReader extends AbstractXMLReader {
 
     private final IndexTermCollection result;
 
+    /**
+     * Constructor.
+     *
+     * @param result index term collection to add index terms to
+     */
     public IndexTermReader(final IndexTermCollection result) {
+        if (result == null) {
+            throw new NullPointerException("Index term collection may not be null");
+        }
         termStack = new Stack<IndexTerm>();
 		topicIdStack = new Stack<String>();
 		indexTermSpecList = new ArrayList<String>(16);
@@ -100,7 +108,7 @@ public final class IndexTermReader extends AbstractXMLReader {
 		titleMap = new HashMap<String, String>(256);
 		processRoleStack = new Stack<String>();
 		processRoleLevel = 0;
-		this.result = result != null ? result : IndexTermCollection.getInstantce();
+		this.result = result;
     }
 
     /**
@@ -19,6 +19,7 @@ import java.util.Set;
 
 import javax.xml.parsers.DocumentBuilder;
 
+import org.dita.dost.util.KeySpace.Definition;
 import org.dita.dost.util.XMLUtils;
 import org.w3c.dom.Element;
 import org.w3c.dom.Document;
@@ -27,14 +28,15 @@ import org.dita.dost.log.DITAOTLogger;
 import org.xml.sax.InputSource;
 
 /**
- * KeyrefReader class which reads DITA map file to collect key definitions. Instances are reusable but not thread-safe.
+ * KeyrefReader class which reads DITA map file to collect key definitions. Key definitions are compiled
+ * while the map is read and map documents are not retained. Instances are reusable but not thread-safe.
  */
 public final class KeyrefReader implements AbstractReader {
 
     private DITAOTLogger logger;
     private final DocumentBuilder builder;
-    /** Key definition map, where map key is the key name and map value is XML definition */  
-    private final Map<String, Element> keyDefTable;
+    /** Key definition map, where map key is the key name and map value is compiled definition */  
+    private final Map<String, Definition> keyDefTable;
 
     private Set<String> keys;
 
@@ -42,7 +44,7 @@ public final class KeyrefReader implements AbstractReader {
      * Constructor.
      */
     public KeyrefReader() {
-        keyDefTable = new HashMap<String, Element>();
+        keyDefTable = new HashMap<String, Definition>();
         builder = XMLUtils.getDocumentBuilder();
     }
     
@@ -57,11 +59,11 @@ public final class KeyrefReader implements AbstractReader {
     }
     
     /**
-     * Get key definitions. Each key definition Element has a distinct Document.
+     * Get key definitions. Keys defined by the same element share a definition.
      * 
-     * @return key definition map where map key is key name and map value is XML definition of the key 
+     * @return key definition map where map key is key name and map value is compiled definition of the key 
      */
-    public Map<String, Element> getKeyDefinition() {
+    public Map<String, Definition> getKeyDefinition() {
         return Collections.unmodifiableMap(keyDefTable);
     }
 
@@ -84,12 +86,13 @@ public final class KeyrefReader implements AbstractReader {
             final String classValue = elem.getAttribute(ATTRIBUTE_NAME_CLASS);
             final String keyName = elem.getAttribute(ATTRIBUTE_NAME_KEYS);
             if (!keyName.isEmpty() && MAP_TOPICREF.matches(classValue)) {
+                Definition def = null;
                 for (final String key: keyName.trim().split("\\s+")) {
                   if (keys.contains(key) && !keyDefTable.containsKey(key)){
-                      final Document d = builder.newDocument();
-                      final Element copy = (Element) d.importNode(elem, true);
-                      d.appendChild(copy);
-                      keyDefTable.put(key, copy);
+                      if (def == null) {
+                          def = new Definition(elem);
+                      }
+                      keyDefTable.put(key, def);
                   }
               }
             }
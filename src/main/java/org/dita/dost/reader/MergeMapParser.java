@@ -9,11 +9,15 @@
 package org.dita.dost.reader;
 
 import static javax.xml.transform.OutputKeys.*;
+import static org.apache.commons.io.FileUtils.copyFile;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
 import static org.dita.dost.util.Constants.*;
 import static org.dita.dost.util.URLUtils.*;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.util.Stack;
@@ -42,7 +46,9 @@ import org.xml.sax.XMLReader;
 /**
  * MergeMapParser reads the ditamap file after preprocessing and merges
  * different files into one intermediate result. It calls MergeTopicParser
- * to process the topic file. Instances are reusable but not thread-safe.
+ * to process the topic file. Merged topics are buffered into a temporary file
+ * and appended to the output after the map. Instances are reusable but not
+ * thread-safe.
  */
 public final class MergeMapParser extends XMLFilterImpl {
     
@@ -58,7 +64,6 @@ public final class MergeMapParser extends XMLFilterImpl {
 
     private final Stack<String> processStack;
     private int processLevel;
-    private final ByteArrayOutputStream topicBuffer;
     private final SAXTransformerFactory stf;
     private OutputStream output;
     private DITAOTLogger logger;
@@ -72,7 +77,6 @@ public final class MergeMapParser extends XMLFilterImpl {
         processLevel = 0;
         util = new MergeUtils();
         topicParser = new MergeTopicParser(util);
-        topicBuffer = new ByteArrayOutputStream();
         try{
             reader = XMLUtils.getXMLReader();
             reader.setContentHandler(this);
@@ -83,10 +87,6 @@ public final class MergeMapParser extends XMLFilterImpl {
                 throw new RuntimeException("SAX transformation factory not supported");
             }
             stf = (SAXTransformerFactory) tf;
-            final TransformerHandler s = stf.newTransformerHandler();
-            s.getTransformer().setOutputProperty(OMIT_XML_DECLARATION , "yes");
-            s.setResult(new StreamResult(topicBuffer));
-            topicParser.setContentHandler(s);
         }catch (final Exception e){
             throw new RuntimeException("Failed to initialize XML parser: " + e.getMessage(), e);
         }
@@ -127,7 +127,15 @@ public final class MergeMapParser extends XMLFilterImpl {
      */
     public void read(final File filename, final File tmpDir) {
         tempdir = tmpDir != null ? tmpDir : filename.getParentFile();
+        File topicBuffer = null;
+        OutputStream topicOutput = null;
         try{
+            topicBuffer = File.createTempFile("merge", ".tmp", tempdir);
+            topicOutput = new BufferedOutputStream(new FileOutputStream(topicBuffer));
+            final TransformerHandler t = stf.newTransformerHandler();
+            t.getTransformer().setOutputProperty(OMIT_XML_DECLARATION, "yes");
+            t.setResult(new StreamResult(topicOutput));
+            topicParser.setContentHandler(t);
             final TransformerHandler s = stf.newTransformerHandler();
             s.getTransformer().setOutputProperty(OMIT_XML_DECLARATION, "yes");
             s.setResult(new StreamResult(output));
@@ -138,9 +146,22 @@ public final class MergeMapParser extends XMLFilterImpl {
             logger.info("Processing " + filename.getAbsolutePath());
             reader.parse(filename.toURI().toString());
             topicParser.getContentHandler().endDocument();
-            output.write(topicBuffer.toByteArray());
+            topicOutput.close();
+            topicOutput = null;
+            copyFile(topicBuffer, output);
         }catch(final Exception e){
             logger.error(e.getMessage(), e) ;
+        } finally {
+            if (topicOutput != null) {
+                try {
+                    topicOutput.close();
+                } catch (final IOException e) {
+                    logger.error("Failed to close topic buffer: " + e.getMessage(), e);
+                }
+            }
+            if (topicBuffer != null) {
+                deleteQuietly(topicBuffer);
+            }
         }
     }
 
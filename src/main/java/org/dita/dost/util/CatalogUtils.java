@@ -43,6 +43,14 @@ public final class CatalogUtils {
         CatalogUtils.ditaDir=ditaDir;
     }
 
+    /**
+     * Get catalog file.
+     * @return catalog file
+     */
+    public static synchronized File getCatalogFile() {
+        return new File(ditaDir, Configuration.pluginResourceDirs.get("org.dita.base") + File.separator + FILE_NAME_CATALOG);
+    }
+
     /**
      * Get CatalogResolver.
      * @return CatalogResolver
@@ -53,7 +61,7 @@ public final class CatalogUtils {
             manager.setIgnoreMissingProperties(true);
             manager.setUseStaticCatalog(false); // We'll use a private catalog.
             manager.setPreferPublic(true);
-            final File catalogFilePath = new File(ditaDir, Configuration.pluginResourceDirs.get("org.dita.base") + File.separator + FILE_NAME_CATALOG);
+            final File catalogFilePath = getCatalogFile();
             manager.setCatalogFiles(catalogFilePath.toURI().toASCIIString());
             //manager.setVerbosity(10);
             catalogResolver = new CatalogResolver(manager);
@@ -782,6 +782,10 @@ public final class Constants {
     public static final String ANT_INVOKER_EXT_PARAN_FORCE_UNIQUE = "force-unique";
     public static final String ANT_INVOKER_EXT_PARAM_GENERATE_DEBUG_ATTR = "generate-debug-attributes";
     public static final String ANT_INVOKER_EXT_PARAM_PROCESSING_MODE = "processing-mode";
+    /** Argument name for number of parallel worker threads. */
+    public static final String ANT_INVOKER_EXT_PARAM_PARALLEL = "parallel";
+    /** Argument name for incremental build cache directory. */
+    public static final String ANT_INVOKER_EXT_PARAM_INCREMENTAL_DIR = "incremental.dir";
     /**Constants for line separator.*/
     public static final String LINE_SEPARATOR = System.getProperty("line.separator");
 
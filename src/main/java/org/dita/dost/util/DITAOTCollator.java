@@ -10,17 +10,22 @@ package org.dita.dost.util;
 
 import java.lang.reflect.Method;
 import java.text.Collator;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * DITAOTCollator class.
+ * 
+ * <p>Instances are cached per locale and are safe for use by multiple concurrent threads.</p>
  *
  * @author Wu, Zhi Qiang
  */
 public final class DITAOTCollator implements Comparator {
-    static final HashMap<Locale, DITAOTCollator> cache = new HashMap<Locale, DITAOTCollator>();
+    static final ConcurrentMap<Locale, DITAOTCollator> cache = new ConcurrentHashMap<Locale, DITAOTCollator>();
 
     /**
      * Return the DITAOTCollator instance, Locale.US is default.
@@ -39,17 +44,21 @@ public final class DITAOTCollator implements Comparator {
         if (locale == null) {
             throw new NullPointerException("Locale may not be null");
         }
-        DITAOTCollator instance = null;
-        instance = cache.get(locale);
+        DITAOTCollator instance = cache.get(locale);
         if (instance == null) {
             instance = new DITAOTCollator(locale);
-            cache.put(locale, instance);
+            final DITAOTCollator prev = cache.putIfAbsent(locale, instance);
+            if (prev != null) {
+                instance = prev;
+            }
         }
         return instance;
     }
 
     private Object collatorInstance = null;
     private Method compareMethod = null;
+    private Method getCollationKeyMethod = null;
+    private Method toByteArrayMethod = null;
 
     /**
      * Default Constructor
@@ -73,13 +82,115 @@ public final class DITAOTCollator implements Comparator {
     @Override
     public int compare(final Object source, final Object target) {
         try {
-            return (Integer) compareMethod.invoke(collatorInstance, new Object[]{
-                    source, target});
+            synchronized (collatorInstance) {
+                return (Integer) compareMethod.invoke(collatorInstance, new Object[]{
+                        source, target});
+            }
         } catch (final Exception e) {
             throw new RuntimeException(e.getMessage(), e);
         }
     }
 
+    /**
+     * Get collation sort key. Comparing two sort keys with {@link #compareSortKeys(byte[], byte[])} gives
+     * the same result as comparing the source strings with {@link #compare(Object, Object)}.
+     * 
+     * @param source string to get sort key for
+     * @return sort key
+     * @since 2.1
+     */
+    public byte[] getSortKey(final String source) {
+        try {
+            final Object key;
+            synchronized (collatorInstance) {
+                key = getCollationKeyMethod.invoke(collatorInstance, source);
+            }
+            return (byte[]) toByteArrayMethod.invoke(key);
+        } catch (final Exception e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compare two sort keys.
+     * 
+     * @param key1 first sort key
+     * @param key2 second sort key
+     * @return negative integer, zero, or positive integer if the first key sorts before, same, or after the second key
+     * @since 2.1
+     */
+    public static int compareSortKeys(final byte[] key1, final byte[] key2) {
+        final int len = Math.min(key1.length, key2.length);
+        for (int i = 0; i < len; i++) {
+            final int b1 = key1[i] & 0xFF;
+            final int b2 = key2[i] & 0xFF;
+            if (b1 != b2) {
+                return b1 - b2;
+            }
+        }
+        return key1.length - key2.length;
+    }
+
+    /**
+     * Sort list by collation order of item sort strings. Sort keys are computed once per item, and the sort is stable.
+     * 
+     * @param list list to sort
+     * @param sortStrings function to get item sort string
+     * @since 2.1
+     */
+    public <T> void sort(final List<T> list, final SortString<? super T> sortStrings) {
+        final int size = list.size();
+        if (size < 2) {
+            return;
+        }
+        final SortEntry[] entries = new SortEntry[size];
+        for (int i = 0; i < size; i++) {
+            final T item = list.get(i);
+            final String sortString = sortStrings.getSortString(item);
+            entries[i] = new SortEntry(sortString != null ? getSortKey(sortString) : new byte[0], item);
+        }
+        Arrays.sort(entries);
+        for (int i = 0; i < size; i++) {
+            @SuppressWarnings("unchecked")
+            final T item = (T) entries[i].item;
+            list.set(i, item);
+        }
+    }
+
+    /**
+     * Function to get a sort string for a list item.
+     * 
+     * @since 2.1
+     */
+    public interface SortString<T> {
+
+        /**
+         * Get sort string.
+         * 
+         * @param item item to get sort string for
+         * @return sort string, may be {@code null}
+         */
+        String getSortString(T item);
+
+    }
+
+    private static final class SortEntry implements Comparable<SortEntry> {
+
+        final byte[] key;
+        final Object item;
+
+        SortEntry(final byte[] key, final Object item) {
+            this.key = key;
+            this.item = item;
+        }
+
+        @Override
+        public int compareTo(final SortEntry o) {
+            return compareSortKeys(key, o.key);
+        }
+
+    }
+
     /**
      * Initialization.
      * @param locale
@@ -95,10 +206,12 @@ public final class DITAOTCollator implements Comparator {
 
         try {
             final Method m = c.getDeclaredMethod("getInstance",
-                    new Class[] { Locale.class });
+                    new Class<?>[] { Locale.class });
             collatorInstance = m.invoke(null, locale);
-            compareMethod = c.getDeclaredMethod("compare", new Class[] {
+            compareMethod = c.getDeclaredMethod("compare", new Class<?>[] {
                     Object.class, Object.class });
+            getCollationKeyMethod = c.getMethod("getCollationKey", new Class<?>[] { String.class });
+            toByteArrayMethod = getCollationKeyMethod.getReturnType().getMethod("toByteArray");
         } catch (final Exception e) {
             throw new RuntimeException("Failed to initialize collator: " + e.getMessage(), e);
         }
@@ -15,6 +15,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
@@ -51,6 +52,10 @@ public final class DelayConrefUtils {
     private Document root = null;
 
     private DITAOTLogger logger;
+    /** Topic ID index, may be {@code null} */
+    private IdIndex idIndex;
+    /** Directory index file URIs are relative to */
+    private File tempDir;
 
     /**
      * Constructor.
@@ -64,6 +69,18 @@ public final class DelayConrefUtils {
         this.logger = logger;
     }
 
+    /**
+     * Set topic ID index used to find topic IDs without parsing indexed files.
+     *
+     * @param idIndex topic ID index, may be {@code null}
+     * @param tempDir absolute path to temporary directory
+     * @since 2.1
+     */
+    public void setIdIndex(final IdIndex idIndex, final File tempDir) {
+        this.idIndex = idIndex;
+        this.tempDir = tempDir;
+    }
+
     /**
      * Find whether an id is refer to a topic in a dita file.
      * @param absolutePathToFile the absolute path of dita file
@@ -75,6 +92,12 @@ public final class DelayConrefUtils {
         if(!absolutePathToFile.exists()){
             return false;
         }
+        if (idIndex != null) {
+            final URI rel = tempDir.toURI().relativize(absolutePathToFile.toURI());
+            if (idIndex.contains(rel)) {
+                return idIndex.hasTopicId(rel, id);
+            }
+        }
         try {
             //load the file
             final DocumentBuilder builder = XMLUtils.getDocumentBuilder();
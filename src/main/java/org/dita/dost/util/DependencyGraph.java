@@ -0,0 +1,377 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.util;
+
+import static org.apache.commons.codec.digest.DigestUtils.sha1Hex;
+import static org.dita.dost.util.URLUtils.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Dependency graph between source files, used for incremental processing.
+ *
+ * <p>Each parsed source file is a node with a content hash and format. Edges point from the
+ * referencing file to the referenced file and are typed by the kind of reference. Comparing the
+ * graph of the current build with the graph stored by a previous build gives the set of files
+ * that have to be reprocessed.</p>
+ *
+ * <p>The graph is only used by the debug and filter stage. Later preprocessing stages, and the crawl
+ * that builds the graph, always process all files, so the graph only records the dependencies that
+ * affect debug and filter output.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ *
+ * @since 2.1
+ */
+public final class DependencyGraph {
+
+    /** Dependency type. */
+    public enum Type {
+        HREF, CONREF, CODEREF, COPYTO, SUBJECT_SCHEME
+    }
+
+    private static final int MAGIC = 0x44444550;
+    private static final int VERSION = 2;
+
+    private final Map<URI, Node> nodes = new HashMap<URI, Node>();
+    private String configuration;
+
+    /**
+     * Add or replace file node. Existing dependencies of the file are retained.
+     *
+     * @param file absolute source file URI
+     * @param hash content hash of the file
+     * @param format file format, may be {@code null}
+     */
+    public void addFile(final URI file, final String hash, final String format) {
+        final URI f = stripFragment(file);
+        final Node n = getOrCreateNode(f);
+        n.hash = hash;
+        n.format = format;
+    }
+
+    /**
+     * Add dependency edge.
+     *
+     * @param from absolute URI of the referencing file
+     * @param to absolute URI of the referenced file
+     * @param type dependency type
+     */
+    public void addDependency(final URI from, final URI to, final Type type) {
+        final URI t = stripFragment(to);
+        final URI f = stripFragment(from);
+        if (!f.equals(t)) {
+            getOrCreateNode(f).dependencies.get(type).add(t);
+        }
+    }
+
+    private Node getOrCreateNode(final URI file) {
+        Node n = nodes.get(file);
+        if (n == null) {
+            n = new Node();
+            nodes.put(file, n);
+        }
+        return n;
+    }
+
+    /**
+     * Get files in the graph.
+     *
+     * @return set of absolute source file URIs
+     */
+    public Set<URI> getFiles() {
+        return Collections.unmodifiableSet(nodes.keySet());
+    }
+
+    /**
+     * Get content hash of a file.
+     *
+     * @param file absolute source file URI
+     * @return content hash, {@code null} if file has not been hashed
+     */
+    public String getHash(final URI file) {
+        final Node n = nodes.get(stripFragment(file));
+        return n != null ? n.hash : null;
+    }
+
+    /**
+     * Get direct dependencies of a file.
+     *
+     * @param file absolute source file URI
+     * @param type dependency type
+     * @return set of absolute URIs of referenced files, may be empty
+     */
+    public Set<URI> getDependencies(final URI file, final Type type) {
+        final Node n = nodes.get(stripFragment(file));
+        return n != null ? Collections.unmodifiableSet(n.dependencies.get(type)) : Collections.<URI>emptySet();
+    }
+
+    /**
+     * Set configuration stamp. Graphs with different configuration stamps have no files in common.
+     *
+     * @param configuration configuration stamp, may be {@code null}
+     */
+    public void setConfiguration(final String configuration) {
+        this.configuration = configuration;
+    }
+
+    public String getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Get files whose content or format differs from a previous graph. Files not in the previous graph are
+     * included, and all files are included if configuration stamps differ.
+     *
+     * @param previous graph from a previous build, may be {@code null}
+     * @return set of absolute URIs of changed files
+     */
+    public Set<URI> getChanged(final DependencyGraph previous) {
+        if (previous == null || !equal(configuration, previous.configuration)) {
+            return new HashSet<URI>(nodes.keySet());
+        }
+        final Set<URI> res = new HashSet<URI>();
+        for (final Map.Entry<URI, Node> e: nodes.entrySet()) {
+            final Node p = previous.nodes.get(e.getKey());
+            final Node n = e.getValue();
+            if (p == null || n.hash == null || !n.hash.equals(p.hash) || !equal(n.format, p.format)) {
+                res.add(e.getKey());
+            }
+        }
+        for (final URI f: previous.nodes.keySet()) {
+            if (!nodes.containsKey(f)) {
+                res.add(f);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Get files that depend on the given files, either directly or transitively through the given
+     * dependency types.
+     *
+     * @param files absolute URIs of changed files
+     * @param types dependency types to follow
+     * @return given files and their transitive dependents
+     */
+    public Set<URI> getDependents(final Collection<URI> files, final EnumSet<Type> types) {
+        final Map<URI, Set<URI>> reverse = getReverseDependencies(types);
+        final Set<URI> res = new HashSet<URI>();
+        final Queue<URI> queue = new ArrayDeque<URI>();
+        for (final URI f: files) {
+            final URI u = stripFragment(f);
+            if (res.add(u)) {
+                queue.add(u);
+            }
+        }
+        while (!queue.isEmpty()) {
+            final Set<URI> froms = reverse.get(queue.remove());
+            if (froms != null) {
+                for (final URI from: froms) {
+                    if (res.add(from)) {
+                        queue.add(from);
+                    }
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Get files that directly depend on the given files through the given dependency types.
+     *
+     * @param files absolute URIs of changed files
+     * @param types dependency types to follow
+     * @return direct dependents of the given files
+     */
+    public Set<URI> getDirectDependents(final Collection<URI> files, final EnumSet<Type> types) {
+        final Map<URI, Set<URI>> reverse = getReverseDependencies(types);
+        final Set<URI> res = new HashSet<URI>();
+        for (final URI f: files) {
+            final Set<URI> froms = reverse.get(stripFragment(f));
+            if (froms != null) {
+                res.addAll(froms);
+            }
+        }
+        return res;
+    }
+
+    private Map<URI, Set<URI>> getReverseDependencies(final EnumSet<Type> types) {
+        final Map<URI, Set<URI>> reverse = new HashMap<URI, Set<URI>>();
+        for (final Map.Entry<URI, Node> e: nodes.entrySet()) {
+            for (final Type type: types) {
+                for (final URI to: e.getValue().dependencies.get(type)) {
+                    Set<URI> froms = reverse.get(to);
+                    if (froms == null) {
+                        froms = new HashSet<URI>();
+                        reverse.put(to, froms);
+                    }
+                    froms.add(e.getKey());
+                }
+            }
+        }
+        return reverse;
+    }
+
+    /**
+     * Calculate content hash of a file.
+     *
+     * @param file absolute file URI
+     * @return hexadecimal content hash
+     * @throws IOException if reading file failed
+     */
+    public static String hash(final URI file) throws IOException {
+        InputStream in = null;
+        try {
+            in = file.toURL().openStream();
+            return sha1Hex(in);
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Calculate hash of a string.
+     *
+     * @param value string to hash
+     * @return hexadecimal hash
+     */
+    public static String hash(final String value) {
+        return sha1Hex(value);
+    }
+
+    /**
+     * Write graph into a file.
+     *
+     * @param file destination file
+     * @throws IOException if writing failed
+     */
+    public void write(final File file) throws IOException {
+        final File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Failed to create directory " + dir);
+        }
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, configuration);
+            final Map<String, Node> sorted = new TreeMap<String, Node>();
+            for (final Map.Entry<URI, Node> e: nodes.entrySet()) {
+                sorted.put(e.getKey().toString(), e.getValue());
+            }
+            out.writeInt(sorted.size());
+            for (final Map.Entry<String, Node> e: sorted.entrySet()) {
+                final Node n = e.getValue();
+                writeString(out, e.getKey());
+                writeString(out, n.hash);
+                writeString(out, n.format);
+                for (final Type type: Type.values()) {
+                    final Set<URI> deps = n.dependencies.get(type);
+                    out.writeInt(deps.size());
+                    for (final URI dep: deps) {
+                        writeString(out, dep.toString());
+                    }
+                }
+            }
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Read graph from a file.
+     *
+     * @param file source file
+     * @return dependency graph, {@code null} if file does not exist or is not a supported graph file
+     * @throws IOException if reading failed
+     */
+    public static DependencyGraph read(final File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            final DependencyGraph graph = new DependencyGraph();
+            graph.configuration = readString(in);
+            final int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                final Node n = graph.getOrCreateNode(toURI(readString(in)));
+                n.hash = readString(in);
+                n.format = readString(in);
+                for (final Type type: Type.values()) {
+                    final int count = in.readInt();
+                    final Set<URI> deps = n.dependencies.get(type);
+                    for (int j = 0; j < count; j++) {
+                        deps.add(toURI(readString(in)));
+                    }
+                }
+            }
+            return graph;
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static boolean equal(final Object a, final Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static final class Node {
+        String hash;
+        String format;
+        final Map<Type, Set<URI>> dependencies = new EnumMap<Type, Set<URI>>(Type.class);
+
+        Node() {
+            for (final Type type: Type.values()) {
+                dependencies.put(type, new LinkedHashSet<URI>());
+            }
+        }
+    }
+
+}
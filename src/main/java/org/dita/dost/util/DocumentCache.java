@@ -0,0 +1,213 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.stream.StreamSource;
+
+import net.sf.saxon.Configuration;
+import net.sf.saxon.om.DocumentInfo;
+
+/**
+ * Bounded cache of parsed documents for XSLT {@code document()} calls.
+ *
+ * <p>Documents are parsed once into Saxon trees and shared by all transformations that use the same Saxon
+ * configuration, i.e. the same compiled stylesheet. Only local files without a fragment identifier are
+ * cached. A cached document is reparsed if the file has been modified after parsing.</p>
+ *
+ * <p>The cache is bounded by the total size of cached source files; least recently used documents are
+ * evicted first. This class is safe for use by multiple concurrent threads.</p>
+ *
+ * @since 2.1
+ */
+public final class DocumentCache {
+
+    private final long maxSize;
+    private long size;
+    private final LinkedHashMap<File, Entry> cache = new LinkedHashMap<File, Entry>(16, 0.75f, true);
+    private int hits;
+    private int misses;
+
+    /**
+     * Create new cache.
+     *
+     * @param maxSize maximum total size of cached source files in bytes
+     */
+    public DocumentCache(final long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Create URI resolver that serves documents from this cache.
+     *
+     * @param resolver URI resolver to resolve and parse documents with, may be {@code null}
+     * @param configuration Saxon configuration of the transformer that will use the resolver
+     * @return caching URI resolver
+     */
+    public URIResolver newURIResolver(final URIResolver resolver, final Configuration configuration) {
+        return new CachingURIResolver(resolver, configuration);
+    }
+
+    /**
+     * Remove file from the cache.
+     *
+     * @param file file to remove
+     */
+    public synchronized void invalidate(final File file) {
+        final Entry e = cache.remove(file.getAbsoluteFile());
+        if (e != null) {
+            size -= e.length;
+        }
+    }
+
+    /**
+     * Get number of requests served from the cache.
+     *
+     * @return number of cache hits
+     */
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    /**
+     * Get number of requests that required parsing.
+     *
+     * @return number of cache misses
+     */
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    private synchronized DocumentInfo get(final File file, final Configuration configuration) {
+        final Entry e = cache.get(file);
+        if (e != null && e.configuration == configuration
+                && e.lastModified == file.lastModified() && e.length == file.length()) {
+            hits++;
+            return e.document;
+        }
+        misses++;
+        return null;
+    }
+
+    private synchronized void put(final File file, final Entry entry) {
+        if (entry.length > maxSize) {
+            return;
+        }
+        final Entry prev = cache.put(file, entry);
+        if (prev != null) {
+            size -= prev.length;
+        }
+        size += entry.length;
+        final Iterator<Map.Entry<File, Entry>> it = cache.entrySet().iterator();
+        while (size > maxSize && it.hasNext()) {
+            final Entry eldest = it.next().getValue();
+            it.remove();
+            size -= eldest.length;
+        }
+    }
+
+    private static final class Entry {
+        final DocumentInfo document;
+        final Configuration configuration;
+        final long lastModified;
+        final long length;
+
+        Entry(final DocumentInfo document, final Configuration configuration, final long lastModified, final long length) {
+            this.document = document;
+            this.configuration = configuration;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+
+    /**
+     * URI resolver that returns cached document trees for local files.
+     */
+    private final class CachingURIResolver implements URIResolver {
+
+        private final URIResolver resolver;
+        private final Configuration configuration;
+
+        CachingURIResolver(final URIResolver resolver, final Configuration configuration) {
+            this.resolver = resolver;
+            this.configuration = configuration;
+        }
+
+        @Override
+        public Source resolve(final String href, final String base) throws TransformerException {
+            final Source s = resolver != null ? resolver.resolve(href, base) : null;
+            final File file = toFile(s != null && s.getSystemId() != null ? s.getSystemId() : href, base);
+            if (file == null || !file.isFile()) {
+                return s;
+            }
+            final DocumentInfo cached = get(file, configuration);
+            if (cached != null) {
+                close(s);
+                return cached;
+            }
+            final long lastModified = file.lastModified();
+            final long length = file.length();
+            final DocumentInfo doc = configuration.buildDocument(s != null ? s : new StreamSource(file.toURI().toString()));
+            put(file, new Entry(doc, configuration, lastModified, length));
+            return doc;
+        }
+
+        /**
+         * Close streams opened by the delegate resolver for a source that will not be read.
+         *
+         * @param source source to close, may be {@code null}
+         */
+        private void close(final Source source) {
+            InputStream in = null;
+            Reader reader = null;
+            if (source instanceof StreamSource) {
+                in = ((StreamSource) source).getInputStream();
+                reader = ((StreamSource) source).getReader();
+            } else if (source instanceof SAXSource && ((SAXSource) source).getInputSource() != null) {
+                in = ((SAXSource) source).getInputSource().getByteStream();
+                reader = ((SAXSource) source).getInputSource().getCharacterStream();
+            }
+            try {
+                if (in != null) {
+                    in.close();
+                }
+                if (reader != null) {
+                    reader.close();
+                }
+            } catch (final IOException e) {
+                // ignore
+            }
+        }
+
+        private File toFile(final String href, final String base) {
+            try {
+                final URI uri = base != null ? new URI(base).resolve(href) : new URI(href);
+                if ("file".equals(uri.getScheme()) && uri.getFragment() == null) {
+                    return new File(uri).getAbsoluteFile();
+                }
+            } catch (final URISyntaxException e) {
+                // not a local file
+            } catch (final IllegalArgumentException e) {
+                // not a local file
+            }
+            return null;
+        }
+
+    }
+
+}
@@ -13,6 +13,7 @@ import static org.dita.dost.util.Constants.*;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -27,6 +28,11 @@ import org.xml.sax.Attributes;
 
 /**
  * Utility class used for flagging and filtering.
+ *
+ * <p>Filter actions are indexed by attribute name when the filter is constructed. Exclusion verdicts
+ * are memoized by the values of the profiling attributes, so elements that carry an already seen
+ * combination of profiling values are not re-evaluated. This class is safe for use by multiple
+ * concurrent threads.</p>
  * 
  * @author Wu, Zhi Qiang
  */
@@ -50,14 +56,28 @@ public final class FilterUtils {
     };
     
     public static final FilterKey DEFAULT = new FilterKey(DEFAULT_ACTION, null);
+    /** Maximum number of memoized exclusion verdicts. */
+    private static final int MAX_VERDICTS = 4096;
 
     private DITAOTLogger logger;
     private final Map<FilterKey, Action> filterMap;
-    private final Set<FilterKey> notMappingRules = new HashSet<FilterKey>();
+    /** Actions by attribute name and value. Attribute default actions have a {@code null} value. */
+    private final Map<String, Map<String, Action>> actions;
+    /** Memoized exclusion verdicts by profiling attribute values. */
+    private final Map<Condition, Boolean> verdicts = new ConcurrentHashMap<Condition, Boolean>();
+    /** Reusable lookup keys for verdicts. */
+    private final ThreadLocal<Condition> probes = new ThreadLocal<Condition>() {
+        @Override
+        protected Condition initialValue() {
+            return new Condition();
+        }
+    };
+    private final Set<FilterKey> notMappingRules = Collections.newSetFromMap(new ConcurrentHashMap<FilterKey, Boolean>());
     private boolean logMissingAction;
 
     private FilterUtils(final Map<FilterKey, Action> filterMap) {
         this.filterMap = new HashMap<FilterKey, Action>(filterMap);
+        this.actions = compile(this.filterMap);
     }
 
     /**
@@ -79,6 +99,38 @@ public final class FilterUtils {
         dfm.putAll(filterMap);
         this.logMissingAction = !filterMap.isEmpty();
         this.filterMap = dfm;
+        this.actions = compile(dfm);
+    }
+
+    /**
+     * Index filter actions by attribute name.
+     *
+     * @param filterMap filter actions
+     * @return actions by attribute name and value
+     */
+    private static Map<String, Map<String, Action>> compile(final Map<FilterKey, Action> filterMap) {
+        final Map<String, Map<String, Action>> res = new HashMap<String, Map<String, Action>>();
+        for (final Map.Entry<FilterKey, Action> e: filterMap.entrySet()) {
+            Map<String, Action> values = res.get(e.getKey().attribute);
+            if (values == null) {
+                values = new HashMap<String, Action>();
+                res.put(e.getKey().attribute, values);
+            }
+            values.put(e.getKey().value, e.getValue());
+        }
+        return res;
+    }
+
+    /**
+     * Get filter action.
+     *
+     * @param attName attribute name
+     * @param value attribute value, {@code null} for attribute default action
+     * @return filter action, {@code null} if not defined
+     */
+    private Action getAction(final String attName, final String value) {
+        final Map<String, Action> values = actions.get(attName);
+        return values != null ? values.get(value) : null;
     }
 
     public void setLogger(final DITAOTLogger logger) {
@@ -103,6 +155,27 @@ public final class FilterUtils {
             return false;
         }
 
+        final Condition probe = probes.get();
+        probe.set(atts, extProps);
+        final Boolean verdict = verdicts.get(probe);
+        if (verdict != null) {
+            return verdict;
+        }
+        final boolean exclude = evaluate(atts, extProps);
+        if (verdicts.size() < MAX_VERDICTS) {
+            verdicts.put(probe.copy(), exclude);
+        }
+        return exclude;
+    }
+
+    /**
+     * Evaluate whether the given Attributes need to be excluded.
+     *
+     * @param atts attributes
+     * @param extProps {@code props} attribute specializations
+     * @return {@code true} if should be excluded, otherwise {@code false}
+     */
+    private boolean evaluate(final Attributes atts, final String[][] extProps) {
         for (final String attr: PROFILE_ATTRIBUTES) {
             final String value = atts.getValue(attr);
             if (value != null) {
@@ -143,7 +216,14 @@ public final class FilterUtils {
     
     public Map<String, List<String>> getGroups(final String value) {
         final Map<String, List<String>> res = new HashMap<String, List<String>>();
-        
+        if (value.indexOf('(') == -1) {
+            final String v = value.trim();
+            if (!v.isEmpty()) {
+                res.put(null, Arrays.asList(v.split("\\s+")));
+            }
+            return res;
+        }
+
         final StringBuilder buf = new StringBuilder();
         int previousEnd = 0;
         final Matcher m = groupPattern.matcher(value);
@@ -210,12 +290,11 @@ public final class FilterUtils {
             final String attName = propList[propListIndex];
             checkRuleMapping(attName, attValue);
             for (final String attSubValue: attValue) {
-                final FilterKey filterKey = new FilterKey(attName, attSubValue);
-                final Action filterAction = filterMap.get(filterKey);
+                final Action filterAction = getAction(attName, attSubValue);
                 // no action will be considered as 'not exclude'
                 if (filterAction == null) {
                     // check Specified DefaultAction mapping this attribute's name
-                    final Action defaultAction = filterMap.get(new FilterKey(attName, null));
+                    final Action defaultAction = getAction(attName, null);
                     if (defaultAction != null) {
                         if (Action.EXCLUDE != defaultAction) {
                             return false;
@@ -270,7 +349,7 @@ public final class FilterUtils {
     }
 
     private boolean checkExcludeOfGlobalDefaultAction() {
-        final Action defaultAction = filterMap.get(DEFAULT);
+        final Action defaultAction = getAction(DEFAULT.attribute, DEFAULT.value);
         if (defaultAction == null) {
             return false;
         } else {
@@ -288,9 +367,8 @@ public final class FilterUtils {
             return;
         }
         for (final String attSubValue: attValue) {
-            final FilterKey filterKey = new FilterKey(attName, attSubValue);
-            final Action filterAction = filterMap.get(filterKey);
-            if (filterAction == null && logMissingAction) {
+            if (logMissingAction && getAction(attName, attSubValue) == null) {
+                final FilterKey filterKey = new FilterKey(attName, attSubValue);
                 if (!alreadyShowed(filterKey)) {
                     logger.info(MessageUtils.getInstance().getMessage("DOTJ031I", filterKey.toString()).toString());
                 }
@@ -299,11 +377,80 @@ public final class FilterUtils {
     }
 
     private boolean alreadyShowed(final FilterKey notMappingKey) {
-        if (!notMappingRules.contains(notMappingKey)) {
-            notMappingRules.add(notMappingKey);
-            return false;
+        return !notMappingRules.add(notMappingKey);
+    }
+
+    /**
+     * Verdict key of profiling attribute values and {@code props} attribute specializations.
+     */
+    private static final class Condition {
+
+        private String[][] extProps;
+        private int extPropsHash;
+        private String[] values;
+        private int hash;
+
+        /**
+         * Set key to the profiling attribute values of an element. Attribute values are read into a
+         * reused array; the array is only reallocated when the {@code props} specializations change.
+         */
+        void set(final Attributes atts, final String[][] extProps) {
+            if (values == null || extProps != this.extProps) {
+                int size = PROFILE_ATTRIBUTES.length;
+                if (extProps != null) {
+                    for (final String[] propList: extProps) {
+                        size += propList.length;
+                    }
+                }
+                this.extProps = extProps;
+                extPropsHash = Arrays.deepHashCode(extProps);
+                values = new String[size];
+            }
+            int i = 0;
+            for (final String attr: PROFILE_ATTRIBUTES) {
+                values[i++] = atts.getValue(attr);
+            }
+            if (extProps != null) {
+                for (final String[] propList: extProps) {
+                    for (final String attr: propList) {
+                        values[i++] = atts.getValue(attr);
+                    }
+                }
+            }
+            hash = 31 * Arrays.hashCode(values) + extPropsHash;
+        }
+
+        /**
+         * Copy key for storage.
+         */
+        Condition copy() {
+            final Condition c = new Condition();
+            c.extProps = extProps;
+            c.extPropsHash = extPropsHash;
+            c.values = values.clone();
+            c.hash = hash;
+            return c;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
         }
-        return true;
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Condition)) {
+                return false;
+            }
+            final Condition other = (Condition) obj;
+            return hash == other.hash
+                    && Arrays.equals(values, other.values)
+                    && (extProps == other.extProps || Arrays.deepEquals(extProps, other.extProps));
+        }
+
     }
 
     /**
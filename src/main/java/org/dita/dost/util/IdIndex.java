@@ -0,0 +1,184 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.util;
+
+import static org.dita.dost.util.URLUtils.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of topic IDs in source files, collected while the source files are crawled.
+ *
+ * <p>Index only describes files as they were when crawled. Files that have been generated later have
+ * no entry and callers should fall back to parsing the file.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ *
+ * @since 2.1
+ */
+public final class IdIndex {
+
+    private static final int MAGIC = 0x49444958;
+    private static final int VERSION = 2;
+
+    private final Map<URI, Entry> files = new HashMap<URI, Entry>();
+
+    /**
+     * Add or replace file.
+     *
+     * @param file file URI
+     * @param firstTopicId ID of the first topic in the file, {@code null} if file contains no topics
+     * @param topicIds IDs of all topics in the file
+     */
+    public void add(final URI file, final String firstTopicId, final Set<String> topicIds) {
+        files.put(stripFragment(file), new Entry(firstTopicId, new HashSet<String>(topicIds)));
+    }
+
+    /**
+     * Get files in the index.
+     *
+     * @return set of file URIs
+     */
+    public Set<URI> getFiles() {
+        return Collections.unmodifiableSet(files.keySet());
+    }
+
+    /**
+     * Test if file is in the index.
+     *
+     * @param file file URI
+     * @return {@code true} if file is in the index, otherwise {@code false}
+     */
+    public boolean contains(final URI file) {
+        return files.containsKey(stripFragment(file));
+    }
+
+    /**
+     * Get ID of the first topic in a file.
+     *
+     * @param file file URI
+     * @return first topic ID, {@code null} if file is not in the index or contains no topics
+     */
+    public String getFirstTopicId(final URI file) {
+        final Entry e = files.get(stripFragment(file));
+        return e != null ? e.firstTopicId : null;
+    }
+
+    /**
+     * Get topic IDs in a file.
+     *
+     * @param file file URI
+     * @return IDs of all topics in the file, empty if file is not in the index
+     */
+    public Set<String> getTopicIds(final URI file) {
+        final Entry e = files.get(stripFragment(file));
+        return e != null ? Collections.unmodifiableSet(e.topicIds) : Collections.<String>emptySet();
+    }
+
+    /**
+     * Test if a topic ID exists in a file.
+     *
+     * @param file file URI
+     * @param topicId topic ID
+     * @return {@code true} if a topic with the ID exists, otherwise {@code false}
+     */
+    public boolean hasTopicId(final URI file, final String topicId) {
+        final Entry e = files.get(stripFragment(file));
+        return e != null && e.topicIds.contains(topicId);
+    }
+
+    /**
+     * Write index into a file.
+     *
+     * @param file destination file
+     * @throws IOException if writing failed
+     */
+    public void write(final File file) throws IOException {
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(files.size());
+            for (final Map.Entry<URI, Entry> f: files.entrySet()) {
+                final Entry e = f.getValue();
+                out.writeUTF(f.getKey().toString());
+                out.writeBoolean(e.firstTopicId != null);
+                if (e.firstTopicId != null) {
+                    out.writeUTF(e.firstTopicId);
+                }
+                out.writeInt(e.topicIds.size());
+                for (final String id: e.topicIds) {
+                    out.writeUTF(id);
+                }
+            }
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Read index from a file.
+     *
+     * @param file source file
+     * @return ID index, {@code null} if file does not exist or is not a supported index file
+     * @throws IOException if reading failed
+     */
+    public static IdIndex read(final File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            final IdIndex index = new IdIndex();
+            final int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                final URI f = toURI(in.readUTF());
+                final String firstTopicId = in.readBoolean() ? in.readUTF() : null;
+                final int count = in.readInt();
+                final Set<String> topicIds = new HashSet<String>(count * 2);
+                for (int j = 0; j < count; j++) {
+                    topicIds.add(in.readUTF());
+                }
+                index.files.put(f, new Entry(firstTopicId, topicIds));
+            }
+            return index;
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+
+    private static final class Entry {
+        final String firstTopicId;
+        final Set<String> topicIds;
+
+        Entry(final String firstTopicId, final Set<String> topicIds) {
+            this.firstTopicId = firstTopicId;
+            this.topicIds = topicIds;
+        }
+    }
+
+}
@@ -7,6 +7,13 @@ package org.dita.dost.util;
 import static org.dita.dost.util.Constants.*;
 import static org.dita.dost.util.URLUtils.*;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -16,12 +23,16 @@ import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -39,6 +50,11 @@ import org.xml.sax.helpers.DefaultHandler;
 /**
  * Definition of current job.
  * 
+ * <p>Job is stored in a binary append-only store. Only changed properties and file info
+ * objects are appended when the job is written, and the store is compacted when it contains
+ * too many stale records. The legacy XML job file can be exported with {@link #exportXml()}
+ * and is read instead of the store if it has been modified after the store.</p>
+ * 
  * <p>Instances are thread-safe.</p>
  * 
  * @since 1.5.4
@@ -46,6 +62,20 @@ import org.xml.sax.helpers.DefaultHandler;
 public final class Job {
 
     private static final String JOB_FILE = ".job.xml";
+    private static final String JOB_STORE_FILE = ".job.bin";
+
+    /** Store file magic number. */
+    private static final int STORE_MAGIC = 0x444A4F42;
+    /** Store file schema version. */
+    private static final int STORE_VERSION = 1;
+    private static final byte RECORD_PROPERTIES = 1;
+    private static final byte RECORD_FILE = 2;
+    private static final byte RECORD_REMOVE = 3;
+    private static final byte VALUE_STRING = 0;
+    private static final byte VALUE_SET = 1;
+    private static final byte VALUE_MAP = 2;
+    /** Minimum number of stale records before store is compacted. */
+    private static final int COMPACT_THRESHOLD = 1024;
     
     private static final String ELEMENT_JOB = "job";
     private static final String ATTRIBUTE_KEY = "key";
@@ -92,6 +122,10 @@ public final class Job {
     public static final String SUBJECT_SCHEME_KEYDEF_LIST_FILE = "schemekeydef.xml";
     /** File name for temporary input file list file */
     public static final String USER_INPUT_FILE_LIST_FILE = "usr.input.file.list";
+    /** File name for dependency graph file */
+    public static final String DEPENDENCY_GRAPH_FILE = "dependency.graph";
+    /** File name for topic and element ID index file */
+    public static final String ID_INDEX_FILE = "id.index";
 
     /** Map of serialization attributes to file info boolean fields. */
     private static final Map<String, Field> attrToFieldMap= new HashMap<String, Field>();
@@ -121,8 +155,18 @@ public final class Job {
     private final Map<String, Object> prop;
     public final File tempDir;
     private final File jobFile;
+    private final File storeFile;
     private final ConcurrentMap<URI, FileInfo> files = new ConcurrentHashMap<URI, FileInfo>();
+    /** Undecoded file records read from store, {@code null} if file info objects have been loaded. */
+    private volatile List<byte[]> pendingFiles;
+    /** Encoded file records in store. */
+    private final Map<URI, byte[]> storedFiles = new HashMap<URI, byte[]>();
+    /** Encoded properties record in store, {@code null} if not stored. */
+    private byte[] storedProperties;
+    /** Number of records in store, {@code -1} if store has to be rewritten. */
+    private int storeRecords = -1;
     private long lastModified;
+    private long xmlLastModified;
     
     /**
      * Create new job configuration instance. Initialise by reading temporary configuration files.
@@ -137,6 +181,7 @@ public final class Job {
         }
         this.tempDir = tempDir;
         jobFile = new File(tempDir, JOB_FILE);
+        storeFile = new File(tempDir, JOB_STORE_FILE);
         prop = new HashMap<String, Object>();
         read();
     }
@@ -147,7 +192,7 @@ public final class Job {
      * @return {@code true} if configuration file has been update after this object has been created or serialized
      */
     public boolean isStale(final File tempDir) {
-        return jobFile.lastModified() > lastModified;
+        return storeFile.lastModified() > lastModified || jobFile.lastModified() > xmlLastModified;
     }
     
     /**
@@ -158,8 +203,11 @@ public final class Job {
      * @throws IllegalStateException if configuration files are missing
      */
     private void read() throws IOException {
-        lastModified = jobFile.lastModified();
-        if (jobFile.exists()) {
+        lastModified = storeFile.lastModified();
+        xmlLastModified = jobFile.lastModified();
+        if (storeFile.exists() && !(jobFile.exists() && xmlLastModified > lastModified)) {
+            readStore();
+        } else if (jobFile.exists()) {
         	InputStream in = null;
             try {
                 final XMLReader parser = XMLUtils.getXMLReader();
@@ -273,11 +321,318 @@ public final class Job {
     }
     
     /**
-     * Store job into temporary configuration files.
+     * Read binary job store. Properties are decoded immediately, file info objects on first access.
+     * A truncated trailing record is ignored.
+     */
+    private void readStore() throws IOException {
+        final Map<URI, byte[]> records = new LinkedHashMap<URI, byte[]>();
+        int count = 0;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(storeFile)));
+            if (in.readInt() != STORE_MAGIC) {
+                throw new IOException("Failed to read job store " + storeFile + ": not a job store");
+            }
+            final int version = in.readInt();
+            if (version != STORE_VERSION) {
+                throw new IOException("Failed to read job store " + storeFile + ": unsupported version " + version);
+            }
+            while (true) {
+                final byte[] record;
+                try {
+                    final int length = in.readInt();
+                    record = new byte[length];
+                    in.readFully(record);
+                } catch (final EOFException e) {
+                    break;
+                }
+                count++;
+                switch (record[0]) {
+                case RECORD_PROPERTIES:
+                    prop.clear();
+                    readProperties(record, prop);
+                    storedProperties = record;
+                    break;
+                case RECORD_FILE:
+                    final URI uri = readRecordURI(record);
+                    records.remove(uri);
+                    records.put(uri, record);
+                    break;
+                case RECORD_REMOVE:
+                    records.remove(readRecordURI(record));
+                    break;
+                default:
+                    throw new IOException("Failed to read job store " + storeFile + ": unsupported record type " + record[0]);
+                }
+            }
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+        }
+        storedFiles.putAll(records);
+        storeRecords = count;
+        pendingFiles = new ArrayList<byte[]>(records.values());
+    }
+
+    /**
+     * Get file info map, decoding pending file records from store.
+     */
+    private ConcurrentMap<URI, FileInfo> files() {
+        if (pendingFiles != null) {
+            synchronized (this) {
+                final List<byte[]> pending = pendingFiles;
+                if (pending != null) {
+                    for (final byte[] record: pending) {
+                        final FileInfo i = readFileInfo(record);
+                        files.put(i.uri, i);
+                    }
+                    pendingFiles = null;
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Store job into temporary configuration files. Only changed properties and file info objects are
+     * appended to the store.
      * 
      * @throws IOException if writing configuration files failed
      */
-    public void write() throws IOException {
+    public synchronized void write() throws IOException {
+        final Map<URI, FileInfo> fs = files();
+        final byte[] props = writeProperties(prop);
+        final Map<URI, byte[]> current = new HashMap<URI, byte[]>(fs.size() * 2);
+        final List<byte[]> changed = new ArrayList<byte[]>();
+        if (storedProperties == null || !Arrays.equals(props, storedProperties)) {
+            changed.add(props);
+        }
+        for (final FileInfo i: fs.values()) {
+            final byte[] record = writeFileInfo(i);
+            current.put(i.uri, record);
+            if (!Arrays.equals(record, storedFiles.get(i.uri))) {
+                changed.add(record);
+            }
+        }
+        for (final URI uri: storedFiles.keySet()) {
+            if (!current.containsKey(uri)) {
+                changed.add(writeRemove(uri));
+            }
+        }
+
+        if (storeRecords < 0 || !storeFile.exists()
+                || storeRecords + changed.size() - current.size() > Math.max(COMPACT_THRESHOLD, current.size())) {
+            final List<byte[]> all = new ArrayList<byte[]>(current.size() + 1);
+            all.add(props);
+            all.addAll(current.values());
+            final File tmp = new File(tempDir, JOB_STORE_FILE + ".tmp");
+            writeRecords(tmp, all, false);
+            if (!storeFile.delete() && storeFile.exists()) {
+                throw new IOException("Failed to delete job store " + storeFile);
+            }
+            if (!tmp.renameTo(storeFile)) {
+                throw new IOException("Failed to rename " + tmp + " to " + storeFile);
+            }
+            storeRecords = all.size();
+        } else if (!changed.isEmpty()) {
+            writeRecords(storeFile, changed, true);
+            storeRecords += changed.size();
+        }
+        storedProperties = props;
+        storedFiles.clear();
+        storedFiles.putAll(current);
+        lastModified = storeFile.lastModified();
+    }
+
+    private void writeRecords(final File file, final List<byte[]> records, final boolean append) throws IOException {
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, append)));
+            if (!append) {
+                out.writeInt(STORE_MAGIC);
+                out.writeInt(STORE_VERSION);
+            }
+            for (final byte[] record: records) {
+                out.writeInt(record.length);
+                out.write(record);
+            }
+        } catch (final IOException e) {
+            throw new IOException("Failed to write job store " + file + ": " + e.getMessage());
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    private static byte[] writeProperties(final Map<String, Object> prop) throws IOException {
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(buf);
+        out.writeByte(RECORD_PROPERTIES);
+        final Map<String, Object> sorted = new TreeMap<String, Object>(prop);
+        out.writeInt(sorted.size());
+        for (final Map.Entry<String, Object> e: sorted.entrySet()) {
+            writeString(out, e.getKey());
+            if (e.getValue() instanceof Set) {
+                final Set<?> s = (Set<?>) e.getValue();
+                out.writeByte(VALUE_SET);
+                out.writeInt(s.size());
+                for (final Object o: s) {
+                    writeString(out, o.toString());
+                }
+            } else if (e.getValue() instanceof Map) {
+                final Map<?, ?> m = (Map<?, ?>) e.getValue();
+                out.writeByte(VALUE_MAP);
+                out.writeInt(m.size());
+                for (final Map.Entry<?, ?> o: m.entrySet()) {
+                    writeString(out, o.getKey().toString());
+                    writeString(out, o.getValue().toString());
+                }
+            } else {
+                out.writeByte(VALUE_STRING);
+                writeString(out, e.getValue().toString());
+            }
+        }
+        out.flush();
+        return buf.toByteArray();
+    }
+
+    private static void readProperties(final byte[] record, final Map<String, Object> prop) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, 1, record.length - 1));
+        final int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            final String key = readString(in);
+            final byte type = in.readByte();
+            switch (type) {
+            case VALUE_SET:
+                final int setSize = in.readInt();
+                final Set<String> set = new HashSet<String>();
+                for (int j = 0; j < setSize; j++) {
+                    set.add(readString(in));
+                }
+                prop.put(key, set);
+                break;
+            case VALUE_MAP:
+                final int mapSize = in.readInt();
+                final Map<String, String> map = new HashMap<String, String>();
+                for (int j = 0; j < mapSize; j++) {
+                    map.put(readString(in), readString(in));
+                }
+                prop.put(key, map);
+                break;
+            default:
+                prop.put(key, readString(in));
+                break;
+            }
+        }
+    }
+
+    private static byte[] writeFileInfo(final FileInfo i) throws IOException {
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream(128);
+        final DataOutputStream out = new DataOutputStream(buf);
+        out.writeByte(RECORD_FILE);
+        writeString(out, i.uri.toString());
+        writeString(out, i.src != null ? i.src.toString() : null);
+        writeString(out, i.file.getPath());
+        writeString(out, i.format);
+        int flags = 0;
+        if (i.hasConref) flags |= 1;
+        if (i.isChunked) flags |= 1 << 1;
+        if (i.hasLink) flags |= 1 << 2;
+        if (i.isResourceOnly) flags |= 1 << 3;
+        if (i.isTarget) flags |= 1 << 4;
+        if (i.isConrefTarget) flags |= 1 << 5;
+        if (i.isNonConrefTarget) flags |= 1 << 6;
+        if (i.isConrefPush) flags |= 1 << 7;
+        if (i.hasKeyref) flags |= 1 << 8;
+        if (i.hasCoderef) flags |= 1 << 9;
+        if (i.isSubjectScheme) flags |= 1 << 10;
+        if (i.isSkipChunk) flags |= 1 << 11;
+        if (i.isSubtarget) flags |= 1 << 12;
+        if (i.isFlagImage) flags |= 1 << 13;
+        if (i.isOutDita) flags |= 1 << 14;
+        if (i.isCopyToSource) flags |= 1 << 15;
+        out.writeInt(flags);
+        out.flush();
+        return buf.toByteArray();
+    }
+
+    private static FileInfo readFileInfo(final byte[] record) {
+        try {
+            final DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, 1, record.length - 1));
+            final URI uri = toURI(readString(in));
+            final URI src = toURI(readString(in));
+            final File path = toFile(readString(in));
+            final FileInfo i = new FileInfo(src, uri, path);
+            i.format = readString(in);
+            final int flags = in.readInt();
+            i.hasConref = (flags & 1) != 0;
+            i.isChunked = (flags & 1 << 1) != 0;
+            i.hasLink = (flags & 1 << 2) != 0;
+            i.isResourceOnly = (flags & 1 << 3) != 0;
+            i.isTarget = (flags & 1 << 4) != 0;
+            i.isConrefTarget = (flags & 1 << 5) != 0;
+            i.isNonConrefTarget = (flags & 1 << 6) != 0;
+            i.isConrefPush = (flags & 1 << 7) != 0;
+            i.hasKeyref = (flags & 1 << 8) != 0;
+            i.hasCoderef = (flags & 1 << 9) != 0;
+            i.isSubjectScheme = (flags & 1 << 10) != 0;
+            i.isSkipChunk = (flags & 1 << 11) != 0;
+            i.isSubtarget = (flags & 1 << 12) != 0;
+            i.isFlagImage = (flags & 1 << 13) != 0;
+            i.isOutDita = (flags & 1 << 14) != 0;
+            i.isCopyToSource = (flags & 1 << 15) != 0;
+            return i;
+        } catch (final IOException e) {
+            throw new IllegalStateException("Failed to read job store file record: " + e.getMessage(), e);
+        }
+    }
+
+    private static byte[] writeRemove(final URI uri) throws IOException {
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(buf);
+        out.writeByte(RECORD_REMOVE);
+        writeString(out, uri.toString());
+        out.flush();
+        return buf.toByteArray();
+    }
+
+    /**
+     * Read URI of a file or remove record.
+     */
+    private static URI readRecordURI(final byte[] record) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, 1, record.length - 1));
+        return toURI(readString(in));
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            final byte[] bytes = value.getBytes("UTF-8");
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    /**
+     * Export job into legacy XML job file for tooling.
+     * 
+     * @throws IOException if writing job file failed
+     */
+    public synchronized void exportXml() throws IOException {
+        final Map<URI, FileInfo> files = files();
     	OutputStream outStream = null;
         XMLStreamWriter out = null;
         try {
@@ -366,14 +721,18 @@ public final class Job {
                 }
             }
         }
-        lastModified = jobFile.lastModified();
+        // mark exported job file to be in sync with the store
+        if (storeFile.exists()) {
+            jobFile.setLastModified(storeFile.lastModified());
+        }
+        xmlLastModified = jobFile.lastModified();
     }
     
     /**
      * Add file info. If file info with the same file already exists, it will be replaced.
      */
     public void add(final FileInfo fileInfo) {
-        files.put(fileInfo.uri, fileInfo);
+        files().put(fileInfo.uri, fileInfo);
     }
     
     /**
@@ -382,7 +741,7 @@ public final class Job {
      * @return removed file info, {@code null} if not found
      */
     public FileInfo remove(final FileInfo fileInfo) {
-        return files.remove(fileInfo.uri);
+        return files().remove(fileInfo.uri);
     }
     
     /**
@@ -475,7 +834,7 @@ public final class Job {
      */
     public Map<File, FileInfo> getFileInfoMap() {
         final Map<File, FileInfo> ret = new HashMap<File, FileInfo>();
-        for (final Map.Entry<URI, FileInfo> e: files.entrySet()) {
+        for (final Map.Entry<URI, FileInfo> e: files().entrySet()) {
             ret.put(e.getValue().file, e.getValue());
         }
         return Collections.unmodifiableMap(ret);
@@ -487,7 +846,7 @@ public final class Job {
      * @return collection of file info objects, may be empty
      */
     public Collection<FileInfo> getFileInfo() {
-        return Collections.unmodifiableCollection(new ArrayList<FileInfo>(files.values()));
+        return Collections.unmodifiableCollection(new ArrayList<FileInfo>(files().values()));
     }
     
     /**
@@ -498,7 +857,7 @@ public final class Job {
      */
     public Collection<FileInfo> getFileInfo(final Filter filter) {
         final Collection<FileInfo> ret = new ArrayList<FileInfo>();
-        for (final FileInfo f: files.values()) {
+        for (final FileInfo f: files().values()) {
             if (filter.accept(f)) {
                 ret.add(f);
             }
@@ -515,11 +874,11 @@ public final class Job {
     public FileInfo getFileInfo(final URI file) {
         if (file == null) {
             return null;
-        } else if (files.containsKey(file)) {
-            return files.get(file);
+        } else if (files().containsKey(file)) {
+            return files().get(file);
         } else if (file.isAbsolute()) {
             final URI relative = getRelativePath(jobFile.toURI(), file);
-            return files.get(relative);
+            return files().get(relative);
         } else {
             return null;
         }
@@ -533,10 +892,10 @@ public final class Job {
     public FileInfo getOrCreateFileInfo(final URI file) {
         assert file.getFragment() == null;
         final URI f = file.normalize();
-        FileInfo i = files.get(f); 
+        FileInfo i = files().get(f); 
         if (i == null) {
             i = new FileInfo(f);
-            files.put(i.uri, i);
+            files().put(i.uri, i);
         }
         return i;
     }
@@ -548,7 +907,7 @@ public final class Job {
      */
     public void addAll(final Collection<FileInfo> fs) {
     	for (final FileInfo f: fs) {
-    		files.put(f.uri, f);
+    		files().put(f.uri, f);
     	}
     }
         
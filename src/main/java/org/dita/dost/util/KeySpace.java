@@ -0,0 +1,335 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.util;
+
+import static javax.xml.XMLConstants.NULL_NS_URI;
+import static org.dita.dost.util.Constants.*;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Compiled key space for key reference resolution.
+ *
+ * <p>Key definitions are compiled from map DOM into immutable records that hold the attributes of the
+ * key definition element, values used in resolution and a compact copy of the key definition content.
+ * Map DOMs don't have to be retained after compilation.</p>
+ *
+ * <p>Instances are immutable and safe for use by multiple concurrent threads.</p>
+ *
+ * @since 2.1
+ */
+public final class KeySpace {
+
+    private final Map<String, Key> keys;
+
+    /**
+     * Create new key space.
+     *
+     * @param definitions compiled key definitions by key name
+     * @param hrefs key targets by key name
+     */
+    public KeySpace(final Map<String, Definition> definitions, final Map<String, URI> hrefs) {
+        final Map<String, Key> ks = new HashMap<String, Key>(definitions.size() * 4 / 3 + 1);
+        for (final Map.Entry<String, Definition> e: definitions.entrySet()) {
+            ks.put(e.getKey(), new Key(e.getKey(), hrefs.get(e.getKey()), e.getValue()));
+        }
+        keys = Collections.unmodifiableMap(ks);
+    }
+
+    /**
+     * Get key.
+     *
+     * @param name key name
+     * @return key, {@code null} if key is not defined
+     */
+    public Key get(final String name) {
+        return keys.get(name);
+    }
+
+    /**
+     * Get number of keys.
+     *
+     * @return number of keys
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Key with target and definition.
+     */
+    public static final class Key {
+
+        /** Key name. */
+        public final String name;
+        /** Key target, may be {@code null}. */
+        public final URI href;
+        /** Key definition. */
+        public final Definition definition;
+
+        Key(final String name, final URI href, final Definition definition) {
+            this.name = name;
+            this.href = href;
+            this.definition = definition;
+        }
+
+    }
+
+    /**
+     * Compiled key definition element. A single definition is shared by all keys it defines.
+     */
+    public static final class Definition {
+
+        private final Fragment root;
+        private final String navtitle;
+        private final boolean localDita;
+        /** First text node of the first descendant element by element name. */
+        private final Map<String, char[]> texts;
+        private final Fragment keyword;
+        private final Fragment linktext;
+
+        /**
+         * Compile key definition element.
+         *
+         * @param elem key definition element
+         */
+        public Definition(final Element elem) {
+            final Map<String, Fragment> first = new HashMap<String, Fragment>();
+            root = new Fragment(elem, first, true);
+            navtitle = elem.getAttribute(ATTRIBUTE_NAME_NAVTITLE);
+            final String scopeValue = elem.getAttribute(ATTRIBUTE_NAME_SCOPE);
+            final String formatValue = elem.getAttribute(ATTRIBUTE_NAME_FORMAT);
+            localDita = ("".equals(scopeValue) || ATTR_SCOPE_VALUE_LOCAL.equals(scopeValue)) &&
+                    ("".equals(formatValue) || ATTR_FORMAT_VALUE_DITA.equals(formatValue) || ATTR_FORMAT_VALUE_DITAMAP.equals(formatValue));
+            final Map<String, char[]> ts = new HashMap<String, char[]>(first.size() * 4 / 3 + 1);
+            for (final Map.Entry<String, Fragment> e: first.entrySet()) {
+                ts.put(e.getKey(), e.getValue().getFirstText());
+            }
+            texts = ts;
+            keyword = first.get(TOPIC_KEYWORD.localName);
+            linktext = first.get(TOPIC_LINKTEXT.localName);
+        }
+
+        /**
+         * Get key definition element.
+         *
+         * @return key definition element fragment
+         */
+        public Fragment getFragment() {
+            return root;
+        }
+
+        /**
+         * Get attributes of the key definition element.
+         *
+         * @return read-only attributes
+         */
+        public Attributes getAttributes() {
+            return root.atts;
+        }
+
+        /**
+         * Get navigation title attribute value.
+         *
+         * @return navigation title, empty string if not set
+         */
+        public String getNavtitle() {
+            return navtitle;
+        }
+
+        /**
+         * Test if key definition refers to a local DITA topic or map.
+         *
+         * @return {@code true} if scope is local and format is DITA, otherwise {@code false}
+         */
+        public boolean isLocalDita() {
+            return localDita;
+        }
+
+        /**
+         * Get first text node of the first descendant element with the given name.
+         *
+         * @param name element name
+         * @return text content, {@code null} if there is no such element or it has no text nodes
+         */
+        public char[] getText(final String name) {
+            return texts.get(name);
+        }
+
+        /**
+         * Get first descendant {@code keyword} element.
+         *
+         * @return keyword fragment, {@code null} if not available
+         */
+        public Fragment getKeyword() {
+            return keyword;
+        }
+
+        /**
+         * Get first descendant {@code linktext} element.
+         *
+         * @return linktext fragment, {@code null} if not available
+         */
+        public Fragment getLinktext() {
+            return linktext;
+        }
+
+    }
+
+    /**
+     * Immutable copy of an element with its descendant elements and text nodes.
+     */
+    public static final class Fragment {
+
+        private final String name;
+        /** Element attributes. */
+        private final AttributesImpl atts;
+        /** Element attributes with map class values changed to topic class values, may be the same instance as {@link #atts}. */
+        private final AttributesImpl topicAtts;
+        /** Element is always retained when serialized into a key reference. */
+        private final boolean retain;
+        /** Child fragments and text nodes as character arrays. */
+        private final Object[] children;
+
+        /**
+         * Copy element.
+         *
+         * @param elem element to copy
+         */
+        public Fragment(final Element elem) {
+            this(elem, null, true);
+        }
+
+        /**
+         * Copy element.
+         *
+         * @param elem element to copy
+         * @param first map to collect first descendant element by element name into, may be {@code null}
+         * @param root element is the root of the copy and is not collected
+         */
+        private Fragment(final Element elem, final Map<String, Fragment> first, final boolean root) {
+            name = elem.getNodeName();
+            // collect before descendants to keep document order
+            if (!root && first != null && !first.containsKey(name)) {
+                first.put(name, this);
+            }
+            atts = new AttributesImpl();
+            final NamedNodeMap attrs = elem.getAttributes();
+            for (int i = 0; i < attrs.getLength(); i++) {
+                XMLUtils.addOrSetAttribute(atts, attrs.item(i));
+            }
+            final String classValue = atts.getValue(ATTRIBUTE_NAME_CLASS);
+            final String topicClassValue = classValue != null ? changeclassValue(classValue) : null;
+            if (topicClassValue != null && !topicClassValue.equals(classValue)) {
+                topicAtts = new AttributesImpl(atts);
+                XMLUtils.addOrSetAttribute(topicAtts, ATTRIBUTE_NAME_CLASS, topicClassValue);
+            } else {
+                topicAtts = atts;
+            }
+            retain = TOPIC_TM.matches(elem) || TOPIC_TEXT.matches(elem);
+            final NodeList nodeList = elem.getChildNodes();
+            final List<Object> cs = new ArrayList<Object>(nodeList.getLength());
+            for (int i = 0; i < nodeList.getLength(); i++) {
+                final Node node = nodeList.item(i);
+                if (node.getNodeType() == Node.ELEMENT_NODE) {
+                    cs.add(new Fragment((Element) node, first, false));
+                } else if (node.getNodeType() == Node.TEXT_NODE) {
+                    cs.add(node.getNodeValue().toCharArray());
+                }
+            }
+            children = cs.toArray();
+        }
+
+        /**
+         * Get first text node.
+         *
+         * @return first text node, {@code null} if element has no text nodes
+         */
+        char[] getFirstText() {
+            for (final Object child: children) {
+                if (child instanceof char[]) {
+                    return (char[]) child;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Serialize fragment as it appears in the source document.
+         *
+         * @param handler content handler to write to
+         */
+        public void toSax(final ContentHandler handler) throws SAXException {
+            handler.startElement(NULL_NS_URI, name, name, atts);
+            for (final Object child: children) {
+                if (child instanceof Fragment) {
+                    ((Fragment) child).toSax(handler);
+                } else {
+                    final char[] ch = (char[]) child;
+                    handler.characters(ch, 0, ch.length);
+                }
+            }
+            handler.endElement(NULL_NS_URI, name, name);
+        }
+
+        /**
+         * Serialize fragment into a key reference. Map class values are changed to topic class values.
+         *
+         * @param handler content handler to write to
+         * @param retainElements {@code true} to serialize elements, {@code false} to only serialize text nodes
+         *        and {@code tm} and {@code text} elements
+         */
+        public void toSax(final ContentHandler handler, final boolean retainElements) throws SAXException {
+            if (retainElements) {
+                handler.startElement(NULL_NS_URI, name, name, topicAtts);
+            }
+            for (final Object child: children) {
+                if (child instanceof Fragment) {
+                    final Fragment f = (Fragment) child;
+                    // retain tm and text elements
+                    f.toSax(handler, f.retain || retainElements);
+                } else {
+                    final char[] ch = (char[]) child;
+                    handler.characters(ch, 0, ch.length);
+                }
+            }
+            if (retainElements) {
+                handler.endElement(NULL_NS_URI, name, name);
+            }
+        }
+
+        /**
+         * Change map type to topic type.
+         */
+        private static String changeclassValue(final String classValue) {
+            final DitaClass cls = new DitaClass(classValue);
+            if (cls.equals(MAP_LINKTEXT)) {
+                return TOPIC_LINKTEXT.toString();
+            } else if (cls.equals(MAP_SEARCHTITLE)) {
+                return TOPIC_SEARCHTITLE.toString();
+            } else if (cls.equals(MAP_SHORTDESC)) {
+                return TOPIC_SHORTDESC.toString();
+            } else {
+                return cls.toString();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Utilities for running pipeline work on multiple threads.
+ *
+ * @since 2.1
+ */
+public final class ParallelUtils {
+
+    private ParallelUtils() {
+    }
+
+    /**
+     * Parse number of worker threads from a {@code parallel} argument value.
+     *
+     * @param value argument value, either a positive integer, {@code true} or {@code yes} to use
+     *              one thread per available processor, may be {@code null}
+     * @return number of worker threads, {@code 1} if parallel processing is disabled
+     */
+    public static int getThreadCount(final String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return 1;
+        }
+        final String v = value.trim();
+        if (v.equalsIgnoreCase("true") || v.equalsIgnoreCase("yes")) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        try {
+            return Math.max(1, Integer.parseInt(v));
+        } catch (final NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    /**
+     * Create fixed size thread pool with daemon worker threads.
+     *
+     * @param threads number of worker threads
+     * @param name name prefix for worker threads
+     * @return new executor service
+     */
+    public static ExecutorService newFixedThreadPool(final int threads, final String name) {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+}
@@ -0,0 +1,244 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.util;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.URIResolver;
+
+/**
+ * Process-wide compiled stylesheet cache.
+ *
+ * <p>Stylesheets are cached by their local file URI and the identity of the URI resolver used to compile
+ * them, as different resolvers may resolve stylesheet modules differently. A cached stylesheet is recompiled if the stylesheet
+ * or any of its imported or included modules has been modified after compilation. Stylesheets that are
+ * not local files are compiled on every request.</p>
+ *
+ * <p>This class is safe for use by multiple concurrent threads.</p>
+ *
+ * @since 2.1
+ */
+public final class TemplatesCache {
+
+    /** Stylesheet compiler. */
+    public interface Compiler {
+
+        /**
+         * Compile stylesheet.
+         *
+         * @param style stylesheet source
+         * @param resolver URI resolver to use for stylesheet modules
+         * @return compiled stylesheet
+         * @throws TransformerConfigurationException if compilation failed
+         */
+        Templates compile(Source style, URIResolver resolver) throws TransformerConfigurationException;
+
+    }
+
+    private static final ConcurrentMap<Key, CachedTemplates> cache = new ConcurrentHashMap<Key, CachedTemplates>();
+
+    private TemplatesCache() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Get compiled stylesheet.
+     *
+     * @param style stylesheet source
+     * @param resolver URI resolver for stylesheet modules, may be {@code null}
+     * @param compiler compiler to use if the stylesheet is not cached or the cached stylesheet is stale
+     * @return compiled stylesheet
+     * @throws TransformerConfigurationException if compilation failed
+     */
+    public static Templates getTemplates(final Source style, final URIResolver resolver, final Compiler compiler)
+            throws TransformerConfigurationException {
+        final File file = toFile(style.getSystemId());
+        if (file == null) {
+            return compiler.compile(style, resolver);
+        }
+        final Key key = new Key(file.toURI().toString(), resolver);
+        final CachedTemplates cached = cache.get(key);
+        if (cached != null && cached.isValid()) {
+            return cached.templates;
+        }
+        final RecordingURIResolver recorder = new RecordingURIResolver(resolver);
+        final Templates t = compiler.compile(style, recorder);
+        final Map<File, Long> modules = recorder.stop();
+        modules.put(file, file.lastModified());
+        expunge();
+        cache.put(key, new CachedTemplates(t, modules));
+        return t;
+    }
+
+    /**
+     * Remove stylesheets compiled with URI resolvers that have been garbage collected.
+     */
+    private static void expunge() {
+        for (final Key k: cache.keySet()) {
+            if (k.isStale()) {
+                cache.remove(k);
+            }
+        }
+    }
+
+    /**
+     * Remove all compiled stylesheets from the cache.
+     */
+    public static void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Convert system ID to local file.
+     *
+     * @param systemId system ID, may be {@code null}
+     * @return absolute file, {@code null} if system ID is not a local file URI
+     */
+    private static File toFile(final String systemId) {
+        if (systemId == null) {
+            return null;
+        }
+        try {
+            final URI uri = new URI(systemId);
+            if ("file".equals(uri.getScheme())) {
+                return new File(uri).getAbsoluteFile();
+            }
+        } catch (final URISyntaxException e) {
+            // not a local file
+        } catch (final IllegalArgumentException e) {
+            // not a local file
+        }
+        return null;
+    }
+
+    /**
+     * Cache key of stylesheet URI and URI resolver identity. The resolver is weakly referenced to not retain
+     * resolvers, and their projects, of completed builds.
+     */
+    private static final class Key {
+
+        private final String uri;
+        private final WeakReference<URIResolver> resolver;
+        private final int hash;
+
+        Key(final String uri, final URIResolver resolver) {
+            this.uri = uri;
+            this.resolver = resolver != null ? new WeakReference<URIResolver>(resolver) : null;
+            hash = 31 * uri.hashCode() + System.identityHashCode(resolver);
+        }
+
+        boolean isStale() {
+            return resolver != null && resolver.get() == null;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            if (isStale() || other.isStale() || !uri.equals(other.uri)) {
+                return false;
+            }
+            return resolver == null ? other.resolver == null
+                                    : other.resolver != null && resolver.get() == other.resolver.get();
+        }
+
+    }
+
+    /**
+     * Compiled stylesheet with modification times of stylesheet modules at compilation time.
+     */
+    private static final class CachedTemplates {
+
+        final Templates templates;
+        private final Map<File, Long> modules;
+
+        CachedTemplates(final Templates templates, final Map<File, Long> modules) {
+            this.templates = templates;
+            this.modules = modules;
+        }
+
+        boolean isValid() {
+            for (final Map.Entry<File, Long> e: modules.entrySet()) {
+                if (e.getKey().lastModified() != e.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+    /**
+     * URI resolver that records local files resolved during stylesheet compilation.
+     */
+    private static final class RecordingURIResolver implements URIResolver {
+
+        private final URIResolver resolver;
+        private final Map<File, Long> modules = new HashMap<File, Long>();
+        private volatile boolean recording = true;
+
+        RecordingURIResolver(final URIResolver resolver) {
+            this.resolver = resolver;
+        }
+
+        @Override
+        public Source resolve(final String href, final String base) throws TransformerException {
+            final Source s = resolver != null ? resolver.resolve(href, base) : null;
+            if (recording) {
+                try {
+                    final URI uri = s != null && s.getSystemId() != null
+                            ? new URI(s.getSystemId())
+                            : base != null ? new URI(base).resolve(href) : new URI(href);
+                    if ("file".equals(uri.getScheme())) {
+                        final File f = new File(uri);
+                        synchronized (modules) {
+                            modules.put(f, f.lastModified());
+                        }
+                    }
+                } catch (final URISyntaxException e) {
+                    // not a local file
+                } catch (final IllegalArgumentException e) {
+                    // not a local file
+                }
+            }
+            return s;
+        }
+
+        /**
+         * Stop recording.
+         *
+         * @return resolved local files and their modification times
+         */
+        Map<File, Long> stop() {
+            recording = false;
+            synchronized (modules) {
+                return new HashMap<File, Long>(modules);
+            }
+        }
+
+    }
+
+}
@@ -8,29 +8,44 @@
  */
 package org.dita.dost.util;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
 import org.apache.xerces.impl.xs.XSDDescription;
-import org.apache.xerces.util.XMLGrammarPoolImpl;
 import org.apache.xerces.xni.grammars.Grammar;
 import org.apache.xerces.xni.grammars.XMLGrammarDescription;
+import org.apache.xerces.xni.grammars.XMLGrammarPool;
 
 /**
  * Self implemented XML Grammar pool for grammar(schema/dtd) caching.
+ * 
+ * <p>The pool is thread-safe and optimized for concurrent reads. Grammars are
+ * retrieved under a shared read lock and only caching new grammars takes the
+ * exclusive write lock. Schema grammars are not cached.</p>
+ * 
  * @author william
  * 
  */
-public final class XMLGrammarPoolImplUtils extends XMLGrammarPoolImpl {
+public final class XMLGrammarPoolImplUtils implements XMLGrammarPool {
 
     private static final Grammar[] INITIAL_GRAMMAR_SET = new Grammar[0];
 
+    private final Map<Key, Grammar> grammars;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean locked = false;
 
     /** Constructs a grammar pool with a default number of buckets. */
     public XMLGrammarPoolImplUtils() {
-        super();
+        grammars = new HashMap<Key, Grammar>();
     }
 
     /** Constructs a grammar pool with a specified number of buckets. */
     public XMLGrammarPoolImplUtils(final int initialCapacity) {
-        super(initialCapacity);
+        grammars = new HashMap<Key, Grammar>(initialCapacity);
     }
 
     /**
@@ -41,49 +56,107 @@ public final class XMLGrammarPoolImplUtils extends XMLGrammarPoolImpl {
         return INITIAL_GRAMMAR_SET;
     }
 
-    /**
-     * Returns the hash code value for the given grammar description.
-     * 
-     * @param desc
-     *            The grammar description
-     * @return The hash code value
-     */
     @Override
-    public int hashCode(final XMLGrammarDescription desc) {
+    public void cacheGrammars(final String grammarType, final Grammar[] grammarList) {
+        if (locked) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (final Grammar grammar: grammarList) {
+                final XMLGrammarDescription desc = grammar.getGrammarDescription();
+                // XSD grammars are not cached
+                if (!(desc instanceof XSDDescription)) {
+                    final Key key = new Key(desc);
+                    if (!grammars.containsKey(key)) {
+                        grammars.put(key, grammar);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Grammar retrieveGrammar(final XMLGrammarDescription desc) {
         if (desc instanceof XSDDescription) {
-//            final String systemId = ((XSDDescription) desc).getLiteralSystemId();
-//            return systemId == null ? 0 : systemId.hashCode();
-        	// return -1 for XSD grammar hashcode because we want to disable XSD grammar caching
-        	return -1;
-        } else {
-            return desc.hashCode();
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            return grammars.get(new Key(desc));
+        } finally {
+            lock.readLock().unlock();
         }
     }
 
     /**
-     * This method checks whether two grammars are the same. Currently, we
-     * compare the root element names(public id) for DTD grammars and the system id
-     * for Schema grammars. The application can override this behaviour and add
-     * its own logic.
+     * Get all cached grammars.
      * 
-     * @param desc1
-     *            The grammar description
-     * @param desc2
-     *            The grammar description of the grammar to be compared to
-     * @return True if the grammars are equal, otherwise false
+     * @return cached grammars
      */
+    public Grammar[] getGrammars() {
+        lock.readLock().lock();
+        try {
+            final List<Grammar> res = new ArrayList<Grammar>(grammars.values());
+            return res.toArray(new Grammar[res.size()]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     @Override
-    public boolean equals(final XMLGrammarDescription desc1,
-            final XMLGrammarDescription desc2) {
-        if (desc1 instanceof XSDDescription
-                && desc2 instanceof XSDDescription) {
-//                return desc1.getLiteralSystemId().equals(
-//                        desc2.getLiteralSystemId());
-            // always return false for XSD grammar to disable XSD grammar caching
-            return false;
-        } else {
-            return desc1.equals(desc2);
+    public void lockPool() {
+        locked = true;
+    }
+
+    @Override
+    public void unlockPool() {
+        locked = false;
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            grammars.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Grammar description key. DTD grammars are compared by their descriptions, i.e.
+     * root element and public and system identifiers.
+     */
+    private static final class Key {
+
+        private final XMLGrammarDescription desc;
+        private final int hash;
+
+        Key(final XMLGrammarDescription desc) {
+            this.desc = desc;
+            this.hash = desc.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return hash == other.hash && desc.equals(other.desc);
         }
+
     }
 
 }
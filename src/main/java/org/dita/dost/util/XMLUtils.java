@@ -17,6 +17,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -40,6 +42,33 @@ import org.xml.sax.helpers.XMLReaderFactory;
  */
 public final class XMLUtils {
 
+    /** SAX property for lexical handler. */
+    private static final String LEXICAL_HANDLER_PROPERTY = "http://xml.org/sax/properties/lexical-handler";
+    /** SAX property for declaration handler. */
+    private static final String DECLARATION_HANDLER_PROPERTY = "http://xml.org/sax/properties/declaration-handler";
+    /** Maximum number of idle instances kept in each pool. */
+    private static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    /** Pool of idle XML readers with default configuration. */
+    private static final BlockingQueue<XMLReader> xmlReaderPool = new ArrayBlockingQueue<XMLReader>(POOL_SIZE);
+    /** Pool of idle identity transformers. */
+    private static final BlockingQueue<Transformer> transformerPool = new ArrayBlockingQueue<Transformer>(POOL_SIZE);
+    /** Transformer factories for creating identity transformers, factories are not thread-safe. */
+    private static final ThreadLocal<TransformerFactory> transformerFactory = new ThreadLocal<TransformerFactory>() {
+        @Override
+        protected TransformerFactory initialValue() {
+            return TransformerFactory.newInstance();
+        }
+    };
+    /** DOM parser factories, factories are not thread-safe. */
+    private static final ThreadLocal<DocumentBuilderFactory> documentBuilderFactory = new ThreadLocal<DocumentBuilderFactory>() {
+        @Override
+        protected DocumentBuilderFactory initialValue() {
+            return DocumentBuilderFactory.newInstance();
+        }
+    };
+    /** Preferred SAX parser class, {@code null} if not resolved yet. */
+    private static volatile String xmlReaderClass;
+
     /** Private constructor to make class uninstantiable. */
     private XMLUtils() {}
 
@@ -157,13 +186,44 @@ public final class XMLUtils {
     }
     
     /**
-     * Transform file with XML filters.
+     * Transform file with XML filters. Parser and serializer are borrowed from the shared pools.
      * 
      * @param inputFile input file
      * @param outputFile output file
      * @param filters XML filters to transform file with, may be an empty list
      */
     public static void transform(final File inputFile, final File outputFile, final List<XMLFilter> filters) throws DITAOTException {
+        final XMLReader reader;
+        final Transformer transformer;
+        try {
+            reader = borrowXMLReader();
+            transformer = borrowTransformer();
+        } catch (final SAXException e) {
+            throw new DITAOTException("Failed to create XML parser: " + e.getMessage(), e);
+        } catch (final TransformerConfigurationException e) {
+            throw new DITAOTException("Failed to create XML serializer: " + e.getMessage(), e);
+        }
+        try {
+            transform(inputFile, outputFile, filters, reader, transformer);
+        } finally {
+            releaseXMLReader(reader);
+            releaseTransformer(transformer);
+        }
+    }
+
+    /**
+     * Transform file with XML filters using the given parser and serializer. Instances may be
+     * borrowed from the pools with {@link #borrowXMLReader()} and {@link #borrowTransformer()},
+     * the caller is responsible for releasing them.
+     * 
+     * @param inputFile input file
+     * @param outputFile output file
+     * @param filters XML filters to transform file with, may be an empty list
+     * @param parser XML parser to read input file with
+     * @param transformer identity transformer to serialize output with
+     */
+    public static void transform(final File inputFile, final File outputFile, final List<XMLFilter> filters,
+            final XMLReader parser, final Transformer transformer) throws DITAOTException {
         if (!outputFile.getParentFile().exists() && !outputFile.getParentFile().mkdirs()) {
             throw new DITAOTException("Failed to create output directory " + outputFile.getParentFile().getAbsolutePath());
         }
@@ -171,8 +231,7 @@ public final class XMLUtils {
         InputStream in = null;
         OutputStream out = null;
         try {
-            final Transformer transformer = TransformerFactory.newInstance().newTransformer();
-            XMLReader reader = getXMLReader();
+            XMLReader reader = parser;
             for (final XMLFilter filter : filters) {
                 // ContentHandler must be reset so e.g. Saxon 9.1 will reassign ContentHandler
                 // when reusing filter with multiple Transformers.
@@ -277,28 +336,89 @@ public final class XMLUtils {
         if (System.getProperty(SAX_DRIVER_PROPERTY) != null) {
             return XMLReaderFactory.createXMLReader();
         }
-        try {
-            Class.forName(SAX_DRIVER_DEFAULT_CLASS);
-            reader = XMLReaderFactory.createXMLReader(SAX_DRIVER_DEFAULT_CLASS);
-        } catch (final ClassNotFoundException e) {
-            try {
-                Class.forName(SAX_DRIVER_SUN_HACK_CLASS);
-                reader = XMLReaderFactory.createXMLReader(SAX_DRIVER_SUN_HACK_CLASS);
-            } catch (final ClassNotFoundException ex) {
+        String cls = xmlReaderClass;
+        if (cls == null) {
+            cls = "";
+            for (final String c: new String[] { SAX_DRIVER_DEFAULT_CLASS, SAX_DRIVER_SUN_HACK_CLASS, SAX_DRIVER_CRIMSON_CLASS }) {
                 try {
-                    Class.forName(SAX_DRIVER_CRIMSON_CLASS);
-                    reader = XMLReaderFactory.createXMLReader(SAX_DRIVER_CRIMSON_CLASS);
-                } catch (final ClassNotFoundException exc){
-                    reader = XMLReaderFactory.createXMLReader();
+                    Class.forName(c);
+                    cls = c;
+                    break;
+                } catch (final ClassNotFoundException e) {
+                    // try next
                 }
             }
+            xmlReaderClass = cls;
         }
+        reader = cls.isEmpty() ? XMLReaderFactory.createXMLReader() : XMLReaderFactory.createXMLReader(cls);
         if (Configuration.DEBUG) {
             reader = new DebugXMLReader(reader);
         }
         return reader;
     }
 
+    /**
+     * Borrow SAX parser from the shared pool. Borrowed parsers have the default configuration
+     * of {@link #getXMLReader()}. Parsers must only be returned with {@link #releaseXMLReader(XMLReader)}
+     * if their features and properties have not been changed.
+     *
+     * @return XML parser instance
+     * @throws org.xml.sax.SAXException if instantiating XMLReader failed
+     * @since 2.1
+     */
+    public static XMLReader borrowXMLReader() throws SAXException {
+        final XMLReader reader = xmlReaderPool.poll();
+        return reader != null ? reader : getXMLReader();
+    }
+
+    /**
+     * Return SAX parser to the shared pool. Handlers, including the lexical and declaration handler
+     * properties set e.g. by Saxon, are cleared before the parser is pooled.
+     *
+     * @param reader XML parser borrowed with {@link #borrowXMLReader()}
+     * @since 2.1
+     */
+    public static void releaseXMLReader(final XMLReader reader) {
+        try {
+            reader.setContentHandler(null);
+            reader.setErrorHandler(null);
+            reader.setEntityResolver(null);
+            reader.setDTDHandler(null);
+            reader.setProperty(LEXICAL_HANDLER_PROPERTY, null);
+            reader.setProperty(DECLARATION_HANDLER_PROPERTY, null);
+        } catch (final RuntimeException e) {
+            // parser does not support clearing handlers, do not reuse
+            return;
+        } catch (final SAXException e) {
+            // parser does not support clearing handler properties, do not reuse
+            return;
+        }
+        xmlReaderPool.offer(reader);
+    }
+
+    /**
+     * Borrow identity transformer from the shared pool.
+     *
+     * @return identity transformer instance
+     * @throws TransformerConfigurationException if instantiating Transformer failed
+     * @since 2.1
+     */
+    public static Transformer borrowTransformer() throws TransformerConfigurationException {
+        final Transformer transformer = transformerPool.poll();
+        return transformer != null ? transformer : transformerFactory.get().newTransformer();
+    }
+
+    /**
+     * Return identity transformer to the shared pool. Transformer is reset before it is pooled.
+     *
+     * @param transformer identity transformer borrowed with {@link #borrowTransformer()}
+     * @since 2.1
+     */
+    public static void releaseTransformer(final Transformer transformer) {
+        transformer.reset();
+        transformerPool.offer(transformer);
+    }
+
     /**
      * Get DOM parser.
      *
@@ -306,7 +426,7 @@ public final class XMLUtils {
      * @throws RuntimeException if instantiating DocumentBuilder failed
      */
     public static DocumentBuilder getDocumentBuilder() {
-        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        final DocumentBuilderFactory factory = documentBuilderFactory.get();
         DocumentBuilder builder;
         try {
             builder = factory.newDocumentBuilder();
@@ -11,6 +11,7 @@ package org.dita.dost.writer;
 import org.dita.dost.exception.DITAOTException;
 import org.dita.dost.module.ChunkModule.ChunkFilenameGenerator;
 import org.dita.dost.util.DitaClass;
+import org.dita.dost.util.IdIndex;
 import org.dita.dost.util.TopicIdParser;
 import org.w3c.dom.*;
 import org.xml.sax.Attributes;
@@ -94,6 +95,9 @@ public abstract class AbstractChunkTopicParser extends AbstractXMLWriter {
 
     private ChunkFilenameGenerator chunkFilenameGenerator;
 
+    /** ID index of source files, may be {@code null}. */
+    private IdIndex idIndex;
+
     /**
      * Constructor.
      */
@@ -104,6 +108,16 @@ public abstract class AbstractChunkTopicParser extends AbstractXMLWriter {
 
     abstract public void write(final File filename) throws DITAOTException;
 
+    /**
+     * Set ID index used to look up first topic IDs.
+     *
+     * @param idIndex ID index, may be {@code null}
+     * @since 2.1
+     */
+    public void setIdIndex(final IdIndex idIndex) {
+        this.idIndex = idIndex;
+    }
+
     /**
      * Set up the class.
      *
@@ -510,6 +524,13 @@ public abstract class AbstractChunkTopicParser extends AbstractXMLWriter {
         if (absolutePathToFile == null || !isAbsolutePath(absolutePathToFile)) {
             return null;
         }
+        // files written by chunking are registered in change table and may differ from the indexed source
+        if (idIndex != null && (changeTable == null || !changeTable.containsKey(absolutePathToFile))) {
+            final URI rel = job.tempDir.toURI().relativize(new File(absolutePathToFile).toURI());
+            if (idIndex.contains(rel)) {
+                return idIndex.getFirstTopicId(rel);
+            }
+        }
         final StringBuilder firstTopicId = new StringBuilder();
         final TopicIdParser parser = new TopicIdParser(firstTopicId);
         try {
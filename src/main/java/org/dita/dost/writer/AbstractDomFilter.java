@@ -6,7 +6,6 @@ import java.io.IOException;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
@@ -48,8 +47,12 @@ public abstract class AbstractDomFilter implements AbstractReader {
                 file = new FileOutputStream(filename);
                 final StreamResult res = new StreamResult(file);
                 final DOMSource ds = new DOMSource(resDoc);
-                final Transformer tf = TransformerFactory.newInstance().newTransformer();
-                tf.transform(ds, res);
+                final Transformer tf = XMLUtils.borrowTransformer();
+                try {
+                    tf.transform(ds, res);
+                } finally {
+                    XMLUtils.releaseTransformer(tf);
+                }
             } catch (final RuntimeException e) {
                 throw e;
             } catch (final Exception e) {
@@ -64,6 +64,19 @@ public final class CoderefResolver extends AbstractXMLFilter {
     public CoderefResolver() {
     }
 
+    /**
+     * Set file being processed. Used when the filter is part of a filter chain instead of
+     * being run with {@link #write(File)}.
+     *
+     * @param currentFile absolute path to file being processed
+     * @since 2.1
+     */
+    public void setCurrentFile(final File currentFile) {
+        assert currentFile.isAbsolute();
+        this.currentFile = currentFile;
+        ignoreDepth = 0;
+    }
+
     // AbstractWriter methods --------------------------------------------------
 
     @Override
@@ -20,7 +20,7 @@ import org.dita.dost.util.XMLUtils.*;
 import java.io.File;
 import java.net.URI;
 import java.util.HashSet;
-import java.util.Hashtable;
+import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 
@@ -43,7 +43,7 @@ import org.xml.sax.SAXException;
 public final class ConrefPushParser extends AbstractXMLFilter {
 
     /**table containing conref push contents.*/
-    private Hashtable<MoveKey, DocumentFragment> movetable = null;
+    private Map<MoveKey, DocumentFragment> movetable = null;
 
     /**topicId keep the current topic id value.*/
     private String topicId = null;
@@ -126,7 +126,12 @@ public final class ConrefPushParser extends AbstractXMLFilter {
         contentForPushAfterStack = new Stack<DocumentFragment>();
     }
 
-    public void setMoveTable(final Hashtable<MoveKey, DocumentFragment> movetable) {
+    /**
+     * Set push content for the target file. The table is modified during processing.
+     * 
+     * @param movetable push content by target element
+     */
+    public void setMoveTable(final Map<MoveKey, DocumentFragment> movetable) {
         this.movetable = movetable;
     }
     
@@ -164,21 +169,23 @@ public final class ConrefPushParser extends AbstractXMLFilter {
         }
     }
     /**
-     * Update conref list in job configuration and in conref list file.
+     * Update conref and keyref flags in job configuration. The job configuration is not written
+     * to disk, callers are responsible for writing it after all targets have been processed.
      * 
      * @param filename filename
      */
     private void updateList(final File filename) {
         try {
             final URI reletivePath = toURI(filename.getAbsolutePath().substring(new File(normalize(tempDir.toString())).getPath().length() + 1));
-            final FileInfo f = job.getOrCreateFileInfo(reletivePath);
-            if (hasConref) {
-                f.hasConref = true;
-            }
-            if (hasKeyref) {
-                f.hasKeyref = true;
+            synchronized (job) {
+                final FileInfo f = job.getOrCreateFileInfo(reletivePath);
+                if (hasConref) {
+                    f.hasConref = true;
+                }
+                if (hasKeyref) {
+                    f.hasKeyref = true;
+                }
             }
-            job.write();
         } catch (final Exception e) {
             logger.error(e.getMessage(), e) ;
         }
@@ -16,24 +16,21 @@ import java.io.File;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 
 import org.dita.dost.exception.DITAOTException;
 import org.dita.dost.log.MessageUtils;
 import org.dita.dost.util.DitaClass;
+import org.dita.dost.util.IdIndex;
+import org.dita.dost.util.KeySpace;
+import org.dita.dost.util.KeySpace.Definition;
+import org.dita.dost.util.KeySpace.Fragment;
 import org.dita.dost.util.MergeUtils;
 import org.dita.dost.util.URLUtils;
 import org.dita.dost.util.XMLUtils;
-import org.w3c.dom.Attr;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.AttributesImpl;
@@ -106,9 +103,12 @@ public final class KeyrefPaser extends AbstractXMLFilter {
         keyrefInfos = Collections.unmodifiableList(ki);
     }
         
-    private Map<String, Element> definitionMap;
+    /** Compiled key space. */
+    private KeySpace keySpace;
     /** File name with relative path to the temporary directory of input file. */
     private File inputFile;
+    /** ID index of source files, may be {@code null}. */
+    private IdIndex idIndex;
 
     /**
      * It is stack used to store the place of current element
@@ -125,12 +125,6 @@ public final class KeyrefPaser extends AbstractXMLFilter {
      */
     private int keyrefLeval;
 
-    /**
-     * It is used to store the target of the keys
-     * In the from the map <keys, target>.
-     */
-    private Map<String, URI> keyMap;
-
     /**
      * It is used to indicate whether the keyref is valid.
      * The descendant element should know whether keyref is valid because keyrefs can be nested.
@@ -155,7 +149,7 @@ public final class KeyrefPaser extends AbstractXMLFilter {
     private final Stack<Boolean> hasSubElem;
 
     /** Current key definition. */
-    private Element elem;
+    private Definition elem;
 
     /** Set of link targets which are not resource-only */
     private Set<URI> normalProcessingRoleTargets;
@@ -168,13 +162,18 @@ public final class KeyrefPaser extends AbstractXMLFilter {
         keyrefLevalStack = new Stack<Integer>();
         validKeyref = new Stack<Boolean>();
         empty = true;
-        keyMap = new HashMap<String, URI>();
         elemName = new Stack<String>();
         hasSubElem = new Stack<Boolean>();
     }
     
-    public void setKeyDefinition(final Map<String, Element> definitionMap) {
-        this.definitionMap = definitionMap;
+    /**
+     * Set compiled key space.
+     * 
+     * @param keySpace key space
+     * @since 2.1
+     */
+    public void setKeySpace(final KeySpace keySpace) {
+        this.keySpace = keySpace;
     }
 
     /**
@@ -185,11 +184,13 @@ public final class KeyrefPaser extends AbstractXMLFilter {
     }
     
     /**
-     * Set key map.
-     * @param map key map
+     * Set ID index used to look up first topic IDs of key targets.
+     * 
+     * @param idIndex ID index, may be {@code null}
+     * @since 2.1
      */
-    public void setKeyMap(final Map<String, URI> map) {
-        keyMap = map;
+    public void setIdIndex(final IdIndex idIndex) {
+        this.idIndex = idIndex;
     }
     
     /**
@@ -242,33 +243,21 @@ public final class KeyrefPaser extends AbstractXMLFilter {
                 // If current element name doesn't equal the key reference element
                 // just grab the content from the matching element of key definition
                 if (!name.equals(elemName.peek())) {
-                    final NodeList nodeList = elem.getElementsByTagName(name);
-                    if (nodeList.getLength() > 0) {
-                        final Element node = (Element) nodeList.item(0);
-                        final NodeList nList = node.getChildNodes();
-                        for (int index = 0; index < nList.getLength(); index++) {
-                            final Node n = nList.item(index);
-                            if (n.getNodeType() == Node.TEXT_NODE) {
-                                final char[] ch = n.getNodeValue().toCharArray();
-                                getContentHandler().characters(ch, 0, ch.length);
-                                break;
-                            }
-                        }
+                    final char[] ch = elem.getText(name);
+                    if (ch != null) {
+                        getContentHandler().characters(ch, 0, ch.length);
                     }
                 } else {
                     // Current element name equals the key reference element
                     // grab keyword or term from key definition
                     if (!hasSubElem.peek() && currentElement != null) {
-                        NodeList nodeList = elem.getElementsByTagName(TOPIC_KEYWORD.localName);
+                        final Fragment keyword = elem.getKeyword();
                         // XXX: No need to look for term as content model for keywords doesn't allow it
-//                        if (nodeList.getLength() == 0 ) {
-//                            nodeList = elem.getElementsByTagName(TOPIC_TERM.localName);
-//                        }
-                        if (nodeList.getLength() > 0) {
+                        if (keyword != null) {
                             if (!currentElement.hasNestedElements) {
                                 // only one keyword or term is used.
                                 if (!currentElement.isEmpty) {
-                                    domToSax((Element) nodeList.item(0), false);
+                                    keyword.toSax(getContentHandler(), false);
                                 }
                             } else {
                                 // If the key reference element carries href attribute
@@ -279,7 +268,7 @@ public final class KeyrefPaser extends AbstractXMLFilter {
                                     getContentHandler().startElement(NULL_NS_URI, TOPIC_LINKTEXT.localName, TOPIC_LINKTEXT.localName, atts);
                                 }
                                 if (!currentElement.isEmpty) {
-                                    domToSax((Element) nodeList.item(0), true);
+                                    keyword.toSax(getContentHandler(), true);
                                 }
                                 if (TOPIC_LINK.matches(currentElement.type)) {
                                     getContentHandler().endElement(NULL_NS_URI, TOPIC_LINKTEXT.localName, TOPIC_LINKTEXT.localName);
@@ -289,11 +278,11 @@ public final class KeyrefPaser extends AbstractXMLFilter {
                             if (TOPIC_LINK.matches(currentElement.type)) {
                                 // If the key reference element is link or its specification,
                                 // should pull in the linktext
-                                final NodeList linktext = elem.getElementsByTagName(TOPIC_LINKTEXT.localName);
-                                if (linktext.getLength() > 0) {
-                                    domToSax((Element) linktext.item(0), true);
+                                final Fragment linktext = elem.getLinktext();
+                                if (linktext != null) {
+                                    linktext.toSax(getContentHandler(), true);
                                 } else {
-                                    final String navtitle = elem.getAttribute(ATTRIBUTE_NAME_NAVTITLE);
+                                    final String navtitle = elem.getNavtitle();
                                     if (!navtitle.trim().isEmpty()) {
                                         final AttributesImpl atts = new AttributesImpl();
                                         XMLUtils.addOrSetAttribute(atts, ATTRIBUTE_NAME_CLASS, TOPIC_LINKTEXT.toString());
@@ -306,11 +295,11 @@ public final class KeyrefPaser extends AbstractXMLFilter {
                                     }
                                 }
                             } else if (currentElement.hasNestedElements) {
-                                final NodeList linktext = elem.getElementsByTagName(TOPIC_LINKTEXT.localName);
-                                if (linktext.getLength() > 0) {
-                                    domToSax((Element) linktext.item(0), false);
+                                final Fragment linktext = elem.getLinktext();
+                                if (linktext != null) {
+                                    linktext.toSax(getContentHandler(), false);
                                 } else {
-                                    final String navtitle = elem.getAttribute(ATTRIBUTE_NAME_NAVTITLE);
+                                    final String navtitle = elem.getNavtitle();
                                     if (!navtitle.trim().isEmpty()) {
                                         final char[] ch = navtitle.toCharArray();
                                         getContentHandler().characters(ch, 0, ch.length);
@@ -388,15 +377,16 @@ public final class KeyrefPaser extends AbstractXMLFilter {
                 keyName = keyrefValue.substring(0, slashIndex);
                 elementId = keyrefValue.substring(slashIndex);
             }
-            elem = definitionMap.get(keyName);
+            final KeySpace.Key key = keySpace.get(keyName);
+            elem = key != null ? key.definition : null;
 
             // If definition is not null
             if (elem != null) {
                 if (currentElement != null) {
-                    final NamedNodeMap attrs = elem.getAttributes();
+                    final Attributes attrs = elem.getAttributes();
                     // first resolve the keyref attribute
                     if (currentElement.refAttr != null) {
-                        final URI target = keyMap.get(keyName);
+                        final URI target = key.href;
                         if (target != null && target.toString().length() != 0) {
                             URI target_output = target;
                             // if the scope equals local, the target should be verified that
@@ -405,7 +395,7 @@ public final class KeyrefPaser extends AbstractXMLFilter {
                                 valid = true;
                                 target_output = normalizeHrefValue(URLUtils.getRelativePath(job.tempDir.toURI().resolve(inputFile.getPath()), job.tempDir.toURI().resolve(target)), elementId);
                                 XMLUtils.addOrSetAttribute(resAtts, currentElement.refAttr, target_output.toString());
-                            } else if (isLocalDita(elem)) {
+                            } else if (elem.isLocalDita()) {
                                 final File topicFile = toFile(job.tempDir.toURI().resolve(stripFragment(target)));
                                 if (topicFile.exists()) {
                                     valid = true;
@@ -461,10 +451,10 @@ public final class KeyrefPaser extends AbstractXMLFilter {
                         if (MAP_TOPICREF.matches(currentElement.type)) {
                             // @keyref in topicref
                             for (int index = 0; index < attrs.getLength(); index++) {
-                                final Attr attr = (Attr) attrs.item(index);
-                                if (!no_copy.contains(attr.getNodeName())) {
-                                    XMLUtils.removeAttribute(resAtts, attr.getNodeName());
-                                    XMLUtils.addOrSetAttribute(resAtts, attr);
+                                final String attrName = attrs.getQName(index);
+                                if (!no_copy.contains(attrName)) {
+                                    XMLUtils.removeAttribute(resAtts, attrName);
+                                    copyAttribute(resAtts, attrs, index);
                                 }
                             }
                         } else {
@@ -473,11 +463,11 @@ public final class KeyrefPaser extends AbstractXMLFilter {
 //                            if (currentElement.hasNestedElements) {
                                 // current element with href attribute
                                 for (int index = 0; index < attrs.getLength(); index++) {
-                                    final Attr attr = (Attr) attrs.item(index);
-                                    if (!no_copy_topic.contains(attr.getNodeName())
-                                            && (attr.getNodeName().equals(currentElement.refAttr) || resAtts.getIndex(attr.getNodeName()) == -1)) {
-                                        XMLUtils.removeAttribute(resAtts, attr.getNodeName());
-                                        XMLUtils.addOrSetAttribute(resAtts, attr);
+                                    final String attrName = attrs.getQName(index);
+                                    if (!no_copy_topic.contains(attrName)
+                                            && (attrName.equals(currentElement.refAttr) || resAtts.getIndex(attrName) == -1)) {
+                                        XMLUtils.removeAttribute(resAtts, attrName);
+                                        copyAttribute(resAtts, attrs, index);
                                     }
                                 }
 //                            } else {
@@ -513,70 +503,18 @@ public final class KeyrefPaser extends AbstractXMLFilter {
 
     // Private methods ---------------------------------------------------------
 
-    private boolean isLocalDita(final Element elem ) {
-        final String scopeValue = elem.getAttribute(ATTRIBUTE_NAME_SCOPE);
-        final String formatValue = elem.getAttribute(ATTRIBUTE_NAME_FORMAT);
-        return ("".equals(scopeValue) || ATTR_SCOPE_VALUE_LOCAL.equals(scopeValue)) &&
-                ("".equals(formatValue) || ATTR_FORMAT_VALUE_DITA.equals(formatValue) || ATTR_FORMAT_VALUE_DITAMAP.equals(formatValue));
-    }
-
     /**
-     * Serialize DOM node into a SAX stream.
+     * Copy attribute from key definition.
      * 
-     * @param elem element to serialize
-     * @param retainElements {@code true} to serialize elements, {@code false} to only serialize text nodes.
+     * @param atts attributes to copy into
+     * @param src key definition attributes
+     * @param index index of the attribute to copy
      */
-    private void domToSax(final Element elem, final boolean retainElements) throws SAXException {
-        if (retainElements) {
-            final AttributesImpl atts = new AttributesImpl();
-            final NamedNodeMap attrs = elem.getAttributes();
-            for (int i = 0; i < attrs.getLength(); i++) {
-                final Attr a = (Attr) attrs.item(i);
-                if (a.getNodeName().equals(ATTRIBUTE_NAME_CLASS)) {
-                    XMLUtils.addOrSetAttribute(atts, ATTRIBUTE_NAME_CLASS, changeclassValue(a.getNodeValue()));
-                } else {
-                    XMLUtils.addOrSetAttribute(atts, a);
-                }
-            }
-            getContentHandler().startElement(NULL_NS_URI, elem.getNodeName(), elem.getNodeName(), atts);
-        }
-        final NodeList nodeList = elem.getChildNodes();
-        for (int i = 0; i<nodeList.getLength(); i++) {
-            final Node node = nodeList.item(i);
-            if (node.getNodeType() == Node.ELEMENT_NODE) {
-                final Element e = (Element) node;
-                // retain tm and text elements
-                if (TOPIC_TM.matches(e) || TOPIC_TEXT.matches(e)) {
-                    domToSax(e, true);
-                } else {
-                    domToSax(e, retainElements);
-                }
-            } else if (node.getNodeType() == Node.TEXT_NODE) {
-                final char[] ch = node.getNodeValue().toCharArray();
-                getContentHandler().characters(ch, 0, ch.length);
-            }
-        }
-        if (retainElements) {
-            getContentHandler().endElement(NULL_NS_URI, elem.getNodeName(), elem.getNodeName());
-        }
+    private static void copyAttribute(final AttributesImpl atts, final Attributes src, final int index) {
+        XMLUtils.addOrSetAttribute(atts, src.getURI(index), src.getLocalName(index), src.getQName(index),
+                src.getType(index), src.getValue(index));
     }
 
-    /**
-     * Change map type to topic type. 
-     */
-    private String changeclassValue(final String classValue) {
-        final DitaClass cls = new DitaClass(classValue);
-        if (cls.equals(MAP_LINKTEXT)) {
-            return TOPIC_LINKTEXT.toString();
-        } else if (cls.equals(MAP_SEARCHTITLE)) {
-            return TOPIC_SEARCHTITLE.toString();
-        } else if (cls.equals(MAP_SHORTDESC)) {
-            return TOPIC_SHORTDESC.toString();
-        } else {
-            return cls.toString();
-        }
-    }
-    
     /**
      * change elementId into topicId if there is no topicId in key definition.
      */
@@ -591,6 +529,12 @@ public final class KeyrefPaser extends AbstractXMLFilter {
      * Get first topic id
      */
     private String getFirstTopicId(final File topicFile) {
+        if (idIndex != null) {
+            final URI rel = job.tempDir.toURI().relativize(topicFile.toURI());
+            if (idIndex.contains(rel)) {
+                return idIndex.getFirstTopicId(rel);
+            }
+        }
         final File path = topicFile.getParentFile();
         final URI name = toURI(topicFile.getName());
         return MergeUtils.getFirstTopicId(name, path, false);
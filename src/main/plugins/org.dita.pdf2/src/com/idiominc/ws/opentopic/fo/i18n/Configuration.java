@@ -4,6 +4,7 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -43,11 +44,35 @@ public class Configuration {
     private static final String BAD_CONF_MESSAGE = "Bad configuration file format!";
 
     private final Alphabet[] alphabets;
+    /** Sorted start characters of ranges of characters that belong to the same alphabet. */
+    private final int[] rangeStarts;
+    /** Alphabet for each range, {@code null} if no alphabet contains the characters of the range. */
+    private final Alphabet[] rangeAlphabets;
 
 
     public Configuration(final Document theConfigurationFile)
             throws ConfigurationException {
         this.alphabets = initAlphabets(theConfigurationFile);
+
+        // Map every character to the first alphabet that contains it and compact the map into ranges
+        final Alphabet[] table = new Alphabet[Character.MAX_VALUE + 1];
+        for (int i = alphabets.length - 1; i >= 0; i--) {
+            for (final Character c : alphabets[i].getAllChars()) {
+                table[c.charValue()] = alphabets[i];
+            }
+        }
+        final int[] starts = new int[table.length];
+        final Alphabet[] rangeAlphabets = new Alphabet[table.length];
+        int size = 0;
+        for (int c = 0; c < table.length; c++) {
+            if (c == 0 || table[c] != table[c - 1]) {
+                starts[size] = c;
+                rangeAlphabets[size] = table[c];
+                size++;
+            }
+        }
+        this.rangeStarts = Arrays.copyOf(starts, size);
+        this.rangeAlphabets = Arrays.copyOf(rangeAlphabets, size);
     }
 
 
@@ -62,14 +87,11 @@ public class Configuration {
      *      or <code>null</code> if no alphabets contains given char.
      */
     public Alphabet getAlphabetForChar(final char theChar) {
-        Alphabet result = null;
-        for (final Alphabet alphabet : this.alphabets) {
-            if (alphabet.isContain(theChar)) {
-                result = alphabet;
-                break;
-            }
+        int i = Arrays.binarySearch(this.rangeStarts, theChar);
+        if (i < 0) {
+            i = -i - 2;
         }
-        return result;
+        return this.rangeAlphabets[i];
     }
 
 
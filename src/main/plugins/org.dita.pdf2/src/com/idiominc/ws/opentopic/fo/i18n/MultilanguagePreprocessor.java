@@ -7,9 +7,21 @@ import org.w3c.dom.*;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+
+import java.io.IOException;
 import java.util.List;
 import java.util.ArrayList;
 
+import org.dita.dost.util.XMLSerializer;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.DefaultHandler;
+
 import com.idiominc.ws.opentopic.fo.i18n.Alphabet;
 import com.idiominc.ws.opentopic.fo.i18n.Configuration;
 
@@ -82,6 +94,35 @@ public class MultilanguagePreprocessor {
      }
 
 
+     /**
+      * Process document in a single streaming pass. Content of the root element is written to output as it is
+      * read and text is split into alphabet fragments as it is written.
+      *
+      * @param theInput input document
+      * @param theReader XML parser to read input document with
+      * @param theOutput serializer to write processed document to
+      * @throws ProcessException if processing failed
+      * @since 2.1
+      */
+     public void process(final InputSource theInput, final XMLReader theReader, final XMLSerializer theOutput)
+             throws ProcessException {
+         final MultilanguageContentHandler handler = new MultilanguageContentHandler(theOutput);
+         theReader.setContentHandler(handler);
+         try {
+             theReader.setProperty("http://xml.org/sax/properties/lexical-handler", handler);
+         } catch (final SAXException e) {
+             // comments and CDATA sections are processed as ordinary content
+         }
+         try {
+             theReader.parse(theInput);
+         } catch (final SAXException e) {
+             throw new ProcessException("Failed to process " + theInput.getSystemId() + ": " + e.getMessage(), e);
+         } catch (final IOException e) {
+             throw new ProcessException("Failed to read " + theInput.getSystemId() + ": " + e.getMessage(), e);
+         }
+     }
+
+
      private Node[] processCurrNode(final Node theNode, final Document theTargetDocument) {
          if (theNode.getNodeType() == Node.TEXT_NODE) {
              return processTextNode(theNode, theTargetDocument);
@@ -153,4 +194,179 @@ public class MultilanguagePreprocessor {
          }
          return child;
      }
+
+
+     /**
+      * Streaming multilanguage processor. Character data is buffered until the next markup event so that
+      * each text node is split into alphabet fragments as a whole.
+      */
+     private final class MultilanguageContentHandler extends DefaultHandler implements LexicalHandler {
+
+         private final XMLSerializer out;
+         private final StringBuilder text = new StringBuilder();
+         private char[] buf = new char[1024];
+         private final List<String[]> mappings = new ArrayList<String[]>();
+         private String doctypePublic;
+         private String doctypeSystem;
+         private boolean started;
+         private boolean inCdata;
+         /** Depth of written elements. */
+         private int depth;
+
+         MultilanguageContentHandler(final XMLSerializer out) {
+             this.out = out;
+         }
+
+         /**
+          * Write buffered character data. Characters are looked up from the alphabet range index and consecutive
+          * characters of the same alphabet are wrapped into a text fragment element.
+          */
+         private void flushText() throws SAXException {
+             final int length = text.length();
+             if (length == 0) {
+                 return;
+             }
+             if (buf.length < length) {
+                 buf = new char[Math.max(length, buf.length * 2)];
+             }
+             text.getChars(0, length, buf, 0);
+             text.setLength(0);
+
+             int processedPosition = 0;
+             Alphabet currentAlphabet = configuration.getAlphabetForChar(buf[0]);
+             for (int i = 1; i < length; i++) {
+                 final Alphabet alphabetForChar = configuration.getAlphabetForChar(buf[i]);
+                 if (alphabetForChar != currentAlphabet) {
+                     writeText(currentAlphabet, processedPosition, i - processedPosition);
+                     currentAlphabet = alphabetForChar;
+                     processedPosition = i;
+                 }
+             }
+             writeText(currentAlphabet, processedPosition, length - processedPosition);
+         }
+
+         private void writeText(final Alphabet theCurrentAlphabet, final int start, final int length) throws SAXException {
+             if (null != theCurrentAlphabet) {
+                 out.writeStartElement(NAMESPACE_URL, PREFIX + ":text-fragment");
+                 out.writeAttribute("char-set", theCurrentAlphabet.getName());
+                 out.writeCharacters(buf, start, length);
+                 out.writeEndElement();
+             } else {
+                 out.writeCharacters(buf, start, length);
+             }
+         }
+
+         @Override
+         public void endDocument() throws SAXException {
+             if (!started) {
+                 out.writeStartDocument();
+             }
+             out.writeEndDocument();
+         }
+
+         @Override
+         public void startPrefixMapping(final String prefix, final String uri) throws SAXException {
+             mappings.add(new String[] { prefix, uri });
+         }
+
+         @Override
+         public void startElement(final String uri, final String localName, final String qName, final Attributes atts)
+                 throws SAXException {
+             flushText();
+             if (!started) {
+                 started = true;
+                 final Transformer transformer = out.getTransformerHandler().getTransformer();
+                 if (doctypePublic != null) {
+                     transformer.setOutputProperty(OutputKeys.DOCTYPE_PUBLIC, doctypePublic);
+                 }
+                 if (doctypeSystem != null) {
+                     transformer.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM, doctypeSystem);
+                 }
+                 out.writeStartDocument();
+             }
+             out.writeStartElement(uri, qName);
+             if (depth == 0) {
+                 out.writeNamespace(PREFIX, NAMESPACE_URL);
+             }
+             for (final String[] mapping : mappings) {
+                 out.writeNamespace(mapping[0], mapping[1]);
+             }
+             mappings.clear();
+             for (int i = 0; i < atts.getLength(); i++) {
+                 out.writeAttribute(atts.getURI(i), atts.getQName(i), atts.getValue(i));
+             }
+             depth++;
+         }
+
+         @Override
+         public void endElement(final String uri, final String localName, final String qName) throws SAXException {
+             flushText();
+             out.writeEndElement();
+             depth--;
+         }
+
+         @Override
+         public void characters(final char[] ch, final int start, final int length) throws SAXException {
+             if (inCdata) {
+                 out.writeCharacters(ch, start, length);
+             } else {
+                 text.append(ch, start, length);
+             }
+         }
+
+         @Override
+         public void ignorableWhitespace(final char[] ch, final int start, final int length) throws SAXException {
+             characters(ch, start, length);
+         }
+
+         @Override
+         public void processingInstruction(final String target, final String data) throws SAXException {
+             if (depth > 0) {
+                 flushText();
+                 out.writeProcessingInstruction(target, data);
+             }
+         }
+
+         @Override
+         public void comment(final char[] ch, final int start, final int length) throws SAXException {
+             if (depth > 0) {
+                 flushText();
+                 out.writeComment(new String(ch, start, length));
+             }
+         }
+
+         @Override
+         public void startDTD(final String name, final String publicId, final String systemId) throws SAXException {
+             doctypePublic = publicId;
+             doctypeSystem = systemId;
+         }
+
+         @Override
+         public void endDTD() throws SAXException {
+             // NOOP
+         }
+
+         @Override
+         public void startEntity(final String name) throws SAXException {
+             // NOOP
+         }
+
+         @Override
+         public void endEntity(final String name) throws SAXException {
+             // NOOP
+         }
+
+         /** Content of CDATA sections is not split into alphabet fragments. */
+         @Override
+         public void startCDATA() throws SAXException {
+             flushText();
+             inCdata = true;
+         }
+
+         @Override
+         public void endCDATA() throws SAXException {
+             inCdata = false;
+         }
+
+     }
  }
@@ -3,15 +3,16 @@ package com.idiominc.ws.opentopic.fo.i18n;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Task;
 import org.apache.xml.resolver.tools.CatalogResolver;
+import org.dita.dost.util.XMLSerializer;
+import org.dita.dost.util.XMLUtils;
 import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 import java.io.File;
 import java.io.FileOutputStream;
 
@@ -69,25 +70,21 @@ public class PreprocessorTask extends Task {
              final DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
              documentBuilder.setEntityResolver(new CatalogResolver());
 
-             final Document doc = documentBuilder.parse(new File(this.input));
              final Document conf = documentBuilder.parse(new File(this.config));
              final MultilanguagePreprocessor preprocessor = new MultilanguagePreprocessor(new Configuration(conf));
-             final Document document = preprocessor.process(doc);
-
-             final TransformerFactory transformerFactory = TransformerFactory.newInstance();
-             final Transformer transformer = transformerFactory.newTransformer();
-             transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
-             transformer.setOutputProperty(OutputKeys.INDENT, "no");
-             transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-             if (doc.getDoctype() != null) {
-                 transformer.setOutputProperty(OutputKeys.DOCTYPE_PUBLIC, doc.getDoctype().getPublicId());
-                 transformer.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM, doc.getDoctype().getSystemId());
-             }
 
-             final FileOutputStream out = new FileOutputStream(this.output);
-             final StreamResult streamResult = new StreamResult(out);
-             transformer.transform(new DOMSource(document), streamResult);
-             out.close();
+             final XMLReader reader = XMLUtils.getXMLReader();
+             reader.setEntityResolver(new CatalogResolver());
+             final XMLSerializer serializer = XMLSerializer.newInstance(new FileOutputStream(this.output));
+             try {
+                 final Transformer transformer = serializer.getTransformerHandler().getTransformer();
+                 transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
+                 transformer.setOutputProperty(OutputKeys.INDENT, "no");
+                 transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+                 preprocessor.process(new InputSource(new File(this.input).toURI().toString()), reader, serializer);
+             } finally {
+                 serializer.close();
+             }
          } catch (final Exception e) {
              throw new BuildException(e);
          }
@@ -40,4 +40,9 @@ extends Exception {
     public ProcessException(final String message) {
         super(message);
     }
+
+
+    public ProcessException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -2,6 +2,8 @@ package com.idiominc.ws.opentopic.fo.index2;
 
 import java.util.Locale;
 
+import org.dita.dost.util.DITAOTCollator;
+
 /*
 Copyright (c) 2004-2006 by Idiom Technologies, Inc. All rights reserved.
 IDIOM is a registered trademark of Idiom Technologies, Inc. and WORLDSERVER
@@ -57,4 +59,19 @@ public class IndexCollator {
 
     }
 
+    /**
+     * Get collation sort key. Sort keys compared with {@link DITAOTCollator#compareSortKeys(byte[], byte[])} order
+     * the same way as the source strings compared with {@link #compare(Object, Object)}.
+     *
+     * @param value string to get sort key for
+     * @return sort key
+     */
+    public byte[] getSortKey(final String value) {
+        if (icuCollator) {
+            return this.icu4jCollator.getCollationKey(value).toByteArray();
+        } else {
+            return this.defaultCollator.getCollationKey(value).toByteArray();
+        }
+    }
+
 }
@@ -2,9 +2,12 @@ package com.idiominc.ws.opentopic.fo.index2;
 
 import com.ibm.icu.text.Collator;
 
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Locale;
 
+import org.dita.dost.util.DITAOTCollator;
+
 /*
 Copyright (c) 2004-2006 by Idiom Technologies, Inc. All rights reserved.
 IDIOM is a registered trademark of Idiom Technologies, Inc. and WORLDSERVER
@@ -53,6 +56,27 @@ class IndexComparator implements Comparator<IndexEntry> {
     }
 
 
+    /**
+     * Sort index entries. Collation keys are computed once per entry and the entries are sorted by the keys.
+     * The result is the same as sorting with this comparator.
+     *
+     * @param theIndexEntries index entries to sort
+     */
+    public void sort(final IndexEntry[] theIndexEntries) {
+        if (theIndexEntries.length < 2) {
+            return;
+        }
+        final SortEntry[] entries = new SortEntry[theIndexEntries.length];
+        for (int i = 0; i < theIndexEntries.length; i++) {
+            entries[i] = new SortEntry(this.Collator.getSortKey(getSortString(theIndexEntries[i])), theIndexEntries[i]);
+        }
+        Arrays.sort(entries);
+        for (int i = 0; i < entries.length; i++) {
+            theIndexEntries[i] = entries[i].entry;
+        }
+    }
+
+
     private String getSortString(final IndexEntry theEntry1) {
         String result;
         if (theEntry1.getSortString() != null) {
@@ -62,4 +86,21 @@ class IndexComparator implements Comparator<IndexEntry> {
         }
         return result;
     }
+
+
+    private static final class SortEntry implements Comparable<SortEntry> {
+
+        final byte[] key;
+        final IndexEntry entry;
+
+        SortEntry(final byte[] key, final IndexEntry entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+
+        public int compareTo(final SortEntry o) {
+            return DITAOTCollator.compareSortKeys(key, o.key);
+        }
+
+    }
 }
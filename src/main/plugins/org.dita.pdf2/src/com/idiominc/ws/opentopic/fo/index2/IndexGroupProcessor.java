@@ -1,11 +1,13 @@
 package com.idiominc.ws.opentopic.fo.index2;
 
 import com.ibm.icu.text.Collator;
+import com.idiominc.ws.opentopic.fo.index2.configuration.CharRange;
 import com.idiominc.ws.opentopic.fo.index2.configuration.ConfigEntry;
 import com.idiominc.ws.opentopic.fo.index2.configuration.IndexConfiguration;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
@@ -13,6 +15,7 @@ import java.util.Set;
 
 import org.dita.dost.log.DITAOTLogger;
 import org.dita.dost.log.MessageUtils;
+import org.dita.dost.util.DITAOTCollator;
 
 /*
 Copyright (c) 2004-2006 by Idiom Technologies, Inc. All rights reserved.
@@ -99,45 +102,15 @@ public final class IndexGroupProcessor {
         }
          */
 
-        for (int i = 0; i < IndexGroups.length; i++) {
-            final MyIndexGroup group = IndexGroups[i];
-            final ConfigEntry configEntry = group.getConfigEntry();
-
-            final String[] groupMembers = configEntry.getGroupMembers();
-
-            if (groupMembers.length > 0) {
-                //Find entries by comaping first letter with a chars in current config entry
-                for (final String key2 : new ArrayList<String>(indexMap.keySet())) {
-                    final String key = key2;
-                    if (key.length() > 0) {
-                        final String value = getValue((IndexEntry) indexMap.get(key));
-                        //						final char c = value.charAt(0);
-                        if (configEntry.isInRange(value,collator)) {
-                            final IndexEntry entry = (IndexEntry) indexMap.remove(key);
-                            group.addEntry(entry);
-                        }
-                    }
-                }
-            } else {
-                //Get index entries by range specified by two keys
-                final String key1 = configEntry.getKey();
-                String key2 = null;
-                if ((i + 1) < entries.length) {
-                    final ConfigEntry nextEntry = entries[i + 1];
-                    key2 = nextEntry.getKey();
-                }
-                final String[] indexMapKeys = getIndexKeysOfIndexesInRange(key1, key2, collator, indexMap);
-
-                for (final String mapKey : indexMapKeys) {
-                    final IndexEntry entry = (IndexEntry) indexMap.remove(mapKey);
-                    group.addEntry(entry);
-                }
+        //Assign each entry to the first group in configuration order that accepts it
+        final GroupMatcher matcher = new GroupMatcher(entries, collator);
+        for (final Iterator<Map.Entry<String, IndexEntry>> it = indexMap.entrySet().iterator(); it.hasNext();) {
+            final Map.Entry<String, IndexEntry> e = it.next();
+            final int i = matcher.getGroup(e.getKey(), e.getValue());
+            if (i != -1) {
+                IndexGroups[i].addEntry(e.getValue());
+                it.remove();
             }
-            /*
-			if (group.getEntries().length > 0) {
-				result.add(group);
-			}
-             */
         }
 
         if (!indexMap.isEmpty()) {
@@ -175,26 +148,6 @@ public final class IndexGroupProcessor {
     }
 
 
-    private static String[] getIndexKeysOfIndexesInRange(final String theKey1, final String theKey2, final IndexCollator theCollator, final HashMap<String, IndexEntry> theIndexEntryMap) {
-        final ArrayList<String> res = new ArrayList<String>();
-        for (final Map.Entry<String, IndexEntry> e : theIndexEntryMap.entrySet()) {
-            final int res1 = theCollator.compare(theKey1, getValue(e.getValue()));
-            if (res1 <= 0) {
-                if (theKey2 == null) {
-                    //the right range is not specified
-                    res.add(e.getKey());
-                    continue;
-                }
-                final int res2 = theCollator.compare(theKey2, e.getKey());
-                if (res2 > 0) {
-                    res.add(e.getKey());
-                }
-            }
-        }
-        return (String[]) res.toArray(new String[res.size()]);
-    }
-
-
     private static boolean doesStart(final String sourceString, final String[] compStrings) {
         for (final String compString : compStrings) {
             if (sourceString.startsWith(compString)) {
@@ -263,6 +216,132 @@ public final class IndexGroupProcessor {
     }
 
 
+    /**
+     * Finds the first group in configuration order that accepts an index entry. Group members are indexed by
+     * prefix and collation keys of range bounds are computed once, so matching an entry takes time linear in the
+     * length of the entry value and the number of range groups, instead of collator comparisons against every group.
+     *
+     * <p>An empty group member is ignored, while comparing against every group used to accept any non-empty value for
+     * it. {@link IndexConfiguration#parse(org.w3c.dom.Document)} never creates empty group members.</p>
+     */
+    static final class GroupMatcher {
+
+        private final IndexCollator collator;
+        private final int size;
+        /** Group member to index of the first group containing it. */
+        private final Map<String, Integer> members = new HashMap<String, Integer>();
+        /** Non-empty prefix of a group member to index of the first group containing such member. */
+        private final Map<String, Integer> memberPrefixes = new HashMap<String, Integer>();
+        private int maxMemberLength;
+        /** Whether group is selected by group members, otherwise group is selected by key range. */
+        private final boolean[] memberGroup;
+        /** Sort keys of character range bounds for member groups, pairs of start and end keys. */
+        private final byte[][][] ranges;
+        /** Sort keys of range start for key range groups. */
+        private final byte[][] startKeys;
+        /** Sort keys of range end for key range groups, {@code null} if range is not bounded. */
+        private final byte[][] endKeys;
+
+        GroupMatcher(final ConfigEntry[] entries, final IndexCollator collator) {
+            this.collator = collator;
+            size = entries.length;
+            memberGroup = new boolean[size];
+            ranges = new byte[size][][];
+            startKeys = new byte[size][];
+            endKeys = new byte[size][];
+            for (int i = 0; i < size; i++) {
+                final ConfigEntry configEntry = entries[i];
+                final String[] groupMembers = configEntry.getGroupMembers();
+                if (groupMembers.length > 0) {
+                    memberGroup[i] = true;
+                    for (final String member : groupMembers) {
+                        if (!members.containsKey(member)) {
+                            members.put(member, i);
+                        }
+                        maxMemberLength = Math.max(maxMemberLength, member.length());
+                        for (int j = 1; j <= member.length(); j++) {
+                            final String prefix = member.substring(0, j);
+                            if (!memberPrefixes.containsKey(prefix)) {
+                                memberPrefixes.put(prefix, i);
+                            }
+                        }
+                    }
+                    final CharRange[] charRanges = configEntry.getRanges();
+                    ranges[i] = new byte[charRanges.length * 2][];
+                    for (int j = 0; j < charRanges.length; j++) {
+                        ranges[i][j * 2] = collator.getSortKey(charRanges[j].getStart());
+                        ranges[i][j * 2 + 1] = collator.getSortKey(charRanges[j].getEnd());
+                    }
+                } else {
+                    startKeys[i] = collator.getSortKey(configEntry.getKey());
+                    if ((i + 1) < size) {
+                        endKeys[i] = collator.getSortKey(entries[i + 1].getKey());
+                    }
+                }
+            }
+        }
+
+        /**
+         * Get group for index entry.
+         *
+         * @param key index entry map key
+         * @param entry index entry
+         * @return index of group, {@code -1} if no group accepts the entry
+         */
+        int getGroup(final String key, final IndexEntry entry) {
+            final String value = getValue(entry);
+            final boolean memberCandidate = key.length() > 0 && value.length() > 0;
+            int best = size;
+            if (memberCandidate) {
+                final Integer i = memberPrefixes.get(value);
+                if (i != null) {
+                    best = i;
+                }
+                final int len = Math.min(value.length(), maxMemberLength);
+                for (int j = 1; j <= len; j++) {
+                    final Integer k = members.get(value.substring(0, j));
+                    if (k != null && k < best) {
+                        best = k;
+                    }
+                }
+            }
+            byte[] valueKey = null;
+            byte[] keyKey = null;
+            for (int i = 0; i < best; i++) {
+                if (memberGroup[i]) {
+                    if (memberCandidate && ranges[i].length > 0) {
+                        if (valueKey == null) {
+                            valueKey = collator.getSortKey(value);
+                        }
+                        for (int j = 0; j < ranges[i].length; j += 2) {
+                            if (DITAOTCollator.compareSortKeys(valueKey, ranges[i][j]) > 0
+                                    && DITAOTCollator.compareSortKeys(valueKey, ranges[i][j + 1]) < 0) {
+                                return i;
+                            }
+                        }
+                    }
+                } else {
+                    if (valueKey == null) {
+                        valueKey = collator.getSortKey(value);
+                    }
+                    if (DITAOTCollator.compareSortKeys(startKeys[i], valueKey) <= 0) {
+                        if (endKeys[i] == null) {
+                            return i;
+                        }
+                        if (keyKey == null) {
+                            keyKey = collator.getSortKey(key);
+                        }
+                        if (DITAOTCollator.compareSortKeys(endKeys[i], keyKey) > 0) {
+                            return i;
+                        }
+                    }
+                }
+            }
+            return best < size ? best : -1;
+        }
+
+    }
+
     private static class MyIndexGroup
     implements IndexGroup {
         private final String label;
@@ -11,11 +11,22 @@ import org.w3c.dom.*;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+
+import java.io.IOException;
 import java.util.*;
 
 import org.dita.dost.log.DITAOTLogger;
 import org.dita.dost.util.Configuration;
+import org.dita.dost.util.XMLSerializer;
 import org.dita.dost.util.XMLUtils;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.DefaultHandler;
 
 /*
 Copyright (c) 2004-2006 by Idiom Technologies, Inc. All rights reserved.
@@ -117,13 +128,50 @@ public final class IndexPreprocessor {
         return new IndexPreprocessResult(doc, (IndexEntry[]) indexes.toArray(new IndexEntry[0]));
     }
 
+    /**
+     * Process index terms in a single streaming pass. Index terms are processed as they are read, other content is
+     * copied to output as is and index groups are written as the last child of the root element. Only index term
+     * elements and read index entries are kept in memory.
+     *
+     * @param theInput input document
+     * @param theReader XML parser to read input document with
+     * @param theOutput serializer to write processed document to
+     * @param theConfiguration index configuration
+     * @param theLocale index locale
+     * @return read index entries
+     * @throws ProcessException if processing index terms failed
+     * @since 2.1
+     */
+    public IndexEntry[] process(final InputSource theInput, final XMLReader theReader, final XMLSerializer theOutput,
+            final IndexConfiguration theConfiguration, final Locale theLocale)
+            throws ProcessException {
+        final IndexContentHandler handler = new IndexContentHandler(theOutput, theConfiguration, theLocale);
+        theReader.setContentHandler(handler);
+        try {
+            theReader.setProperty("http://xml.org/sax/properties/lexical-handler", handler);
+        } catch (final SAXException e) {
+            logger.warn("Failed to set lexical handler, comments will be discarded: " + e.getMessage());
+        }
+        try {
+            theReader.parse(theInput);
+        } catch (final SAXException e) {
+            throw new ProcessException("Failed to process index terms: " + e.getMessage(), e);
+        } catch (final IOException e) {
+            throw new ProcessException("Failed to read " + theInput.getSystemId() + ": " + e.getMessage(), e);
+        }
+        return handler.indexes.toArray(new IndexEntry[handler.indexes.size()]);
+    }
+
     public void createAndAddIndexGroups(final IndexEntry[] theIndexEntries, final IndexConfiguration theConfiguration, final Document theDocument, final Locale theLocale) {
+        final Element rootElement = theDocument.getDocumentElement();
+        rootElement.appendChild(createIndexGroups(theIndexEntries, theConfiguration, theDocument, theLocale));
+    }
+
+    private Element createIndexGroups(final IndexEntry[] theIndexEntries, final IndexConfiguration theConfiguration, final Document theDocument, final Locale theLocale) {
         final IndexComparator indexEntryComparator = new IndexComparator(theLocale);
 
         final IndexGroup[] indexGroups = indexGroupProcessor.process(theIndexEntries, theConfiguration, theLocale);
 
-        final Element rootElement = theDocument.getDocumentElement();
-
         final Element indexGroupsElement = theDocument.createElementNS(namespace_url, "index.groups");
         indexGroupsElement.setPrefix(prefix);
 
@@ -145,7 +193,7 @@ public final class IndexPreprocessor {
             indexGroupsElement.appendChild(groupElement);
         }
 
-        rootElement.appendChild(indexGroupsElement);
+        return indexGroupsElement;
     }
 
 
@@ -246,6 +294,19 @@ public final class IndexPreprocessor {
                 || INDEXING_D_INDEX_SEE_ALSO.matches(node);
     }
 
+    /**
+     * Check if element is an index term element or specialization of one.
+     *
+     * @param atts element attributes
+     * @return {@code true} if element is an index term element, otherwise {@code false}
+     */
+    private boolean checkElementName(final Attributes atts) {
+        return TOPIC_INDEXTERM.matches(atts)
+                || INDEXING_D_INDEX_SORT_AS.matches(atts)
+                || INDEXING_D_INDEX_SEE.matches(atts)
+                || INDEXING_D_INDEX_SEE_ALSO.matches(atts);
+    }
+
     /**
      * Processes index string and creates nodes with "prefix" in given "namespace_url" from the parsed index entry text.
      *
@@ -276,7 +337,9 @@ public final class IndexPreprocessor {
      * @return nodes for the target document
      */
     private Node[] transformToNodes(final IndexEntry[] theIndexEntries, final Document theTargetDocument, final Comparator<IndexEntry> theIndexEntryComparator) {
-        if (null != theIndexEntryComparator) {
+        if (theIndexEntryComparator instanceof IndexComparator) {
+            ((IndexComparator) theIndexEntryComparator).sort(theIndexEntries);
+        } else if (null != theIndexEntryComparator) {
             Arrays.sort(theIndexEntries, theIndexEntryComparator);
         }
 
@@ -378,4 +441,247 @@ public final class IndexPreprocessor {
         indexEntryNode.setPrefix(this.prefix);
         return indexEntryNode;
     }
+
+    /**
+     * Write DOM node to serializer.
+     *
+     * @param theNode node to write
+     * @param theOutput serializer
+     */
+    private static void writeNode(final Node theNode, final XMLSerializer theOutput) throws SAXException {
+        switch (theNode.getNodeType()) {
+        case Node.ELEMENT_NODE:
+            theOutput.writeStartElement(theNode.getNamespaceURI(), theNode.getNodeName());
+            final NamedNodeMap atts = theNode.getAttributes();
+            for (int i = 0; i < atts.getLength(); i++) {
+                final Node att = atts.item(i);
+                final String name = att.getNodeName();
+                if (name.equals(XMLNS_ATTRIBUTE)) {
+                    theOutput.writeNamespace(DEFAULT_NS_PREFIX, att.getNodeValue());
+                } else if (name.startsWith(XMLNS_ATTRIBUTE + ":")) {
+                    theOutput.writeNamespace(name.substring(XMLNS_ATTRIBUTE.length() + 1), att.getNodeValue());
+                } else {
+                    theOutput.writeAttribute(att.getNamespaceURI() != null ? att.getNamespaceURI() : NULL_NS_URI, name, att.getNodeValue());
+                }
+            }
+            for (Node child = theNode.getFirstChild(); child != null; child = child.getNextSibling()) {
+                writeNode(child, theOutput);
+            }
+            theOutput.writeEndElement();
+            break;
+        case Node.TEXT_NODE:
+        case Node.CDATA_SECTION_NODE:
+            theOutput.writeCharacters(theNode.getNodeValue());
+            break;
+        case Node.COMMENT_NODE:
+            theOutput.writeComment(theNode.getNodeValue());
+            break;
+        case Node.PROCESSING_INSTRUCTION_NODE:
+            theOutput.writeProcessingInstruction(theNode.getNodeName(), theNode.getNodeValue());
+            break;
+        }
+    }
+
+    /**
+     * Streaming index term processor. Content of the root element outside index terms is written to the serializer
+     * as it is read. Each top level index term is read into a DOM element, processed and written as index entry
+     * elements.
+     */
+    private final class IndexContentHandler extends DefaultHandler implements LexicalHandler {
+
+        private final XMLSerializer out;
+        private final IndexConfiguration configuration;
+        private final Locale locale;
+        private final Document doc = XMLUtils.getDocumentBuilder().newDocument();
+        final List<IndexEntry> indexes = new ArrayList<IndexEntry>();
+        private final IndexEntryFoundListener listener = new IndexEntryFoundListener() {
+            public void foundEntry(final IndexEntry theEntry) {
+                indexes.add(theEntry);
+            }
+        };
+        /** Namespace mappings for the next start element. */
+        private final List<String[]> mappings = new ArrayList<String[]>();
+        private String doctypePublic;
+        private String doctypeSystem;
+        private boolean started;
+        /** Depth of written elements. */
+        private int depth;
+        /** Current index term element, {@code null} if outside index terms. */
+        private Element current;
+        /** Depth of elements inside current index term. */
+        private int indexDepth;
+
+        IndexContentHandler(final XMLSerializer out, final IndexConfiguration configuration, final Locale locale) {
+            this.out = out;
+            this.configuration = configuration;
+            this.locale = locale;
+        }
+
+        /**
+         * Start output document. Start is delayed so that document type declaration can be passed on to output.
+         */
+        private void startOutput() throws SAXException {
+            if (!started) {
+                started = true;
+                final Transformer transformer = out.getTransformerHandler().getTransformer();
+                if (doctypePublic != null) {
+                    transformer.setOutputProperty(OutputKeys.DOCTYPE_PUBLIC, doctypePublic);
+                }
+                if (doctypeSystem != null) {
+                    transformer.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM, doctypeSystem);
+                }
+                out.writeStartDocument();
+            }
+        }
+
+        @Override
+        public void endDocument() throws SAXException {
+            startOutput();
+            out.writeEndDocument();
+        }
+
+        @Override
+        public void startPrefixMapping(final String prefix, final String uri) throws SAXException {
+            mappings.add(new String[] { prefix, uri });
+        }
+
+        @Override
+        public void startElement(final String uri, final String localName, final String qName, final Attributes atts)
+                throws SAXException {
+            if (current == null && checkElementName(atts)) {
+                current = createElement(uri, qName, atts);
+                indexDepth = 0;
+            } else if (current != null) {
+                final Element e = createElement(uri, qName, atts);
+                current.appendChild(e);
+                current = e;
+                indexDepth++;
+            } else {
+                startOutput();
+                out.writeStartElement(uri, qName);
+                if (depth == 0) {
+                    out.writeNamespace(prefix, namespace_url);
+                }
+                for (final String[] mapping: mappings) {
+                    out.writeNamespace(mapping[0], mapping[1]);
+                }
+                mappings.clear();
+                for (int i = 0; i < atts.getLength(); i++) {
+                    out.writeAttribute(atts.getURI(i), atts.getQName(i), atts.getValue(i));
+                }
+                depth++;
+            }
+        }
+
+        /**
+         * Create index term DOM element. Namespace declarations are kept as attributes.
+         */
+        private Element createElement(final String uri, final String qName, final Attributes atts) {
+            final Element e = doc.createElementNS(uri.length() > 0 ? uri : null, qName);
+            for (final String[] mapping: mappings) {
+                e.setAttributeNS(XMLNS_ATTRIBUTE_NS_URI,
+                                 mapping[0].length() > 0 ? XMLNS_ATTRIBUTE + ":" + mapping[0] : XMLNS_ATTRIBUTE,
+                                 mapping[1]);
+            }
+            mappings.clear();
+            for (int i = 0; i < atts.getLength(); i++) {
+                final String attUri = atts.getURI(i);
+                e.setAttributeNS(attUri.length() > 0 ? attUri : null, atts.getQName(i), atts.getValue(i));
+            }
+            return e;
+        }
+
+        @Override
+        public void endElement(final String uri, final String localName, final String qName) throws SAXException {
+            if (current != null) {
+                if (indexDepth == 0) {
+                    final Node[] nodes = processIndexNode(current, doc, listener);
+                    current = null;
+                    for (final Node node: nodes) {
+                        writeNode(node, out);
+                    }
+                } else {
+                    current = (Element) current.getParentNode();
+                    indexDepth--;
+                }
+            } else {
+                depth--;
+                if (depth == 0) {
+                    // Append index groups to the end of document
+                    final IndexEntry[] entries = indexes.toArray(new IndexEntry[indexes.size()]);
+                    writeNode(createIndexGroups(entries, configuration, doc, locale), out);
+                }
+                out.writeEndElement();
+            }
+        }
+
+        @Override
+        public void characters(final char[] ch, final int start, final int length) throws SAXException {
+            if (current != null) {
+                final Node last = current.getLastChild();
+                if (last != null && last.getNodeType() == Node.TEXT_NODE) {
+                    ((Text) last).appendData(new String(ch, start, length));
+                } else {
+                    current.appendChild(doc.createTextNode(new String(ch, start, length)));
+                }
+            } else {
+                out.writeCharacters(ch, start, length);
+            }
+        }
+
+        @Override
+        public void ignorableWhitespace(final char[] ch, final int start, final int length) throws SAXException {
+            characters(ch, start, length);
+        }
+
+        @Override
+        public void processingInstruction(final String target, final String data) throws SAXException {
+            if (current != null) {
+                current.appendChild(doc.createProcessingInstruction(target, data));
+            } else if (depth > 0) {
+                out.writeProcessingInstruction(target, data);
+            }
+        }
+
+        @Override
+        public void comment(final char[] ch, final int start, final int length) throws SAXException {
+            if (current != null) {
+                current.appendChild(doc.createComment(new String(ch, start, length)));
+            } else if (depth > 0) {
+                out.writeComment(new String(ch, start, length));
+            }
+        }
+
+        @Override
+        public void startDTD(final String name, final String publicId, final String systemId) throws SAXException {
+            doctypePublic = publicId;
+            doctypeSystem = systemId;
+        }
+
+        @Override
+        public void endDTD() throws SAXException {
+            // NOOP
+        }
+
+        @Override
+        public void startEntity(final String name) throws SAXException {
+            // NOOP
+        }
+
+        @Override
+        public void endEntity(final String name) throws SAXException {
+            // NOOP
+        }
+
+        @Override
+        public void startCDATA() throws SAXException {
+            // NOOP
+        }
+
+        @Override
+        public void endCDATA() throws SAXException {
+            // NOOP
+        }
+
+    }
 }
@@ -8,16 +8,15 @@ import org.apache.tools.ant.Task;
 import org.apache.tools.ant.Project;
 import org.apache.xml.resolver.tools.CatalogResolver;
 import org.dita.dost.log.DITAOTAntLogger;
-import org.w3c.dom.Document;
+import org.dita.dost.util.XMLSerializer;
+import org.dita.dost.util.XMLUtils;
 import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 import java.io.FileOutputStream;
 import java.util.Locale;
 
@@ -76,9 +75,7 @@ extends Task {
         }
 
         try {
-            final DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-            final DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
-            documentBuilder.setEntityResolver(new CatalogResolver() {
+            final CatalogResolver resolver = new CatalogResolver() {
                 @Override
                 public InputSource resolveEntity(final String publicId, String systemId) {
                     // strip path from DTD location
@@ -90,21 +87,18 @@ extends Task {
                     // resolve real location with XMLCatalogResolver
                     return super.resolveEntity(publicId, systemId);
                 }
-            });
+            };
+            final DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+            final DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
+            documentBuilder.setEntityResolver(resolver);
+            final XMLReader reader = XMLUtils.getXMLReader();
+            reader.setEntityResolver(resolver);
 
-            final Document doc = documentBuilder.parse(input);
             final IndexPreprocessor preprocessor = new IndexPreprocessor(this.prefix, this.namespace_url);
             preprocessor.setLogger(new DITAOTAntLogger(getProject()));
 
-            // Walks through source document and builds an array of IndexEntry and builds
-            // new Document with pre-processed index entries included.
-            final IndexPreprocessResult result = preprocessor.process(doc);
-
-            final Document resultDoc = result.getDocument();
-
             // Parse index configuration from file specified from ANT script
             final IndexConfiguration configuration = IndexConfiguration.parse(documentBuilder.parse(this.indexConfig));
-            final IndexEntry[] indexEntries = result.getIndexEntries();
 
             Locale loc;
             // Split passed locale string to lang and country codes
@@ -113,31 +107,24 @@ extends Task {
             } else {
                 loc = new Locale(this.locale);
             }
-            // Append index groups to the end of document
-            preprocessor.createAndAddIndexGroups(indexEntries, configuration, resultDoc, loc);
+
+            final XMLSerializer serializer = XMLSerializer.newInstance(new FileOutputStream(this.output));
+            try {
+                final Transformer transformer = serializer.getTransformerHandler().getTransformer();
+                transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
+                transformer.setOutputProperty(OutputKeys.INDENT, "no");
+                transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+                transformer.setOutputProperty(OutputKeys.STANDALONE, "yes");
+                // Walks through source document, writes it with pre-processed index entries included
+                // and appends index groups to the end of document.
+                preprocessor.process(new InputSource(input), reader, serializer, configuration, loc);
+            } finally {
+                serializer.close();
+            }
 
             if (processingFaild) {
                 setActiveProjectProperty("ws.runtime.index.preprocess.fail","true");
             }
-            // Serialize processed document
-            final TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            final Transformer transformer = transformerFactory.newTransformer();
-            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
-            transformer.setOutputProperty(OutputKeys.INDENT, "no");
-            transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-            transformer.setOutputProperty(OutputKeys.STANDALONE, "yes");
-            if (doc.getDoctype() != null) {
-                if (null != doc.getDoctype().getPublicId()) {
-                    transformer.setOutputProperty(OutputKeys.DOCTYPE_PUBLIC, doc.getDoctype().getPublicId());
-                }
-                if (null != doc.getDoctype().getSystemId()) {
-                    transformer.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM, doc.getDoctype().getSystemId());
-                }
-            }
-            final FileOutputStream out = new FileOutputStream(this.output);
-            final StreamResult streamResult = new StreamResult(out);
-            transformer.transform(new DOMSource(resultDoc), streamResult);
-            out.close();
         } catch (final Exception e) {
             e.printStackTrace();
             throw new BuildException(e);
@@ -39,4 +39,9 @@ extends Exception {
     public ProcessException(final String message) {
         super(message);
     }
+
+
+    public ProcessException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -54,4 +54,9 @@ public interface ConfigEntry {
 
      boolean isInRange(String value, IndexCollator collator);
 
+     /**
+      * @return character ranges of group members, may be empty
+      */
+     CharRange[] getRanges();
+
  }
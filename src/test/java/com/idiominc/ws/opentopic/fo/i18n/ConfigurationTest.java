@@ -0,0 +1,100 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package com.idiominc.ws.opentopic.fo.i18n;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+
+import org.dita.dost.util.XMLUtils;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+public class ConfigurationTest {
+
+    private static Configuration configuration;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        configuration = new Configuration(XMLUtils.getDocumentBuilder().parse(new InputSource(new StringReader(
+                "<configuration>" +
+                "<alphabet char-set='first'><character-set>" +
+                "<character-range><start>a</start><end>f</end></character-range>" +
+                "</character-set></alphabet>" +
+                "<alphabet char-set='second'><character-set>" +
+                "<character-range><start>d</start><end>z</end></character-range>" +
+                "<character>A</character>" +
+                "</character-set></alphabet>" +
+                "<alphabet char-set='third'><character-set>" +
+                "<character>&#9;</character>" +
+                "<character-range><start>&#xFFF0;</start><end>&#xFFFD;</end></character-range>" +
+                "</character-set></alphabet>" +
+                "</configuration>"))));
+    }
+
+    @Test
+    public void testGetAlphabets() {
+        final Alphabet[] alphabets = configuration.getAlphabets();
+        assertEquals(3, alphabets.length);
+        assertEquals("first", alphabets[0].getName());
+        assertEquals("second", alphabets[1].getName());
+        assertEquals("third", alphabets[2].getName());
+    }
+
+    @Test
+    public void testGetAlphabetForCharRangeBounds() {
+        assertNull(configuration.getAlphabetForChar('`'));
+        assertEquals("first", configuration.getAlphabetForChar('a').getName());
+        assertEquals("first", configuration.getAlphabetForChar('c').getName());
+        assertEquals("second", configuration.getAlphabetForChar('g').getName());
+        assertEquals("second", configuration.getAlphabetForChar('z').getName());
+        assertNull(configuration.getAlphabetForChar('{'));
+    }
+
+    @Test
+    public void testGetAlphabetForCharOverlap() {
+        // first alphabet in configuration order wins
+        assertEquals("first", configuration.getAlphabetForChar('d').getName());
+        assertEquals("first", configuration.getAlphabetForChar('f').getName());
+        assertEquals("second", configuration.getAlphabetForChar('g').getName());
+    }
+
+    @Test
+    public void testGetAlphabetForCharSingleCharacter() {
+        assertNull(configuration.getAlphabetForChar('@'));
+        assertEquals("second", configuration.getAlphabetForChar('A').getName());
+        assertNull(configuration.getAlphabetForChar('B'));
+    }
+
+    @Test
+    public void testGetAlphabetForCharTableBounds() {
+        assertNull(configuration.getAlphabetForChar('\u0000'));
+        assertNull(configuration.getAlphabetForChar('\u0008'));
+        assertEquals("third", configuration.getAlphabetForChar('\t').getName());
+        assertNull(configuration.getAlphabetForChar('\n'));
+        assertNull(configuration.getAlphabetForChar('\uFFEF'));
+        assertEquals("third", configuration.getAlphabetForChar('\uFFF0').getName());
+        assertEquals("third", configuration.getAlphabetForChar('\uFFFD').getName());
+        assertNull(configuration.getAlphabetForChar('\uFFFE'));
+        assertNull(configuration.getAlphabetForChar('\uFFFF'));
+    }
+
+    @Test
+    public void testGetAlphabetForCharAgainstAlphabets() {
+        final Alphabet[] alphabets = configuration.getAlphabets();
+        for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+            Alphabet exp = null;
+            for (final Alphabet alphabet : alphabets) {
+                if (alphabet.isContain((char) c)) {
+                    exp = alphabet;
+                    break;
+                }
+            }
+            assertSame(Integer.toHexString(c), exp, configuration.getAlphabetForChar((char) c));
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package com.idiominc.ws.opentopic.fo.i18n;
+
+import static org.custommonkey.xmlunit.XMLAssert.assertXMLEqual;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.dita.dost.TestUtils;
+import org.dita.dost.util.XMLSerializer;
+import org.dita.dost.util.XMLUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+public class MultilanguagePreprocessorTest {
+
+    private static final File resourceDir = TestUtils.getResourceDir(MultilanguagePreprocessorTest.class);
+    private static final File srcDir = new File(resourceDir, "src");
+    private static final File configFile = new File("src" + File.separator + "main" + File.separator + "plugins"
+            + File.separator + "org.dita.pdf2" + File.separator + "cfg" + File.separator + "fo"
+            + File.separator + "i18n" + File.separator + "ja.xml");
+    private static final String NAMESPACE = "http://www.idiominc.com/opentopic/i18n";
+    private File tempDir;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = TestUtils.createTempDir(getClass());
+    }
+
+    @Test
+    public void testProcess() throws Exception {
+        final File input = new File(srcDir, "input.xml");
+        final Configuration configuration = new Configuration(XMLUtils.getDocumentBuilder().parse(configFile));
+
+        // DOM processing as done by the i18n preprocess task before streaming
+        final Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(input);
+        final Document result = new MultilanguagePreprocessor(configuration).process(doc);
+        final StringWriter exp = new StringWriter();
+        TransformerFactory.newInstance().newTransformer().transform(new DOMSource(result), new StreamResult(exp));
+
+        final File output = new File(tempDir, "output.xml");
+        final XMLSerializer serializer = XMLSerializer.newInstance(new FileOutputStream(output));
+        try {
+            new MultilanguagePreprocessor(configuration).process(new InputSource(input.toURI().toString()),
+                    XMLUtils.getXMLReader(), serializer);
+        } finally {
+            serializer.close();
+        }
+
+        // streaming writes CDATA content as text, adjacent text and CDATA are compared as a single text node
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setCoalescing(true);
+        factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        final Document expDoc = factory.newDocumentBuilder().parse(new InputSource(new StringReader(exp.toString())));
+        final Document actDoc = factory.newDocumentBuilder().parse(output);
+        TestUtils.resetXMLUnit();
+        assertXMLEqual(expDoc, actDoc);
+
+        assertNotNull(actDoc.getDoctype());
+        assertEquals("input.dtd", actDoc.getDoctype().getSystemId());
+        final NodeList fragments = actDoc.getElementsByTagNameNS(NAMESPACE, "text-fragment");
+        assertTrue(fragments.getLength() > 0);
+        for (int i = 0; i < fragments.getLength(); i++) {
+            final Element fragment = (Element) fragments.item(i);
+            final String text = fragment.getTextContent();
+            for (int j = 0; j < text.length(); j++) {
+                assertEquals(text, fragment.getAttribute("char-set"), configuration.getAlphabetForChar(text.charAt(j)).getName());
+            }
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestUtils.forceDelete(tempDir);
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package com.idiominc.ws.opentopic.fo.index2;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.Random;
+
+import org.dita.dost.log.DITAOTJavaLogger;
+import org.dita.dost.util.XMLUtils;
+
+import com.idiominc.ws.opentopic.fo.index2.configuration.ConfigEntry;
+import com.idiominc.ws.opentopic.fo.index2.configuration.IndexConfiguration;
+import com.idiominc.ws.opentopic.fo.index2.util.IndexStringProcessor;
+
+/**
+ * Benchmark for {@link IndexGroupProcessor} with synthetic index entries.
+ *
+ * <p>Usage: {@code IndexGroupBenchmark [index configuration file] [locale] [entries] [rounds]}, e.g.
+ * {@code IndexGroupBenchmark src/main/plugins/org.dita.pdf2/cfg/common/index/en.xml en_US 100000 5}. The
+ * defaults are the shipped English configuration, {@code en_US}, 100,000 entries and 5 rounds. Entry values
+ * are random words from the group members of the configuration.</p>
+ */
+public final class IndexGroupBenchmark {
+
+    private static final File DEFAULT_CONFIGURATION = new File("src" + File.separator + "main" + File.separator
+            + "plugins" + File.separator + "org.dita.pdf2" + File.separator + "cfg" + File.separator + "common"
+            + File.separator + "index" + File.separator + "en.xml");
+    private static final int DEFAULT_ENTRIES = 100000;
+    private static final int DEFAULT_ROUNDS = 5;
+
+    private IndexGroupBenchmark() {
+        throw new AssertionError();
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final File file = args.length > 0 ? new File(args[0]) : DEFAULT_CONFIGURATION;
+        final String[] tokens = (args.length > 1 ? args[1] : "en_US").split("_");
+        final Locale locale = new Locale(tokens[0], tokens.length > 1 ? tokens[1] : "");
+        final int size = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ENTRIES;
+        final int rounds = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_ROUNDS;
+        final IndexConfiguration configuration = IndexConfiguration.parse(XMLUtils.getDocumentBuilder().parse(file));
+
+        final StringBuilder alphabet = new StringBuilder();
+        for (final ConfigEntry e : configuration.getEntries()) {
+            for (final String member : e.getGroupMembers()) {
+                alphabet.append(member.charAt(0));
+            }
+        }
+        if (alphabet.length() == 0) {
+            alphabet.append("abcdefghijklmnopqrstuvwxyz");
+        }
+
+        final IndexGroupProcessor processor = new IndexGroupProcessor();
+        processor.setLogger(new DITAOTJavaLogger());
+        for (int round = 0; round < rounds; round++) {
+            final IndexEntry[] entries = createEntries(size, alphabet.toString(), new Random(round));
+            final long start = System.nanoTime();
+            final IndexGroup[] groups = processor.process(entries, configuration, locale);
+            final long end = System.nanoTime();
+            int grouped = 0;
+            for (final IndexGroup group : groups) {
+                grouped += group.getEntries().length;
+            }
+            System.out.println("Round " + (round + 1) + ": " + size + " entries into " + groups.length + " groups ("
+                    + grouped + " top level) in " + ((end - start) / 1000000) + " ms");
+        }
+    }
+
+    private static IndexEntry[] createEntries(final int size, final String alphabet, final Random random) {
+        final IndexEntry[] entries = new IndexEntry[size];
+        for (int i = 0; i < size; i++) {
+            final StringBuilder value = new StringBuilder();
+            final int len = 3 + random.nextInt(8);
+            for (int j = 0; j < len; j++) {
+                value.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            value.append(' ').append(i);
+            entries[i] = IndexStringProcessor.processIndexString(value.toString(), null)[0];
+        }
+        return entries;
+    }
+
+}
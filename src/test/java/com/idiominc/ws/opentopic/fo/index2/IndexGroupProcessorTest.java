@@ -0,0 +1,152 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package com.idiominc.ws.opentopic.fo.index2;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.dita.dost.TestUtils;
+import org.dita.dost.util.XMLUtils;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+import com.idiominc.ws.opentopic.fo.index2.IndexGroupProcessor.GroupMatcher;
+import com.idiominc.ws.opentopic.fo.index2.configuration.CharRange;
+import com.idiominc.ws.opentopic.fo.index2.configuration.ConfigEntry;
+import com.idiominc.ws.opentopic.fo.index2.configuration.IndexConfiguration;
+import com.idiominc.ws.opentopic.fo.index2.util.IndexStringProcessor;
+
+public class IndexGroupProcessorTest {
+
+    private static final File resourceDir = TestUtils.getResourceDir(IndexGroupProcessorTest.class);
+    private static final File configDir = new File("src" + File.separator + "main" + File.separator + "plugins"
+            + File.separator + "org.dita.pdf2" + File.separator + "cfg" + File.separator + "common"
+            + File.separator + "index");
+    private static final int RANDOM_VALUES = 500;
+
+    @Test
+    public void testGroupMatcher() throws Exception {
+        final File[] files = configDir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(final File f) {
+                return f.getName().endsWith(".xml");
+            }
+        });
+        assertTrue(files.length > 0);
+        for (final File f : files) {
+            final String name = f.getName().substring(0, f.getName().length() - ".xml".length());
+            final String[] tokens = name.split("_");
+            final Locale locale = new Locale(tokens[0], tokens.length > 1 ? tokens[1] : "");
+            assertGroups(f, locale);
+        }
+    }
+
+    @Test
+    public void testGroupMatcherKeyRanges() throws Exception {
+        assertGroups(new File(resourceDir, "keys.xml"), Locale.US);
+    }
+
+    @Test
+    public void testParseEmptyGroupMember() throws Exception {
+        final IndexConfiguration configuration = IndexConfiguration.parse(XMLUtils.getDocumentBuilder().parse(new InputSource(new StringReader(
+                "<index.configuration.set><index.configuration><index.groups>" +
+                "<index.group><group.key>A</group.key><group.label>A</group.label>" +
+                "<group.members><char.set></char.set><char.set>A</char.set><char.set start-range='' end-range='B'/></group.members>" +
+                "</index.group>" +
+                "</index.groups></index.configuration></index.configuration.set>"))));
+        assertArrayEquals(new String[] {"A"}, configuration.getEntries()[0].getGroupMembers());
+    }
+
+    private void assertGroups(final File file, final Locale locale) throws Exception {
+        final IndexConfiguration configuration = IndexConfiguration.parse(XMLUtils.getDocumentBuilder().parse(file));
+        final ConfigEntry[] entries = configuration.getEntries();
+        final IndexCollator collator = new IndexCollator(locale);
+        final GroupMatcher matcher = new GroupMatcher(entries, collator);
+        final List<String> values = createValues(entries, new Random(file.getName().hashCode()));
+        for (int i = 0; i < values.size(); i++) {
+            final IndexEntry entry = IndexStringProcessor.processIndexString(values.get(i), null)[0];
+            // use another value as sort-as for every third entry
+            if (i % 3 == 0) {
+                entry.setSortString(values.get(values.size() - 1 - i));
+            }
+            final String key = entry.getValue();
+            assertEquals(file.getName() + ": " + key + " sorted as " + entry.getSortString(),
+                         getGroup(entries, collator, key, entry),
+                         matcher.getGroup(key, entry));
+        }
+    }
+
+    /**
+     * Create index entry values from group members, keys, and range bounds, their prefixes and extensions, and
+     * random strings over the characters in the configuration.
+     */
+    private List<String> createValues(final ConfigEntry[] entries, final Random random) {
+        final List<String> seeds = new ArrayList<String>();
+        for (final ConfigEntry entry : entries) {
+            seeds.add(entry.getKey());
+            seeds.addAll(Arrays.asList(entry.getGroupMembers()));
+            for (final CharRange range : entry.getRanges()) {
+                seeds.add(range.getStart());
+                seeds.add(range.getEnd());
+            }
+        }
+        seeds.addAll(Arrays.asList("", " ", "1", "a", "z", "\u00e9t\u00e9", "\u00df"));
+        final StringBuilder alphabet = new StringBuilder();
+        for (final String seed : seeds) {
+            alphabet.append(seed);
+        }
+
+        final List<String> values = new ArrayList<String>();
+        for (final String seed : seeds) {
+            values.add(seed);
+            for (int i = 1; i < seed.length(); i++) {
+                values.add(seed.substring(0, i));
+            }
+            values.add(seed + alphabet.charAt(random.nextInt(alphabet.length())));
+            values.add(seed + " index");
+        }
+        for (int i = 0; i < RANDOM_VALUES; i++) {
+            final StringBuilder value = new StringBuilder();
+            final int len = 1 + random.nextInt(5);
+            for (int j = 0; j < len; j++) {
+                value.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            values.add(value.toString());
+        }
+        return values;
+    }
+
+    /**
+     * Get group for index entry by comparing it against every group in configuration order, as
+     * {@link IndexGroupProcessor} did before {@link GroupMatcher}.
+     */
+    private static int getGroup(final ConfigEntry[] entries, final IndexCollator collator, final String key,
+            final IndexEntry entry) {
+        final String sortValue = entry.getSortString();
+        final String value = sortValue != null && sortValue.length() > 0 ? sortValue : entry.getValue();
+        for (int i = 0; i < entries.length; i++) {
+            final ConfigEntry configEntry = entries[i];
+            if (configEntry.getGroupMembers().length > 0) {
+                if (key.length() > 0 && configEntry.isInRange(value, collator)) {
+                    return i;
+                }
+            } else if (collator.compare(configEntry.getKey(), value) <= 0) {
+                if ((i + 1) >= entries.length || collator.compare(entries[i + 1].getKey(), key) > 0) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package com.idiominc.ws.opentopic.fo.index2;
+
+import static org.custommonkey.xmlunit.XMLAssert.assertXMLEqual;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Locale;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.custommonkey.xmlunit.XMLUnit;
+import org.dita.dost.TestUtils;
+import org.dita.dost.util.XMLSerializer;
+import org.dita.dost.util.XMLUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import com.idiominc.ws.opentopic.fo.index2.configuration.IndexConfiguration;
+
+public class IndexPreprocessorTest {
+
+    private static final File resourceDir = TestUtils.getResourceDir(IndexPreprocessorTest.class);
+    private static final File srcDir = new File(resourceDir, "src");
+    private static final File configFile = new File("src" + File.separator + "main" + File.separator + "plugins"
+            + File.separator + "org.dita.pdf2" + File.separator + "cfg" + File.separator + "common"
+            + File.separator + "index" + File.separator + "en.xml");
+    private static final String PREFIX = "opentopic-index";
+    private static final String NAMESPACE = "http://www.idiominc.com/opentopic/index";
+    private File tempDir;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = TestUtils.createTempDir(getClass());
+    }
+
+    @Test
+    public void testProcess() throws Exception {
+        final File input = new File(srcDir, "input.xml");
+        final IndexConfiguration configuration = IndexConfiguration.parse(XMLUtils.getDocumentBuilder().parse(configFile));
+
+        // DOM processing as done by the index preprocess task before streaming
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        final Document doc = factory.newDocumentBuilder().parse(input);
+        final IndexPreprocessor domPreprocessor = createPreprocessor();
+        final IndexPreprocessResult result = domPreprocessor.process(doc);
+        domPreprocessor.createAndAddIndexGroups(result.getIndexEntries(), configuration, result.getDocument(), Locale.US);
+        final StringWriter exp = new StringWriter();
+        TransformerFactory.newInstance().newTransformer().transform(new DOMSource(result.getDocument()), new StreamResult(exp));
+
+        final File output = new File(tempDir, "output.xml");
+        final XMLSerializer serializer = XMLSerializer.newInstance(new FileOutputStream(output));
+        try {
+            createPreprocessor().process(new InputSource(input.toURI().toString()), XMLUtils.getXMLReader(),
+                    serializer, configuration, Locale.US);
+        } finally {
+            serializer.close();
+        }
+
+        // compare namespace declarations as attributes
+        TestUtils.resetXMLUnit();
+        XMLUnit.setControlDocumentBuilderFactory(factory);
+        XMLUnit.setTestDocumentBuilderFactory(factory);
+        assertXMLEqual(new InputSource(new StringReader(exp.toString())),
+                       new InputSource(output.toURI().toString()));
+
+        final Document act = factory.newDocumentBuilder().parse(output);
+        final NodeList maths = act.getElementsByTagName("m:math");
+        assertEquals(2, maths.getLength());
+        for (int i = 0; i < maths.getLength(); i++) {
+            assertEquals("urn:r", ((Element) maths.item(i)).getAttribute("xmlns:r"));
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestUtils.forceDelete(tempDir);
+    }
+
+    private IndexPreprocessor createPreprocessor() {
+        final IndexPreprocessor preprocessor = new IndexPreprocessor(PREFIX, NAMESPACE);
+        preprocessor.setLogger(new TestUtils.TestLogger());
+        return preprocessor;
+    }
+
+}
@@ -98,6 +98,50 @@ public class IndexTermCollectionTest {
         }
     }
 
+    @Test
+    public void testAddTermMerge() {
+        final IndexTermCollection i = new IndexTermCollection();
+        final IndexTerm first = new IndexTerm();
+        first.setTermName("term");
+        first.setTermKey("term");
+        first.addTarget(createTarget("a.html"));
+        i.addTerm(first);
+        final IndexTerm second = new IndexTerm();
+        second.setTermName("term");
+        second.setTermKey("term");
+        second.addTarget(createTarget("b.html"));
+        i.addTerm(second);
+        final IndexTerm other = new IndexTerm();
+        other.setTermName("term");
+        other.setTermKey("other");
+        i.addTerm(other);
+        assertEquals(Arrays.asList(first, other), i.getTermList());
+        assertEquals(2, first.getTargetList().size());
+    }
+
+    @Test
+    public void testAddAll() {
+        final IndexTermCollection i = new IndexTermCollection();
+        final IndexTerm first = new IndexTerm();
+        first.setTermName("first");
+        first.setTermKey("first");
+        first.addTarget(createTarget("a.html"));
+        i.addTerm(first);
+        final IndexTermCollection part = new IndexTermCollection();
+        final IndexTerm second = new IndexTerm();
+        second.setTermName("second");
+        second.setTermKey("second");
+        part.addTerm(second);
+        final IndexTerm merged = new IndexTerm();
+        merged.setTermName("first");
+        merged.setTermKey("first");
+        merged.addTarget(createTarget("b.html"));
+        part.addTerm(merged);
+        i.addAll(part);
+        assertEquals(Arrays.asList(first, second), i.getTermList());
+        assertEquals(2, first.getTargetList().size());
+    }
+
     @Test
     public void testGetTermList() {
         final IndexTermCollection i = IndexTermCollection.getInstantce();
@@ -164,6 +208,13 @@ public class IndexTermCollectionTest {
         fail("Not yet implemented");
     }
 
+    private IndexTermTarget createTarget(final String uri) {
+        final IndexTermTarget target = new IndexTermTarget();
+        target.setTargetName(uri);
+        target.setTargetURI(uri);
+        return target;
+    }
+
     @After
     public void tearDown() throws IOException {
         TestUtils.forceDelete(tempDir);
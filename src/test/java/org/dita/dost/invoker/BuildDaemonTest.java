@@ -0,0 +1,116 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.invoker;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.EnumSet;
+
+import org.dita.dost.TestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BuildDaemonTest {
+
+    private File tempDir;
+    private BuildDaemon daemon;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = TestUtils.createTempDir(getClass());
+        daemon = new BuildDaemon(0, tempDir);
+        daemon.start();
+    }
+
+    @Test
+    public void testVersion() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        final Integer code = BuildDaemon.submit(tempDir, daemon.getPort(), new File("."), new String[] { "-version" }, out, err);
+        assertEquals(Integer.valueOf(0), code);
+        assertTrue(out.toString("UTF-8").startsWith("DITA-OT version"));
+    }
+
+    @Test
+    public void testInvalidArguments() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        final Integer code = BuildDaemon.submit(tempDir, daemon.getPort(), new File("."), new String[] { "-i", "test.ditamap" }, out, err);
+        assertEquals(Integer.valueOf(1), code);
+        assertTrue(err.toString("UTF-8").contains("Transformation type not defined"));
+    }
+
+    @Test
+    public void testNotRunning() throws IOException {
+        final int port = daemon.getPort();
+        daemon.stop();
+        daemon = null;
+        assertNull(BuildDaemon.submit(tempDir, port, new File("."), new String[] { "-version" },
+                new ByteArrayOutputStream(), new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void testInvalidToken() throws IOException {
+        final OutputStream tokenOut = new FileOutputStream(getTokenFile());
+        try {
+            tokenOut.write("invalid".getBytes("US-ASCII"));
+        } finally {
+            tokenOut.close();
+        }
+        assertNull(BuildDaemon.submit(tempDir, daemon.getPort(), new File("."), new String[] { "-version" },
+                new ByteArrayOutputStream(), new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void testSilentClient() throws IOException {
+        final Socket silent = new Socket(InetAddress.getByName(null), daemon.getPort());
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final Integer code = BuildDaemon.submit(tempDir, daemon.getPort(), new File("."), new String[] { "-version" },
+                    out, new ByteArrayOutputStream());
+            assertEquals(Integer.valueOf(0), code);
+            assertTrue(out.toString("UTF-8").startsWith("DITA-OT version"));
+        } finally {
+            silent.close();
+        }
+    }
+
+    @Test
+    public void testTokenFile() throws IOException {
+        final File tokenFile = getTokenFile();
+        assertTrue(tokenFile.exists());
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            assertEquals(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE),
+                    Files.getPosixFilePermissions(tokenFile.toPath()));
+        }
+        daemon.stop();
+        daemon = null;
+        assertFalse(tokenFile.exists());
+    }
+
+    private File getTokenFile() {
+        return new File(tempDir, "daemon-" + daemon.getPort() + ".token");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (daemon != null) {
+            daemon.stop();
+        }
+        TestUtils.forceDelete(tempDir);
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.invoker;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.dita.dost.TestUtils;
+import org.dita.dost.util.TemplatesCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CachingTransformerFactoryTest {
+
+    private File tempDir;
+    private File style;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = TestUtils.createTempDir(getClass());
+        style = new File(tempDir, "style.xsl");
+        final Writer out = new OutputStreamWriter(new FileOutputStream(style), "UTF-8");
+        try {
+            out.write("<xsl:stylesheet xmlns:xsl='http://www.w3.org/1999/XSL/Transform' version='2.0'>"
+                    + "<xsl:output method='text'/><xsl:template match='/'>foo</xsl:template></xsl:stylesheet>");
+        } finally {
+            out.close();
+        }
+        TemplatesCache.clear();
+    }
+
+    @Test
+    public void testNewTemplates() throws Exception {
+        final Templates t = new CachingTransformerFactory().newTemplates(new StreamSource(style));
+        assertSame(t, new CachingTransformerFactory().newTemplates(new StreamSource(style)));
+
+        final Transformer transformer = new CachingTransformerFactory().newTransformer(new StreamSource(style));
+        final StringWriter buf = new StringWriter();
+        transformer.transform(new StreamSource(new StringReader("<root/>")), new StreamResult(buf));
+        assertEquals("foo", buf.toString());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TemplatesCache.clear();
+        TestUtils.forceDelete(tempDir);
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.module;
+
+import static org.custommonkey.xmlunit.XMLAssert.assertXMLEqual;
+import static org.dita.dost.util.Constants.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+
+import org.custommonkey.xmlunit.XMLUnit;
+import org.dita.dost.TestUtils;
+import org.dita.dost.pipeline.PipelineHashIO;
+import org.dita.dost.util.Job;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+public class ConrefPushModuleTest {
+
+    private static final File resourceDir = TestUtils.getResourceDir(ConrefPushModuleTest.class);
+    private static final File srcDir = new File(resourceDir, "src");
+    private static final File expDir = new File(resourceDir, "exp");
+    private static final String[] TARGETS = {"target0.dita", "target1.dita", "target2.dita", "target3.dita"};
+    private File tempDir;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = TestUtils.createTempDir(getClass());
+        TestUtils.copy(srcDir, tempDir);
+        final Job job = new Job(tempDir);
+        for (final String f: TARGETS) {
+            job.add(new Job.FileInfo.Builder().uri(URI.create(f)).format(ATTR_FORMAT_VALUE_DITA).build());
+        }
+        job.add(new Job.FileInfo.Builder().uri(URI.create("source.dita")).format(ATTR_FORMAT_VALUE_DITA).isConrefPush(true).build());
+        job.write();
+    }
+
+    @Test
+    public void testSerial() throws Exception {
+        execute(null);
+        assertOutput();
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        execute("4");
+        assertOutput();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestUtils.forceDelete(tempDir);
+    }
+
+    private void execute(final String parallel) throws Exception {
+        final ConrefPushModule module = new ConrefPushModule();
+        module.setLogger(new TestUtils.TestLogger());
+        module.setJob(new Job(tempDir));
+        final PipelineHashIO input = new PipelineHashIO();
+        if (parallel != null) {
+            input.setAttribute(ANT_INVOKER_EXT_PARAM_PARALLEL, parallel);
+        }
+        module.execute(input);
+    }
+
+    private void assertOutput() throws Exception {
+        TestUtils.resetXMLUnit();
+        XMLUnit.setIgnoreWhitespace(true);
+        for (final String f: TARGETS) {
+            assertXMLEqual(new InputSource(new File(expDir, f).toURI().toString()),
+                    new InputSource(new File(tempDir, f).toURI().toString()));
+        }
+    }
+
+}
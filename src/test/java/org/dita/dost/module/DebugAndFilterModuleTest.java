@@ -5,7 +5,11 @@
 package org.dita.dost.module;
 
 import static org.dita.dost.util.Constants.ANT_INVOKER_EXT_PARAM_GENERATE_DEBUG_ATTR;
+import static org.dita.dost.util.Constants.ANT_INVOKER_EXT_PARAM_INCREMENTAL_DIR;
+import static org.dita.dost.util.Constants.ANT_INVOKER_EXT_PARAM_PARALLEL;
 import static org.dita.dost.util.Constants.ANT_INVOKER_EXT_PARAM_TRANSTYPE;
+import static org.dita.dost.util.Constants.ATTR_FORMAT_VALUE_DITA;
+import static org.dita.dost.util.Job.DEPENDENCY_GRAPH_FILE;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -15,6 +19,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -31,6 +36,7 @@ import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.XMLReaderFactory;
+import org.apache.commons.io.FileUtils;
 import org.dita.dost.TestUtils;
 import org.dita.dost.exception.DITAOTException;
 import org.dita.dost.pipeline.AbstractFacade;
@@ -38,6 +44,7 @@ import org.dita.dost.pipeline.PipelineFacade;
 import org.dita.dost.pipeline.PipelineHashIO;
 import org.dita.dost.util.CatalogUtils;
 import org.dita.dost.util.Constants;
+import org.dita.dost.util.DependencyGraph;
 import org.dita.dost.util.Job;
 
 public class DebugAndFilterModuleTest {
@@ -47,6 +54,7 @@ public class DebugAndFilterModuleTest {
     private final File ditaDir = new File("src" + File.separator + "main");
     private File tmpDir;
     private File inputDir;
+    private PipelineHashIO pipelineInput;
 
     @BeforeClass
     public static void setUpClass() {
@@ -72,7 +80,7 @@ public class DebugAndFilterModuleTest {
         props.setProperty("user.input.dir", inputDir.getAbsolutePath());
         props.write();
 
-        final PipelineHashIO pipelineInput = new PipelineHashIO();
+        pipelineInput = new PipelineHashIO();
         pipelineInput.setAttribute("inputmap", inputMap.getPath());
         pipelineInput.setAttribute("basedir", inputDir.getAbsolutePath());
         pipelineInput.setAttribute("inputdir", inputDir.getPath());
@@ -91,7 +99,9 @@ public class DebugAndFilterModuleTest {
         pipelineInput.setAttribute(Constants.ANT_INVOKER_EXT_PARAN_SETSYSTEMID, "yes");
         pipelineInput.setAttribute(ANT_INVOKER_EXT_PARAM_TRANSTYPE, "xhtml");
         pipelineInput.setAttribute(ANT_INVOKER_EXT_PARAM_GENERATE_DEBUG_ATTR, Boolean.TRUE.toString());
+    }
 
+    private void execute() throws DITAOTException, IOException {
         final AbstractFacade facade = new PipelineFacade();
         facade.setLogger(new TestUtils.TestLogger());
         facade.setJob(new Job(tmpDir));
@@ -99,7 +109,50 @@ public class DebugAndFilterModuleTest {
     }
 
     @Test
-    public void testGeneratedFiles() throws SAXException, IOException {
+    public void testGeneratedFiles() throws SAXException, IOException, DITAOTException {
+        execute();
+        assertGeneratedFiles();
+    }
+
+    @Test
+    public void testGeneratedFilesParallel() throws SAXException, IOException, DITAOTException {
+        pipelineInput.setAttribute(ANT_INVOKER_EXT_PARAM_PARALLEL, "4");
+        execute();
+        assertGeneratedFiles();
+    }
+
+    @Test
+    public void testIncremental() throws SAXException, IOException, DITAOTException {
+        final File incrementalDir = new File(tempDir, "incremental");
+        pipelineInput.setAttribute(ANT_INVOKER_EXT_PARAM_INCREMENTAL_DIR, incrementalDir.getPath());
+        final Job job = new Job(tmpDir);
+        final DependencyGraph graph = new DependencyGraph();
+        for (final Job.FileInfo fi: job.getFileInfo()) {
+            if (fi.src != null && new File(fi.src).exists()) {
+                graph.addFile(fi.src, DependencyGraph.hash(fi.src), fi.format);
+            }
+        }
+        graph.write(new File(tmpDir, DEPENDENCY_GRAPH_FILE));
+        execute();
+        assertGeneratedFiles();
+
+        final File topic = new File("topics", "target-topic-a.xml");
+        final File cached = new File(incrementalDir, "debug-filter" + File.separator + topic.getPath());
+        assertTrue(cached.exists());
+        final String expected = TestUtils.readFileToString(new File(tmpDir, topic.getPath()));
+        FileUtils.writeStringToFile(cached, "<cached/>", "UTF-8");
+        execute();
+        assertEquals("<cached/>", TestUtils.readFileToString(new File(tmpDir, topic.getPath())).trim());
+
+        final URI src = inputDir.toURI().resolve("topics/target-topic-a.xml");
+        graph.addFile(src, "changed", ATTR_FORMAT_VALUE_DITA);
+        graph.write(new File(tmpDir, DEPENDENCY_GRAPH_FILE));
+        execute();
+        assertEquals(expected, TestUtils.readFileToString(new File(tmpDir, topic.getPath())));
+        assertEquals(expected, TestUtils.readFileToString(cached));
+    }
+
+    private void assertGeneratedFiles() throws SAXException, IOException {
         final File[] files = {
                 new File("maps", "root-map-01.ditamap"),
                 new File("topics", "target-topic-a.xml"),
@@ -0,0 +1,85 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.module;
+
+import static org.custommonkey.xmlunit.XMLAssert.assertXMLEqual;
+import static org.dita.dost.util.Constants.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+
+import org.custommonkey.xmlunit.XMLUnit;
+import org.dita.dost.TestUtils;
+import org.dita.dost.pipeline.PipelineHashIO;
+import org.dita.dost.util.Job;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+public class IndexTermExtractModuleTest {
+
+    private static final File resourceDir = TestUtils.getResourceDir(IndexTermExtractModuleTest.class);
+    private static final File srcDir = new File(resourceDir, "src");
+    private static final File expDir = new File(resourceDir, "exp");
+    private File tempDir;
+    private File outDir;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = TestUtils.createTempDir(getClass());
+        TestUtils.copy(srcDir, tempDir);
+        outDir = new File(tempDir, "out");
+        outDir.mkdirs();
+        final Job job = new Job(tempDir);
+        for (final String f: new String[] {"topic0.dita", "topic1.dita", "topic2.dita", "topic3.dita"}) {
+            job.add(new Job.FileInfo.Builder().uri(URI.create(f)).format(ATTR_FORMAT_VALUE_DITA).build());
+        }
+        job.add(new Job.FileInfo.Builder().uri(URI.create("map.ditamap")).format(ATTR_FORMAT_VALUE_DITAMAP).build());
+        job.write();
+    }
+
+    @Test
+    public void testSerial() throws Exception {
+        execute(null);
+        assertOutput();
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        execute("4");
+        assertOutput();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestUtils.forceDelete(tempDir);
+    }
+
+    private void execute(final String parallel) throws Exception {
+        final IndexTermExtractModule module = new IndexTermExtractModule();
+        module.setLogger(new TestUtils.TestLogger());
+        module.setJob(new Job(tempDir));
+        final PipelineHashIO input = new PipelineHashIO();
+        input.setAttribute(ANT_INVOKER_PARAM_BASEDIR, tempDir.getAbsolutePath());
+        input.setAttribute(ANT_INVOKER_EXT_PARAM_OUTPUT, new File(outDir, "map.ditamap").getAbsolutePath());
+        input.setAttribute(ANT_INVOKER_PARAM_INPUTMAP, "map.ditamap");
+        input.setAttribute(ANT_INVOKER_EXT_PARAM_TARGETEXT, ".html");
+        input.setAttribute(ANT_INVOKER_EXT_PARAM_INDEXTYPE, INDEX_TYPE_ECLIPSEHELP);
+        if (parallel != null) {
+            input.setAttribute(ANT_INVOKER_EXT_PARAM_PARALLEL, parallel);
+        }
+        module.execute(input);
+    }
+
+    private void assertOutput() throws Exception {
+        TestUtils.resetXMLUnit();
+        XMLUnit.setIgnoreWhitespace(true);
+        assertXMLEqual(new InputSource(new File(expDir, "index.xml").toURI().toString()),
+                new InputSource(new File(outDir, "index.xml").toURI().toString()));
+    }
+
+}
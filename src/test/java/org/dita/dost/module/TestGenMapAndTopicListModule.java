@@ -22,6 +22,7 @@ import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.net.URI;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -40,6 +41,8 @@ import org.dita.dost.exception.DITAOTException;
 import org.dita.dost.pipeline.AbstractFacade;
 import org.dita.dost.pipeline.PipelineFacade;
 import org.dita.dost.pipeline.PipelineHashIO;
+import org.dita.dost.util.DependencyGraph;
+import org.dita.dost.util.IdIndex;
 import org.dita.dost.util.Job;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -58,6 +61,7 @@ public class TestGenMapAndTopicListModule {
     private static File tempDir;
     private static File tempDirParallel;
     private static File tempDirAbove;
+    private static File tempDirThreads;
 
     @BeforeClass
     public static void setUp() throws IOException, DITAOTException {
@@ -76,9 +80,18 @@ public class TestGenMapAndTopicListModule {
         final File inputMapAbove = new File(inputDirAbove, "root-map-02.ditamap");
         final File outDirAbove = new File(tempDirAbove, "out");
         generate(inputDirAbove, inputMapAbove, outDirAbove, tempDirAbove);
+
+        tempDirThreads = new File(tempDir, "threads");
+        tempDirThreads.mkdirs();
+        generate(inputDirAbove, inputMapAbove, outDirAbove, tempDirThreads, "4", new File(tempDir, "incremental"));
     }
 
     private static void generate(final File inputDir, final File inputMap, final File outDir, final File tempDir) throws DITAOTException, IOException {
+        generate(inputDir, inputMap, outDir, tempDir, null, null);
+    }
+
+    private static void generate(final File inputDir, final File inputMap, final File outDir, final File tempDir,
+            final String parallel, final File incrementalDir) throws DITAOTException, IOException {
         final PipelineHashIO pipelineInput = new PipelineHashIO();
         pipelineInput.setAttribute(ANT_INVOKER_PARAM_INPUTMAP, inputMap.getPath());
         pipelineInput.setAttribute(ANT_INVOKER_PARAM_BASEDIR, srcDir.getAbsolutePath());
@@ -96,6 +109,12 @@ public class TestGenMapAndTopicListModule {
         //pipelineInput.setAttribute("ditalist", new File(tempDir, FILE_NAME_DITA_LIST).getPath());
         pipelineInput.setAttribute(ANT_INVOKER_PARAM_MAPLINKS, new File(tempDir, "maplinks.unordered").getPath());
         pipelineInput.setAttribute(ANT_INVOKER_EXT_PARAN_SETSYSTEMID, "no");
+        if (parallel != null) {
+            pipelineInput.setAttribute(ANT_INVOKER_EXT_PARAM_PARALLEL, parallel);
+        }
+        if (incrementalDir != null) {
+            pipelineInput.setAttribute(ANT_INVOKER_EXT_PARAM_INCREMENTAL_DIR, incrementalDir.getPath());
+        }
 
         final AbstractFacade facade = new PipelineFacade();
         facade.setLogger(new TestUtils.TestLogger());
@@ -286,6 +305,56 @@ public class TestGenMapAndTopicListModule {
         }
     }
         
+    @Test
+    public void testParallelThreads() throws Exception {
+        new Job(tempDirAbove).exportXml();
+        new Job(tempDirThreads).exportXml();
+        for (final String name: new String[] { ".job.xml", KEYDEF_LIST_FILE, SUBJECT_SCHEME_KEYDEF_LIST_FILE }) {
+            assertEquals(name, readFile(new File(tempDirAbove, name)), readFile(new File(tempDirThreads, name)));
+        }
+    }
+
+    @Test
+    public void testDependencyGraph() throws Exception {
+        assertFalse(new File(tempDirAbove, DEPENDENCY_GRAPH_FILE).exists());
+        final DependencyGraph graph = DependencyGraph.read(new File(tempDirThreads, DEPENDENCY_GRAPH_FILE));
+        final URI map = new File(srcDir, "root-map-02.ditamap").toURI();
+        assertNotNull(graph.getHash(map));
+        assertTrue(graph.getFiles().size() > 1);
+        assertFalse(graph.getDependencies(map, DependencyGraph.Type.HREF).isEmpty());
+        for (final URI f: graph.getFiles()) {
+            assertNotNull(f.toString(), graph.getHash(f));
+        }
+    }
+
+    @Test
+    public void testIdIndex() throws Exception {
+        final IdIndex index = IdIndex.read(new File(tempDirAbove, ID_INDEX_FILE));
+        final URI topic = URI.create("topics/target-topic-c.xml");
+        assertTrue(index.contains(topic));
+        assertEquals("topic-1", index.getFirstTopicId(topic));
+        assertTrue(index.hasTopicId(topic, "topic-1"));
+        assertTrue(index.contains(URI.create("root-map-02.ditamap")));
+        assertNull(index.getFirstTopicId(URI.create("root-map-02.ditamap")));
+    }
+
+    private String readFile(final File f) throws IOException {
+        final StringBuilder buf = new StringBuilder();
+        BufferedReader in = null;
+        try {
+            in = new BufferedReader(new FileReader(f));
+            String line = null;
+            while ((line = in.readLine()) != null) {
+                buf.append(line).append('\n');
+            }
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+        }
+        return buf.toString();
+    }
+
     private Properties readProperties(final File f)
             throws IOException, FileNotFoundException {
         final Properties p = new Properties();
@@ -10,11 +10,13 @@ package org.dita.dost.module;
 
 import static org.custommonkey.xmlunit.XMLAssert.assertXMLEqual;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
 
+import org.apache.commons.io.FileUtils;
 import org.custommonkey.xmlunit.XMLUnit;
 import org.dita.dost.TestUtils;
 import org.dita.dost.exception.DITAOTException;
@@ -91,6 +93,27 @@ public class TestTopicMergeModule {
                        new InputSource(tobecomparefile.toURI().toString()));
     }
 
+    @Test
+    public void testStyle() throws DITAOTException, IOException, SAXException
+    {
+        final File style = new File(tempDir, "style.xsl");
+        FileUtils.writeStringToFile(style,
+                "<xsl:stylesheet xmlns:xsl='http://www.w3.org/1999/XSL/Transform' version='1.0'>"
+                + "<xsl:template match='/'><xsl:copy-of select='.'/></xsl:template>"
+                + "</xsl:stylesheet>", "UTF-8");
+        pipelineInput.setAttribute("style", style.getPath());
+        final TopicMergeModule topicmergemodule = new TopicMergeModule();
+        topicmergemodule.setLogger(new TestUtils.TestLogger());
+        topicmergemodule.setJob(new Job(temporaryDir));
+        topicmergemodule.execute(pipelineInput);
+
+        assertXMLEqual(new InputSource(ditalistfile.toURI().toString()),
+                       new InputSource(tobecomparefile.toURI().toString()));
+        for (final String f: temporaryDir.list()) {
+            assertFalse(f, f.startsWith("merged") || f.startsWith("merge"));
+        }
+    }
+
     @After
     public void tearDown() throws IOException {
         TestUtils.forceDelete(tempDir);
@@ -0,0 +1,159 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.module;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.tools.ant.util.GlobPatternMapper;
+import org.dita.dost.TestUtils;
+import org.dita.dost.exception.DITAOTException;
+import org.dita.dost.pipeline.PipelineHashIO;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class XsltModuleTest {
+
+    private File tempDir;
+    private File srcDir;
+    private File style;
+    private File module;
+    private final List<File> includes = new ArrayList<File>();
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = TestUtils.createTempDir(getClass());
+        srcDir = new File(tempDir, "src");
+        for (int i = 0; i < 20; i++) {
+            final File f = new File("topic" + i + ".xml");
+            FileUtils.writeStringToFile(new File(srcDir, f.getPath()), "<topic id='t" + i + "'/>", "UTF-8");
+            includes.add(f);
+        }
+        style = new File(tempDir, "style.xsl");
+        FileUtils.writeStringToFile(style, "<xsl:stylesheet xmlns:xsl='http://www.w3.org/1999/XSL/Transform' version='1.0'>"
+                + "<xsl:import href='module.xsl'/>"
+                + "<xsl:output method='text'/>"
+                + "<xsl:param name='file'/>"
+                + "<xsl:template match='/'><xsl:value-of select='$file'/>:<xsl:apply-templates/></xsl:template>"
+                + "</xsl:stylesheet>", "UTF-8");
+        module = new File(tempDir, "module.xsl");
+        writeModule("a");
+    }
+
+    @Test
+    public void testSerial() throws Exception {
+        final File dst = new File(tempDir, "serial");
+        transform(1, dst);
+        assertOutput(dst, "a");
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        final File dst = new File(tempDir, "parallel");
+        transform(4, dst);
+        assertOutput(dst, "a");
+    }
+
+    @Test
+    public void testModifiedModule() throws Exception {
+        final File first = new File(tempDir, "first");
+        transform(1, first);
+        assertOutput(first, "a");
+
+        writeModule("b");
+        module.setLastModified(module.lastModified() + 2000);
+        final File second = new File(tempDir, "second");
+        transform(1, second);
+        assertOutput(second, "b");
+    }
+
+    @Test
+    public void testExtension() throws Exception {
+        final File dst = new File(tempDir, "extension");
+        final XsltModule x = newXsltModule(4, dst);
+        x.setExtension(".html");
+        x.execute(new PipelineHashIO());
+        for (final File f: includes) {
+            assertEquals(f.getName() + ":a", TestUtils.readFileToString(new File(dst, f.getName().replace(".xml", ".html"))).trim());
+        }
+    }
+
+    @Test
+    public void testMapper() throws Exception {
+        final File dst = new File(tempDir, "mapper");
+        final XsltModule x = newXsltModule(4, dst);
+        final GlobPatternMapper mapper = new GlobPatternMapper();
+        mapper.setFrom("topic1*.xml");
+        mapper.setTo("out*.html");
+        x.setMapper(mapper);
+        x.setExtension(".txt");
+        x.execute(new PipelineHashIO());
+        for (final File f: includes) {
+            final String[] outs = mapper.mapFileName(f.getPath());
+            if (outs != null) {
+                assertEquals(f.getName() + ":a", TestUtils.readFileToString(new File(dst, outs[0])).trim());
+            }
+        }
+        assertEquals(11, dst.list().length);
+    }
+
+    @Test
+    public void testFiledir() throws Exception {
+        final File f = new File("dir" + File.separator + "sub" + File.separator + "topic.xml");
+        FileUtils.writeStringToFile(new File(srcDir, f.getPath()), "<topic id='t'/>", "UTF-8");
+        FileUtils.writeStringToFile(style, "<xsl:stylesheet xmlns:xsl='http://www.w3.org/1999/XSL/Transform' version='1.0'>"
+                + "<xsl:output method='text'/>"
+                + "<xsl:param name='dir'/>"
+                + "<xsl:template match='/'><xsl:value-of select='$dir'/></xsl:template>"
+                + "</xsl:stylesheet>", "UTF-8");
+        final File dst = new File(tempDir, "filedir");
+        final XsltModule x = newXsltModule(1, dst);
+        x.setIncludes(Collections.singletonList(f));
+        x.setFiledirParam("dir");
+        x.execute(new PipelineHashIO());
+        assertEquals("dir/sub", TestUtils.readFileToString(new File(dst, f.getPath())).trim());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestUtils.forceDelete(tempDir);
+    }
+
+    private void transform(final int parallel, final File dst) throws DITAOTException {
+        newXsltModule(parallel, dst).execute(new PipelineHashIO());
+    }
+
+    private XsltModule newXsltModule(final int parallel, final File dst) {
+        final XsltModule x = new XsltModule();
+        x.setLogger(new TestUtils.TestLogger());
+        x.setStyle(style);
+        x.setIncludes(includes);
+        x.setSorceDir(srcDir);
+        x.setDestinationDir(dst);
+        x.setFilenameParam("file");
+        x.setParallel(parallel);
+        return x;
+    }
+
+    private void assertOutput(final File dst, final String value) throws IOException {
+        for (final File f: includes) {
+            assertEquals(f.getName() + ":" + value, TestUtils.readFileToString(new File(dst, f.getPath())).trim());
+        }
+    }
+
+    private void writeModule(final String value) throws IOException {
+        FileUtils.writeStringToFile(module, "<xsl:stylesheet xmlns:xsl='http://www.w3.org/1999/XSL/Transform' version='1.0'>"
+                + "<xsl:template match='topic'>" + value + "</xsl:template>"
+                + "</xsl:stylesheet>", "UTF-8");
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.reader;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.xerces.xni.grammars.XMLGrammarPool;
+import org.dita.dost.TestUtils;
+import org.dita.dost.util.XMLGrammarPoolImplUtils;
+import org.dita.dost.util.XMLUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.XMLReader;
+
+public class GrammarPoolManagerTest {
+
+    private File tempDir;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = TestUtils.createTempDir(getClass());
+        write(new File(tempDir, "test.dtd"), "<!ELEMENT root EMPTY><!ATTLIST root class CDATA '- topic/topic '>");
+        write(new File(tempDir, "test.xml"), "<!DOCTYPE root SYSTEM 'test.dtd'><root/>");
+    }
+
+    @Test
+    public void testSharedBetweenThreads() throws InterruptedException {
+        final XMLGrammarPool pool = GrammarPoolManager.getGrammarPool();
+        final AtomicReference<XMLGrammarPool> other = new AtomicReference<XMLGrammarPool>();
+        final Thread t = new Thread() {
+            @Override
+            public void run() {
+                other.set(GrammarPoolManager.getGrammarPool());
+            }
+        };
+        t.start();
+        t.join();
+        assertSame(pool, other.get());
+    }
+
+    @Test
+    public void testCacheGrammar() throws Exception {
+        final XMLGrammarPoolImplUtils pool = new XMLGrammarPoolImplUtils();
+        final XMLReader reader = XMLUtils.getXMLReader();
+        reader.setProperty("http://apache.org/xml/properties/internal/grammar-pool", pool);
+        reader.parse(new File(tempDir, "test.xml").toURI().toString());
+        assertEquals(1, pool.getGrammars().length);
+        reader.parse(new File(tempDir, "test.xml").toURI().toString());
+        assertEquals(1, pool.getGrammars().length);
+        assertNotNull(pool.retrieveGrammar(pool.getGrammars()[0].getGrammarDescription()));
+
+        pool.clear();
+        assertEquals(0, pool.getGrammars().length);
+        pool.lockPool();
+        reader.parse(new File(tempDir, "test.xml").toURI().toString());
+        assertEquals(0, pool.getGrammars().length);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestUtils.forceDelete(tempDir);
+    }
+
+    private void write(final File f, final String content) throws IOException {
+        Writer out = null;
+        try {
+            out = new OutputStreamWriter(new FileOutputStream(f), "UTF-8");
+            out.write(content);
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+}
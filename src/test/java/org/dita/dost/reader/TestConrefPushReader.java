@@ -10,7 +10,6 @@ package org.dita.dost.reader;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -55,11 +54,11 @@ public class TestConrefPushReader {
         final File filename = new File(srcDir, "conrefpush_stub.xml");
         final ConrefPushReader pushReader = new ConrefPushReader();
         pushReader.read(filename.getAbsoluteFile());
-        final Map<File, Hashtable<MoveKey, DocumentFragment>> pushSet = pushReader.getPushMap();
-        final Iterator<Map.Entry<File, Hashtable<MoveKey, DocumentFragment>>> it= pushSet.entrySet().iterator();
+        final Map<File, Map<MoveKey, DocumentFragment>> pushSet = pushReader.getPushMap();
+        final Iterator<Map.Entry<File, Map<MoveKey, DocumentFragment>>> it= pushSet.entrySet().iterator();
         if (it.hasNext()){
             // pushSet has only one entry, so there is no need to iterate it.
-            final Hashtable<MoveKey, DocumentFragment> table = it.next().getValue();
+            final Map<MoveKey, DocumentFragment> table = it.next().getValue();
             assertTrue(table.containsKey(new MoveKey("#X/A", "pushbefore")));
             XMLUnit.compareXML(
                     table.get(new MoveKey("#X/A", "pushbefore")).getOwnerDocument(),
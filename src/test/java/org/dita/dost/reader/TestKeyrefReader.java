@@ -10,6 +10,7 @@ package org.dita.dost.reader;
 
 import static org.custommonkey.xmlunit.XMLAssert.assertXMLEqual;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.dita.dost.util.URLUtils.*;
 
 import java.io.File;
@@ -21,15 +22,19 @@ import java.util.Set;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
 
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
 import org.custommonkey.xmlunit.XMLUnit;
 import org.xml.sax.InputSource;
 
 import org.dita.dost.TestUtils;
 import org.dita.dost.reader.KeyrefReader;
+import org.dita.dost.util.KeySpace.Definition;
 import org.junit.Test;
 
 public class TestKeyrefReader {
@@ -53,7 +58,7 @@ public class TestKeyrefReader {
         final KeyrefReader keyrefreader = new KeyrefReader();
         keyrefreader.setKeys(set);
         keyrefreader.read(toURI(filename.getAbsolutePath()));
-        final Map<String, Element> act= keyrefreader.getKeyDefinition();
+        final Map<String, Definition> act= keyrefreader.getKeyDefinition();
 
         final Map<String, String> exp = new HashMap<String, String>();
         exp.put("blatfeference", "<topicref keys='blatview blatfeference blatintro' href='blatview.dita' navtitle='blatview' locktitle='yes' class='- map/topicref '/>");
@@ -69,9 +74,21 @@ public class TestKeyrefReader {
         assertEquals(exp.keySet(), act.keySet());
         for (Map.Entry<String, String> e: exp.entrySet()) {
             final Document ev = keyDefToDoc(e.getValue());
-            final Document av = act.get(e.getKey()).getOwnerDocument();
+            final Document av = keyDefToDoc(act.get(e.getKey()));
             assertXMLEqual(ev, av);
         }
+        assertSame(act.get("blatview"), act.get("blatintro"));
+        assertEquals("keyword value", new String(act.get("keyword").getText("keyword")));
+    }
+    
+    private static Document keyDefToDoc(final Definition key) throws Exception {
+        final DOMResult r = new DOMResult();
+        final TransformerHandler h = ((SAXTransformerFactory) TransformerFactory.newInstance()).newTransformerHandler();
+        h.setResult(r);
+        h.startDocument();
+        key.getFragment().toSax(h);
+        h.endDocument();
+        return (Document) r.getNode();
     }
     
     private static Document keyDefToDoc(final String key) throws Exception {
@@ -0,0 +1,58 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+
+import org.dita.dost.TestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DelayConrefUtilsTest {
+
+    private static final File resourceDir = TestUtils.getResourceDir(DelayConrefUtilsTest.class);
+    private static final File srcDir = new File(resourceDir, "src");
+    private File tempDir;
+    private DelayConrefUtils utils;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = TestUtils.createTempDir(getClass());
+        TestUtils.copy(srcDir, tempDir);
+        utils = new DelayConrefUtils();
+        utils.setLogger(new TestUtils.TestLogger());
+    }
+
+    @Test
+    public void testFindTopicId() {
+        final File topic = new File(tempDir, "topic.dita");
+        assertTrue(utils.findTopicId(topic, "topic"));
+        assertTrue(utils.findTopicId(topic, "nested"));
+        assertFalse(utils.findTopicId(topic, "p"));
+        assertFalse(utils.findTopicId(new File(tempDir, "missing.dita"), "topic"));
+    }
+
+    @Test
+    public void testFindTopicIdIndex() {
+        final IdIndex index = new IdIndex();
+        index.add(URI.create("topic.dita"), "indexed", Collections.singleton("indexed"));
+        utils.setIdIndex(index, tempDir);
+        final File topic = new File(tempDir, "topic.dita");
+        assertTrue(utils.findTopicId(topic, "indexed"));
+        assertFalse(utils.findTopicId(topic, "topic"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestUtils.forceDelete(tempDir);
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.dita.dost.TestUtils;
+import org.dita.dost.util.DependencyGraph.Type;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DependencyGraphTest {
+
+    private static final URI MAP = URI.create("file:/src/root.ditamap");
+    private static final URI TOPIC = URI.create("file:/src/topic.dita");
+    private static final URI SCHEME = URI.create("file:/src/scheme.ditamap");
+    private static final URI OTHER = URI.create("file:/src/other.dita");
+
+    private File tempDir;
+    private DependencyGraph graph;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = TestUtils.createTempDir(getClass());
+        graph = new DependencyGraph();
+        graph.setConfiguration("config");
+        graph.addFile(MAP, "1", "ditamap");
+        graph.addFile(TOPIC, "2", "dita");
+        graph.addFile(SCHEME, "3", "ditamap");
+        graph.addFile(OTHER, "4", "dita");
+        graph.addDependency(MAP, URI.create("file:/src/topic.dita#topic"), Type.HREF);
+        graph.addDependency(MAP, OTHER, Type.HREF);
+        graph.addDependency(MAP, SCHEME, Type.SUBJECT_SCHEME);
+        graph.addDependency(TOPIC, MAP, Type.SUBJECT_SCHEME);
+    }
+
+    @Test
+    public void testReadWrite() throws IOException {
+        final File f = new File(tempDir, "graph");
+        graph.write(f);
+        final DependencyGraph act = DependencyGraph.read(f);
+        assertEquals("config", act.getConfiguration());
+        assertEquals(graph.getFiles(), act.getFiles());
+        assertEquals("2", act.getHash(TOPIC));
+        assertEquals(new HashSet<URI>(Arrays.asList(TOPIC, OTHER)), act.getDependencies(MAP, Type.HREF));
+        assertTrue(act.getChanged(graph).isEmpty());
+    }
+
+    @Test
+    public void testReadMissing() throws IOException {
+        assertNull(DependencyGraph.read(new File(tempDir, "missing")));
+    }
+
+    @Test
+    public void testGetChanged() {
+        final DependencyGraph current = new DependencyGraph();
+        current.setConfiguration("config");
+        current.addFile(MAP, "1", "ditamap");
+        current.addFile(TOPIC, "changed", "dita");
+        current.addFile(SCHEME, "3", "ditamap");
+        assertEquals(new HashSet<URI>(Arrays.asList(TOPIC, OTHER)), current.getChanged(graph));
+
+        current.setConfiguration("other");
+        assertEquals(current.getFiles(), current.getChanged(graph));
+        assertEquals(current.getFiles(), current.getChanged(null));
+    }
+
+    @Test
+    public void testGetDependents() {
+        final Set<URI> changed = Collections.singleton(SCHEME);
+        assertEquals(new HashSet<URI>(Arrays.asList(SCHEME, MAP, TOPIC)),
+                graph.getDependents(changed, EnumSet.of(Type.SUBJECT_SCHEME)));
+        assertEquals(Collections.singleton(SCHEME),
+                graph.getDependents(changed, EnumSet.of(Type.HREF)));
+        assertEquals(new HashSet<URI>(Arrays.asList(MAP)),
+                graph.getDirectDependents(Collections.singleton(OTHER), EnumSet.allOf(Type.class)));
+    }
+
+    @Test
+    public void testHash() {
+        assertEquals(DependencyGraph.hash("foo"), DependencyGraph.hash("foo"));
+        assertFalse(DependencyGraph.hash("foo").equals(DependencyGraph.hash("bar")));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestUtils.forceDelete(tempDir);
+    }
+
+}
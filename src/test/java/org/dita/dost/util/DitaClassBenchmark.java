@@ -0,0 +1,96 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.util;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmark {@link DitaClass#matches(String)} against matching with class attribute values parsed once
+ * into token arrays and cached by value.
+ *
+ * <p>Each element gets a new class attribute string instance, as with SAX, and is matched against a set
+ * of classes. Usage: {@code DitaClassBenchmark [elements=200000] [rounds=10]}</p>
+ */
+public final class DitaClassBenchmark {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final String[] VALUES = {
+        "- topic/p ", "- topic/topic concept/concept ", "- topic/image ", "- map/topicref mapgroup-d/keydef ",
+        "- topic/ph hi-d/b ", "- topic/xref ", "- topic/body concept/conbody ", "- topic/title ", "- topic/li ",
+        "- topic/ul ", "+ topic/ph sw-d/filepath ", "- topic/keyword ui-d/wintitle "
+    };
+    private static final DitaClass[] CLASSES = {
+        Constants.TOPIC_IMAGE, Constants.TOPIC_XREF, Constants.TOPIC_TOPIC, Constants.MAP_TOPICREF,
+        Constants.TOPIC_P, Constants.TOPIC_LINK, Constants.TOPIC_KEYWORD, Constants.TOPIC_TITLE,
+        Constants.TOPIC_FIG, Constants.TOPIC_OBJECT
+    };
+
+    private final ConcurrentMap<String, String[]> cache = new ConcurrentHashMap<String, String[]>();
+
+    public static void main(final String[] args) {
+        final int elements = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        final int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        new DitaClassBenchmark().run(elements, rounds);
+    }
+
+    private void run(final int elements, final int rounds) {
+        final Random random = new Random(1);
+        final String[] values = new String[elements];
+        for (int i = 0; i < elements; i++) {
+            values[i] = new String(VALUES[random.nextInt(VALUES.length)].toCharArray());
+        }
+        final String[] tokens = new String[CLASSES.length];
+        for (int i = 0; i < CLASSES.length; i++) {
+            tokens[i] = CLASSES[i].matcher.trim();
+        }
+        final double matches = (double) elements * CLASSES.length;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            int contains = 0;
+            for (final String value: values) {
+                for (final DitaClass cls: CLASSES) {
+                    if (cls.matches(value)) {
+                        contains++;
+                    }
+                }
+            }
+            final long containsTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            int cached = 0;
+            for (final String value: values) {
+                for (final String token: tokens) {
+                    if (matchesCached(value, token)) {
+                        cached++;
+                    }
+                }
+            }
+            final long cachedTime = System.nanoTime() - start;
+            if (contains != cached) {
+                throw new IllegalStateException("Match counts differ: " + contains + " != " + cached);
+            }
+            System.out.println(String.format("Round %d: DitaClass.matches %.1f ns, cached tokens %.1f ns per match",
+                                             round + 1, containsTime / matches, cachedTime / matches));
+        }
+    }
+
+    private boolean matchesCached(final String value, final String token) {
+        String[] ts = cache.get(value);
+        if (ts == null) {
+            ts = WHITESPACE.split(value.trim());
+            cache.putIfAbsent(value, ts);
+        }
+        for (final String t: ts) {
+            if (t.equals(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
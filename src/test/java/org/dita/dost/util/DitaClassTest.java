@@ -68,6 +68,8 @@ public class DitaClassTest {
     public void testMatchesString() {
         assertTrue(new DitaClass("- foo/bar ").matches("- foo/bar baz/qux "));
         assertTrue(new DitaClass("- foo/bar baz/qux ").matches("- foo/bar baz/qux "));
+        assertFalse(new DitaClass("- foo/ba ").matches("- foo/bar baz/qux "));
+        assertFalse(new DitaClass("- foo/bar ").matches((String) null));
     }
 
     @Test
@@ -0,0 +1,139 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import net.sf.saxon.Controller;
+
+import org.apache.commons.io.FileUtils;
+import org.dita.dost.TestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DocumentCacheTest {
+
+    private File tempDir;
+    private File data;
+    private Templates templates;
+
+    @Before
+    public void setUp() throws Exception {
+        tempDir = TestUtils.createTempDir(getClass());
+        data = new File(tempDir, "data.xml");
+        FileUtils.writeStringToFile(data, "<data>first</data>", "UTF-8");
+        final File style = new File(tempDir, "style.xsl");
+        FileUtils.writeStringToFile(style, "<xsl:stylesheet xmlns:xsl='http://www.w3.org/1999/XSL/Transform' version='2.0'>"
+                + "<xsl:output method='text'/>"
+                + "<xsl:template match='/'><xsl:value-of select=\"document('data.xml', /)\"/></xsl:template>"
+                + "</xsl:stylesheet>", "UTF-8");
+        templates = TransformerFactory.newInstance().newTemplates(new StreamSource(style));
+    }
+
+    @Test
+    public void testResolve() throws Exception {
+        final DocumentCache cache = new DocumentCache(1024 * 1024);
+        assertEquals("first", transform(cache));
+        assertEquals("first", transform(cache));
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+
+        FileUtils.writeStringToFile(data, "<data>second</data>", "UTF-8");
+        assertTrue(data.setLastModified(data.lastModified() - 10000));
+        assertEquals("second", transform(cache));
+        assertEquals(2, cache.getMisses());
+
+        cache.invalidate(data);
+        assertEquals("second", transform(cache));
+        assertEquals(3, cache.getMisses());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testMaxSize() throws Exception {
+        final DocumentCache cache = new DocumentCache(1);
+        assertEquals("first", transform(cache));
+        assertEquals("first", transform(cache));
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void testCloseDelegateSource() throws Exception {
+        final DocumentCache cache = new DocumentCache(1024 * 1024);
+        final List<TrackingInputStream> opened = new ArrayList<TrackingInputStream>();
+        final URIResolver resolver = new URIResolver() {
+            @Override
+            public Source resolve(final String href, final String base) throws TransformerException {
+                final File f = new File(tempDir, href);
+                try {
+                    final TrackingInputStream in = new TrackingInputStream(new FileInputStream(f));
+                    opened.add(in);
+                    return new StreamSource(in, f.toURI().toString());
+                } catch (final IOException e) {
+                    throw new TransformerException(e);
+                }
+            }
+        };
+        assertEquals("first", transform(cache, resolver));
+        assertEquals("first", transform(cache, resolver));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, opened.size());
+        assertTrue(opened.get(1).closed);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestUtils.forceDelete(tempDir);
+    }
+
+    private String transform(final DocumentCache cache) throws Exception {
+        return transform(cache, null);
+    }
+
+    private String transform(final DocumentCache cache, final URIResolver resolver) throws Exception {
+        final Transformer t = templates.newTransformer();
+        t.setURIResolver(cache.newURIResolver(resolver, ((Controller) t).getConfiguration()));
+        final StreamSource source = new StreamSource(new StringReader("<root/>"), new File(tempDir, "in.xml").toURI().toString());
+        final StringWriter buf = new StringWriter();
+        t.transform(source, new StreamResult(buf));
+        return buf.toString();
+    }
+
+    private static final class TrackingInputStream extends FilterInputStream {
+        boolean closed;
+
+        TrackingInputStream(final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+
+}
@@ -113,6 +113,26 @@ public class FilterUtilsTest {
         assertTrue(f.needExclude(attr("os", "windows"), new String[][] {{"props", "os"}}));
     }
     
+    @Test
+    public void testNeedExcludeMemoized() {
+        final Map<FilterKey, Action> fm = new HashMap<FilterKey, Action>();
+        fm.put(new FilterKey("os", "windows"), Action.EXCLUDE);
+        fm.put(new FilterKey("platform", "windows"), Action.EXCLUDE);
+        final FilterUtils f = new FilterUtils(false, fm);
+        f.setLogger(new TestUtils.TestLogger());
+
+        final String[][] os = new String[][] {{"props", "os"}};
+        for (int i = 0; i < 2; i++) {
+            assertTrue(f.needExclude(attr("os", "windows"), os));
+            assertFalse(f.needExclude(attr("os", "windows"), new String[][] {{"props", "gui"}}));
+            assertTrue(f.needExclude(attr("os", "windows"), new String[][] {{"props", "os"}}));
+            assertFalse(f.needExclude(attr("os", "unix"), os));
+            assertTrue(f.needExclude(attr("platform", "windows"), new String[0][0]));
+            assertFalse(f.needExclude(attr("platform", "windows unix"), new String[0][0]));
+            assertFalse(f.needExclude(new AttributesImpl(), new String[0][0]));
+        }
+    }
+    
     @Test
     public void testNeedExcludeLabel() {
         final Map<FilterKey, Action> fm = new HashMap<FilterKey, Action>();
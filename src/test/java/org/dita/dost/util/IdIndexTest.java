@@ -0,0 +1,72 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.dita.dost.TestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IdIndexTest {
+
+    private static final URI TOPIC = URI.create("topic.dita");
+    private static final URI MAP = URI.create("root.ditamap");
+
+    private File tempDir;
+    private IdIndex index;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = TestUtils.createTempDir(getClass());
+        index = new IdIndex();
+        index.add(TOPIC, "topic", new HashSet<String>(Arrays.asList("topic", "nested")));
+        index.add(MAP, null, Collections.<String>emptySet());
+    }
+
+    @Test
+    public void testLookup() {
+        assertTrue(index.contains(TOPIC));
+        assertTrue(index.contains(URI.create("topic.dita#topic")));
+        assertFalse(index.contains(URI.create("other.dita")));
+        assertEquals("topic", index.getFirstTopicId(TOPIC));
+        assertNull(index.getFirstTopicId(MAP));
+        assertTrue(index.hasTopicId(TOPIC, "nested"));
+        assertFalse(index.hasTopicId(TOPIC, "p"));
+        assertFalse(index.hasTopicId(MAP, "ref"));
+        assertTrue(index.getTopicIds(URI.create("other.dita")).isEmpty());
+    }
+
+    @Test
+    public void testReadWrite() throws IOException {
+        final File f = new File(tempDir, "id.index");
+        index.write(f);
+        final IdIndex act = IdIndex.read(f);
+        assertEquals(index.getFiles(), act.getFiles());
+        assertEquals("topic", act.getFirstTopicId(TOPIC));
+        assertNull(act.getFirstTopicId(MAP));
+        assertEquals(index.getTopicIds(TOPIC), act.getTopicIds(TOPIC));
+        assertEquals(index.getTopicIds(MAP), act.getTopicIds(MAP));
+    }
+
+    @Test
+    public void testReadMissing() throws IOException {
+        assertNull(IdIndex.read(new File(tempDir, "missing")));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestUtils.forceDelete(tempDir);
+    }
+
+}
@@ -73,6 +73,72 @@ public final class JobTest {
         assertEquals(new File("/foo/bar"), job.getInputDir());
     }
 
+    @Test
+    public void testWriteStore() throws IOException, URISyntaxException {
+        final File dir = new File(tempDir, "store");
+        dir.mkdirs();
+        final Job src = new Job(dir);
+        src.setProperty("foo", "bar");
+        final Job.FileInfo fi = new Job.FileInfo.Builder().uri(new URI("foo/bar.dita")).src(new URI("file:/src/foo/bar.dita"))
+                .format("dita").hasConref(true).isCopyToSource(true).build();
+        src.add(fi);
+        src.add(new Job.FileInfo.Builder().uri(new URI("baz.dita")).build());
+        src.write();
+        assertTrue(new File(dir, ".job.bin").exists());
+        assertFalse(new File(dir, ".job.xml").exists());
+
+        final Job dst = new Job(dir);
+        assertEquals("bar", dst.getProperty("foo"));
+        assertEquals(fi.toString(), dst.getFileInfo(fi.uri).toString());
+        assertEquals(fi.src, dst.getFileInfo(fi.uri).src);
+        assertEquals(2, dst.getFileInfo().size());
+    }
+
+    @Test
+    public void testWriteStoreIncremental() throws IOException, URISyntaxException {
+        final File dir = new File(tempDir, "incremental");
+        dir.mkdirs();
+        final File store = new File(dir, ".job.bin");
+        final Job job = new Job(dir);
+        for (int i = 0; i < 100; i++) {
+            job.add(new Job.FileInfo.Builder().uri(new URI("topic" + i + ".dita")).build());
+        }
+        job.write();
+        final long full = store.length();
+
+        job.write();
+        assertEquals(full, store.length());
+
+        job.getFileInfo(new URI("topic0.dita")).hasKeyref = true;
+        job.remove(job.getFileInfo(new URI("topic1.dita")));
+        job.write();
+        assertTrue(store.length() > full);
+        assertTrue(store.length() < full + full / 10);
+
+        final Job act = new Job(dir);
+        assertTrue(act.getFileInfo(new URI("topic0.dita")).hasKeyref);
+        assertNull(act.getFileInfo(new URI("topic1.dita")));
+        assertEquals(99, act.getFileInfo().size());
+    }
+
+    @Test
+    public void testExportXml() throws IOException, URISyntaxException {
+        final File dir = new File(tempDir, "export");
+        dir.mkdirs();
+        final Job src = new Job(dir);
+        src.setProperty("foo", "bar");
+        src.add(new Job.FileInfo.Builder().uri(new URI("foo.dita")).hasLink(true).build());
+        src.write();
+        src.exportXml();
+        assertTrue(new File(dir, ".job.xml").exists());
+        assertFalse(src.isStale(dir));
+
+        new File(dir, ".job.bin").delete();
+        final Job act = new Job(dir);
+        assertEquals("bar", act.getProperty("foo"));
+        assertTrue(act.getFileInfo(new URI("foo.dita")).hasLink);
+    }
+
     @AfterClass
     public static void tearDown() throws IOException {
         TestUtils.forceDelete(tempDir);
@@ -0,0 +1,103 @@
+/*
+ * This file is part of the DITA Open Toolkit project.
+ * See the accompanying license.txt file for applicable licenses.
+ */
+package org.dita.dost.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.stream.StreamSource;
+
+import org.dita.dost.TestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TemplatesCacheTest {
+
+    private File tempDir;
+    private File style;
+    private File module;
+    private int compiled;
+    private final TemplatesCache.Compiler compiler = new TemplatesCache.Compiler() {
+        @Override
+        public Templates compile(final Source style, final URIResolver resolver) throws TransformerConfigurationException {
+            compiled++;
+            final TransformerFactory tf = TransformerFactory.newInstance();
+            tf.setURIResolver(resolver);
+            return tf.newTemplates(style);
+        }
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = TestUtils.createTempDir(getClass());
+        style = new File(tempDir, "style.xsl");
+        module = new File(tempDir, "module.xsl");
+        write(style, "<xsl:stylesheet xmlns:xsl='http://www.w3.org/1999/XSL/Transform' version='2.0'>"
+                + "<xsl:import href='module.xsl'/></xsl:stylesheet>");
+        write(module, "<xsl:stylesheet xmlns:xsl='http://www.w3.org/1999/XSL/Transform' version='2.0'/>");
+        TemplatesCache.clear();
+    }
+
+    @Test
+    public void testGetTemplates() throws Exception {
+        final Templates t = TemplatesCache.getTemplates(new StreamSource(style), null, compiler);
+        assertSame(t, TemplatesCache.getTemplates(new StreamSource(style), null, compiler));
+        assertEquals(1, compiled);
+
+        assertTrue(module.setLastModified(module.lastModified() - 10000));
+        assertNotSame(t, TemplatesCache.getTemplates(new StreamSource(style), null, compiler));
+        assertEquals(2, compiled);
+    }
+
+    @Test
+    public void testGetTemplatesResolver() throws Exception {
+        final URIResolver first = new TestURIResolver();
+        final URIResolver second = new TestURIResolver();
+        final Templates t = TemplatesCache.getTemplates(new StreamSource(style), first, compiler);
+        assertSame(t, TemplatesCache.getTemplates(new StreamSource(style), first, compiler));
+        assertEquals(1, compiled);
+
+        assertNotSame(t, TemplatesCache.getTemplates(new StreamSource(style), second, compiler));
+        assertNotSame(t, TemplatesCache.getTemplates(new StreamSource(style), null, compiler));
+        assertEquals(3, compiled);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TemplatesCache.clear();
+        TestUtils.forceDelete(tempDir);
+    }
+
+    private static final class TestURIResolver implements URIResolver {
+        @Override
+        public Source resolve(final String href, final String base) {
+            return null;
+        }
+    }
+
+    private void write(final File f, final String content) throws IOException {
+        Writer out = null;
+        try {
+            out = new OutputStreamWriter(new FileOutputStream(f), "UTF-8");
+            out.write(content);
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+}
@@ -8,16 +8,49 @@
  */
 package org.dita.dost.util;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 import org.dita.dost.util.DITAOTCollator;
 import org.junit.Test;
-import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.*;
 public class TestDITAOTCollator {
     @Test
     public void testgetinstance()
     {
 
         assertNotSame(DITAOTCollator.getInstance(Locale.US),DITAOTCollator.getInstance(Locale.UK));
+        assertSame(DITAOTCollator.getInstance(Locale.US),DITAOTCollator.getInstance(Locale.US));
+    }
+
+    @Test
+    public void testGetSortKey() {
+        final DITAOTCollator collator = DITAOTCollator.getInstance(Locale.GERMANY);
+        final String[] values = { "apple", "Apple", "äpfel", "Zebra", "zoo", "über", "", "10", "2" };
+        for (final String a: values) {
+            for (final String b: values) {
+                assertEquals(a + " " + b,
+                        Integer.signum(collator.compare(a, b)),
+                        Integer.signum(DITAOTCollator.compareSortKeys(collator.getSortKey(a), collator.getSortKey(b))));
+            }
+        }
+    }
+
+    @Test
+    public void testSort() {
+        final DITAOTCollator collator = DITAOTCollator.getInstance(Locale.JAPAN);
+        final List<String> exp = new ArrayList<String>(Arrays.asList("あ", "ア", "か", "b", "a", "B", "漢字", "A"));
+        Collections.sort(exp, collator);
+        final List<String> act = new ArrayList<String>(Arrays.asList("あ", "ア", "か", "b", "a", "B", "漢字", "A"));
+        collator.sort(act, new DITAOTCollator.SortString<String>() {
+            @Override
+            public String getSortString(final String item) {
+                return item;
+            }
+        });
+        assertEquals(exp, act);
     }
 
 }
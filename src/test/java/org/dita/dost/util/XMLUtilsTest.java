@@ -7,14 +7,29 @@ package org.dita.dost.util;
 import static javax.xml.XMLConstants.*;
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.Transformer;
+
+import org.dita.dost.TestUtils;
 import org.w3c.dom.Element;
 import org.w3c.dom.Document;
 import org.w3c.dom.DOMImplementation;
 import org.w3c.dom.Attr;
 import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLFilter;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.DefaultHandler2;
 import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.XMLFilterImpl;
 import org.junit.Test;
 
 public class XMLUtilsTest {
@@ -142,6 +157,66 @@ public class XMLUtilsTest {
     }
 
 
+    @Test
+    public void testPooledInstances() throws Exception {
+        final XMLReader reader = XMLUtils.borrowXMLReader();
+        final Transformer transformer = XMLUtils.borrowTransformer();
+        assertNotNull(reader);
+        assertNotNull(transformer);
+        XMLUtils.releaseXMLReader(reader);
+        XMLUtils.releaseTransformer(transformer);
+        boolean reused = false;
+        for (int i = 0; i < 64 && !reused; i++) {
+            reused = XMLUtils.borrowXMLReader() == reader;
+        }
+        assertTrue(reused);
+        reused = false;
+        for (int i = 0; i < 64 && !reused; i++) {
+            reused = XMLUtils.borrowTransformer() == transformer;
+        }
+        assertTrue(reused);
+    }
+
+    @Test
+    public void testReleaseXMLReaderClearsHandlerProperties() throws Exception {
+        final XMLReader reader = XMLUtils.borrowXMLReader();
+        final DefaultHandler2 handler = new DefaultHandler2();
+        reader.setProperty("http://xml.org/sax/properties/lexical-handler", handler);
+        reader.setProperty("http://xml.org/sax/properties/declaration-handler", handler);
+        XMLUtils.releaseXMLReader(reader);
+        assertNull(reader.getProperty("http://xml.org/sax/properties/lexical-handler"));
+        assertNull(reader.getProperty("http://xml.org/sax/properties/declaration-handler"));
+    }
+
+    @Test
+    public void testTransform() throws Exception {
+        final File tempDir = TestUtils.createTempDir(getClass());
+        try {
+            final File src = new File(tempDir, "src.xml");
+            final Writer out = new OutputStreamWriter(new FileOutputStream(src), "UTF-8");
+            try {
+                out.write("<foo><bar/></foo>");
+            } finally {
+                out.close();
+            }
+            final XMLFilter filter = new XMLFilterImpl() {
+                @Override
+                public void startElement(final String uri, final String localName, final String qName, final Attributes atts) throws SAXException {
+                    super.startElement(uri, localName, qName, new XMLUtils.AttributesBuilder(atts).add("baz", "qux").build());
+                }
+            };
+            final File first = new File(tempDir, "first.xml");
+            XMLUtils.transform(src, first, Arrays.asList(filter));
+            final File second = new File(tempDir, "second.xml");
+            XMLUtils.transform(src, second, Collections.<XMLFilter>emptyList(),
+                    XMLUtils.borrowXMLReader(), XMLUtils.borrowTransformer());
+            assertTrue(TestUtils.readFileToString(first).contains("<bar baz=\"qux\"/>"));
+            assertFalse(TestUtils.readFileToString(second).contains("baz"));
+        } finally {
+            TestUtils.forceDelete(tempDir);
+        }
+    }
+
     @Test
     public void testEscapeXMLString() {
         String result = null;
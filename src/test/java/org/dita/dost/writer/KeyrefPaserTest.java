@@ -9,10 +9,7 @@ import static org.custommonkey.xmlunit.XMLAssert.*;
 import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.net.URI;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -28,6 +25,9 @@ import javax.xml.transform.sax.TransformerHandler;
 import org.apache.xml.resolver.tools.CatalogResolver;
 import org.custommonkey.xmlunit.XMLUnit;
 import org.dita.dost.util.Job;
+import org.dita.dost.util.KeySpace;
+import org.dita.dost.util.KeySpace.Definition;
+import org.dita.dost.util.KeySpace.Fragment;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -48,8 +48,7 @@ public class KeyrefPaserTest {
     private static final File expDir = new File(resourceDir, "exp");
     private static CatalogResolver resolver;
 
-    private static Map<String, Element> keyDefinition;
-    private final static Map<String, URI> keymap = new HashMap<String, URI>();
+    private static KeySpace keySpace;
 
     @BeforeClass
     public static void setUp() throws Exception {
@@ -74,9 +73,8 @@ public class KeyrefPaserTest {
         final KeyrefPaser parser = new KeyrefPaser();
         parser.setLogger(new TestUtils.TestLogger());
         parser.setJob(new Job(tempDir));
-        parser.setKeyDefinition(keyDefinition);
+        parser.setKeySpace(keySpace);
         parser.setCurrentFile(new File("a.xml"));
-        parser.setKeyMap(keymap);
         parser.write(new File("a.xml"));
 
         assertXMLEqual(new InputSource(new File(expDir, "a.xml").toURI().toString()),
@@ -88,9 +86,8 @@ public class KeyrefPaserTest {
         final KeyrefPaser parser = new KeyrefPaser();
         parser.setLogger(new TestUtils.TestLogger());
         parser.setJob(new Job(tempDir));
-        parser.setKeyDefinition(keyDefinition);
+        parser.setKeySpace(keySpace);
         parser.setCurrentFile(new File("b.ditamap"));
-        parser.setKeyMap(keymap);
         parser.write(new File("b.ditamap"));
 
         assertXMLEqual(new InputSource(new File(expDir, "b.ditamap").toURI().toString()),
@@ -98,7 +95,7 @@ public class KeyrefPaserTest {
     }
 
     @Test
-    public void testDomToSax() throws TransformerConfigurationException, SAXException, IOException, ParserConfigurationException, NoSuchMethodException, SecurityException, IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+    public void testDomToSax() throws TransformerConfigurationException, SAXException, IOException, ParserConfigurationException {
         final DocumentBuilder b = DocumentBuilderFactory.newInstance().newDocumentBuilder();
         
         assertXMLEqual(b.parse(new InputSource(new StringReader("<wrapper>bar qux quxx</wrapper>"))),
@@ -113,21 +110,15 @@ public class KeyrefPaserTest {
                 domToSax(b.parse(new InputSource(new StringReader("<foo>bar <baz class='- topic/tm '>qux</baz> quxx</foo>"))), false));
     }
     
-    private Document domToSax(final Document doc, final boolean retain) throws TransformerConfigurationException, SAXException, NoSuchMethodException, SecurityException, IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+    private Document domToSax(final Document doc, final boolean retain) throws TransformerConfigurationException, SAXException {
         final DOMResult r = new DOMResult();
         final SAXTransformerFactory f = ((SAXTransformerFactory) TransformerFactory.newInstance());
         final TransformerHandler h = f.newTransformerHandler();
         h.setResult(r);
         
-        final KeyrefPaser parser = new KeyrefPaser();
-        parser.setContentHandler(h);
-        
-        final Method m = KeyrefPaser.class.getDeclaredMethod("domToSax", Element.class, boolean.class);
-        m.setAccessible(true);
-        
         h.startDocument();
         h.startElement("", "wrapper", "wrapper", new AttributesImpl());
-        m.invoke(parser, doc.getDocumentElement(), retain);
+        new Fragment(doc.getDocumentElement()).toSax(h, retain);
         h.endElement("", "wrapper", "wrapper");
         h.endDocument();
         
@@ -147,16 +138,15 @@ public class KeyrefPaserTest {
         documentBuilder.setEntityResolver(resolver);
         final Document document = documentBuilder.parse(inputSource);
 
-        final Map<String, Element> keys = new HashMap<String, Element>();
+        final Map<String, URI> keymap = new HashMap<String, URI>();
+        final Map<String, Definition> keys = new HashMap<String, Definition>();
         final NodeList keydefs = document.getElementsByTagName("keydef");
         for (int i = 0; i < keydefs.getLength(); i++) {
             final Element keydef = (Element) keydefs.item(i);
             keymap.put(keydef.getAttribute("keys"), new URI(keydef.getAttribute("href")));
-            final Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-            doc.appendChild(doc.importNode(keydef, true));
-            keys.put(keydef.getAttribute("keys"), keydef);
+            keys.put(keydef.getAttribute("keys"), new Definition(keydef));
         }
-        keyDefinition = Collections.unmodifiableMap(keys);
+        keySpace = new KeySpace(keys, keymap);
     }
     
 }
@@ -12,7 +12,6 @@ import static org.apache.commons.io.FileUtils.*;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -103,10 +102,10 @@ public class TestConrefPushParser {
         final ConrefPushReader reader = new ConrefPushReader();
 
         reader.read(inputFile.getAbsoluteFile());
-        final Map<File, Hashtable<MoveKey, DocumentFragment>> pushSet = reader.getPushMap();
-        final Iterator<Map.Entry<File, Hashtable<MoveKey, DocumentFragment>>> iter = pushSet.entrySet().iterator();
+        final Map<File, Map<MoveKey, DocumentFragment>> pushSet = reader.getPushMap();
+        final Iterator<Map.Entry<File, Map<MoveKey, DocumentFragment>>> iter = pushSet.entrySet().iterator();
         if(iter.hasNext()){
-            final Map.Entry<File, Hashtable<MoveKey, DocumentFragment>> entry = iter.next();
+            final Map.Entry<File, Map<MoveKey, DocumentFragment>> entry = iter.next();
             // initialize the parsed file
             copyFile(new File(srcDir, "conrefpush_stub2_backup.xml"), entry.getKey());
             //            final Content content = new ContentImpl();